@@ -29,6 +29,7 @@ import java.io.UnsupportedEncodingException;
  */
 public class ByteBuffer {
     private static final int MAX_WASTE = 16384;
+    private static final byte[] EMPTY = new byte[0];
     /**
      * Stored bytes
      */
@@ -43,6 +44,10 @@ public class ByteBuffer {
      * Number of bytes stored in the array.
      */
     private int usedSize;
+    /**
+     * Pool the array was taken from, <code>null</code> if the array is owned by this link.
+     */
+    private SegmentPool pool;
 
     /**
      * Creates instance of ByteBuffer already filled by bytes.
@@ -66,6 +71,28 @@ public class ByteBuffer {
         usedSize = 0;
     }
 
+    /**
+     * Creates instance of ByteBuffer with array taken from segment pool. Links appended to the chain are taken from the same
+     * pool, segments should be returned by {@link #release()} once the data is not needed anymore.
+     *
+     * @param pool segment pool
+     * @since 4.3
+     */
+    public ByteBuffer(SegmentPool pool) {
+        bytes = pool.allocateBytes();
+        cacheSize = bytes.length;
+        usedSize = 0;
+        this.pool = pool;
+    }
+
+    private ByteBuffer createNext() {
+        ByteBuffer result = (pool != null) ? new ByteBuffer(pool) : new ByteBuffer(cacheSize * 2);
+
+        result.prev = this;
+
+        return result;
+    }
+
     /**
      * Appends byte to array if there are unfilled positions in it. Otherwize creates next link in the chain, and appends the
      * byte to it.
@@ -84,8 +111,7 @@ public class ByteBuffer {
 
             return this;
         } else {
-            next = new ByteBuffer(cacheSize * 2);
-            next.prev = this;
+            next = createNext();
 
             return next.append(c);
         }
@@ -119,8 +145,7 @@ public class ByteBuffer {
             len -= av;
         }
 
-        next = new ByteBuffer(cacheSize * 2);
-        next.prev = this;
+        next = createNext();
 
         return next.append(bs, off, len);
     }
@@ -239,15 +264,66 @@ public class ByteBuffer {
      */
     public void reset() {
         usedSize = 0;
+
+        if (next != null && next.isPooled()) {
+            next.release();
+        }
+
         next = null;
         prev = null;
     }
 
+    /**
+     * Returns pooled arrays of this link and all following links to the segment pool. Released links are empty and
+     * detached from the chain.
+     *
+     * @since 4.3
+     */
+    public void release() {
+        ByteBuffer b = this;
+
+        while (b != null) {
+            ByteBuffer n = b.next;
+
+            if (b.pool != null) {
+                b.pool.releaseBytes(b.bytes);
+                b.bytes = EMPTY;
+                b.cacheSize = 0;
+            }
+
+            b.usedSize = 0;
+            b.next = null;
+            b.prev = null;
+            b = n;
+        }
+    }
+
+    /**
+     * @return <code>true</code> if links of this chain are taken from segment pool
+     * @since 4.3
+     */
+    public boolean isPooled() {
+        return pool != null;
+    }
+
     /**
      * @since 4.0
      */
     public void compact() {
-        if (bytes.length - usedSize > MAX_WASTE) {
+        if (pool != null) {
+
+            // link is detached from the pool: filled segment is kept as is, partially filled one is copied
+            if (usedSize < bytes.length) {
+                byte[] bs = new byte[usedSize];
+
+                System.arraycopy(bytes, 0, bs, 0, usedSize);
+                pool.releaseBytes(bytes);
+                this.bytes = bs;
+                this.cacheSize = bs.length;
+            }
+
+            pool = null;
+        } else if (bytes.length - usedSize > MAX_WASTE) {
             byte[] bs = new byte[usedSize];
 
             System.arraycopy(bytes, 0, bs, 0, usedSize);
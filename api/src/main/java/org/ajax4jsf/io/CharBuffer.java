@@ -29,6 +29,7 @@ import java.io.UnsupportedEncodingException;
  */
 public class CharBuffer {
     private static final int MAX_WASTE = 16384;
+    private static final char[] EMPTY = new char[0];
     private static final int MIN_CACHE_SIZE = 64;
     /**
      * Length of char array.
@@ -44,6 +45,10 @@ public class CharBuffer {
      * number of characters stored in the array.
      */
     private int usedSize;
+    /**
+     * Pool the array was taken from, <code>null</code> if the array is owned by this link.
+     */
+    private SegmentPool pool;
 
     /**
      * Creates instance of CharBuffer already filled by chars.
@@ -72,6 +77,28 @@ public class CharBuffer {
         usedSize = 0;
     }
 
+    /**
+     * Creates instance of CharBuffer with array taken from segment pool. Links appended to the chain are taken from the same
+     * pool, segments should be returned by {@link #release()} once the data is not needed anymore.
+     *
+     * @param pool segment pool
+     * @since 4.3
+     */
+    public CharBuffer(SegmentPool pool) {
+        chars = pool.allocateChars();
+        cacheSize = chars.length;
+        usedSize = 0;
+        this.pool = pool;
+    }
+
+    private CharBuffer createNext() {
+        CharBuffer result = (pool != null) ? new CharBuffer(pool) : new CharBuffer(cacheSize * 2);
+
+        result.prev = this;
+
+        return result;
+    }
+
     /**
      * Appends character to array chars if there are unfilled positions in it. Otherwise creates next link in the chain, and
      * appends the character to it.
@@ -90,8 +117,7 @@ public class CharBuffer {
 
             return this;
         } else {
-            next = new CharBuffer(cacheSize * 2);
-            next.prev = this;
+            next = createNext();
 
             return next.append(c);
         }
@@ -125,8 +151,7 @@ public class CharBuffer {
             len -= av;
         }
 
-        next = new CharBuffer(cacheSize * 2);
-        next.prev = this;
+        next = createNext();
 
         return next.append(cs, off, len);
     }
@@ -239,15 +264,66 @@ public class CharBuffer {
      */
     public void reset() {
         usedSize = 0;
+
+        if (next != null && next.isPooled()) {
+            next.release();
+        }
+
         next = null;
         prev = null;
     }
 
+    /**
+     * Returns pooled arrays of this link and all following links to the segment pool. Released links are empty and
+     * detached from the chain.
+     *
+     * @since 4.3
+     */
+    public void release() {
+        CharBuffer b = this;
+
+        while (b != null) {
+            CharBuffer n = b.next;
+
+            if (b.pool != null) {
+                b.pool.releaseChars(b.chars);
+                b.chars = EMPTY;
+                b.cacheSize = 0;
+            }
+
+            b.usedSize = 0;
+            b.next = null;
+            b.prev = null;
+            b = n;
+        }
+    }
+
+    /**
+     * @return <code>true</code> if links of this chain are taken from segment pool
+     * @since 4.3
+     */
+    public boolean isPooled() {
+        return pool != null;
+    }
+
     /**
      * @since 4.0
      */
     public void compact() {
-        if (chars.length - usedSize > MAX_WASTE) {
+        if (pool != null) {
+
+            // link is detached from the pool: filled segment is kept as is, partially filled one is copied
+            if (usedSize < chars.length) {
+                char[] cs = new char[usedSize];
+
+                System.arraycopy(chars, 0, cs, 0, usedSize);
+                pool.releaseChars(chars);
+                this.chars = cs;
+                this.cacheSize = cs.length;
+            }
+
+            pool = null;
+        } else if (chars.length - usedSize > MAX_WASTE) {
             char[] cs = new char[usedSize];
 
             System.arraycopy(chars, 0, cs, 0, usedSize);
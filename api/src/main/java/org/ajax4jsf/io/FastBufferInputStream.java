@@ -82,7 +82,7 @@ public class FastBufferInputStream extends InputStream {
 
         index++;
 
-        return c;
+        return c & 0xFF;
     }
 
     /**
@@ -24,6 +24,8 @@ import java.io.IOException;
 import java.io.OutputStream;
 import java.io.UnsupportedEncodingException;
 import java.io.Writer;
+import java.nio.channels.GatheringByteChannel;
+import java.nio.channels.WritableByteChannel;
 
 /**
  * Class for writing to chain of byte arrays extending OutputStream.
@@ -70,6 +72,17 @@ public class FastBufferOutputStream extends OutputStream {
         this(new ByteBuffer(initialSize));
     }
 
+    /**
+     * Creates instance that takes links of the chain from segment pool. Segments are returned to the pool by
+     * {@link #release()}, so the chain should not be used after that.
+     *
+     * @param pool
+     * @since 4.3
+     */
+    public FastBufferOutputStream(SegmentPool pool) {
+        this(new ByteBuffer(pool));
+    }
+
     /**
      * @see java.io.OutputStream.write(int c)
      */
@@ -168,6 +181,64 @@ public class FastBufferOutputStream extends OutputStream {
         }
     }
 
+    /**
+     * Wraps links of the chain into NIO buffers without copying the data.
+     *
+     * @return array of buffers, one per non-empty link
+     * @since 4.3
+     */
+    public java.nio.ByteBuffer[] toByteBuffers() {
+        int count = 0;
+
+        for (ByteBuffer b = firstBuffer; b != null; b = b.getNext()) {
+            if (b.getUsedSize() > 0) {
+                count++;
+            }
+        }
+
+        java.nio.ByteBuffer[] result = new java.nio.ByteBuffer[count];
+        int index = 0;
+
+        for (ByteBuffer b = firstBuffer; b != null; b = b.getNext()) {
+            if (b.getUsedSize() > 0) {
+                result[index++] = java.nio.ByteBuffer.wrap(b.getBytes(), 0, b.getUsedSize());
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Writes all data written up to the moment to channel. Gathering channels receive all links of the chain in one call,
+     * without compaction of data into single array.
+     *
+     * @param channel
+     * @throws IOException
+     * @since 4.3
+     */
+    public void writeTo(WritableByteChannel channel) throws IOException {
+        java.nio.ByteBuffer[] buffers = toByteBuffers();
+
+        if (channel instanceof GatheringByteChannel) {
+            GatheringByteChannel gatheringChannel = (GatheringByteChannel) channel;
+            int offset = 0;
+
+            while (offset < buffers.length) {
+                gatheringChannel.write(buffers, offset, buffers.length - offset);
+
+                while (offset < buffers.length && !buffers[offset].hasRemaining()) {
+                    offset++;
+                }
+            }
+        } else {
+            for (java.nio.ByteBuffer buffer : buffers) {
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+            }
+        }
+    }
+
     /**
      * Writes all data written up to the moment to out.
      *
@@ -249,4 +320,16 @@ public class FastBufferOutputStream extends OutputStream {
         this.lastBuffer = this.firstBuffer;
         this.length = 0;
     }
+
+    /**
+     * Returns pooled segments of the chain to the segment pool. Stream is empty after this call, data obtained from
+     * {@link #getFirstBuffer()} should not be used anymore.
+     *
+     * @since 4.3
+     */
+    public void release() {
+        this.firstBuffer.release();
+        this.lastBuffer = this.firstBuffer;
+        this.length = 0;
+    }
 }
@@ -21,8 +21,12 @@
 package org.ajax4jsf.io;
 
 import java.io.IOException;
+import java.io.OutputStream;
 import java.io.UnsupportedEncodingException;
 import java.io.Writer;
+import java.nio.charset.Charset;
+import java.nio.charset.IllegalCharsetNameException;
+import java.nio.charset.UnsupportedCharsetException;
 
 import javax.servlet.ServletOutputStream;
 
@@ -71,6 +75,17 @@ public class FastBufferWriter extends Writer {
         this(new CharBuffer(initialSize));
     }
 
+    /**
+     * Creates instance that takes links of the chain from segment pool. Segments are returned to the pool by
+     * {@link #release()}, so the chain should not be used after that.
+     *
+     * @param pool
+     * @since 4.3
+     */
+    public FastBufferWriter(SegmentPool pool) {
+        this(new CharBuffer(pool));
+    }
+
     /**
      * @see java.io.Writer.write(int c)
      */
@@ -183,13 +198,51 @@ public class FastBufferWriter extends Writer {
         }
     }
 
+    /**
+     * Writes all data written up to the moment to out, encoded with the given encoding. Data is encoded link by link,
+     * without intermediate copies of the whole content.
+     *
+     * @param out
+     * @param encoding
+     * @throws IOException
+     * @since 4.3
+     */
+    public void writeTo(OutputStream out, String encoding) throws IOException {
+        new SegmentEncoder(getCharset(encoding)).encode(firstBuffer, out);
+    }
+
+    /**
+     * Prints all data written up to the moment to output stream. As {@link ServletOutputStream#print(String)} does,
+     * characters are written as ISO-8859-1 bytes.
+     *
+     * @param outputStream
+     * @throws IOException
+     */
     public void printTo(ServletOutputStream outputStream) throws IOException {
-        CharBuffer b = firstBuffer;
+        new SegmentEncoder(Charset.forName("ISO-8859-1")).encode(firstBuffer, outputStream);
+    }
 
-        while (b != null) {
-            outputStream.print(new String(b.getChars()));
-            b = b.getNext();
+    private static Charset getCharset(String encoding) throws UnsupportedEncodingException {
+        try {
+            return Charset.forName(encoding);
+        } catch (IllegalCharsetNameException e) {
+            throw new UnsupportedEncodingException(encoding);
+        } catch (UnsupportedCharsetException e) {
+            throw new UnsupportedEncodingException(encoding);
+        }
+    }
+
+    private FastBufferOutputStream convertToOutputStream(Charset charset) {
+        FastBufferOutputStream result = new FastBufferOutputStream(Math.max(length, 256));
+
+        try {
+            new SegmentEncoder(charset).encode(firstBuffer, result);
+        } catch (IOException e) {
+            // FastBufferOutputStream doesn't throw it
+            throw new IllegalStateException(e);
         }
+
+        return result;
     }
 
     /**
@@ -200,24 +253,7 @@ public class FastBufferWriter extends Writer {
      * @throws UnsupportedEncodingException
      */
     public FastBufferOutputStream convertToOutputStream(String encoding) throws UnsupportedEncodingException {
-        CharBuffer c = firstBuffer;
-        ByteBuffer first = c.toByteBuffer(encoding);
-        ByteBuffer b = first;
-
-        while (c != null) {
-            c = c.getNext();
-
-            if (c == null) {
-                break;
-            }
-
-            ByteBuffer n = c.toByteBuffer(encoding);
-
-            b.setNext(n);
-            b = n;
-        }
-
-        return new FastBufferOutputStream(first);
+        return convertToOutputStream(getCharset(encoding));
     }
 
     /**
@@ -226,24 +262,7 @@ public class FastBufferWriter extends Writer {
      * @return
      */
     public FastBufferOutputStream convertToOutputStream() {
-        CharBuffer c = firstBuffer;
-        ByteBuffer first = c.toByteBuffer();
-        ByteBuffer b = first;
-
-        while (c != null) {
-            c = c.getNext();
-
-            if (c == null) {
-                break;
-            }
-
-            ByteBuffer n = c.toByteBuffer();
-
-            b.setNext(n);
-            b = n;
-        }
-
-        return new FastBufferOutputStream(first);
+        return convertToOutputStream(Charset.defaultCharset());
     }
 
     /**
@@ -256,4 +275,16 @@ public class FastBufferWriter extends Writer {
         this.lastBuffer = this.firstBuffer;
         this.length = 0;
     }
+
+    /**
+     * Returns pooled segments of the chain to the segment pool. Writer is empty after this call, data obtained from
+     * {@link #getFirstBuffer()} should not be used anymore.
+     *
+     * @since 4.3
+     */
+    public void release() {
+        this.firstBuffer.release();
+        this.lastBuffer = this.firstBuffer;
+        this.length = 0;
+    }
 }
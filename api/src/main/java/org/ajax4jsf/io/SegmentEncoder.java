@@ -0,0 +1,121 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2010, Red Hat, Inc. and individual contributors
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.ajax4jsf.io;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+
+/**
+ * Encodes chain of char arrays to output stream. Characters are passed to encoder through fixed staging buffer, so that
+ * surrogate pairs split between links of the chain are encoded correctly, and encoded bytes are written from single
+ * scratch array; the only allocations are done when instance is created.
+ *
+ * @since 4.3
+ */
+final class SegmentEncoder {
+    private static final int CHUNK_SIZE = 2048;
+    private final CharsetEncoder encoder;
+    private final java.nio.CharBuffer chars = java.nio.CharBuffer.allocate(CHUNK_SIZE);
+    private final byte[] bytes;
+    private final java.nio.ByteBuffer byteBuffer;
+
+    SegmentEncoder(Charset charset) {
+        this.encoder = charset.newEncoder().onMalformedInput(CodingErrorAction.REPLACE)
+            .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        this.bytes = new byte[(int) Math.ceil(encoder.maxBytesPerChar() * CHUNK_SIZE)];
+        this.byteBuffer = java.nio.ByteBuffer.wrap(bytes);
+    }
+
+    /**
+     * Encodes used parts of the chain links starting from the given one.
+     *
+     * @param first first link of the chain, can be <code>null</code>
+     * @param out target stream
+     * @throws IOException
+     */
+    void encode(CharBuffer first, OutputStream out) throws IOException {
+        try {
+            for (CharBuffer b = first; b != null; b = b.getNext()) {
+                char[] cs = b.getChars();
+                int used = b.getUsedSize();
+                int offset = 0;
+
+                while (offset < used) {
+                    int len = Math.min(chars.remaining(), used - offset);
+
+                    chars.put(cs, offset, len);
+                    offset += len;
+                    chars.flip();
+                    encodeStaged(out, false);
+
+                    // keeps high surrogate waiting for its pair from the next link
+                    chars.compact();
+                }
+            }
+
+            chars.flip();
+            encodeStaged(out, true);
+
+            CoderResult result;
+            do {
+                result = encoder.flush(byteBuffer);
+                drain(out);
+            } while (result.isOverflow());
+
+            checkResult(result);
+        } finally {
+            chars.clear();
+            byteBuffer.clear();
+            encoder.reset();
+        }
+    }
+
+    private void encodeStaged(OutputStream out, boolean endOfInput) throws IOException {
+        CoderResult result;
+        do {
+            result = encoder.encode(chars, byteBuffer, endOfInput);
+            drain(out);
+        } while (result.isOverflow());
+
+        checkResult(result);
+    }
+
+    private static void checkResult(CoderResult result) throws CharacterCodingException {
+        if (!result.isUnderflow()) {
+            result.throwException();
+        }
+    }
+
+    private void drain(OutputStream out) throws IOException {
+        int position = byteBuffer.position();
+
+        if (position > 0) {
+            out.write(bytes, 0, position);
+            byteBuffer.clear();
+        }
+    }
+}
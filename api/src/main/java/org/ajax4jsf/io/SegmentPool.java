@@ -0,0 +1,171 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2010, Red Hat, Inc. and individual contributors
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.ajax4jsf.io;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Pool of fixed-size byte and char arrays used as links of {@link ByteBuffer} and {@link CharBuffer} chains. Each thread
+ * keeps a few released segments for itself, the rest are kept in a bounded pool shared by all threads, segments that don't
+ * fit in are left to garbage collector.
+ * <p>
+ * Thread caches store plain arrays only, so that pool doesn't pin class loader of the application to the threads of the
+ * container.
+ *
+ * @since 4.3
+ */
+public final class SegmentPool {
+    /**
+     * Default size of segment, in bytes or characters
+     */
+    public static final int DEFAULT_SEGMENT_SIZE = 8192;
+    private static final int DEFAULT_THREAD_CACHE_SIZE = 8;
+    private static final int DEFAULT_MAX_POOLED_SEGMENTS = 256;
+    private static final SegmentPool INSTANCE = new SegmentPool(DEFAULT_SEGMENT_SIZE, DEFAULT_THREAD_CACHE_SIZE,
+        DEFAULT_MAX_POOLED_SEGMENTS);
+    private final int segmentSize;
+    private final int threadCacheSize;
+    private final ThreadLocal<byte[][]> threadByteSegments = new ThreadLocal<byte[][]>();
+    private final ThreadLocal<char[][]> threadCharSegments = new ThreadLocal<char[][]>();
+    private final BlockingQueue<byte[]> byteSegments;
+    private final BlockingQueue<char[]> charSegments;
+
+    /**
+     * @param segmentSize size of segment, should be power of two
+     * @param threadCacheSize maximum number of segments of each type cached by single thread
+     * @param maxPooledSegments maximum number of segments of each type in the shared pool
+     */
+    public SegmentPool(int segmentSize, int threadCacheSize, int maxPooledSegments) {
+        if (segmentSize <= 0 || (segmentSize & (segmentSize - 1)) != 0) {
+            throw new IllegalArgumentException("Segment size should be power of two: " + segmentSize);
+        }
+
+        this.segmentSize = segmentSize;
+        this.threadCacheSize = threadCacheSize;
+        this.byteSegments = new ArrayBlockingQueue<byte[]>(Math.max(1, maxPooledSegments));
+        this.charSegments = new ArrayBlockingQueue<char[]>(Math.max(1, maxPooledSegments));
+    }
+
+    /**
+     * @return pool shared by the application
+     */
+    public static SegmentPool getInstance() {
+        return INSTANCE;
+    }
+
+    public int getSegmentSize() {
+        return segmentSize;
+    }
+
+    private static <T> T pollThreadCache(T[] cache) {
+        if (cache != null) {
+            for (int i = cache.length - 1; i >= 0; i--) {
+                T segment = cache[i];
+
+                if (segment != null) {
+                    cache[i] = null;
+                    return segment;
+                }
+            }
+        }
+
+        return null;
+    }
+
+    private static <T> boolean offerThreadCache(T[] cache, T segment) {
+        for (int i = 0; i < cache.length; i++) {
+            if (cache[i] == null) {
+                cache[i] = segment;
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    public byte[] allocateBytes() {
+        byte[] segment = pollThreadCache(threadByteSegments.get());
+
+        if (segment == null) {
+            segment = byteSegments.poll();
+        }
+
+        if (segment == null) {
+            segment = new byte[segmentSize];
+        }
+
+        return segment;
+    }
+
+    /**
+     * Returns segment to the pool. Arrays not allocated by this pool are ignored.
+     */
+    public void releaseBytes(byte[] segment) {
+        if (segment == null || segment.length != segmentSize) {
+            return;
+        }
+
+        byte[][] cache = threadByteSegments.get();
+        if (cache == null) {
+            cache = new byte[threadCacheSize][];
+            threadByteSegments.set(cache);
+        }
+
+        if (!offerThreadCache(cache, segment)) {
+            byteSegments.offer(segment);
+        }
+    }
+
+    public char[] allocateChars() {
+        char[] segment = pollThreadCache(threadCharSegments.get());
+
+        if (segment == null) {
+            segment = charSegments.poll();
+        }
+
+        if (segment == null) {
+            segment = new char[segmentSize];
+        }
+
+        return segment;
+    }
+
+    /**
+     * Returns segment to the pool. Arrays not allocated by this pool are ignored.
+     */
+    public void releaseChars(char[] segment) {
+        if (segment == null || segment.length != segmentSize) {
+            return;
+        }
+
+        char[][] cache = threadCharSegments.get();
+        if (cache == null) {
+            cache = new char[threadCacheSize][];
+            threadCharSegments.set(cache);
+        }
+
+        if (!offerThreadCache(cache, segment)) {
+            charSegments.offer(segment);
+        }
+    }
+}
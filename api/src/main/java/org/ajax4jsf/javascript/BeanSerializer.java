@@ -0,0 +1,111 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2010, Red Hat, Inc. and individual contributors
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.ajax4jsf.javascript;
+
+import java.beans.PropertyDescriptor;
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SimpleTimeZone;
+
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+
+/**
+ * Serialization plan of Java Bean class to JavaScript: readable properties with their read methods and pre-encoded keys.
+ * Plan is built once per class on the first serialization of class instance, so that bean introspection and encoding of
+ * property names are not repeated for every serialized object.
+ *
+ * @since 4.3
+ */
+final class BeanSerializer {
+    private static final LoadingCache<Class<?>, BeanSerializer> SERIALIZERS = CacheBuilder.newBuilder().weakKeys()
+        .softValues().build(new CacheLoader<Class<?>, BeanSerializer>() {
+            @Override
+            public BeanSerializer load(Class<?> key) {
+                return new BeanSerializer(key);
+            }
+        });
+    private final String[] propertyNames;
+    private final String[] encodedKeys;
+    private final Method[] readMethods;
+    private final boolean ignorePropertyReadException;
+
+    private BeanSerializer(Class<?> beanClass) {
+        List<PropertyDescriptor> descriptors = new ArrayList<PropertyDescriptor>();
+
+        for (PropertyDescriptor descriptor : PropertyUtils.getPropertyDescriptors(beanClass)) {
+            if (!"class".equals(descriptor.getName())) {
+                descriptors.add(descriptor);
+            }
+        }
+
+        int size = descriptors.size();
+        propertyNames = new String[size];
+        encodedKeys = new String[size];
+        readMethods = new Method[size];
+
+        for (int i = 0; i < size; i++) {
+            PropertyDescriptor descriptor = descriptors.get(i);
+
+            propertyNames[i] = descriptor.getName();
+            readMethods[i] = descriptor.getReadMethod();
+
+            StringBuilder encodedKey = new StringBuilder(propertyNames[i].length() + 3);
+            try {
+                ScriptUtils.appendEncodedString(encodedKey, propertyNames[i]);
+            } catch (IOException e) {
+                // StringBuilder doesn't throw IOException
+                throw new IllegalStateException(e.getMessage(), e);
+            }
+            encodedKey.append(':');
+            encodedKeys[i] = encodedKey.toString();
+        }
+
+        ignorePropertyReadException = beanClass.getName().startsWith("java.sql.") || beanClass.equals(SimpleTimeZone.class);
+    }
+
+    static BeanSerializer getInstance(Class<?> beanClass) {
+        return SERIALIZERS.getUnchecked(beanClass);
+    }
+
+    int getPropertiesCount() {
+        return propertyNames.length;
+    }
+
+    /**
+     * @return encoded property name followed by colon, e.g. <code>"name":</code>
+     */
+    String getEncodedKey(int propertyIndex) {
+        return encodedKeys[propertyIndex];
+    }
+
+    Object readPropertyValue(Object bean, int propertyIndex) throws Exception {
+        return PropertyUtils.readPropertyValue(bean, readMethods[propertyIndex], propertyNames[propertyIndex]);
+    }
+
+    boolean isIgnorePropertyReadException() {
+        return ignorePropertyReadException;
+    }
+}
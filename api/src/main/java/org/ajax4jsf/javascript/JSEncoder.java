@@ -20,6 +20,9 @@
  */
 package org.ajax4jsf.javascript;
 
+import java.io.IOException;
+import java.io.Writer;
+
 /**
  * @author shura Encode chars as JavaScript sequences
  */
@@ -34,28 +37,34 @@ public class JSEncoder {
     private static final char[] ENCODE_TAB = "\\t".toCharArray();
     private static final char[] ENCODE_BS = "\\\\".toCharArray();
     private static final char[] ENCODE_FS = "\\/".toCharArray();
+    private static final int UNICODE_ESCAPE_LENGTH = 6;
 
     // private static final char ENCODE_ESC[] = "\\e".toCharArray();
 
     /**
-     * Create a new instance of this <code>XMLEncoder</code>.
+     * Characters that don't need encoding, all characters above <code>0xFF</code> are encoded
      */
-    public JSEncoder() {
+    private static final boolean[] SAFE_CHARS = new boolean[0x100];
+
+    /**
+     * Pre-computed encodings of characters in <code>0x00-0xFF</code> range
+     */
+    private static final char[][] LATIN_ENCODINGS = new char[0x100][];
+
+    static {
+        for (char c = 0; c < SAFE_CHARS.length; c++) {
+            SAFE_CHARS[c] = isSafe(c);
+            LATIN_ENCODINGS[c] = encodeChar(c);
+        }
     }
 
     /**
-     * Return true or false whether this encoding/format can encode the specified character or not.
-     * <p>
-     * This method will return true for the following character range: <br />
-     * <code>
-     *   <nobr>\b | \f | \t | \r | \n | " | \ | / | [#x20-#xD7FF] | [#xE000-#xFFFD]</nobr>
-     * </code>
-     * </p>
-     *
-     * @see <a href="http://www.w3.org/TR/REC-xml#charsets">W3C XML 1.0 </a>
-     * @see <a href="http://json.org/">JSON.org</a>
+     * Create a new instance of this <code>XMLEncoder</code>.
      */
-    public boolean compile(char c) {
+    public JSEncoder() {
+    }
+
+    private static boolean isSafe(char c) {
         if ((c == '\b') || (c == '\f') | (c == '\t') || (c == '\n') || (c == '\r') || (c == '"') || (c == '\\') || (c == '/')
             || (c == ']') || // ] - to avoid conflicts in CDATA
             (c == '<') || // - escape HTML markup characters
@@ -70,10 +79,7 @@ public class JSEncoder {
         return true;
     }
 
-    /**
-     * Return an array of characters representing the encoding for the specified character.
-     */
-    public char[] encode(char c) {
+    private static char[] encodeChar(char c) {
         switch (c) {
             case '\b':
                 return ENCODE_BC;
@@ -100,11 +106,114 @@ public class JSEncoder {
                 return ENCODE_FS;
 
             default: {
-                char[] ret = { '\\', 'u', ENCODE_HEX[c >> 0xc & 0xf], ENCODE_HEX[c >> 0x8 & 0xf], ENCODE_HEX[c >> 0x4 & 0xf],
-                        ENCODE_HEX[c & 0xf] };
+                char[] ret = new char[UNICODE_ESCAPE_LENGTH];
+                encodeUnicode(c, ret);
 
                 return ret;
             }
         }
     }
+
+    private static void encodeUnicode(char c, char[] target) {
+        target[0] = '\\';
+        target[1] = 'u';
+        target[2] = ENCODE_HEX[c >> 0xc & 0xf];
+        target[3] = ENCODE_HEX[c >> 0x8 & 0xf];
+        target[4] = ENCODE_HEX[c >> 0x4 & 0xf];
+        target[5] = ENCODE_HEX[c & 0xf];
+    }
+
+    /**
+     * Return true or false whether this encoding/format can encode the specified character or not.
+     * <p>
+     * This method will return true for the following character range: <br />
+     * <code>
+     *   <nobr>\b | \f | \t | \r | \n | " | \ | / | [#x20-#xD7FF] | [#xE000-#xFFFD]</nobr>
+     * </code>
+     * </p>
+     *
+     * @see <a href="http://www.w3.org/TR/REC-xml#charsets">W3C XML 1.0 </a>
+     * @see <a href="http://json.org/">JSON.org</a>
+     */
+    public boolean compile(char c) {
+        return c < SAFE_CHARS.length && SAFE_CHARS[c];
+    }
+
+    /**
+     * Return an array of characters representing the encoding for the specified character. Returned array is owned by
+     * caller and can be modified.
+     */
+    public char[] encode(char c) {
+        if (c < LATIN_ENCODINGS.length) {
+            // pre-computed encodings are shared with appendEncoded(), so don't expose them
+            return LATIN_ENCODINGS[c].clone();
+        }
+
+        return encodeChar(c);
+    }
+
+    /**
+     * Appends encoded sequence of characters to the target. Runs of characters that don't need encoding are appended in bulk.
+     *
+     * @param target target to append to
+     * @param sequence sequence of characters to encode
+     * @throws IOException if target throws it
+     */
+    public static void appendEncoded(Appendable target, CharSequence sequence) throws IOException {
+        int length = sequence.length();
+        int start = 0;
+        char[] unicodeEscape = null;
+
+        for (int i = 0; i < length; i++) {
+            char c = sequence.charAt(i);
+
+            if (c < SAFE_CHARS.length && SAFE_CHARS[c]) {
+                continue;
+            }
+
+            if (start < i) {
+                appendRun(target, sequence, start, i);
+            }
+
+            char[] encoded;
+            if (c < LATIN_ENCODINGS.length) {
+                encoded = LATIN_ENCODINGS[c];
+            } else {
+                if (unicodeEscape == null) {
+                    unicodeEscape = new char[UNICODE_ESCAPE_LENGTH];
+                }
+
+                encodeUnicode(c, unicodeEscape);
+                encoded = unicodeEscape;
+            }
+
+            appendChars(target, encoded);
+            start = i + 1;
+        }
+
+        if (start < length) {
+            appendRun(target, sequence, start, length);
+        }
+    }
+
+    private static void appendRun(Appendable target, CharSequence sequence, int start, int end) throws IOException {
+        if (target instanceof Writer && sequence instanceof String) {
+            // Writer.append(CharSequence, int, int) creates sub-sequence
+            ((Writer) target).write((String) sequence, start, end - start);
+        } else {
+            target.append(sequence, start, end);
+        }
+    }
+
+    private static void appendChars(Appendable target, char[] chars) throws IOException {
+        if (target instanceof StringBuilder) {
+            ((StringBuilder) target).append(chars);
+        } else if (target instanceof Writer) {
+            ((Writer) target).write(chars);
+        } else {
+            for (char c : chars) {
+                target.append(c);
+            }
+        }
+    }
 }
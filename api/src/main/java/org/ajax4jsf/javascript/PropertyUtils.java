@@ -50,10 +50,14 @@ final class PropertyUtils {
             throw new IllegalArgumentException("argument is null");
         }
 
+        return getPropertyDescriptors(bean.getClass());
+    }
+
+    public static PropertyDescriptor[] getPropertyDescriptors(Class<?> beanClass) {
         PropertyDescriptor[] descriptors = null;
 
         try {
-            BeanInfo beanInfo = Introspector.getBeanInfo(bean.getClass());
+            BeanInfo beanInfo = Introspector.getBeanInfo(beanClass);
 
             descriptors = beanInfo.getPropertyDescriptors();
         } catch (IntrospectionException e) {
@@ -68,11 +72,13 @@ final class PropertyUtils {
     }
 
     public static Object readPropertyValue(Object bean, PropertyDescriptor descriptor) throws Exception {
-        Method readMethod = descriptor.getReadMethod();
+        return readPropertyValue(bean, descriptor.getReadMethod(), descriptor.getName());
+    }
 
+    public static Object readPropertyValue(Object bean, Method readMethod, String propertyName) throws Exception {
         if (readMethod == null) {
             throw new NoSuchMethodException(MessageFormat.format("Read method for property ''{0}'' not found",
-                descriptor.getName()));
+                propertyName));
         }
 
         try {
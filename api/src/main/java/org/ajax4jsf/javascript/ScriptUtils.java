@@ -20,11 +20,9 @@
  */
 package org.ajax4jsf.javascript;
 
-import java.beans.PropertyDescriptor;
 import java.io.IOException;
 import java.io.UnsupportedEncodingException;
 import java.lang.reflect.Array;
-import java.nio.CharBuffer;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 import java.text.MessageFormat;
@@ -34,7 +32,6 @@ import java.util.IdentityHashMap;
 import java.util.Iterator;
 import java.util.Map;
 import java.util.MissingResourceException;
-import java.util.SimpleTimeZone;
 
 import javax.faces.FacesException;
 import javax.faces.context.ResponseWriter;
@@ -65,7 +62,108 @@ public final class ScriptUtils {
         return cs;
     }
 
+    /**
+     * Appends values that can't reference other objects, so they don't need to be checked for circular references
+     *
+     * @return <code>true</code> if value has been appended
+     */
+    private static boolean appendSimpleScript(Appendable appendable, Object obj) throws IOException {
+        if (null == obj) {
+            // TODO nick - skip non-rendered values like Integer.MIN_VALUE
+            appendable.append("null");
+        } else if (obj instanceof ScriptString) {
+            ((ScriptString) obj).appendScript(appendable);
+        } else if (obj instanceof Collection<?> || obj instanceof Map<?, ?>) {
+            return false;
+        } else if (obj instanceof Number || obj instanceof Boolean) {
+
+            // numbers and boolean put as-is, without conversion
+            appendable.append(obj.toString());
+        } else if (obj instanceof String || obj instanceof Character || obj instanceof Enum<?>) {
+
+            // all other put as encoded strings.
+            appendEncodedString(appendable, obj);
+        } else if (obj.getClass().isArray() && obj.getClass().getComponentType().isPrimitive()) {
+            appendable.append("[");
+            appendPrimitiveArrayElements(appendable, obj);
+            appendable.append("] ");
+        } else {
+            return false;
+        }
+
+        return true;
+    }
+
+    /**
+     * Appends comma-separated elements of primitive array without boxing them
+     */
+    private static void appendPrimitiveArrayElements(Appendable appendable, Object array) throws IOException {
+        Class<?> componentType = array.getClass().getComponentType();
+
+        if (componentType == int.class) {
+            int[] values = (int[]) array;
+            for (int i = 0; i < values.length; i++) {
+                appendSeparator(appendable, i);
+                appendable.append(String.valueOf(values[i]));
+            }
+        } else if (componentType == long.class) {
+            long[] values = (long[]) array;
+            for (int i = 0; i < values.length; i++) {
+                appendSeparator(appendable, i);
+                appendable.append(String.valueOf(values[i]));
+            }
+        } else if (componentType == double.class) {
+            double[] values = (double[]) array;
+            for (int i = 0; i < values.length; i++) {
+                appendSeparator(appendable, i);
+                appendable.append(String.valueOf(values[i]));
+            }
+        } else if (componentType == float.class) {
+            float[] values = (float[]) array;
+            for (int i = 0; i < values.length; i++) {
+                appendSeparator(appendable, i);
+                appendable.append(String.valueOf(values[i]));
+            }
+        } else if (componentType == short.class) {
+            short[] values = (short[]) array;
+            for (int i = 0; i < values.length; i++) {
+                appendSeparator(appendable, i);
+                appendable.append(String.valueOf(values[i]));
+            }
+        } else if (componentType == byte.class) {
+            byte[] values = (byte[]) array;
+            for (int i = 0; i < values.length; i++) {
+                appendSeparator(appendable, i);
+                appendable.append(String.valueOf(values[i]));
+            }
+        } else if (componentType == boolean.class) {
+            boolean[] values = (boolean[]) array;
+            for (int i = 0; i < values.length; i++) {
+                appendSeparator(appendable, i);
+                appendable.append(String.valueOf(values[i]));
+            }
+        } else if (componentType == char.class) {
+            char[] values = (char[]) array;
+            for (int i = 0; i < values.length; i++) {
+                appendSeparator(appendable, i);
+                appendEncodedString(appendable, String.valueOf(values[i]));
+            }
+        } else {
+            throw new IllegalArgumentException(componentType.getName());
+        }
+    }
+
+    private static void appendSeparator(Appendable appendable, int index) throws IOException {
+        if (index != 0) {
+            appendable.append(',');
+        }
+    }
+
     private static void appendScript(Appendable appendable, Object obj, Map<Object, Boolean> cycleBusterMap) throws IOException {
+        if (appendSimpleScript(appendable, obj)) {
+            return;
+        }
+
         Boolean cycleBusterValue = cycleBusterMap.put(obj, Boolean.TRUE);
 
         if (cycleBusterValue != null) {
@@ -81,17 +179,13 @@ public final class ScriptUtils {
                 LOG.debug(formattedMessage);
             }
             appendable.append("null");
-        } else if (null == obj) {
-            // TODO nick - skip non-rendered values like Integer.MIN_VALUE
-            appendable.append("null");
-        } else if (obj instanceof ScriptString) {
-            ((ScriptString) obj).appendScript(appendable);
         } else if (obj.getClass().isArray()) {
             appendable.append("[");
 
             boolean first = true;
+            int length = Array.getLength(obj);
 
-            for (int i = 0; i < Array.getLength(obj); i++) {
+            for (int i = 0; i < length; i++) {
                 Object element = Array.get(obj, i);
 
                 if (!first) {
@@ -147,50 +241,28 @@ public final class ScriptUtils {
             }
 
             appendable.append("} ");
-        } else if (obj instanceof Number || obj instanceof Boolean) {
-
-            // numbers and boolean put as-is, without conversion
-            appendable.append(obj.toString());
-        } else if (obj instanceof String) {
-
-            // all other put as encoded strings.
-            appendEncodedString(appendable, obj);
-        } else if (obj instanceof Character) {
-            appendEncodedString(appendable, obj);
-        } else if (obj instanceof Enum<?>) {
-
-            // all other put as encoded strings.
-            appendEncodedString(appendable, obj);
         } else {
 
             // All other objects threaded as Java Beans.
             appendable.append("{");
 
-            PropertyDescriptor[] propertyDescriptors;
+            BeanSerializer serializer;
 
             try {
-                propertyDescriptors = PropertyUtils.getPropertyDescriptors(obj);
+                serializer = BeanSerializer.getInstance(obj.getClass());
             } catch (Exception e) {
                 throw new FacesException("Error in conversion Java Object to JavaScript", e);
             }
 
-            boolean ignorePropertyReadException = obj.getClass().getName().startsWith("java.sql.")
-                || obj.getClass().equals(SimpleTimeZone.class);
             boolean first = true;
 
-            for (PropertyDescriptor propertyDescriptor : propertyDescriptors) {
-                String key = propertyDescriptor.getName();
-
-                if ("class".equals(key)) {
-                    continue;
-                }
-
+            for (int i = 0; i < serializer.getPropertiesCount(); i++) {
                 Object propertyValue;
 
                 try {
-                    propertyValue = PropertyUtils.readPropertyValue(obj, propertyDescriptor);
+                    propertyValue = serializer.readPropertyValue(obj, i);
                 } catch (Exception e) {
-                    if (!ignorePropertyReadException) {
+                    if (!serializer.isIgnorePropertyReadException()) {
                         throw new FacesException("Error in conversion Java Object to JavaScript", e);
                     } else {
                         continue;
@@ -201,8 +273,7 @@ public final class ScriptUtils {
                     appendable.append(',');
                 }
 
-                appendEncodedString(appendable, key);
-                appendable.append(":");
+                appendable.append(serializer.getEncodedKey(i));
                 appendScript(appendable, propertyValue, cycleBusterMap);
                 first = false;
             }
@@ -223,7 +294,7 @@ public final class ScriptUtils {
      * @throws IOException
      */
     public static void writeToStream(final ResponseWriter responseWriter, Object obj) throws IOException {
-        appendScript(new ResponseWriterWrapper(responseWriter), obj, new IdentityHashMap<Object, Boolean>());
+        appendScript(new ResponseWriterWrapper(responseWriter), obj);
     }
 
     /**
@@ -236,7 +307,7 @@ public final class ScriptUtils {
         StringBuilder sb = new StringBuilder();
 
         try {
-            appendScript(sb, obj, new IdentityHashMap<Object, Boolean>());
+            appendScript(sb, obj);
         } catch (IOException e) {
 
             // ignore
@@ -246,7 +317,9 @@ public final class ScriptUtils {
     }
 
     public static void appendScript(Appendable appendable, Object obj) throws IOException {
-        appendScript(appendable, obj, new IdentityHashMap<Object, Boolean>());
+        if (!appendSimpleScript(appendable, obj)) {
+            appendScript(appendable, obj, new IdentityHashMap<Object, Boolean>());
+        }
     }
 
     public static void appendEncodedString(Appendable appendable, Object obj) throws IOException {
@@ -256,18 +329,7 @@ public final class ScriptUtils {
     }
 
     public static void appendEncoded(Appendable appendable, Object obj) throws IOException {
-        JSEncoder encoder = new JSEncoder();
-        char[] chars = obj.toString().toCharArray();
-
-        for (int i = 0; i < chars.length; i++) {
-            char c = chars[i];
-
-            if (!encoder.compile(c)) {
-                appendable.append(CharBuffer.wrap(encoder.encode(c)));
-            } else {
-                appendable.append(c);
-            }
-        }
+        JSEncoder.appendEncoded(appendable, obj.toString());
     }
 
     public static String getValidJavascriptName(String script) {
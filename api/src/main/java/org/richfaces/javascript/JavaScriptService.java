@@ -36,7 +36,7 @@ import javax.faces.context.FacesContext;
 public interface JavaScriptService {
     /**
      * <p class="changed_added_4_0">
-     * Adds new script to render at the end of page. Is the same script already set to render ( lookup by equals() method ), no
+     * Adds new script to render at the end of page. Is the same script already set to render ( lookup by equals() and hashCode() methods ), no
      * new object added.
      * </p>
      *
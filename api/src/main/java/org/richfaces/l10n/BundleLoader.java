@@ -25,19 +25,101 @@ import java.text.MessageFormat;
 import java.util.Locale;
 import java.util.MissingResourceException;
 import java.util.ResourceBundle;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import javax.faces.application.Application;
 import javax.faces.context.FacesContext;
 
+import com.google.common.collect.MapMaker;
+
 /**
  * @author Nick Belaevski
  *
  */
 public class BundleLoader {
+    private static final Object MISSING_BUNDLE = new Object();
+    /**
+     * Bundles or {@link #MISSING_BUNDLE} markers by class loader, base name and locale. Class loaders are weakly referenced,
+     * so bundles of redeployed applications are not retained.
+     */
+    private final ConcurrentMap<ClassLoader, ConcurrentMap<String, ConcurrentMap<Locale, Object>>> bundles = new MapMaker()
+        .weakKeys().softValues().makeMap();
+
     private ClassLoader getClassLoader() {
         return Thread.currentThread().getContextClassLoader();
     }
 
+    private ConcurrentMap<Locale, Object> getLocaleBundles(ClassLoader classLoader, String baseName) {
+        ConcurrentMap<String, ConcurrentMap<Locale, Object>> loaderBundles = bundles.get(classLoader);
+
+        if (loaderBundles == null) {
+            loaderBundles = new ConcurrentHashMap<String, ConcurrentMap<Locale, Object>>();
+            ConcurrentMap<String, ConcurrentMap<Locale, Object>> existingBundles = bundles.putIfAbsent(classLoader,
+                loaderBundles);
+
+            if (existingBundles != null) {
+                loaderBundles = existingBundles;
+            }
+        }
+
+        ConcurrentMap<Locale, Object> localeBundles = loaderBundles.get(baseName);
+
+        if (localeBundles == null) {
+            localeBundles = new ConcurrentHashMap<Locale, Object>();
+            ConcurrentMap<Locale, Object> existingBundles = loaderBundles.putIfAbsent(baseName, localeBundles);
+
+            if (existingBundles != null) {
+                localeBundles = existingBundles;
+            }
+        }
+
+        return localeBundles;
+    }
+
+    /**
+     * Resolves bundle with {@link ResourceBundle#getBundle(String, Locale, ClassLoader)} once per class loader, base name
+     * and locale
+     */
+    private ResourceBundle loadBundle(String baseName, Locale locale) throws MissingResourceException {
+        ClassLoader classLoader = getClassLoader();
+
+        if (classLoader == null) {
+            return ResourceBundle.getBundle(baseName, locale, classLoader);
+        }
+
+        ConcurrentMap<Locale, Object> localeBundles = getLocaleBundles(classLoader, baseName);
+        Object bundle = localeBundles.get(locale);
+
+        if (bundle == null) {
+            try {
+                bundle = ResourceBundle.getBundle(baseName, locale, classLoader);
+            } catch (MissingResourceException e) {
+                localeBundles.put(locale, MISSING_BUNDLE);
+                throw e;
+            }
+
+            localeBundles.put(locale, bundle);
+        } else if (bundle == MISSING_BUNDLE) {
+            throw new MissingResourceException(MessageFormat.format("Can''t find bundle for base name {0}, locale {1}",
+                baseName, locale), baseName + "_" + locale, "");
+        }
+
+        return (ResourceBundle) bundle;
+    }
+
+    /**
+     * Drops resolved bundles, so that they are loaded again, e.g. after message bundles have been changed
+     */
+    public void clearCache() {
+        for (ClassLoader classLoader : bundles.keySet()) {
+            ResourceBundle.clearCache(classLoader);
+        }
+
+        bundles.clear();
+        MessageFormats.clearCache();
+    }
+
     private MessageBundle asMessageBundle(Enum<?> messageKey) throws IllegalArgumentException {
         MessageBundle bundleAnnotation = messageKey.getClass().getAnnotation(MessageBundle.class);
 
@@ -53,7 +135,7 @@ public class BundleLoader {
         IllegalArgumentException {
         MessageBundle bundleAnnotation = asMessageBundle(messageKey);
 
-        return ResourceBundle.getBundle(bundleAnnotation.baseName(), locale, getClassLoader());
+        return loadBundle(bundleAnnotation.baseName(), locale);
     }
 
     public ResourceBundle getApplicationBundle(FacesContext facesContext, Enum<?> messageKey, Locale locale)
@@ -70,6 +152,6 @@ public class BundleLoader {
                 messageKey.toString());
         }
 
-        return ResourceBundle.getBundle(application.getMessageBundle(), locale, getClassLoader());
+        return loadBundle(application.getMessageBundle(), locale);
     }
 }
@@ -0,0 +1,99 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2010, Red Hat, Inc. and individual contributors
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.richfaces.l10n;
+
+import java.text.FieldPosition;
+import java.text.Format;
+import java.text.MessageFormat;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Cache of compiled message formats, that replaces {@link MessageFormat#format(String, Object...)} calls for patterns
+ * read from message bundles. Formats without nested number, date or choice formats don't change their state while
+ * formatting and are shared by all threads; others are cloned for every call.
+ *
+ * @since 4.3
+ */
+public final class MessageFormats {
+    private static final int MAX_CACHED_FORMATS = 1024;
+    private static final ConcurrentMap<String, CachedFormat> FORMATS = new ConcurrentHashMap<String, CachedFormat>();
+
+    private static final class CachedFormat {
+        private final MessageFormat format;
+        private final boolean shared;
+
+        CachedFormat(MessageFormat format) {
+            boolean hasFormats = false;
+
+            for (Format nestedFormat : format.getFormats()) {
+                if (nestedFormat != null) {
+                    hasFormats = true;
+                    break;
+                }
+            }
+
+            this.format = format;
+            this.shared = !hasFormats;
+        }
+
+        String format(Object... args) {
+            MessageFormat messageFormat = shared ? format : (MessageFormat) format.clone();
+
+            return messageFormat.format(args, new StringBuffer(), new FieldPosition(0)).toString();
+        }
+    }
+
+    private MessageFormats() {
+    }
+
+    /**
+     * Formats message the same way as {@link MessageFormat#format(String, Object...)} does, using format compiled for
+     * the default locale.
+     *
+     * @param pattern message pattern
+     * @param args format arguments
+     * @return formatted message
+     */
+    public static String format(String pattern, Object... args) {
+        Locale locale = Locale.getDefault();
+        CachedFormat cachedFormat = FORMATS.get(pattern);
+
+        if (cachedFormat == null || !locale.equals(cachedFormat.format.getLocale())) {
+            cachedFormat = new CachedFormat(new MessageFormat(pattern, locale));
+
+            if (FORMATS.size() < MAX_CACHED_FORMATS) {
+                FORMATS.put(pattern, cachedFormat);
+            }
+        }
+
+        return cachedFormat.format(args);
+    }
+
+    /**
+     * Drops compiled formats, e.g. when message bundles are reloaded
+     */
+    public static void clearCache() {
+        FORMATS.clear();
+    }
+}
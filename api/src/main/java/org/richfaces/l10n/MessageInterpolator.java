@@ -21,7 +21,6 @@
  */
 package org.richfaces.l10n;
 
-import java.text.MessageFormat;
 import java.util.Locale;
 import java.util.MissingResourceException;
 import java.util.ResourceBundle;
@@ -66,7 +65,7 @@ public class MessageInterpolator {
         }
 
         if (messagePattern != null) {
-            return MessageFormat.format(messagePattern, args);
+            return MessageFormats.format(messagePattern, args);
         } else {
             throw new InterpolationException().initMessageKey(key.toString());
         }
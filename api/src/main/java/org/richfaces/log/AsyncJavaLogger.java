@@ -0,0 +1,178 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2010, Red Hat, Inc. and individual contributors
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.richfaces.log;
+
+import java.util.logging.LogRecord;
+
+/**
+ * <p class="changed_added_4_3">
+ * {@link JavaLogger} variant that hands log records over to a background thread instead of publishing them on the calling
+ * thread. Level checks are done synchronously, so disabled levels cost exactly as much as with {@link JavaLogger}; enabled
+ * records are queued as lightweight events and message interpolation, {@link LogRecord} creation and handler I/O happen
+ * on the consumer thread.
+ * </p>
+ * <p class="changed_added_4_3">
+ * Since messages are interpolated later, arguments are formatted with the state they have when the record is published,
+ * not when it was logged. Caller class/method data is only collected if <code>org.richfaces.log.async.callerData</code>
+ * system property is set to <code>true</code>; the stack trace is then captured on the calling thread but decoded by the
+ * consumer.
+ * </p>
+ *
+ * @see LogFactory
+ */
+public class AsyncJavaLogger extends JavaLogger {
+    static final String CLASS_NAME = AsyncJavaLogger.class.getName();
+
+    /**
+     * Log record data captured on the calling thread
+     */
+    static final class Event {
+        private final AsyncJavaLogger logger;
+        private final Level level;
+        private final String content;
+        private final Enum<?> messageKey;
+        private final Object[] args;
+        private final Throwable thrown;
+        private final Throwable callerData;
+        private final long millis;
+        private final int threadId;
+        private final ClassLoader contextClassLoader;
+
+        Event(AsyncJavaLogger logger, Level level, String content, Enum<?> messageKey, Object[] args, Throwable thrown,
+            Throwable callerData) {
+            this.logger = logger;
+            this.level = level;
+            this.content = content;
+            this.messageKey = messageKey;
+            this.args = args;
+            this.thrown = thrown;
+            this.callerData = callerData;
+            this.millis = System.currentTimeMillis();
+
+            Thread thread = Thread.currentThread();
+            this.threadId = (int) thread.getId();
+            this.contextClassLoader = thread.getContextClassLoader();
+        }
+
+        Level getLevel() {
+            return level;
+        }
+
+        void publish() {
+            logger.publish(this);
+        }
+    }
+
+    private final AsyncLogDispatcher dispatcher;
+
+    AsyncJavaLogger(String category, AsyncLogDispatcher dispatcher) {
+        super(category);
+        this.dispatcher = dispatcher;
+    }
+
+    AsyncJavaLogger(String category) {
+        this(category, AsyncLogDispatcher.getInstance());
+    }
+
+    AsyncJavaLogger() {
+        this(RICHFACES_LOG);
+    }
+
+    /**
+     * Returns number of records discarded because the buffer of the default dispatcher was full.
+     */
+    public static long getDroppedRecordsCount() {
+        return AsyncLogDispatcher.getInstance().getDroppedCount();
+    }
+
+    /**
+     * Returns number of records discarded by <code>sample</code> overflow policy of the default dispatcher.
+     */
+    public static long getSampledOutRecordsCount() {
+        return AsyncLogDispatcher.getInstance().getSampledOutCount();
+    }
+
+    private void enqueue(Level level, CharSequence content, Enum<?> messageKey, Object[] args, Throwable thrown) {
+        if (getJdkLogger().isLoggable(LEVELS_MAP.get(level))) {
+            // content may be a mutable StringBuilder, so it cannot be deferred as is
+            Throwable callerData = dispatcher.isCallerDataEnabled() ? new Throwable() : null;
+            dispatcher.dispatch(new Event(this, level, content != null ? content.toString() : null, messageKey, args, thrown,
+                callerData));
+        }
+    }
+
+    private String interpolate(Event event) {
+        Thread thread = Thread.currentThread();
+        ClassLoader consumerClassLoader = thread.getContextClassLoader();
+
+        // message bundles are looked up by context class loader, so use the one of the application that logged the record
+        thread.setContextClassLoader(event.contextClassLoader);
+        try {
+            return interpolate(event.messageKey, event.args);
+        } finally {
+            thread.setContextClassLoader(consumerClassLoader);
+        }
+    }
+
+    void publish(Event event) {
+        String message = event.messageKey != null ? interpolate(event) : event.content;
+        LogRecord record = new LogRecord(LEVELS_MAP.get(event.level), message);
+
+        record.setMillis(event.millis);
+        record.setThreadID(event.threadId);
+        record.setLoggerName(getJdkLogger().getName());
+        record.setThrown(event.thrown);
+        // otherwise JUL infers this class from the dispatcher thread stack
+        record.setSourceClassName(null);
+
+        if (event.callerData != null) {
+            fillCallerData(event.callerData.getStackTrace(), record);
+        }
+
+        getJdkLogger().log(record);
+    }
+
+    @Override
+    public void log(Level level, CharSequence content) {
+        enqueue(level, content, null, null, null);
+    }
+
+    @Override
+    public void log(Level level, Enum<?> messageKey, Object... args) {
+        enqueue(level, null, messageKey, args, null);
+    }
+
+    @Override
+    public void log(Level level, CharSequence content, Throwable thrown) {
+        enqueue(level, content, null, null, thrown);
+    }
+
+    @Override
+    public void log(Level level, Throwable thrown, Enum<?> messageKey, Object... args) {
+        enqueue(level, null, messageKey, args, thrown);
+    }
+
+    @Override
+    public void log(Level level, Throwable thrown) {
+        enqueue(level, null, null, null, thrown);
+    }
+}
@@ -0,0 +1,271 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2010, Red Hat, Inc. and individual contributors
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.richfaces.log;
+
+import java.text.MessageFormat;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.ErrorManager;
+
+import org.richfaces.log.AsyncJavaLogger.Event;
+import org.richfaces.log.Logger.Level;
+
+/**
+ * Bounded buffer of {@link AsyncJavaLogger} events drained by a single daemon thread. What happens when the buffer is full
+ * is controlled by {@link OverflowPolicy}; discarded records are counted and periodically reported to the
+ * {@link JavaLogger#RICHFACES_LOG} logger. Once the dispatcher is shut down, records are published on the calling thread.
+ */
+final class AsyncLogDispatcher {
+    static final String BUFFER_SIZE_PROPERTY = "org.richfaces.log.async.bufferSize";
+    static final String OVERFLOW_POLICY_PROPERTY = "org.richfaces.log.async.overflowPolicy";
+    static final String SAMPLE_RATE_PROPERTY = "org.richfaces.log.async.sampleRate";
+    static final String CALLER_DATA_PROPERTY = "org.richfaces.log.async.callerData";
+    private static final int DEFAULT_BUFFER_SIZE = 8192;
+    private static final int DEFAULT_SAMPLE_RATE = 10;
+    private static final int BATCH_SIZE = 64;
+
+    enum OverflowPolicy {
+        /**
+         * Records that do not fit into the buffer are discarded
+         */
+        DROP,
+        /**
+         * Logging thread waits until the buffer has space
+         */
+        BLOCK,
+        /**
+         * Once the buffer is three quarters full only every n-th debug/info record is accepted; warnings and errors are
+         * discarded only if the buffer is full
+         */
+        SAMPLE
+    }
+
+    private static final class InstanceHolder {
+        private static final AsyncLogDispatcher INSTANCE = createInstance();
+
+        private static AsyncLogDispatcher createInstance() {
+            AsyncLogDispatcher dispatcher = new AsyncLogDispatcher(Integer.getInteger(BUFFER_SIZE_PROPERTY,
+                DEFAULT_BUFFER_SIZE), getOverflowPolicy(), Integer.getInteger(SAMPLE_RATE_PROPERTY, DEFAULT_SAMPLE_RATE),
+                Boolean.getBoolean(CALLER_DATA_PROPERTY));
+            dispatcher.start();
+            return dispatcher;
+        }
+
+        private static OverflowPolicy getOverflowPolicy() {
+            String policy = System.getProperty(OVERFLOW_POLICY_PROPERTY);
+            if (policy == null || policy.length() == 0) {
+                return OverflowPolicy.DROP;
+            }
+
+            try {
+                return OverflowPolicy.valueOf(policy.trim().toUpperCase(Locale.US));
+            } catch (IllegalArgumentException e) {
+                return OverflowPolicy.DROP;
+            }
+        }
+    }
+
+    private final BlockingQueue<Event> queue;
+    private final int capacity;
+    private final int sampleThreshold;
+    private final OverflowPolicy overflowPolicy;
+    private final int sampleRate;
+    private final boolean callerDataEnabled;
+    private final AtomicInteger sampleCounter = new AtomicInteger();
+    private final AtomicLong pendingCount = new AtomicLong();
+    private final AtomicLong droppedCount = new AtomicLong();
+    private final AtomicLong sampledOutCount = new AtomicLong();
+    private long reportedLosses = 0;
+    private Thread consumer;
+    private volatile boolean stopped = false;
+
+    AsyncLogDispatcher(int capacity, OverflowPolicy overflowPolicy, int sampleRate, boolean callerDataEnabled) {
+        this.capacity = Math.max(capacity, 1);
+        this.queue = new ArrayBlockingQueue<Event>(this.capacity);
+        this.sampleThreshold = this.capacity - this.capacity / 4;
+        this.overflowPolicy = overflowPolicy;
+        this.sampleRate = Math.max(sampleRate, 1);
+        this.callerDataEnabled = callerDataEnabled;
+    }
+
+    static AsyncLogDispatcher getInstance() {
+        return InstanceHolder.INSTANCE;
+    }
+
+    synchronized void start() {
+        if (consumer == null && !stopped) {
+            consumer = new Thread(new Runnable() {
+                public void run() {
+                    drain();
+                }
+            }, "RichFaces asynchronous logger");
+            consumer.setDaemon(true);
+            // don't keep class loader of the thread that happened to log first
+            consumer.setContextClassLoader(AsyncLogDispatcher.class.getClassLoader());
+            consumer.start();
+        }
+    }
+
+    /**
+     * Stops the consumer thread after queued records are published or timeout expires. Records left in the buffer and records
+     * dispatched afterwards are published on the calling thread.
+     */
+    void shutdown(long timeoutMillis) throws InterruptedException {
+        Thread stoppedConsumer;
+
+        synchronized (this) {
+            stopped = true;
+            stoppedConsumer = consumer;
+            consumer = null;
+        }
+
+        try {
+            if (stoppedConsumer != null) {
+                flush(timeoutMillis);
+                stoppedConsumer.interrupt();
+                stoppedConsumer.join(timeoutMillis);
+            }
+        } finally {
+            publishQueued();
+        }
+    }
+
+    boolean isCallerDataEnabled() {
+        return callerDataEnabled;
+    }
+
+    long getDroppedCount() {
+        return droppedCount.get();
+    }
+
+    long getSampledOutCount() {
+        return sampledOutCount.get();
+    }
+
+    void dispatch(Event event) {
+        if (stopped) {
+            pendingCount.incrementAndGet();
+            publish(event);
+            return;
+        }
+
+        if (overflowPolicy == OverflowPolicy.SAMPLE && event.getLevel().compareTo(Level.WARNING) < 0
+            && queue.size() >= sampleThreshold && sampleCounter.incrementAndGet() % sampleRate != 0) {
+
+            sampledOutCount.incrementAndGet();
+            return;
+        }
+
+        // counted before the event becomes visible to the consumer, so that pending count never goes negative
+        pendingCount.incrementAndGet();
+
+        boolean queued;
+        if (overflowPolicy == OverflowPolicy.BLOCK) {
+            try {
+                queue.put(event);
+                queued = true;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                queued = false;
+            }
+        } else {
+            queued = queue.offer(event);
+        }
+
+        if (!queued) {
+            pendingCount.decrementAndGet();
+            droppedCount.incrementAndGet();
+        } else if (stopped) {
+            // dispatcher has been shut down concurrently, consumer may be already gone
+            publishQueued();
+        }
+    }
+
+    /**
+     * Waits until all queued records are published or timeout expires.
+     *
+     * @return <code>true</code> if there are no more pending records
+     */
+    boolean flush(long timeoutMillis) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + timeoutMillis;
+        while (pendingCount.get() > 0) {
+            if (System.currentTimeMillis() >= deadline) {
+                return false;
+            }
+
+            Thread.sleep(1);
+        }
+
+        return true;
+    }
+
+    private void publish(Event event) {
+        try {
+            event.publish();
+        } catch (RuntimeException e) {
+            new ErrorManager().error("Failed to publish log record", e, ErrorManager.WRITE_FAILURE);
+        } finally {
+            pendingCount.decrementAndGet();
+        }
+    }
+
+    private void publishQueued() {
+        Event event;
+        while ((event = queue.poll()) != null) {
+            publish(event);
+        }
+    }
+
+    private void reportLosses() {
+        long losses = droppedCount.get() + sampledOutCount.get();
+        if (losses > reportedLosses) {
+            java.util.logging.Logger.getLogger(JavaLogger.RICHFACES_LOG).warning(
+                MessageFormat.format("{0} log records were discarded by asynchronous logger (buffer size: {1}, "
+                    + "overflow policy: {2})", losses - reportedLosses, capacity, overflowPolicy));
+            reportedLosses = losses;
+        }
+    }
+
+    private void drain() {
+        List<Event> batch = new ArrayList<Event>(BATCH_SIZE);
+        while (true) {
+            try {
+                batch.add(queue.take());
+            } catch (InterruptedException e) {
+                return;
+            }
+
+            queue.drainTo(batch, BATCH_SIZE - 1);
+            for (Event event : batch) {
+                publish(event);
+            }
+
+            batch.clear();
+            reportLosses();
+        }
+    }
+}
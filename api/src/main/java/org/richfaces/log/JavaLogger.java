@@ -63,13 +63,16 @@ public class JavaLogger implements Logger {
         this(RICHFACES_LOG);
     }
 
-    private void fillCallerData(String fqn, LogRecord record) {
-        StackTraceElement[] stackTrace = new Exception().getStackTrace();
+    private static boolean isLoggerFrame(StackTraceElement element) {
+        String className = element.getClassName();
+        return CLASS_NAME.equals(className) || AsyncJavaLogger.CLASS_NAME.equals(className);
+    }
 
+    static void fillCallerData(StackTraceElement[] stackTrace, LogRecord record) {
         int i = 0;
 
         for (; i < stackTrace.length; i++) {
-            if (fqn.equals(stackTrace[i].getClassName())) {
+            if (isLoggerFrame(stackTrace[i])) {
                 break;
             }
         }
@@ -77,7 +80,7 @@ public class JavaLogger implements Logger {
         int idx = i + 1;
 
         for (; idx < stackTrace.length; idx++) {
-            if (!fqn.equals(stackTrace[idx].getClassName())) {
+            if (!isLoggerFrame(stackTrace[idx])) {
                 break;
             }
         }
@@ -88,7 +91,7 @@ public class JavaLogger implements Logger {
         }
     }
 
-    private String interpolate(Enum<?> messageKey, Object... args) {
+    String interpolate(Enum<?> messageKey, Object... args) {
         try {
             return messageInterpolator.interpolate(Locale.getDefault(), messageKey, args);
         } catch (InterpolationException e) {
@@ -103,11 +106,15 @@ public class JavaLogger implements Logger {
         // TODO resource bundle?
         record.setLoggerName(jdkLogger.getName());
         record.setThrown(thrown);
-        fillCallerData(CLASS_NAME, record);
+        fillCallerData(new Exception().getStackTrace(), record);
 
         return record;
     }
 
+    java.util.logging.Logger getJdkLogger() {
+        return jdkLogger;
+    }
+
     public boolean isDebugEnabled() {
         return isLogEnabled(Level.DEBUG);
     }
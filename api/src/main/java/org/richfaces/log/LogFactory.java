@@ -26,12 +26,28 @@ package org.richfaces.log;
  * <p class="changed_added_4_0">
  * This class produces loggers used by whole RichFaces library.
  * </p>
+ * <p class="changed_added_4_3">
+ * Records are published synchronously by default. Setting <code>org.richfaces.log.async</code> system property to
+ * <code>true</code> switches to {@link AsyncJavaLogger}, which is tuned by the following system properties:
+ * </p>
+ * <ul>
+ * <li><code>org.richfaces.log.async.bufferSize</code> - capacity of the record buffer, 8192 by default</li>
+ * <li><code>org.richfaces.log.async.overflowPolicy</code> - what to do when the buffer is full: <code>drop</code>
+ * (default), <code>block</code> or <code>sample</code></li>
+ * <li><code>org.richfaces.log.async.sampleRate</code> - share of debug/info records (one of n, 10 by default) accepted by
+ * <code>sample</code> policy when the buffer is almost full</li>
+ * <li><code>org.richfaces.log.async.callerData</code> - whether source class and method are collected, <code>false</code>
+ * by default</li>
+ * </ul>
  *
  * @author asmirnov@exadel.com
  *
  */
 public final class LogFactory {
-    private static final Logger DEFAULT_LOGGER = new JavaLogger();
+    static final String ASYNC_PROPERTY = "org.richfaces.log.async";
+    private static final boolean ASYNC = Boolean.getBoolean(ASYNC_PROPERTY);
+    private static final long SHUTDOWN_TIMEOUT = 5000;
+    private static final Logger DEFAULT_LOGGER = ASYNC ? new AsyncJavaLogger() : new JavaLogger();
 
     private LogFactory() {
         // This class is not instantiable.
@@ -57,10 +73,26 @@ public final class LogFactory {
      * @return
      */
     public static Logger getLogger(String category) {
-        return new JavaLogger(category);
+        return ASYNC ? new AsyncJavaLogger(category) : new JavaLogger(category);
     }
 
     public static Logger getLogger(Class<?> clazz) {
         return getLogger(clazz.getName());
     }
+
+    /**
+     * <p class="changed_added_4_3">
+     * Publishes records buffered by {@link AsyncJavaLogger} and stops its background thread. Records logged afterwards
+     * are published synchronously. Does nothing if asynchronous logging is not enabled.
+     * </p>
+     */
+    public static void shutdown() {
+        if (ASYNC) {
+            try {
+                AsyncLogDispatcher.getInstance().shutdown(SHUTDOWN_TIMEOUT);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
 }
@@ -20,6 +20,10 @@
  */
 package org.ajax4jsf.io;
 
+import java.io.ByteArrayOutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.Pipe;
+
 import junit.framework.TestCase;
 
 /**
@@ -74,4 +78,59 @@ public class FastBufferOutputStreamTest extends TestCase {
         assertNull(firstBuffer.getNext());
         assertNull(firstBuffer.getPrevious());
     }
+
+    public void testPooledResetReleasesSegments() throws Exception {
+        SegmentPool pool = new SegmentPool(16, 4, 4);
+        FastBufferOutputStream stream = new FastBufferOutputStream(pool);
+
+        for (int i = 0; i < 40; i++) {
+            stream.write(i);
+        }
+
+        ByteBuffer firstBuffer = stream.getFirstBuffer();
+        ByteBuffer secondBuffer = firstBuffer.getNext();
+        byte[] secondSegment = secondBuffer.getBytes();
+
+        assertTrue(firstBuffer.isPooled());
+        assertEquals(16, firstBuffer.getCacheSize());
+        assertNotNull(secondBuffer.getNext());
+        stream.reset();
+        assertEquals(0, stream.getLength());
+        assertSame(firstBuffer, stream.getFirstBuffer());
+        assertNull(firstBuffer.getNext());
+        assertEquals(0, secondBuffer.getUsedSize());
+
+        byte[] reused = pool.allocateBytes();
+        assertTrue(reused == secondSegment || pool.allocateBytes() == secondSegment);
+    }
+
+    public void testWriteToChannel() throws Exception {
+        FastBufferOutputStream stream = new FastBufferOutputStream(new SegmentPool(16, 4, 4));
+        byte[] data = new byte[100];
+
+        for (int i = 0; i < data.length; i++) {
+            data[i] = (byte) i;
+        }
+
+        stream.write(data);
+        assertEquals(7, stream.toByteBuffers().length);
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        stream.writeTo(Channels.newChannel(out));
+        assertTrue(java.util.Arrays.equals(data, out.toByteArray()));
+
+        Pipe pipe = Pipe.open();
+        stream.writeTo(pipe.sink());
+        pipe.sink().close();
+
+        java.nio.ByteBuffer received = java.nio.ByteBuffer.allocate(200);
+        while (pipe.source().read(received) >= 0) {
+            // read till the end of stream
+        }
+        pipe.source().close();
+
+        assertEquals(data.length, received.position());
+        stream.release();
+        assertEquals(0, stream.getLength());
+    }
 }
@@ -20,6 +20,9 @@
  */
 package org.ajax4jsf.io;
 
+import java.io.ByteArrayOutputStream;
+import java.util.Arrays;
+
 import junit.framework.TestCase;
 
 /**
@@ -107,4 +110,58 @@ public class FastBufferWriterTest extends TestCase {
 
         reader.close();
     }
+
+    private static String createText(int length) {
+        StringBuilder builder = new StringBuilder(length);
+
+        for (int i = 0; builder.length() < length; i++) {
+            switch (i % 4) {
+                case 0:
+                    builder.append("text ");
+                    break;
+                case 1:
+                    builder.append("\u0442\u0435\u043a\u0441\u0442 ");
+                    break;
+                case 2:
+                    builder.append("\ud83d\ude00");
+                    break;
+                default:
+                    builder.append('\u20ac');
+            }
+        }
+
+        return builder.toString();
+    }
+
+    public void testWriteToStreamWithSplitSurrogates() throws Exception {
+        String text = createText(5000);
+        FastBufferWriter writer = new FastBufferWriter(64);
+
+        // link boundaries fall between high and low surrogates
+        writer.write("abc");
+        for (int i = 0; i < text.length(); i += 7) {
+            writer.write(text, i, Math.min(7, text.length() - i));
+        }
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        writer.writeTo(out, "UTF-8");
+        assertTrue(Arrays.equals(("abc" + text).getBytes("UTF-8"), out.toByteArray()));
+
+        FastBufferOutputStream stream = writer.convertToOutputStream("UTF-16");
+        assertTrue(Arrays.equals(("abc" + text).getBytes("UTF-16"), stream.toByteArray()));
+        assertEquals(stream.toByteArray().length, stream.getLength());
+    }
+
+    public void testUnsupportedEncoding() throws Exception {
+        FastBufferWriter writer = new FastBufferWriter();
+
+        writer.write("test");
+
+        try {
+            writer.writeTo(new ByteArrayOutputStream(), "no-such-encoding");
+            fail();
+        } catch (java.io.UnsupportedEncodingException e) {
+            // expected
+        }
+    }
 }
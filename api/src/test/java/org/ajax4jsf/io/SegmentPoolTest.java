@@ -0,0 +1,99 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2010, Red Hat, Inc. and individual contributors
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.ajax4jsf.io;
+
+import junit.framework.TestCase;
+
+/**
+ * @since 4.3
+ */
+public class SegmentPoolTest extends TestCase {
+    public void testSegmentSizeShouldBePowerOfTwo() throws Exception {
+        try {
+            new SegmentPool(1000, 1, 1);
+            fail();
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+    }
+
+    public void testReleasedSegmentsAreReused() throws Exception {
+        SegmentPool pool = new SegmentPool(64, 1, 1);
+        byte[] first = pool.allocateBytes();
+        byte[] second = pool.allocateBytes();
+
+        assertEquals(64, first.length);
+        assertNotSame(first, second);
+
+        // one segment goes to thread cache, another one to shared pool, the third one is dropped
+        pool.releaseBytes(first);
+        pool.releaseBytes(second);
+        pool.releaseBytes(new byte[64]);
+        assertSame(first, pool.allocateBytes());
+        assertSame(second, pool.allocateBytes());
+
+        // foreign arrays are ignored
+        pool.releaseChars(new char[10]);
+        assertEquals(64, pool.allocateChars().length);
+    }
+
+    public void testSharedPoolAcrossThreads() throws Exception {
+        final SegmentPool pool = new SegmentPool(64, 0, 4);
+        final char[][] segment = new char[1][];
+
+        Thread thread = new Thread() {
+            public void run() {
+                segment[0] = pool.allocateChars();
+                pool.releaseChars(segment[0]);
+            }
+        };
+        thread.start();
+        thread.join();
+
+        assertSame(segment[0], pool.allocateChars());
+    }
+
+    public void testCompactDetachesPooledLinks() throws Exception {
+        SegmentPool pool = new SegmentPool(16, 4, 4);
+        CharBuffer buffer = new CharBuffer(pool);
+        CharBuffer last = buffer;
+
+        for (int i = 0; i < 20; i++) {
+            last = last.append((char) i);
+        }
+
+        char[] filled = buffer.getChars();
+        char[] partial = last.getChars();
+
+        buffer.compact();
+        assertFalse(buffer.isPooled());
+        assertFalse(last.isPooled());
+        assertSame(filled, buffer.getChars());
+        assertEquals(4, last.getCacheSize());
+        assertSame(partial, pool.allocateChars());
+
+        // compacted chain is not affected by release anymore
+        buffer.release();
+        assertEquals(4, last.getChars().length);
+        assertEquals(19, last.getChars()[3]);
+    }
+}
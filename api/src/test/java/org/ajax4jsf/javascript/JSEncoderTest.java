@@ -0,0 +1,193 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2010, Red Hat, Inc. and individual contributors
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.ajax4jsf.javascript;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * Checks table-driven encoding against the original character-by-character implementation.
+ */
+public class JSEncoderTest {
+    private static final char[] ENCODE_HEX = "0123456789ABCDEF".toCharArray();
+
+    private static boolean referenceCompile(char c) {
+        if ((c == '\b') || (c == '\f') | (c == '\t') || (c == '\n') || (c == '\r') || (c == '"') || (c == '\\') || (c == '/')
+            || (c == ']') || (c == '<') || (c == '>') || (c == '&') || (c == '-') || (c < 0x20)
+            || ((c > 0xd7ff) && (c < 0xe000)) || (c > 0xfffd) || (c > 0xff)) {
+            return false;
+        }
+
+        return true;
+    }
+
+    private static String referenceEncode(char c) {
+        switch (c) {
+            case '\b':
+                return "\\b";
+            case '\f':
+                return "\\f";
+            case '\t':
+                return "\\t";
+            case '\n':
+                return "\\n";
+            case '\r':
+                return "\\r";
+            case '"':
+                return "\\\"";
+            case '\\':
+                return "\\\\";
+            case '/':
+                return "\\/";
+            default:
+                return new String(new char[] { '\\', 'u', ENCODE_HEX[c >> 0xc & 0xf], ENCODE_HEX[c >> 0x8 & 0xf],
+                        ENCODE_HEX[c >> 0x4 & 0xf], ENCODE_HEX[c & 0xf] });
+        }
+    }
+
+    private static String referenceEncode(CharSequence sequence) {
+        StringBuilder result = new StringBuilder();
+
+        for (int i = 0; i < sequence.length(); i++) {
+            char c = sequence.charAt(i);
+
+            if (referenceCompile(c)) {
+                result.append(c);
+            } else {
+                result.append(referenceEncode(c));
+            }
+        }
+
+        return result.toString();
+    }
+
+    private static String randomString(Random random, int length) {
+        char[] chars = new char[length];
+
+        for (int i = 0; i < length; i++) {
+            switch (random.nextInt(4)) {
+                case 0:
+                    chars[i] = (char) random.nextInt(0x10000);
+                    break;
+                case 1:
+                    chars[i] = (char) random.nextInt(0x100);
+                    break;
+                default:
+                    chars[i] = (char) (0x20 + random.nextInt(0x60));
+            }
+        }
+
+        return new String(chars);
+    }
+
+    /**
+     * Appendable that is neither {@link StringBuilder} nor {@link java.io.Writer}
+     */
+    private static final class GenericAppendable implements Appendable {
+        private final StringBuilder builder = new StringBuilder();
+
+        public Appendable append(CharSequence csq) throws IOException {
+            builder.append(csq);
+            return this;
+        }
+
+        public Appendable append(CharSequence csq, int start, int end) throws IOException {
+            builder.append(csq, start, end);
+            return this;
+        }
+
+        public Appendable append(char c) throws IOException {
+            builder.append(c);
+            return this;
+        }
+
+        @Override
+        public String toString() {
+            return builder.toString();
+        }
+    }
+
+    @Test
+    public void testAllCharacters() throws Exception {
+        JSEncoder encoder = new JSEncoder();
+
+        for (int i = 0; i <= Character.MAX_VALUE; i++) {
+            char c = (char) i;
+
+            assertEquals("Character " + i, referenceCompile(c), encoder.compile(c));
+            assertArrayEquals("Character " + i, referenceEncode(c).toCharArray(), encoder.encode(c));
+
+            StringBuilder builder = new StringBuilder();
+            JSEncoder.appendEncoded(builder, String.valueOf(c));
+            assertEquals("Character " + i, referenceEncode(String.valueOf(c)), builder.toString());
+        }
+    }
+
+    @Test
+    public void testEncodedArrayNotShared() throws Exception {
+        JSEncoder encoder = new JSEncoder();
+        char[] encoded = encoder.encode('"');
+        encoded[1] = 'x';
+
+        assertArrayEquals("\\\"".toCharArray(), encoder.encode('"'));
+
+        StringBuilder builder = new StringBuilder();
+        JSEncoder.appendEncoded(builder, "\"");
+        assertEquals("\\\"", builder.toString());
+    }
+
+    @Test
+    public void testRandomStrings() throws Exception {
+        Random random = new Random(42);
+
+        for (int i = 0; i < 1000; i++) {
+            String s = randomString(random, random.nextInt(200));
+            String expected = referenceEncode(s);
+
+            StringBuilder builder = new StringBuilder();
+            JSEncoder.appendEncoded(builder, s);
+            assertEquals(expected, builder.toString());
+
+            StringWriter writer = new StringWriter();
+            JSEncoder.appendEncoded(writer, s);
+            assertEquals(expected, writer.toString());
+
+            GenericAppendable appendable = new GenericAppendable();
+            JSEncoder.appendEncoded(appendable, new StringBuilder(s));
+            assertEquals(expected, appendable.toString());
+        }
+    }
+
+    @Test
+    public void testRuns() throws Exception {
+        StringBuilder builder = new StringBuilder();
+        JSEncoder.appendEncoded(builder, "</script>\u0416-->plain text\"");
+
+        assertEquals("\\u003C\\/script\\u003E\\u0416\\u002D\\u002D\\u003Eplain text\\\"", builder.toString());
+    }
+}
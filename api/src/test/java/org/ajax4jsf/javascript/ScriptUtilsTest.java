@@ -133,6 +133,23 @@ public class ScriptUtilsTest extends TestCase {
         assertEquals("[1,2,3,4,5] ", ScriptUtils.toScript(obj));
     }
 
+    public void testPrimitiveArraysToScript() {
+        assertEquals("[\"a\",\"\\\"\"] ", ScriptUtils.toScript(new char[] { 'a', '"' }));
+        assertEquals("[true,false] ", ScriptUtils.toScript(new boolean[] { true, false }));
+        assertEquals("[1.5,-2.0] ", ScriptUtils.toScript(new double[] { 1.5, -2 }));
+        assertEquals("[] ", ScriptUtils.toScript(new long[0]));
+        assertEquals("[9223372036854775807,-1] ", ScriptUtils.toScript(new long[] { Long.MAX_VALUE, -1 }));
+        assertEquals("[0.25,3.0] ", ScriptUtils.toScript(new float[] { 0.25f, 3 }));
+        assertEquals("[-32768,7] ", ScriptUtils.toScript(new short[] { Short.MIN_VALUE, 7 }));
+        assertEquals("[-128,127] ", ScriptUtils.toScript(new byte[] { Byte.MIN_VALUE, Byte.MAX_VALUE }));
+    }
+
+    public void testBeanSerializerReused() {
+        assertEquals("{\"bool\":true,\"foo\":\"foo\",\"integer\":1} ", ScriptUtils.toScript(new Bean(1, true, "foo")));
+        assertSame(BeanSerializer.getInstance(Bean.class), BeanSerializer.getInstance(Bean.class));
+        assertEquals("{\"bool\":false,\"foo\":\"bar\",\"integer\":2} ", ScriptUtils.toScript(new Bean(2, false, "bar")));
+    }
+
     public void testSqlDate() {
         java.sql.Time obj = new java.sql.Time(1);
         String timeString = ScriptUtils.toScript(obj);
@@ -23,10 +23,12 @@ package org.richfaces.l10n;
 
 import static org.easymock.EasyMock.expect;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.fail;
 
 import java.util.Locale;
 import java.util.MissingResourceException;
+import java.util.ResourceBundle;
 
 import org.jboss.test.faces.mock.MockFacesEnvironment;
 import org.junit.After;
@@ -76,6 +78,26 @@ public class BundleLoaderTest {
         }
     }
 
+    @Test
+    public void testCachedBundles() throws Exception {
+        facesEnvironment.replay();
+
+        ResourceBundle bundle = bundleLoader.getBundle(BundleLoaderCoreMessages.message, Locale.US);
+        assertSame(bundle, bundleLoader.getBundle(BundleLoaderCoreMessages.message, Locale.US));
+
+        for (int i = 0; i < 2; i++) {
+            try {
+                bundleLoader.getBundle(BundleLoaderCoreMessages.message, new Locale("by", "BY"));
+                fail();
+            } catch (MissingResourceException e) {
+                // ok
+            }
+        }
+
+        bundleLoader.clearCache();
+        assertEquals("Hello", bundleLoader.getBundle(BundleLoaderCoreMessages.message, Locale.US).getString("message"));
+    }
+
     @Test
     public void testGetApplicationBundle() throws Exception {
         expect(facesEnvironment.getApplication().getMessageBundle()).andStubReturn("org.richfaces.l10n.AppMessages");
@@ -0,0 +1,71 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2010, Red Hat, Inc. and individual contributors
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.richfaces.l10n;
+
+import static org.junit.Assert.assertEquals;
+
+import java.text.MessageFormat;
+import java.util.Date;
+import java.util.Locale;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class MessageFormatsTest {
+    private Locale defaultLocale;
+
+    @Before
+    public void setUp() throws Exception {
+        defaultLocale = Locale.getDefault();
+        Locale.setDefault(Locale.US);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        Locale.setDefault(defaultLocale);
+        MessageFormats.clearCache();
+    }
+
+    @Test
+    public void testFormat() throws Exception {
+        Date date = new Date(784111777000L);
+        String[] patterns = { "{2}: ''{0}'' must be convertible to an enum.", "{0,number,#.##} of {1,number,integer}",
+                "{0,choice,0#no files|1#one file|1<{0} files}", "{0,date,short} {1}", "no arguments", "{3} {0}" };
+        Object[][] args = { { "field", "anotherField", "Failed" }, { 1.2345, 1000 }, { 2 }, { date, null }, {},
+                { "only" } };
+
+        for (int i = 0; i < patterns.length; i++) {
+            // twice to use cached format
+            assertEquals(MessageFormat.format(patterns[i], args[i]), MessageFormats.format(patterns[i], args[i]));
+            assertEquals(MessageFormat.format(patterns[i], args[i]), MessageFormats.format(patterns[i], args[i]));
+        }
+    }
+
+    @Test
+    public void testDefaultLocaleChange() throws Exception {
+        assertEquals("1,234.5", MessageFormats.format("{0}", 1234.5));
+
+        Locale.setDefault(Locale.GERMANY);
+        assertEquals("1.234,5", MessageFormats.format("{0}", 1234.5));
+    }
+}
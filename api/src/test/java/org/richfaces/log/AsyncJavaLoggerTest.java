@@ -0,0 +1,277 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2010, Red Hat, Inc. and individual contributors
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.richfaces.log;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.net.URL;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.logging.Handler;
+import java.util.logging.LogManager;
+import java.util.logging.LogRecord;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.richfaces.log.AsyncLogDispatcher.OverflowPolicy;
+
+public class AsyncJavaLoggerTest {
+    private static final long FLUSH_TIMEOUT = 10000;
+
+    private final class TrackingHandler extends Handler {
+        @Override
+        public void publish(LogRecord record) {
+            // formatters infer caller on the publishing thread
+            record.getSourceClassName();
+            publishedRecords.add(record);
+        }
+
+        @Override
+        public void flush() {
+        }
+
+        @Override
+        public void close() throws SecurityException {
+        }
+    }
+
+    private static final class TrackingClassLoader extends ClassLoader {
+        private volatile boolean resourceRequested = false;
+
+        TrackingClassLoader(ClassLoader parent) {
+            super(parent);
+        }
+
+        @Override
+        public URL getResource(String name) {
+            resourceRequested = true;
+            return super.getResource(name);
+        }
+    }
+
+    private java.util.logging.Logger wrappedLogger;
+    private List<LogRecord> publishedRecords;
+
+    @Before
+    public void setUp() throws Exception {
+        LogManager.getLogManager().reset();
+        publishedRecords = new CopyOnWriteArrayList<LogRecord>();
+
+        wrappedLogger = java.util.logging.Logger.getLogger("org.richfaces.AsyncJavaLoggerTest");
+        wrappedLogger.setLevel(java.util.logging.Level.ALL);
+        wrappedLogger.addHandler(new TrackingHandler());
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        publishedRecords = null;
+        wrappedLogger = null;
+    }
+
+    private AsyncLogDispatcher createDispatcher(int capacity, OverflowPolicy policy, int sampleRate, boolean callerData) {
+        return new AsyncLogDispatcher(capacity, policy, sampleRate, callerData);
+    }
+
+    @Test
+    public void testPublishing() throws Exception {
+        AsyncLogDispatcher dispatcher = createDispatcher(16, OverflowPolicy.DROP, 1, false);
+        AsyncJavaLogger logger = new AsyncJavaLogger(wrappedLogger.getName(), dispatcher);
+        dispatcher.start();
+
+        StringBuilder content = new StringBuilder("content");
+        logger.info(content);
+        content.append(" changed");
+        logger.warn(new IllegalStateException("thrown"), LoggerTestMessages.TEST_MESSAGE, "a", "b");
+
+        assertTrue(dispatcher.flush(FLUSH_TIMEOUT));
+        assertEquals(2, publishedRecords.size());
+
+        LogRecord record = publishedRecords.get(0);
+        assertEquals(java.util.logging.Level.INFO, record.getLevel());
+        assertEquals("content", record.getMessage());
+        assertEquals(wrappedLogger.getName(), record.getLoggerName());
+        assertEquals((int) Thread.currentThread().getId(), record.getThreadID());
+        assertNull(record.getSourceClassName());
+        assertNull(record.getThrown());
+
+        record = publishedRecords.get(1);
+        assertEquals(java.util.logging.Level.WARNING, record.getLevel());
+        assertEquals("RF-000000 Test message with arguments: a and b", record.getMessage());
+        assertTrue(record.getThrown() instanceof IllegalStateException);
+    }
+
+    @Test
+    public void testDisabledLevel() throws Exception {
+        AsyncLogDispatcher dispatcher = createDispatcher(1, OverflowPolicy.DROP, 1, false);
+        AsyncJavaLogger logger = new AsyncJavaLogger(wrappedLogger.getName(), dispatcher);
+        wrappedLogger.setLevel(java.util.logging.Level.WARNING);
+
+        logger.debug("debug");
+        logger.info("info");
+        logger.error("error");
+        logger.warn("warn");
+
+        // buffer of a single record is neither exhausted by debug nor by info messages
+        assertEquals(1, dispatcher.getDroppedCount());
+
+        dispatcher.start();
+        assertTrue(dispatcher.flush(FLUSH_TIMEOUT));
+        assertEquals(1, publishedRecords.size());
+        assertEquals("error", publishedRecords.get(0).getMessage());
+    }
+
+    @Test
+    public void testCallerData() throws Exception {
+        AsyncLogDispatcher dispatcher = createDispatcher(16, OverflowPolicy.DROP, 1, true);
+        AsyncJavaLogger logger = new AsyncJavaLogger(wrappedLogger.getName(), dispatcher);
+        dispatcher.start();
+
+        logger.debug("debug");
+        logger.log(Logger.Level.ERROR, LoggerTestMessages.TEST_MESSAGE, "a", "b");
+
+        assertTrue(dispatcher.flush(FLUSH_TIMEOUT));
+        assertEquals(2, publishedRecords.size());
+
+        for (LogRecord record : publishedRecords) {
+            assertEquals(AsyncJavaLoggerTest.class.getName(), record.getSourceClassName());
+            assertEquals("testCallerData", record.getSourceMethodName());
+        }
+    }
+
+    @Test
+    public void testDropPolicy() throws Exception {
+        AsyncLogDispatcher dispatcher = createDispatcher(2, OverflowPolicy.DROP, 1, false);
+        AsyncJavaLogger logger = new AsyncJavaLogger(wrappedLogger.getName(), dispatcher);
+
+        for (int i = 0; i < 5; i++) {
+            logger.error("message " + i);
+        }
+
+        assertEquals(3, dispatcher.getDroppedCount());
+        assertEquals(0, dispatcher.getSampledOutCount());
+
+        dispatcher.start();
+        assertTrue(dispatcher.flush(FLUSH_TIMEOUT));
+        assertEquals(2, publishedRecords.size());
+        assertEquals("message 0", publishedRecords.get(0).getMessage());
+        assertEquals("message 1", publishedRecords.get(1).getMessage());
+    }
+
+    @Test
+    public void testSamplePolicy() throws Exception {
+        AsyncLogDispatcher dispatcher = createDispatcher(4, OverflowPolicy.SAMPLE, 2, false);
+        AsyncJavaLogger logger = new AsyncJavaLogger(wrappedLogger.getName(), dispatcher);
+
+        // sampling starts when three records are buffered
+        for (int i = 0; i < 7; i++) {
+            logger.debug("message " + i);
+        }
+
+        logger.warn("warning");
+
+        assertEquals(2, dispatcher.getSampledOutCount());
+        assertEquals(2, dispatcher.getDroppedCount());
+
+        dispatcher.start();
+        assertTrue(dispatcher.flush(FLUSH_TIMEOUT));
+        assertEquals(4, publishedRecords.size());
+        assertEquals("message 4", publishedRecords.get(3).getMessage());
+    }
+
+    @Test
+    public void testContextClassLoader() throws Exception {
+        AsyncLogDispatcher dispatcher = createDispatcher(16, OverflowPolicy.DROP, 1, false);
+        AsyncJavaLogger logger = new AsyncJavaLogger(wrappedLogger.getName(), dispatcher);
+        Thread thread = Thread.currentThread();
+        ClassLoader contextClassLoader = thread.getContextClassLoader();
+        TrackingClassLoader trackingClassLoader = new TrackingClassLoader(contextClassLoader);
+
+        thread.setContextClassLoader(trackingClassLoader);
+        try {
+            logger.info(LoggerTestMessages.TEST_MESSAGE, "a", "b");
+        } finally {
+            thread.setContextClassLoader(contextClassLoader);
+        }
+
+        assertFalse(trackingClassLoader.resourceRequested);
+
+        dispatcher.start();
+        assertTrue(dispatcher.flush(FLUSH_TIMEOUT));
+        assertEquals("RF-000000 Test message with arguments: a and b", publishedRecords.get(0).getMessage());
+        assertTrue(trackingClassLoader.resourceRequested);
+        dispatcher.shutdown(FLUSH_TIMEOUT);
+    }
+
+    @Test
+    public void testShutdown() throws Exception {
+        AsyncLogDispatcher dispatcher = createDispatcher(16, OverflowPolicy.DROP, 1, false);
+        AsyncJavaLogger logger = new AsyncJavaLogger(wrappedLogger.getName(), dispatcher);
+
+        logger.info("queued");
+        assertEquals(0, publishedRecords.size());
+
+        dispatcher.shutdown(FLUSH_TIMEOUT);
+        assertEquals(1, publishedRecords.size());
+
+        logger.info("published synchronously");
+        assertEquals(2, publishedRecords.size());
+        assertEquals("published synchronously", publishedRecords.get(1).getMessage());
+
+        dispatcher.start();
+        logger.info("not restarted");
+        assertEquals(3, publishedRecords.size());
+    }
+
+    @Test
+    public void testShutdownDrainsStartedDispatcher() throws Exception {
+        AsyncLogDispatcher dispatcher = createDispatcher(1024, OverflowPolicy.DROP, 1, false);
+        AsyncJavaLogger logger = new AsyncJavaLogger(wrappedLogger.getName(), dispatcher);
+        dispatcher.start();
+
+        for (int i = 0; i < 500; i++) {
+            logger.info("message " + i);
+        }
+
+        dispatcher.shutdown(FLUSH_TIMEOUT);
+        assertEquals(500, publishedRecords.size());
+        assertEquals("message 499", publishedRecords.get(499).getMessage());
+    }
+
+    @Test
+    public void testBlockPolicy() throws Exception {
+        AsyncLogDispatcher dispatcher = createDispatcher(2, OverflowPolicy.BLOCK, 1, false);
+        AsyncJavaLogger logger = new AsyncJavaLogger(wrappedLogger.getName(), dispatcher);
+        dispatcher.start();
+
+        for (int i = 0; i < 100; i++) {
+            logger.info("message " + i);
+        }
+
+        assertTrue(dispatcher.flush(FLUSH_TIMEOUT));
+        assertEquals(0, dispatcher.getDroppedCount());
+        assertEquals(100, publishedRecords.size());
+    }
+}
@@ -59,6 +59,26 @@ public final class CoreConfiguration {
         resourcesDefaultVersion,
         @ConfigurationItem(names = "org.ajax4jsf.cache.LRU_MAP_CACHE_SIZE", literal = true)
         lruMapCacheSize,
+        @ConfigurationItem(defaultValue = "67108864" /* 64 MB */, names = "org.richfaces.resourceCacheMaxBytes", literal = true)
+        resourcesCacheMaxBytes,
+        @ConfigurationItem(defaultValue = "16", names = "org.richfaces.resourceCacheConcurrencyLevel", literal = true)
+        resourcesCacheConcurrencyLevel,
+        @ConfigurationItem(defaultValue = "heap", names = "org.richfaces.resourceCacheStorage", literal = true)
+        resourcesCacheStorage,
+        @ConfigurationItem(defaultValue = "33554432" /* 32 MB */, names = "org.richfaces.resourceCacheDirectMemoryLimit", literal = true)
+        resourcesCacheDirectMemoryLimit,
+        @ConfigurationItem(defaultValue = "true", names = "org.richfaces.resourceCacheCompression", literal = true)
+        resourcesCacheCompression,
+        @ConfigurationItem(defaultValue = "1048576" /* 1 MB */, names = "org.richfaces.resourceCacheMaxContentLength", literal = true)
+        resourcesCacheMaxContentLength,
+        @ConfigurationItem(defaultValue = "false", names = "org.richfaces.resourceCacheWarmUp.enabled", literal = true)
+        resourcesCacheWarmUpEnabled,
+        @ConfigurationItem(defaultValue = "true", names = "org.richfaces.resourceCacheWarmUp.background", literal = true)
+        resourcesCacheWarmUpInBackground,
+        @ConfigurationItem(defaultValue = "2", names = "org.richfaces.resourceCacheWarmUp.threads", literal = true)
+        resourcesCacheWarmUpThreads,
+        @ConfigurationItem(names = "org.richfaces.resourceCacheWarmUp.resources", literal = true)
+        resourcesCacheWarmUpResources,
         @Deprecated
         @ConfigurationItem(names = "org.richfaces.staticResourceLocation")
         staticResourceLocation,
@@ -72,6 +92,12 @@ public final class CoreConfiguration {
         resourceOptimizationCompressionStages,
         @ConfigurationItem(defaultValue = "All", names = { "org.richfaces.resourceOptimization.packagingStages", "org.richfaces.resourceMapping.packedStages" }, literal = true)
         resourceOptimizationPackagingStages,
+        @ConfigurationItem(defaultValue = "false", names = "org.richfaces.resourceOptimization.spriteImages", literal = true)
+        resourceOptimizationSpriteImages,
+        @ConfigurationItem(defaultValue = "false", names = "org.richfaces.resourceOptimization.runtimePacking", literal = true)
+        resourceOptimizationRuntimePacking,
+        @ConfigurationItem(defaultValue = "false", names = "org.richfaces.componentIdIndex.enabled", literal = true)
+        componentIdIndexEnabled,
         @ConfigurationItem(defaultValue = "true", names = "org.richfaces.executeAWTInitializer", literal = true)
         executeAWTInitializer,
         @ConfigurationItem(names = "org.richfaces.push.handlerMapping", literal = true)
@@ -14,6 +14,7 @@ import org.richfaces.renderkit.AjaxDataSerializer;
 import org.richfaces.renderkit.AjaxDataSerializerImpl;
 import org.richfaces.resource.DefaultResourceCodec;
 import org.richfaces.resource.ResourceCodec;
+import org.richfaces.resource.ResourceContentStorage;
 import org.richfaces.resource.ResourceLibraryFactory;
 import org.richfaces.resource.ResourceLibraryFactoryImpl;
 import org.richfaces.skin.SkinFactory;
@@ -26,6 +27,7 @@ public class DefaultModule implements Module {
         factory.setInstance(AjaxDataSerializer.class, new AjaxDataSerializerImpl());
         factory.setInstance(ResourceCodec.class, ServiceLoader.loadService(ResourceCodec.class, DefaultResourceCodec.class));
         factory.setInstance(Cache.class, new CacheProvider());
+        factory.setInstance(ResourceContentStorage.class, new ResourceContentStorage());
         factory.setInstance(Uptime.class, new Uptime());
         factory.setInstance(DependencyInjector.class, new DependencyInjectionServiceImpl());
         factory.setInstance(MessageFactory.class, new MessageFactoryImpl(new BundleLoader()));
@@ -24,6 +24,7 @@ package org.richfaces.application;
 import static org.richfaces.application.CoreConfiguration.Items.executeAWTInitializer;
 import static org.richfaces.application.CoreConfiguration.Items.pushInitializePushContextOnStartup;
 import static org.richfaces.application.CoreConfiguration.Items.pushJMSEnabled;
+import static org.richfaces.application.CoreConfiguration.Items.resourcesCacheWarmUpEnabled;
 import static org.richfaces.application.configuration.ConfigurationServiceHelper.getBooleanConfigurationValue;
 
 import java.awt.Toolkit;
@@ -44,8 +45,10 @@ import javax.imageio.stream.ImageInputStream;
 
 import org.richfaces.VersionBean;
 import org.richfaces.application.push.PushContextFactory;
+import org.richfaces.log.LogFactory;
 import org.richfaces.log.Logger;
 import org.richfaces.log.RichfacesLogger;
+import org.richfaces.resource.ResourceCacheWarmer;
 
 /**
  * @author Nick Belaevski
@@ -53,6 +56,7 @@ import org.richfaces.log.RichfacesLogger;
  */
 public class InitializationListener implements SystemEventListener {
     private static final Logger LOGGER = RichfacesLogger.APPLICATION.getLogger();
+    private ResourceCacheWarmer resourceCacheWarmer;
 
     /*
      * (non-Javadoc)
@@ -86,6 +90,19 @@ public class InitializationListener implements SystemEventListener {
         if (!jmsEnabled) {
             logWarningWhenConnectionFactoryPresent();
         }
+
+        if (getConfiguration(resourcesCacheWarmUpEnabled)) {
+            warmUpResourceCache();
+        }
+    }
+
+    private void warmUpResourceCache() {
+        try {
+            resourceCacheWarmer = ResourceCacheWarmer.warmUp(FacesContext.getCurrentInstance());
+        } catch (Exception e) {
+            LOGGER.error(MessageFormat.format("There were problems warming up resource cache on startup: {0}", e.getMessage()),
+                e);
+        }
     }
 
     private void initializeAWT() {
@@ -134,7 +151,13 @@ public class InitializationListener implements SystemEventListener {
     }
 
     protected void onStop() {
+        if (resourceCacheWarmer != null) {
+            resourceCacheWarmer.cancel();
+            resourceCacheWarmer = null;
+        }
+
         ServiceTracker.release();
+        LogFactory.shutdown();
     }
 
     /*
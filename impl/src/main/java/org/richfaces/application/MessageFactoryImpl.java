@@ -21,7 +21,6 @@
  */
 package org.richfaces.application;
 
-import java.text.MessageFormat;
 import java.util.Locale;
 import java.util.MissingResourceException;
 import java.util.ResourceBundle;
@@ -33,6 +32,7 @@ import javax.faces.context.FacesContext;
 
 import org.richfaces.l10n.BundleLoader;
 import org.richfaces.l10n.MessageBundle;
+import org.richfaces.l10n.MessageFormats;
 
 import com.google.common.base.Strings;
 
@@ -52,20 +52,23 @@ public class MessageFactoryImpl implements MessageFactory {
 
             String summary = null;
             String detail = null;
+            String detailId = messageId + "_detail";
 
-            try {
+            // missing detail is common, so it's checked without exception
+            if (bundle.containsKey(messageId)) {
                 summary = bundle.getString(messageId);
-                detail = bundle.getString(messageId + "_detail");
-            } catch (MissingResourceException e) {
-                // do nothing
+
+                if (bundle.containsKey(detailId)) {
+                    detail = bundle.getString(detailId);
+                }
             }
 
             if (summary != null) {
-                String formattedSummary = MessageFormat.format(summary, args);
+                String formattedSummary = MessageFormats.format(summary, args);
                 String formattedDetail = null;
 
                 if (detail != null) {
-                    formattedDetail = MessageFormat.format(detail, args);
+                    formattedDetail = MessageFormats.format(detail, args);
                 }
 
                 return new FacesMessage(formattedSummary, formattedDetail);
@@ -77,7 +80,7 @@ public class MessageFactoryImpl implements MessageFactory {
     private static final Factory<String> LABEL_FACTORY = new Factory<String>() {
         public String create(ResourceBundle bundle, Enum<?> messageKey, Object... args) throws MissingResourceException {
             String pattern = bundle.getString(messageKey.toString());
-            return MessageFormat.format(pattern, args);
+            return MessageFormats.format(pattern, args);
         }
     };
     private static final Factory<String> FORMAT_FACTORY = new Factory<String>() {
@@ -27,11 +27,10 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.net.URL;
 import java.text.MessageFormat;
-import java.util.EnumSet;
-import java.util.Iterator;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.Map;
 import java.util.Properties;
-import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 import javax.el.ExpressionFactory;
@@ -57,23 +56,39 @@ import com.google.common.primitives.Primitives;
 public class ConfigurationServiceImpl implements ConfigurationService {
     private static final Logger LOGGER = RichfacesLogger.APPLICATION.getLogger();
     private static final String JNDI_COMP_PREFIX = "java:comp/env/";
-    private Map<Enum<?>, ValueExpressionHolder> itemsMap = new ConcurrentHashMap<Enum<?>, ValueExpressionHolder>();
+    private volatile Map<Class<?>, ConfigurationEntry[]> snapshot = Collections.emptyMap();
     private AtomicBoolean webEnvironmentUnavailableLogged = new AtomicBoolean();
 
+    /**
+     * Configuration item with value read from its source. Value expression holder is resolved for the requested type on
+     * first access.
+     */
+    private static final class ConfigurationEntry {
+        private final ConfigurationItem item;
+        private final String value;
+        private volatile ValueExpressionHolder holder;
+
+        ConfigurationEntry(ConfigurationItem item, String value) {
+            this.item = item;
+            this.value = value;
+        }
+    }
+
     private ConfigurationItem getConfigurationItem(Enum<?> enumKey) {
         try {
-            ConfigurationItem item = enumKey.getClass().getField(enumKey.name()).getAnnotation(ConfigurationItem.class);
+            ConfigurationItem item = enumKey.getDeclaringClass().getField(enumKey.name())
+                .getAnnotation(ConfigurationItem.class);
             if (item != null) {
                 return item;
             }
         } catch (Exception e) {
             throw new IllegalStateException(MessageFormat.format(
-                "Cannot read @ConfigurationItem annotation from {0}.{1} because of {2}", enumKey.getClass().getName(),
+                "Cannot read @ConfigurationItem annotation from {0}.{1} because of {2}", enumKey.getDeclaringClass().getName(),
                 enumKey.name(), e.getMessage()));
         }
 
         throw new IllegalStateException(MessageFormat.format("Annotation @ConfigurationItem is not set at {0}.{1}", enumKey
-            .getClass().getName(), enumKey.name()));
+            .getDeclaringClass().getName(), enumKey.name()));
     }
 
     protected ValueExpressionHolder createValueExpressionHolder(FacesContext context, ValueExpression expression,
@@ -86,7 +101,7 @@ public class ConfigurationServiceImpl implements ConfigurationService {
             }
         }
 
-        return new ValueExpressionHolder(expression, defaultValue);
+        return new ValueExpressionHolder(expression, defaultValue, returnType);
     }
 
     private String getInitParameterValue(FacesContext context, ConfigurationItem configurationItem) {
@@ -101,11 +116,9 @@ public class ConfigurationServiceImpl implements ConfigurationService {
         return null;
     }
 
-    private String getWebEnvironmentEntryValue(ConfigurationItem configurationItem) {
-        Context context = null;
-
+    private Context createInitialContext() {
         try {
-            context = new InitialContext();
+            return new InitialContext();
         } catch (Throwable e) {
             // Throwable is caught here due to GAE requirements
             if (!webEnvironmentUnavailableLogged.getAndSet(true)) {
@@ -113,6 +126,10 @@ public class ConfigurationServiceImpl implements ConfigurationService {
             }
         }
 
+        return null;
+    }
+
+    private String getWebEnvironmentEntryValue(Context context, ConfigurationItem configurationItem) {
         if (context != null) {
             for (String envName : configurationItem.names()) {
                 String qualifiedName;
@@ -141,87 +158,113 @@ public class ConfigurationServiceImpl implements ConfigurationService {
         return null;
     }
 
-    private ValueExpression createContextValueExpression(FacesContext context, ConfigurationItem annotation, Class<?> targetType) {
-        ConfigurationItemSource source = annotation.source();
-
-        if (source == ConfigurationItemSource.defaultSource) {
-            source = ConfigurationItemSource.contextInitParameter;
-        }
-
-        String parameterValue = null;
-
-        if (source == ConfigurationItemSource.contextInitParameter) {
-            parameterValue = getInitParameterValue(context, annotation);
-        } else if (source == ConfigurationItemSource.webEnvironmentEntry) {
-            parameterValue = getWebEnvironmentEntryValue(annotation);
-        } else {
-            throw new IllegalArgumentException(source.toString());
-        }
+    private String getPropertiesValue(Properties properties, ConfigurationItem configurationItem) {
+        for (String propertyName : configurationItem.names()) {
+            String value = properties.getProperty(propertyName);
 
-        if (!Strings.isNullOrEmpty(parameterValue)) {
-            return ELUtils.createValueExpression(context, parameterValue, annotation.literal(), targetType);
+            if (value != null) {
+                return value;
+            }
         }
 
         return null;
     }
 
-    protected <T> T getValue(FacesContext facesContext, Enum<?> key, Class<T> returnType) {
-        ValueExpressionHolder holder = itemsMap.get(key);
+    /**
+     * Reads all configuration items of the enum class, so that annotations, properties bundle and JNDI context are
+     * accessed once per class
+     */
+    private ConfigurationEntry[] createEntries(FacesContext context, Class<?> enumClass) {
+        Enum<?>[] keys = (Enum<?>[]) enumClass.getEnumConstants();
+        ConfigurationEntry[] entries = new ConfigurationEntry[keys.length];
+        ConfigurationItemsBundle configurationItemsBundle = enumClass.getAnnotation(ConfigurationItemsBundle.class);
+        Properties properties = null;
+        Context jndiContext = null;
+        boolean jndiContextCreated = false;
+
+        for (Enum<?> key : keys) {
+            ConfigurationItem item = getConfigurationItem(key);
+            ConfigurationItemSource source = item.source();
+            String value;
+
+            if (source == ConfigurationItemSource.defaultSource && configurationItemsBundle != null) {
+                if (properties == null) {
+                    properties = loadProperties(configurationItemsBundle.propertiesFile());
+                }
 
-        if (holder == null) {
-            ConfigurationItemsBundle configurationItemsBundle = getConfigurationItemsBundle(key);
+                value = getPropertiesValue(properties, item);
+            } else if (source == ConfigurationItemSource.defaultSource
+                || source == ConfigurationItemSource.contextInitParameter) {
+                value = getInitParameterValue(context, item);
+            } else if (source == ConfigurationItemSource.webEnvironmentEntry) {
+                if (!jndiContextCreated) {
+                    jndiContext = createInitialContext();
+                    jndiContextCreated = true;
+                }
 
-            if (configurationItemsBundle == null) {
-                ConfigurationItem item = getConfigurationItem(key);
-                ValueExpression expression = createContextValueExpression(facesContext, item, returnType);
-                holder = createValueExpressionHolder(facesContext, expression, item.defaultValue(), returnType);
-                itemsMap.put(key, holder);
+                value = getWebEnvironmentEntryValue(jndiContext, item);
             } else {
-                synchronized (key.getClass()) {
-                    Properties properties = loadProperties(configurationItemsBundle.propertiesFile());
-
-                    Iterator<Object> keys = EnumSet.allOf(key.getClass()).iterator();
-                    while (keys.hasNext()) {
-                        Enum<?> nextBundleKey = (Enum<?>) keys.next();
+                throw new IllegalArgumentException(source.toString());
+            }
 
-                        ConfigurationItem item = getConfigurationItem(nextBundleKey);
+            entries[key.ordinal()] = new ConfigurationEntry(item, value);
+        }
 
-                        if (item.source() != ConfigurationItemSource.defaultSource) {
-                            throw new IllegalArgumentException(item.toString());
-                        }
+        return entries;
+    }
 
-                        String parameterValue = null;
+    private ConfigurationEntry getEntry(FacesContext context, Enum<?> key) {
+        // constants with class bodies are stored under their own classes too
+        Class<?> keyClass = key.getClass();
+        ConfigurationEntry[] entries = snapshot.get(keyClass);
 
-                        for (String propertyName : item.names()) {
-                            parameterValue = properties.getProperty(propertyName);
+        if (entries == null) {
+            synchronized (this) {
+                Map<Class<?>, ConfigurationEntry[]> currentSnapshot = snapshot;
+                Class<?> enumClass = key.getDeclaringClass();
+                entries = currentSnapshot.get(enumClass);
 
-                            if (parameterValue != null) {
-                                break;
-                            }
-                        }
+                if (entries == null) {
+                    entries = createEntries(context, enumClass);
+                }
 
-                        ValueExpression expression = null;
+                Map<Class<?>, ConfigurationEntry[]> updatedSnapshot = new HashMap<Class<?>, ConfigurationEntry[]>(
+                    currentSnapshot);
+                updatedSnapshot.put(enumClass, entries);
+                updatedSnapshot.put(keyClass, entries);
+                snapshot = updatedSnapshot;
+            }
+        }
 
-                        if (parameterValue != null) {
-                            expression = ELUtils.createValueExpression(facesContext, parameterValue, item.literal(), returnType);
-                        }
+        return entries[key.ordinal()];
+    }
 
-                        ValueExpressionHolder siblingHolder = createValueExpressionHolder(facesContext, expression,
-                            item.defaultValue(), returnType);
+    protected <T> T getValue(FacesContext facesContext, Enum<?> key, Class<T> returnType) {
+        ConfigurationEntry entry = getEntry(facesContext, key);
+        ValueExpressionHolder holder = entry.holder;
 
-                        itemsMap.put(nextBundleKey, siblingHolder);
+        if (holder == null || holder.getReturnType() != returnType) {
+            ConfigurationItem item = entry.item;
+            ValueExpression expression = null;
 
-                        if (key == nextBundleKey) {
-                            holder = siblingHolder;
-                        }
-                    }
-                }
+            if (entry.value != null) {
+                expression = ELUtils.createValueExpression(facesContext, entry.value, item.literal(), returnType);
             }
+
+            holder = createValueExpressionHolder(facesContext, expression, item.defaultValue(), returnType);
+            entry.holder = holder;
         }
 
         return returnType.cast(holder.getValue(facesContext));
     }
 
+    /**
+     * Drops configuration snapshot, so that configuration items are read again on the next access
+     */
+    public synchronized void reload() {
+        snapshot = Collections.emptyMap();
+    }
+
     private Properties loadProperties(String resourceName) {
         Properties properties = new Properties();
 
@@ -244,17 +287,6 @@ public class ConfigurationServiceImpl implements ConfigurationService {
         return properties;
     }
 
-    private ConfigurationItemsBundle getConfigurationItemsBundle(Enum<?> key) {
-        ConfigurationItem item = getConfigurationItem(key);
-        ConfigurationItemSource source = item.source();
-        if (source == ConfigurationItemSource.defaultSource) {
-            Class<?> enclosingClass = key.getClass();
-            return enclosingClass.getAnnotation(ConfigurationItemsBundle.class);
-        }
-
-        return null;
-    }
-
     public Boolean getBooleanValue(FacesContext facesContext, Enum<?> key) {
         return getValue(facesContext, key, Boolean.class);
     }
@@ -24,18 +24,34 @@ package org.richfaces.application.configuration;
 import javax.el.ValueExpression;
 import javax.faces.context.FacesContext;
 
+import org.richfaces.el.util.ConstantValueExpression;
+
 /**
  * @author Nick Belaevski
  *
  */
 final class ValueExpressionHolder {
-    private ValueExpression valueExpression;
-    private Object defaultValue;
+    private final ValueExpression valueExpression;
+    private final Object defaultValue;
+    private final Class<?> returnType;
 
-    public ValueExpressionHolder(ValueExpression valueExpression, Object defaultValue) {
+    public ValueExpressionHolder(ValueExpression valueExpression, Object defaultValue, Class<?> returnType) {
         super();
-        this.valueExpression = valueExpression;
-        this.defaultValue = defaultValue;
+
+        // constant values don't need evaluation
+        if (valueExpression instanceof ConstantValueExpression) {
+            this.valueExpression = null;
+            this.defaultValue = valueExpression.getValue(null);
+        } else {
+            this.valueExpression = valueExpression;
+            this.defaultValue = defaultValue;
+        }
+
+        this.returnType = returnType;
+    }
+
+    public Class<?> getReturnType() {
+        return returnType;
     }
 
     public Object getValue(FacesContext context) {
@@ -0,0 +1,78 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2010, Red Hat, Inc. and individual contributors
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.richfaces.application.push.impl;
+
+import java.io.IOException;
+
+import org.richfaces.application.push.MessageData;
+
+import com.google.common.base.Function;
+
+/**
+ * Message queued for particular session. Message published to topic references {@link MessageFrame} shared with other
+ * sessions, while message pushed to single session is framed only when it is sent, so that its data isn't held twice.
+ */
+final class FramedMessageData {
+    static final Function<MessageData, FramedMessageData> FROM_MESSAGE_DATA = new Function<MessageData, FramedMessageData>() {
+        public FramedMessageData apply(MessageData input) {
+            return new FramedMessageData(input, null);
+        }
+    };
+    static final Function<FramedMessageData, MessageData> TO_MESSAGE_DATA = new Function<FramedMessageData, MessageData>() {
+        public MessageData apply(FramedMessageData input) {
+            return input.getMessageData();
+        }
+    };
+    private final MessageData messageData;
+    private final MessageFrame frame;
+
+    FramedMessageData(MessageData messageData, MessageFrame frame) {
+        this.messageData = messageData;
+        this.frame = frame;
+    }
+
+    FramedMessageData(MessageFrame frame, long sequenceNumber) {
+        this(new MessageData(frame.getTopicKey(), frame.getSerializedMessage(), sequenceNumber), frame);
+    }
+
+    MessageData getMessageData() {
+        return messageData;
+    }
+
+    MessageFrame getFrame() {
+        return frame;
+    }
+
+    long getSequenceNumber() {
+        return messageData.getSequenceNumber();
+    }
+
+    void appendScript(Appendable target) throws IOException {
+        if (frame != null) {
+            target.append(frame.getScriptPrefix());
+        } else {
+            MessageFrame.appendScriptPrefix(messageData.getTopicKey(), messageData.getSerializedMessage(), target);
+        }
+
+        MessageFrame.appendScriptSuffix(messageData.getSequenceNumber(), target);
+    }
+}
@@ -22,59 +22,44 @@
 package org.richfaces.application.push.impl;
 
 import java.io.IOException;
+import java.util.Collection;
 import java.util.Iterator;
 
 import org.ajax4jsf.javascript.ScriptStringBase;
-import org.ajax4jsf.javascript.ScriptUtils;
 import org.richfaces.application.push.MessageData;
 
+import com.google.common.collect.Iterables;
+
 /**
  * @author Nick Belaevski
  *
  */
 public class MessageDataScriptString extends ScriptStringBase {
-    private static final String TOPIC_ATTRIBUTE = ScriptUtils.toScript("topic");
-    private static final String DATA_ATTRIBUTE = ScriptUtils.toScript("data");
-    private static final String NUMBER_ATTRIBUTE = ScriptUtils.toScript("number");
-    private final Iterable<MessageData> messages;
+    private final Iterable<FramedMessageData> messages;
     private long lastMessageNumber;
 
     public MessageDataScriptString(Iterable<MessageData> messages) {
         super();
 
-        this.messages = messages;
+        this.messages = Iterables.transform(messages, FramedMessageData.FROM_MESSAGE_DATA);
     }
 
-    private void appendMessageToScript(MessageData message, Appendable target) throws IOException {
-        target.append('<');
-
-        target.append(TOPIC_ATTRIBUTE);
-        target.append(':');
-        ScriptUtils.appendScript(target, message.getTopicKey().getTopicAddress());
-
-        target.append(',');
-
-        target.append(DATA_ATTRIBUTE);
-        target.append(':');
-        // append as is - no escaping
-        target.append(message.getSerializedMessage());
-
-        target.append(',');
-
-        target.append(NUMBER_ATTRIBUTE);
-        target.append(':');
-        ScriptUtils.appendScript(target, message.getSequenceNumber());
+    /**
+     * Creates script string for messages queued by {@link SessionImpl}, reusing frames shared by sessions.
+     */
+    MessageDataScriptString(Collection<FramedMessageData> messages) {
+        super();
 
-        target.append('>');
+        this.messages = messages;
     }
 
     public void appendScript(Appendable target) throws IOException {
-        Iterator<MessageData> iterator = messages.iterator();
+        Iterator<FramedMessageData> iterator = messages.iterator();
 
         while (iterator.hasNext()) {
-            MessageData message = iterator.next();
+            FramedMessageData message = iterator.next();
 
-            appendMessageToScript(message, target);
+            message.appendScript(target);
 
             // TODO - synchronization aids?
             lastMessageNumber = message.getSequenceNumber();
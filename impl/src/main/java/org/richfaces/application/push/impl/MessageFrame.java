@@ -0,0 +1,95 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2010, Red Hat, Inc. and individual contributors
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.richfaces.application.push.impl;
+
+import java.io.IOException;
+
+import org.ajax4jsf.javascript.ScriptUtils;
+import org.richfaces.application.push.TopicKey;
+
+/**
+ * Immutable message pre-encoded for sending to clients. Single frame is shared by all sessions the message is broadcasted
+ * to, so that topic address and message data are framed just once per message and not once per subscriber.
+ */
+final class MessageFrame {
+    private static final String TOPIC_ATTRIBUTE = ScriptUtils.toScript("topic");
+    private static final String DATA_ATTRIBUTE = ScriptUtils.toScript("data");
+    private static final String NUMBER_ATTRIBUTE = ScriptUtils.toScript("number");
+    private final TopicKey topicKey;
+    private final String serializedMessage;
+    private final String scriptPrefix;
+
+    MessageFrame(TopicKey topicKey, String serializedMessage) {
+        this.topicKey = topicKey;
+        this.serializedMessage = serializedMessage;
+
+        StringBuilder builder = new StringBuilder(serializedMessage.length() + 64);
+        try {
+            appendScriptPrefix(topicKey, serializedMessage, builder);
+        } catch (IOException e) {
+            // StringBuilder doesn't throw IOException
+            throw new IllegalStateException(e.getMessage(), e);
+        }
+
+        this.scriptPrefix = builder.toString();
+    }
+
+    /**
+     * Appends message script up to the sequence number, e.g. <code>&lt;topic:"address",data:...,number:</code>
+     */
+    static void appendScriptPrefix(TopicKey topicKey, String serializedMessage, Appendable target) throws IOException {
+        target.append('<');
+
+        target.append(TOPIC_ATTRIBUTE);
+        target.append(':');
+        ScriptUtils.appendScript(target, topicKey.getTopicAddress());
+
+        target.append(',');
+
+        target.append(DATA_ATTRIBUTE);
+        target.append(':');
+        // append as is - no escaping
+        target.append(serializedMessage);
+
+        target.append(',');
+
+        target.append(NUMBER_ATTRIBUTE);
+        target.append(':');
+    }
+
+    static void appendScriptSuffix(long sequenceNumber, Appendable target) throws IOException {
+        target.append(Long.toString(sequenceNumber));
+        target.append('>');
+    }
+
+    TopicKey getTopicKey() {
+        return topicKey;
+    }
+
+    String getSerializedMessage() {
+        return serializedMessage;
+    }
+
+    String getScriptPrefix() {
+        return scriptPrefix;
+    }
+}
@@ -98,7 +98,7 @@ public class RequestImpl implements Request, AtmosphereResourceEventListener {
         if (!session.getMessages().isEmpty()) {
             if (lockBroadcaster()) {
                 if (!session.getMessages().isEmpty()) {
-                    meteor.getBroadcaster().broadcast(new MessageDataScriptString(getSession().getMessages()));
+                    meteor.getBroadcaster().broadcast(createMessagesScript());
                 } else {
                     unlockBroadcaster();
                     // since no messages were sent, it might happen that someone called postMessages and there are new messages
@@ -109,6 +109,14 @@ public class RequestImpl implements Request, AtmosphereResourceEventListener {
         }
     }
 
+    private MessageDataScriptString createMessagesScript() {
+        if (session instanceof SessionImpl) {
+            return new MessageDataScriptString(((SessionImpl) session).getFramedMessages());
+        }
+
+        return new MessageDataScriptString(session.getMessages());
+    }
+
     /*
      * (non-Javadoc)
      *
@@ -44,6 +44,7 @@ import org.richfaces.application.push.impl.SessionManagerImpl.DestroyableSession
 import org.richfaces.log.Logger;
 import org.richfaces.log.RichfacesLogger;
 
+import com.google.common.collect.Collections2;
 import com.google.common.collect.Iterables;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
@@ -61,7 +62,7 @@ public class SessionImpl implements Session, DestroyableSession {
     private volatile long lastAccessedTime;
     private volatile Request request;
     private volatile boolean active = true;
-    private final Queue<MessageData> messagesQueue = new ConcurrentLinkedQueue<MessageData>();
+    private final Queue<FramedMessageData> messagesQueue = new ConcurrentLinkedQueue<FramedMessageData>();
     private final Set<TopicKey> successfulSubscriptions = Sets.newHashSet();
     private final Map<TopicKey, String> failedSubscriptions = Maps.newHashMap();
     private TopicsContext topicsContext;
@@ -160,7 +161,7 @@ public class SessionImpl implements Session, DestroyableSession {
     }
 
     public Collection<MessageData> poll() {
-        return messagesQueue;
+        return getMessages();
     }
 
     public Map<TopicKey, String> getFailedSubscriptions() {
@@ -209,13 +210,20 @@ public class SessionImpl implements Session, DestroyableSession {
     }
 
     public Collection<MessageData> getMessages() {
+        return Collections2.transform(messagesQueue, FramedMessageData.TO_MESSAGE_DATA);
+    }
+
+    /**
+     * Returns live view of queued messages along with their frames.
+     */
+    Collection<FramedMessageData> getFramedMessages() {
         return messagesQueue;
     }
 
     public void clearBroadcastedMessages(long sequenceNumber) {
-        Queue<MessageData> queue = messagesQueue;
+        Queue<FramedMessageData> queue = messagesQueue;
         while (true) {
-            MessageData message = queue.peek();
+            FramedMessageData message = queue.peek();
             if (message == null || sequenceNumber < message.getSequenceNumber()) {
                 break;
             }
@@ -230,8 +238,20 @@ public class SessionImpl implements Session, DestroyableSession {
      * @see org.richfaces.application.push.Session#push(org.richfaces.application.push.TopicKey, java.lang.String)
      */
     public void push(TopicKey topicKey, String serializedData) {
-        MessageData serializedMessage = new MessageData(topicKey, serializedData, sequenceCounter.getAndIncrement());
-        messagesQueue.add(serializedMessage);
+        // message isn't shared, so it is framed only when sent
+        MessageData messageData = new MessageData(topicKey, serializedData, sequenceCounter.getAndIncrement());
+        enqueue(new FramedMessageData(messageData, null));
+    }
+
+    /**
+     * Pushes message frame that can be shared with other sessions.
+     */
+    void push(MessageFrame frame) {
+        enqueue(new FramedMessageData(frame, sequenceCounter.getAndIncrement()));
+    }
+
+    private void enqueue(FramedMessageData message) {
+        messagesQueue.add(message);
         synchronized (this) {
             if (request != null) {
                 request.postMessages();
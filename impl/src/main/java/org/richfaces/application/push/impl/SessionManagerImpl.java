@@ -21,10 +21,12 @@
  */
 package org.richfaces.application.push.impl;
 
+import java.util.List;
 import java.util.concurrent.ConcurrentMap;
-import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
 
 import org.richfaces.application.push.Session;
 import org.richfaces.application.push.SessionManager;
@@ -39,36 +41,56 @@ import com.google.common.collect.MapMaker;
  */
 public class SessionManagerImpl implements SessionManager {
     private static final Logger LOGGER = RichfacesLogger.APPLICATION.getLogger();
+    private static final int EXPIRATION_SHARDS_COUNT = 16;
+    private static final long EXPIRATION_TICK_DURATION = 1000;
+    // covers default push session max inactive interval of 5 minutes within single wheel round
+    private static final int EXPIRATION_WHEEL_SIZE = 512;
+    private static final int EXPIRATION_THREADS_COUNT = Math.max(1,
+        Math.min(4, Runtime.getRuntime().availableProcessors() / 2));
 
     interface DestroyableSession {
         void destroy();
     }
 
     private final class SessionsExpirationRunnable implements Runnable {
-        public void run() {
-            try {
-                Session session = sessionQueue.take();
+        private final int shardIndex;
 
-                if (session instanceof DestroyableSession) {
-                    ((DestroyableSession) session).destroy();
-                }
+        public SessionsExpirationRunnable(int shardIndex) {
+            this.shardIndex = shardIndex;
+        }
 
-                sessionMap.remove(session.getId());
+        public void run() {
+            List<Session> expiredSessions = sessionWheel.expire(shardIndex, System.currentTimeMillis());
+
+            for (Session session : expiredSessions) {
+                try {
+                    if (session instanceof DestroyableSession) {
+                        ((DestroyableSession) session).destroy();
+                    }
+                } catch (RuntimeException e) {
+                    // exception should not cancel further executions of this task
+                    LOGGER.error(e.getMessage(), e);
+                }
 
-                executorService.submit(this);
-            } catch (InterruptedException e) {
-                LOGGER.debug(e.getMessage(), e);
+                sessionMap.remove(session.getId(), session);
             }
         }
     }
 
     private ConcurrentMap<String, Session> sessionMap = new MapMaker().makeMap();
-    private SessionQueue sessionQueue = new SessionQueue();
-    private ExecutorService executorService;
+    private SessionTimingWheel sessionWheel = new SessionTimingWheel(EXPIRATION_SHARDS_COUNT, EXPIRATION_TICK_DURATION,
+        EXPIRATION_WHEEL_SIZE, System.currentTimeMillis());
+    private ScheduledExecutorService executorService;
 
     public SessionManagerImpl(ThreadFactory threadFactory) {
-        executorService = Executors.newSingleThreadExecutor(threadFactory);
-        executorService.submit(new SessionsExpirationRunnable());
+        executorService = Executors.newScheduledThreadPool(EXPIRATION_THREADS_COUNT, threadFactory);
+
+        for (int i = 0; i < sessionWheel.getShardsCount(); i++) {
+            // spread shards over the tick, so that they don't wake up all at once
+            long initialDelay = EXPIRATION_TICK_DURATION + i * EXPIRATION_TICK_DURATION / EXPIRATION_SHARDS_COUNT;
+            executorService.scheduleWithFixedDelay(new SessionsExpirationRunnable(i), initialDelay, EXPIRATION_TICK_DURATION,
+                TimeUnit.MILLISECONDS);
+        }
     }
 
     public Session getPushSession(String id) {
@@ -76,8 +98,8 @@ public class SessionManagerImpl implements SessionManager {
     }
 
     public void destroy() {
-        executorService.shutdown();
-        sessionQueue.shutdown();
+        executorService.shutdownNow();
+        sessionWheel.shutdown();
 
         for (Session session : sessionMap.values()) {
             if (session instanceof DestroyableSession) {
@@ -94,10 +116,10 @@ public class SessionManagerImpl implements SessionManager {
             throw new IllegalStateException();
         }
 
-        sessionQueue.requeue(session, true);
+        sessionWheel.requeue(session, true);
     }
 
     public void requeue(Session session) {
-        sessionQueue.requeue(session, false);
+        sessionWheel.requeue(session, false);
     }
 }
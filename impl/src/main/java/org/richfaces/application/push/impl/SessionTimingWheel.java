@@ -0,0 +1,294 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2010, Red Hat, Inc. and individual contributors
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.richfaces.application.push.impl;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.richfaces.application.push.Session;
+
+/**
+ * Hashed timing wheel of push sessions expiration times, split into independently locked shards.
+ * <p>
+ * Each session is kept in the bucket of the tick its expiration is scheduled for. Expiration time of session grows every
+ * time it is accessed, so re-queueing is lazy: session stays in its bucket until that bucket becomes due, then the actual
+ * expiration time is checked again and the session is either expired or moved forward. Session is moved immediately only
+ * if its expiration time becomes earlier (e.g. when session is invalidated). All operations on a single session are O(1)
+ * and lock only the shard the session belongs to.
+ */
+final class SessionTimingWheel {
+    private final Shard[] shards;
+    private final long tickDuration;
+    private final int wheelSize;
+    private volatile boolean active = true;
+
+    /**
+     * @param shardsCount number of independently locked shards
+     * @param tickDuration duration of wheel tick in milliseconds
+     * @param wheelSize number of buckets in the wheel of every shard
+     * @param currentTime time the wheel starts at
+     */
+    SessionTimingWheel(int shardsCount, long tickDuration, int wheelSize, long currentTime) {
+        this.tickDuration = tickDuration;
+        this.wheelSize = wheelSize;
+        this.shards = new Shard[shardsCount];
+
+        long currentTick = currentTime / tickDuration;
+        for (int i = 0; i < shardsCount; i++) {
+            shards[i] = new Shard(currentTick);
+        }
+    }
+
+    private static long getExpirationTime(Session session) {
+        long lastAccessedTime = session.getLastAccessedTime();
+        if (lastAccessedTime < 0) {
+            return Long.MIN_VALUE;
+        }
+
+        return lastAccessedTime + session.getMaxInactiveInterval();
+    }
+
+    private Shard getShard(Session session) {
+        int hash = session.getId().hashCode();
+
+        // spread bits, as hash codes of session ids often differ in upper bits only
+        hash ^= (hash >>> 20) ^ (hash >>> 12);
+        hash ^= (hash >>> 7) ^ (hash >>> 4);
+
+        return shards[(hash & Integer.MAX_VALUE) % shards.length];
+    }
+
+    private long getTick(long time) {
+        if (time == Long.MIN_VALUE) {
+            return Long.MIN_VALUE;
+        }
+
+        // round up, so that session is never checked before it expires
+        return (time + tickDuration - 1) / tickDuration;
+    }
+
+    int getShardsCount() {
+        return shards.length;
+    }
+
+    /**
+     * Schedules expiration of session according to its current expiration time.
+     *
+     * @param session session to schedule
+     * @param addIfNotExists whether session should be added if it's not yet in the wheel
+     */
+    void requeue(Session session, boolean addIfNotExists) {
+        checkActiveState();
+        getShard(session).requeue(session, getTick(getExpirationTime(session)), addIfNotExists);
+    }
+
+    void remove(Session session) {
+        checkActiveState();
+        getShard(session).remove(session);
+    }
+
+    /**
+     * Removes all sessions of the shard that have expired by the given time and reschedules sessions that have been accessed
+     * since they were scheduled.
+     *
+     * @return expired sessions
+     */
+    List<Session> expire(int shardIndex, long currentTime) {
+        if (!active) {
+            return Collections.emptyList();
+        }
+
+        return shards[shardIndex].expire(currentTime);
+    }
+
+    int size() {
+        int size = 0;
+
+        for (Shard shard : shards) {
+            size += shard.size();
+        }
+
+        return size;
+    }
+
+    private void checkActiveState() {
+        if (!active) {
+            throw new IllegalStateException("Queue is not active");
+        }
+    }
+
+    void shutdown() {
+        active = false;
+
+        for (Shard shard : shards) {
+            shard.clear();
+        }
+    }
+
+    private final class Shard extends ReentrantLock {
+        private static final long serialVersionUID = -2476436404447453707L;
+        private final Map<Session, Long> scheduledTicks = new HashMap<Session, Long>();
+        private final List<Set<Session>> buckets;
+        private long lastProcessedTick;
+
+        Shard(long currentTick) {
+            buckets = new ArrayList<Set<Session>>(wheelSize);
+
+            for (int i = 0; i < wheelSize; i++) {
+                buckets.add(new HashSet<Session>());
+            }
+
+            lastProcessedTick = currentTick;
+        }
+
+        private Set<Session> getBucket(long tick) {
+            return buckets.get((int) (tick % wheelSize));
+        }
+
+        private void schedule(Session session, long tick) {
+            // sessions that are already due are processed at the next tick
+            long scheduledTick = Math.max(tick, lastProcessedTick + 1);
+
+            scheduledTicks.put(session, scheduledTick);
+            getBucket(scheduledTick).add(session);
+        }
+
+        void requeue(Session session, long tick, boolean addIfNotExists) {
+            lock();
+            try {
+                Long scheduledTick = scheduledTicks.get(session);
+
+                if (scheduledTick == null) {
+                    if (addIfNotExists) {
+                        schedule(session, tick);
+                    }
+                } else if (tick < scheduledTick) {
+                    getBucket(scheduledTick).remove(session);
+                    schedule(session, tick);
+                }
+            } finally {
+                unlock();
+            }
+        }
+
+        void remove(Session session) {
+            lock();
+            try {
+                Long scheduledTick = scheduledTicks.remove(session);
+
+                if (scheduledTick != null) {
+                    getBucket(scheduledTick).remove(session);
+                }
+            } finally {
+                unlock();
+            }
+        }
+
+        List<Session> expire(long currentTime) {
+            List<Session> expiredSessions = null;
+            List<Session> rescheduledSessions = null;
+
+            lock();
+            try {
+                long currentTick = currentTime / tickDuration;
+                // when more ticks than wheel size have passed, every bucket has to be processed just once
+                long firstTick = Math.max(lastProcessedTick + 1, currentTick - wheelSize + 1);
+
+                for (long tick = firstTick; tick <= currentTick; tick++) {
+                    Iterator<Session> iterator = getBucket(tick).iterator();
+
+                    while (iterator.hasNext()) {
+                        Session session = iterator.next();
+
+                        if (scheduledTicks.get(session) > currentTick) {
+                            // scheduled for one of the next wheel rounds
+                            continue;
+                        }
+
+                        iterator.remove();
+
+                        if (getExpirationTime(session) <= currentTime) {
+                            scheduledTicks.remove(session);
+
+                            if (expiredSessions == null) {
+                                expiredSessions = new ArrayList<Session>();
+                            }
+
+                            expiredSessions.add(session);
+                        } else {
+                            if (rescheduledSessions == null) {
+                                rescheduledSessions = new ArrayList<Session>();
+                            }
+
+                            rescheduledSessions.add(session);
+                        }
+                    }
+                }
+
+                lastProcessedTick = Math.max(lastProcessedTick, currentTick);
+
+                if (rescheduledSessions != null) {
+                    for (Session session : rescheduledSessions) {
+                        schedule(session, getTick(getExpirationTime(session)));
+                    }
+                }
+            } finally {
+                unlock();
+            }
+
+            if (expiredSessions == null) {
+                return Collections.emptyList();
+            }
+
+            return expiredSessions;
+        }
+
+        int size() {
+            lock();
+            try {
+                return scheduledTicks.size();
+            } finally {
+                unlock();
+            }
+        }
+
+        void clear() {
+            lock();
+            try {
+                scheduledTicks.clear();
+
+                for (Set<Session> bucket : buckets) {
+                    bucket.clear();
+                }
+            } finally {
+                unlock();
+            }
+        }
+    }
+}
@@ -83,9 +83,15 @@ public class TopicImpl extends AbstractTopic {
             Iterator<String> itr = serializedMessages.iterator();
             while (itr.hasNext()) {
                 String message = itr.next();
+                // frame message once for all subscribed sessions
+                MessageFrame frame = new MessageFrame(key, message);
 
                 for (Session session : sessions) {
-                    session.push(key, message);
+                    if (session instanceof SessionImpl) {
+                        ((SessionImpl) session).push(frame);
+                    } else {
+                        session.push(key, message);
+                    }
                 }
 
                 itr.remove();
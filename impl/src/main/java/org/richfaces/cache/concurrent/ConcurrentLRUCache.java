@@ -0,0 +1,350 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2010, Red Hat, Inc. and individual contributors
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.richfaces.cache.concurrent;
+
+import java.util.Date;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.richfaces.cache.Cache;
+
+/**
+ * Segmented in-memory cache with approximate LRU eviction and size bound defined in bytes.
+ * <p>
+ * Reads are lock-free: entries are looked up in a {@link ConcurrentHashMap} and only mark the entry as recently used.
+ * Writes lock only the segment owning the key. Eviction follows the second chance (CLOCK) policy: recently used entries
+ * at the head of insertion order list are moved to its tail once instead of being evicted. Expiration is lazy: expired
+ * entries are never returned, and are removed from an expiration heap in O(log n) when the earliest expiration time of
+ * the segment has been reached.
+ * </p>
+ * <p>
+ * Weight of values implementing {@link Weighable} is taken from {@link Weighable#getWeight()}, other values are weighted
+ * as {@link #DEFAULT_WEIGHT} bytes.
+ * </p>
+ */
+public class ConcurrentLRUCache implements Cache {
+    public static final int DEFAULT_WEIGHT = 1024;
+    private static final int MAX_SEGMENTS = 1 << 16;
+    private static final long NEVER = Long.MAX_VALUE;
+    private final int segmentShift;
+    private final int segmentMask;
+    private final Segment[] segments;
+
+    public ConcurrentLRUCache(long maxWeight, int concurrencyLevel) {
+        if (maxWeight <= 0) {
+            throw new IllegalArgumentException("maxWeight: " + maxWeight);
+        }
+
+        if (concurrencyLevel <= 0) {
+            throw new IllegalArgumentException("concurrencyLevel: " + concurrencyLevel);
+        }
+
+        int segmentsCount = 1;
+        int shift = 0;
+
+        while (segmentsCount < Math.min(concurrencyLevel, MAX_SEGMENTS)) {
+            segmentsCount <<= 1;
+            shift++;
+        }
+
+        this.segmentShift = 32 - shift;
+        this.segmentMask = segmentsCount - 1;
+        this.segments = new Segment[segmentsCount];
+
+        long segmentMaxWeight = Math.max(1, maxWeight / segmentsCount);
+
+        for (int i = 0; i < segmentsCount; i++) {
+            segments[i] = new Segment(segmentMaxWeight);
+        }
+    }
+
+    private static int hash(Object key) {
+        // spread bits so that both segment selection and hash map buckets get good distribution
+        int h = key.hashCode();
+
+        h += (h << 15) ^ 0xffffcd7d;
+        h ^= h >>> 10;
+        h += h << 3;
+        h ^= h >>> 6;
+        h += (h << 2) + (h << 14);
+
+        return h ^ (h >>> 16);
+    }
+
+    private Segment segmentFor(Object key) {
+        return segments[(hash(key) >>> segmentShift) & segmentMask];
+    }
+
+    private static int weigh(Object value) {
+        if (value instanceof Weighable) {
+            return ((Weighable) value).getWeight();
+        }
+
+        return DEFAULT_WEIGHT;
+    }
+
+    public Object get(Object key) {
+        return segmentFor(key).get(key, System.currentTimeMillis());
+    }
+
+    public void put(Object key, Object value, Date expired) {
+        long expirationTime = (expired == null) ? NEVER : expired.getTime();
+
+        segmentFor(key).put(key, value, weigh(value), expirationTime, System.currentTimeMillis());
+    }
+
+    public void start() {
+    }
+
+    public void stop() {
+        for (Segment segment : segments) {
+            segment.clear();
+        }
+    }
+
+    /**
+     * @return number of entries currently stored in cache, including the expired ones that haven't been purged yet
+     */
+    public int size() {
+        int size = 0;
+
+        for (Segment segment : segments) {
+            size += segment.map.size();
+        }
+
+        return size;
+    }
+
+    /**
+     * @return approximate total weight of the stored entries in bytes
+     */
+    public long getWeightedSize() {
+        long weightedSize = 0;
+
+        for (Segment segment : segments) {
+            weightedSize += segment.weightedSize;
+        }
+
+        return weightedSize;
+    }
+
+    private static final class Node implements Comparable<Node> {
+        private final Object key;
+        private final Object value;
+        private final int weight;
+        private final long expirationTime;
+        private volatile boolean referenced;
+        // the following fields are guarded by segment lock
+        private Node previous;
+        private Node next;
+        private boolean removed;
+
+        Node(Object key, Object value, int weight, long expirationTime) {
+            this.key = key;
+            this.value = value;
+            this.weight = weight;
+            this.expirationTime = expirationTime;
+        }
+
+        boolean isExpired(long now) {
+            return now >= expirationTime;
+        }
+
+        public int compareTo(Node o) {
+            return (expirationTime < o.expirationTime) ? -1 : ((expirationTime == o.expirationTime) ? 0 : 1);
+        }
+    }
+
+    private static final class Segment extends ReentrantLock {
+        private static final long serialVersionUID = 2264722364185981476L;
+        // slack allowed for removed entries in expiration heap before it gets compacted
+        private static final int EXPIRATION_QUEUE_SLACK = 64;
+        private final long maxWeight;
+        private final ConcurrentHashMap<Object, Node> map = new ConcurrentHashMap<Object, Node>();
+        // the following fields are guarded by segment lock
+        private final Node head = new Node(null, null, 0, NEVER);
+        private final PriorityQueue<Node> expirationQueue = new PriorityQueue<Node>();
+        private volatile long weightedSize;
+        private volatile long nextExpirationTime = NEVER;
+
+        Segment(long maxWeight) {
+            this.maxWeight = maxWeight;
+
+            head.previous = head;
+            head.next = head;
+        }
+
+        Object get(Object key, long now) {
+            Node node = map.get(key);
+
+            if (node == null) {
+                return null;
+            }
+
+            if (node.isExpired(now)) {
+                if (tryLock()) {
+                    try {
+                        purge(now);
+                    } finally {
+                        unlock();
+                    }
+                }
+
+                return null;
+            }
+
+            if (!node.referenced) {
+                node.referenced = true;
+            }
+
+            return node.value;
+        }
+
+        void put(Object key, Object value, int weight, long expirationTime, long now) {
+            lock();
+            try {
+                if (weight > maxWeight) {
+                    // entry will never fit into the segment
+                    Node existing = map.get(key);
+
+                    if (existing != null) {
+                        remove(existing);
+                    }
+
+                    return;
+                }
+
+                Node node = new Node(key, value, weight, expirationTime);
+                Node existing = map.put(key, node);
+
+                if (existing != null) {
+                    unlink(existing);
+                }
+
+                linkLast(node);
+                weightedSize += weight;
+
+                if (expirationTime != NEVER) {
+                    expirationQueue.add(node);
+
+                    if (expirationTime < nextExpirationTime) {
+                        nextExpirationTime = expirationTime;
+                    }
+                }
+
+                purge(now);
+                evict(node);
+            } finally {
+                unlock();
+            }
+        }
+
+        void clear() {
+            lock();
+            try {
+                map.clear();
+                expirationQueue.clear();
+                head.previous = head;
+                head.next = head;
+                weightedSize = 0;
+                nextExpirationTime = NEVER;
+            } finally {
+                unlock();
+            }
+        }
+
+        private void linkLast(Node node) {
+            node.previous = head.previous;
+            node.next = head;
+            head.previous.next = node;
+            head.previous = node;
+        }
+
+        private void unlink(Node node) {
+            node.removed = true;
+            node.previous.next = node.next;
+            node.next.previous = node.previous;
+            node.previous = null;
+            node.next = null;
+
+            weightedSize -= node.weight;
+        }
+
+        private void moveToTail(Node node) {
+            node.previous.next = node.next;
+            node.next.previous = node.previous;
+            linkLast(node);
+        }
+
+        private void remove(Node node) {
+            map.remove(node.key, node);
+            unlink(node);
+        }
+
+        private void purge(long now) {
+            if (now < nextExpirationTime) {
+                return;
+            }
+
+            Node node;
+
+            while ((node = expirationQueue.peek()) != null && (node.removed || node.isExpired(now))) {
+                expirationQueue.poll();
+
+                if (!node.removed) {
+                    remove(node);
+                }
+            }
+
+            nextExpirationTime = (node == null) ? NEVER : node.expirationTime;
+        }
+
+        private void evict(Node addedNode) {
+            while (weightedSize > maxWeight) {
+                Node candidate = head.next;
+
+                if (candidate == addedNode || candidate.referenced) {
+                    // give the entry second chance
+                    candidate.referenced = false;
+                    moveToTail(candidate);
+                } else {
+                    remove(candidate);
+                }
+            }
+
+            // replaced or evicted entries stay in expiration heap until their time comes, compact it if it grows too much
+            if (expirationQueue.size() > 2 * map.size() + EXPIRATION_QUEUE_SLACK) {
+                PriorityQueue<Node> liveNodes = new PriorityQueue<Node>(Math.max(1, map.size()));
+
+                for (Node node : expirationQueue) {
+                    if (!node.removed) {
+                        liveNodes.add(node);
+                    }
+                }
+
+                expirationQueue.clear();
+                expirationQueue.addAll(liveNodes);
+            }
+        }
+    }
+}
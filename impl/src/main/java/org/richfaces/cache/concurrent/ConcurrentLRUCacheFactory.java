@@ -0,0 +1,58 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2010, Red Hat, Inc. and individual contributors
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.richfaces.cache.concurrent;
+
+import static org.richfaces.application.configuration.ConfigurationServiceHelper.getIntConfigurationValue;
+import static org.richfaces.application.configuration.ConfigurationServiceHelper.getLongConfigurationValue;
+
+import java.text.MessageFormat;
+import java.util.Map;
+
+import javax.faces.context.FacesContext;
+
+import org.richfaces.application.CoreConfiguration;
+import org.richfaces.cache.Cache;
+import org.richfaces.cache.CacheFactory;
+import org.richfaces.log.Logger;
+import org.richfaces.log.RichfacesLogger;
+
+/**
+ * Creates {@link ConcurrentLRUCache} instances. Can be selected by setting <code>org.ajax4jsf.cache.CacheFactory</code>
+ * to the name of this class.
+ */
+public class ConcurrentLRUCacheFactory implements CacheFactory {
+    private static final Logger LOG = RichfacesLogger.CACHE.getLogger();
+
+    public Cache createCache(FacesContext facesContext, String cacheName, Map<?, ?> env) {
+        Long maxWeight = getLongConfigurationValue(facesContext, CoreConfiguration.Items.resourcesCacheMaxBytes);
+        Integer concurrencyLevel = getIntConfigurationValue(facesContext,
+            CoreConfiguration.Items.resourcesCacheConcurrencyLevel);
+
+        LOG.info(MessageFormat.format("Creating concurrent LRU cache instance of {0} bytes capacity, {1} segments",
+            String.valueOf(maxWeight), String.valueOf(concurrencyLevel)));
+
+        return new ConcurrentLRUCache(maxWeight, concurrencyLevel);
+    }
+
+    public void destroy() {
+    }
+}
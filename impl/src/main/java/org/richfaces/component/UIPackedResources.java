@@ -0,0 +1,60 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2010, Red Hat, Inc. and individual contributors
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.richfaces.component;
+
+import org.richfaces.renderkit.html.PackedResourcesRenderer;
+
+/**
+ * <p class="changed_added_4_3">
+ * This component renders scripts and stylesheets of the view head packed into single resources. It is added as the first
+ * "head" resource by {@link org.richfaces.resource.ResourcePackingListener} when runtime resource packing is enabled.
+ * </p>
+ */
+public class UIPackedResources extends UITransient {
+    public static final String COMPONENT_TYPE = "org.richfaces.PackedResources";
+    public static final String COMPONENT_FAMILY = "org.richfaces.PackedResources";
+
+    @Override
+    public String getFamily() {
+        return COMPONENT_FAMILY;
+    }
+
+    @Override
+    public String getRendererType() {
+        return PackedResourcesRenderer.RENDERER_TYPE;
+    }
+
+    @Override
+    protected boolean hasAttribute(Object key) {
+        return false;
+    }
+
+    @Override
+    protected Object setAttribute(String key, Object value) {
+        return null;
+    }
+
+    @Override
+    protected Object getAttribute(Object key) {
+        return null;
+    }
+}
@@ -23,12 +23,10 @@
 package org.richfaces.component;
 
 import java.util.Collection;
-import java.util.List;
 
+import org.richfaces.javascript.ScriptsCollection;
 import org.richfaces.javascript.ScriptsHolder;
 
-import com.google.common.collect.Lists;
-
 /**
  * <p class="changed_added_4_0">
  * This component user to render Client Validator scripts. Any ClientValidatorBehavior that requires additional scripts should
@@ -41,8 +39,8 @@ import com.google.common.collect.Lists;
 public class UIScripts extends UITransient implements ScriptsHolder {
     public static final String COMPONENT_TYPE = "org.richfaces.Scripts";
     public static final String COMPONENT_FAMILY = "org.richfaces.Script";
-    private final List<Object> scripts = Lists.newArrayList();
-    private final List<Object> pageReadyScripts = Lists.newArrayList();
+    private final Collection<Object> scripts = new ScriptsCollection();
+    private final Collection<Object> pageReadyScripts = new ScriptsCollection();
     private String target = "body";
 
     /*
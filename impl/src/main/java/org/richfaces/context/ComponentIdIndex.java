@@ -0,0 +1,161 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2010, Red Hat, Inc. and individual contributors
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.richfaces.context;
+
+import static org.richfaces.component.MetaComponentResolver.META_COMPONENT_SEPARATOR_CHAR;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import javax.faces.component.UIComponent;
+import javax.faces.component.UIViewRoot;
+import javax.faces.context.FacesContext;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
+/**
+ * Index of client ids resolved by {@link ComponentIdResolver}, kept per view id and shared by requests. Resolution of
+ * short and relative ids depends only on the component tree, that is built from the same view definition for every
+ * request, so the index maps pairs of the resolving component client id and the requested id to resolved client ids.
+ * Ids referring meta-components or using functions depend on the component state and are not indexed. Index of the view
+ * is dropped when its tree is changed dynamically, see {@link ComponentIdIndexTracker}. Index size is bounded, least
+ * recently used entries are evicted, e.g. ones added for the rows of iteration components.
+ *
+ * @since 4.3
+ */
+public final class ComponentIdIndex {
+    private static final String INDEXES_ATTRIBUTE_NAME = ComponentIdIndex.class.getName();
+    private static final String TREE_CHANGED_ATTRIBUTE_NAME = ComponentIdIndex.class.getName() + ":treeChanged";
+    static final int MAX_ENTRIES = 4096;
+    private static final char KEY_SEPARATOR = ' ';
+    private final Cache<String, String[]> clientIds = CacheBuilder.newBuilder().maximumSize(MAX_ENTRIES).build();
+
+    private ComponentIdIndex() {
+    }
+
+    @SuppressWarnings("unchecked")
+    private static ConcurrentMap<String, ComponentIdIndex> getIndexes(FacesContext context, boolean create) {
+        Map<String, Object> applicationMap = context.getExternalContext().getApplicationMap();
+        ConcurrentMap<String, ComponentIdIndex> indexes = (ConcurrentMap<String, ComponentIdIndex>) applicationMap
+            .get(INDEXES_ATTRIBUTE_NAME);
+
+        if (indexes == null && create) {
+            synchronized (ComponentIdIndex.class) {
+                indexes = (ConcurrentMap<String, ComponentIdIndex>) applicationMap.get(INDEXES_ATTRIBUTE_NAME);
+
+                if (indexes == null) {
+                    indexes = new ConcurrentHashMap<String, ComponentIdIndex>();
+                    applicationMap.put(INDEXES_ATTRIBUTE_NAME, indexes);
+                }
+            }
+        }
+
+        return indexes;
+    }
+
+    private static ComponentIdIndex getIndex(FacesContext context) {
+        UIViewRoot viewRoot = context.getViewRoot();
+
+        if (viewRoot == null || viewRoot.getViewId() == null
+            || context.getAttributes().containsKey(TREE_CHANGED_ATTRIBUTE_NAME)) {
+
+            return null;
+        }
+
+        ConcurrentMap<String, ComponentIdIndex> indexes = getIndexes(context, true);
+        ComponentIdIndex index = indexes.get(viewRoot.getViewId());
+
+        if (index == null) {
+            index = new ComponentIdIndex();
+            ComponentIdIndex existingIndex = indexes.putIfAbsent(viewRoot.getViewId(), index);
+
+            if (existingIndex != null) {
+                index = existingIndex;
+            }
+        }
+
+        return index;
+    }
+
+    /**
+     * @return <code>true</code> if resolution of the id depends on the component tree only
+     */
+    public static boolean isIndexable(String id) {
+        return id.length() != 0 && id.indexOf(META_COMPONENT_SEPARATOR_CHAR) < 0;
+    }
+
+    /**
+     * Resolves {@link #isIndexable(String) indexable} id in the context of the component using index of the current
+     * view.
+     *
+     * @param context faces context
+     * @param component component to resolve id against
+     * @param id short, relative or absolute id
+     * @return resolved client ids
+     */
+    public static Collection<String> resolve(FacesContext context, UIComponent component, String id) {
+        ComponentIdIndex index = getIndex(context);
+        String key = null;
+
+        if (index != null) {
+            key = id + KEY_SEPARATOR + component.getClientId(context);
+
+            String[] resolvedIds = index.clientIds.getIfPresent(key);
+            if (resolvedIds != null) {
+                return Arrays.asList(resolvedIds);
+            }
+        }
+
+        ComponentIdResolver resolver = new ComponentIdResolver(context);
+
+        resolver.addId(id);
+        resolver.resolve(component);
+
+        Set<String> resolvedIds = resolver.getResolvedIds();
+
+        if (index != null) {
+            index.clientIds.put(key, resolvedIds.toArray(new String[resolvedIds.size()]));
+        }
+
+        return resolvedIds;
+    }
+
+    /**
+     * Drops index of the current view and stops indexing for the rest of the request, as the component tree no more
+     * matches the view definition.
+     */
+    static void invalidate(FacesContext context) {
+        context.getAttributes().put(TREE_CHANGED_ATTRIBUTE_NAME, Boolean.TRUE);
+
+        UIViewRoot viewRoot = context.getViewRoot();
+        ConcurrentMap<String, ComponentIdIndex> indexes = getIndexes(context, false);
+
+        if (indexes != null && viewRoot != null && viewRoot.getViewId() != null) {
+            indexes.remove(viewRoot.getViewId());
+        }
+    }
+}
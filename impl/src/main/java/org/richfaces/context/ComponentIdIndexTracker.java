@@ -0,0 +1,48 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2010, Red Hat, Inc. and individual contributors
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.richfaces.context;
+
+import javax.faces.context.FacesContext;
+import javax.faces.event.AbortProcessingException;
+import javax.faces.event.PhaseId;
+import javax.faces.event.SystemEvent;
+import javax.faces.event.SystemEventListener;
+
+/**
+ * Invalidates {@link ComponentIdIndex} of the view when components are added to or removed from the tree restored on
+ * postback. Events fired while the tree is being built from view definition are ignored.
+ *
+ * @since 4.3
+ */
+public class ComponentIdIndexTracker implements SystemEventListener {
+    public void processEvent(SystemEvent event) throws AbortProcessingException {
+        FacesContext context = FacesContext.getCurrentInstance();
+
+        if (context != null && context.isPostback() && context.getCurrentPhaseId() != PhaseId.RESTORE_VIEW) {
+            ComponentIdIndex.invalidate(context);
+        }
+    }
+
+    public boolean isListenerForSource(Object source) {
+        return true;
+    }
+}
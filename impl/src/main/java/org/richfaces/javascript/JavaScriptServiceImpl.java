@@ -81,6 +81,10 @@ public class JavaScriptServiceImpl implements JavaScriptService {
 
     @SuppressWarnings("unchecked")
     private <S> S addOrFind(Collection<Object> collection, S script) {
+        if (collection instanceof ScriptsCollection) {
+            return ((ScriptsCollection) collection).addOrFind(script);
+        }
+
         for (Object object : collection) {
             if (script.equals(object)) {
                 return (S) object;
@@ -0,0 +1,97 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2010, Red Hat, Inc. and individual contributors
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.richfaces.javascript;
+
+import java.util.AbstractCollection;
+import java.util.Iterator;
+import java.util.Map;
+
+import com.google.common.collect.Maps;
+
+/**
+ * <p class="changed_added_4_3">
+ * Collection of scripts that keeps insertion order and ignores scripts equal to already added ones. Lookup of the equal
+ * script is done through a hash index, so adding n scripts takes O(n) instead of O(n<sup>2</sup>) <code>equals()</code>
+ * calls.
+ * </p>
+ */
+public final class ScriptsCollection extends AbstractCollection<Object> {
+    private final Map<Object, Object> scripts = Maps.newLinkedHashMap();
+
+    /**
+     * Adds script to the collection, if no equal script has been added before.
+     *
+     * @param script script to add
+     * @return script instance stored in the collection
+     */
+    @SuppressWarnings("unchecked")
+    public <S> S addOrFind(S script) {
+        Object existingScript = scripts.get(script);
+
+        if (existingScript != null) {
+            return (S) existingScript;
+        }
+
+        scripts.put(script, script);
+        return script;
+    }
+
+    @Override
+    public boolean add(Object script) {
+        if (scripts.containsKey(script)) {
+            return false;
+        }
+
+        scripts.put(script, script);
+        return true;
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        return scripts.containsKey(o);
+    }
+
+    @Override
+    public boolean remove(Object o) {
+        if (scripts.containsKey(o)) {
+            scripts.remove(o);
+            return true;
+        }
+
+        return false;
+    }
+
+    @Override
+    public void clear() {
+        scripts.clear();
+    }
+
+    @Override
+    public Iterator<Object> iterator() {
+        return scripts.keySet().iterator();
+    }
+
+    @Override
+    public int size() {
+        return scripts.size();
+    }
+}
@@ -0,0 +1,206 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2010, Red Hat, Inc. and individual contributors
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.richfaces.renderkit.html;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+
+import javax.faces.application.ResourceHandler;
+import javax.faces.component.UIComponent;
+import javax.faces.context.FacesContext;
+import javax.faces.context.ResponseWriter;
+import javax.faces.render.Renderer;
+
+import org.richfaces.application.ServiceTracker;
+import org.richfaces.resource.ResourceKey;
+import org.richfaces.resource.ResourceLibrary;
+import org.richfaces.resource.ResourceLibraryFactory;
+import org.richfaces.resource.ResourcePacker;
+import org.richfaces.resource.ResourcePacker.Pack;
+import org.richfaces.resource.ResourcePacker.Type;
+
+import com.google.common.base.Strings;
+
+/**
+ * <p class="changed_added_4_3">
+ * Renders one <code>script</code> and one <code>link</code> element for packed scripts and stylesheets requested by
+ * "head" resources that follow the rendered component. Resources included into packs are marked as rendered for the
+ * request, so that their own renderers skip them.
+ * </p>
+ */
+public class PackedResourcesRenderer extends Renderer {
+    public static final String RENDERER_TYPE = "org.richfaces.renderer.PackedResourcesRenderer";
+    private static final String HEAD = "head";
+    private static final String NAME = "name";
+    private static final String LIBRARY = "library";
+    private static final String MEDIA = "media";
+
+    private static final class Candidates {
+        private final Map<Type, List<ResourceKey>> resources = new EnumMap<Type, List<ResourceKey>>(Type.class);
+        private final EnumSet<Type> closedTypes = EnumSet.noneOf(Type.class);
+
+        public Candidates() {
+            for (Type type : Type.values()) {
+                resources.put(type, new ArrayList<ResourceKey>());
+            }
+        }
+
+        public void add(FacesContext context, Type type, ResourceKey resourceKey) {
+            List<ResourceKey> typeResources = resources.get(type);
+
+            // resources that are already rendered will be skipped, so they don't affect order
+            if (!closedTypes.contains(type) && !isRendered(context, resourceKey) && !typeResources.contains(resourceKey)) {
+                typeResources.add(resourceKey);
+            }
+        }
+
+        /**
+         * Stops collecting resources of the type: resource that can't be packed has been found
+         */
+        public void close(Type type) {
+            closedTypes.add(type);
+        }
+
+        public void closeAll() {
+            closedTypes.addAll(resources.keySet());
+        }
+
+        public List<ResourceKey> get(Type type) {
+            return resources.get(type);
+        }
+    }
+
+    private static boolean isRendered(FacesContext context, ResourceKey resourceKey) {
+        return context.getAttributes().containsKey(resourceKey.getResourceName() + resourceKey.getLibraryName());
+    }
+
+    private static void markRendered(FacesContext context, ResourceKey resourceKey) {
+        // the same keys are used by JSF script and stylesheet renderers
+        Map<Object, Object> contextMap = context.getAttributes();
+        String resourceName = resourceKey.getResourceName();
+        String libraryName = resourceKey.getLibraryName();
+
+        contextMap.put(resourceName + libraryName, Boolean.TRUE);
+        if (Strings.isNullOrEmpty(libraryName)) {
+            contextMap.put(resourceName + "null", Boolean.TRUE);
+        }
+    }
+
+    private static void addLibrary(FacesContext context, Candidates candidates, String name, String library) {
+        String libraryName = name.substring(0, name.length() - ResourceLibraryRenderer.RESOURCE_LIBRARY_EXTENSION.length());
+        ResourceLibraryFactory factory = ServiceTracker.getService(ResourceLibraryFactory.class);
+        ResourceLibrary resourceLibrary = factory.getResourceLibrary(libraryName, library);
+
+        if (resourceLibrary == null) {
+            candidates.closeAll();
+            return;
+        }
+
+        ResourceHandler resourceHandler = context.getApplication().getResourceHandler();
+        for (ResourceKey resourceKey : resourceLibrary.getResources()) {
+            Type type = Type.forRendererType(resourceHandler.getRendererTypeForResourceName(resourceKey.getResourceName()));
+
+            if (type != null) {
+                candidates.add(context, type, resourceKey);
+            } else {
+                candidates.closeAll();
+            }
+        }
+    }
+
+    private static Candidates collectCandidates(FacesContext context, UIComponent component) {
+        Candidates candidates = new Candidates();
+        List<UIComponent> resources = context.getViewRoot().getComponentResources(context, HEAD);
+        int idx = resources.indexOf(component);
+
+        if (idx < 0) {
+            return candidates;
+        }
+
+        for (UIComponent resource : resources.subList(idx + 1, resources.size())) {
+            if (!resource.isRendered()) {
+                continue;
+            }
+
+            Map<String, Object> attributes = resource.getAttributes();
+            String name = (String) attributes.get(NAME);
+            String library = (String) attributes.get(LIBRARY);
+
+            if (name != null && name.endsWith(ResourceLibraryRenderer.RESOURCE_LIBRARY_EXTENSION)) {
+                addLibrary(context, candidates, name, library);
+                continue;
+            }
+
+            Type type = Type.forRendererType(resource.getRendererType());
+
+            if (type == null) {
+                // unknown component may render scripts or styles
+                candidates.closeAll();
+            } else if (name == null || attributes.get(MEDIA) != null) {
+                candidates.close(type);
+            } else {
+                candidates.add(context, type, new ResourceKey(name, library));
+            }
+        }
+
+        return candidates;
+    }
+
+    private static void encodePack(FacesContext context, UIComponent component, Type type, Pack pack) throws IOException {
+        ResponseWriter writer = context.getResponseWriter();
+
+        if (type == Type.SCRIPT) {
+            writer.startElement("script", component);
+            writer.writeAttribute("type", "text/javascript", null);
+            writer.writeURIAttribute("src", pack.getRequestPath(), null);
+            writer.endElement("script");
+        } else {
+            writer.startElement("link", component);
+            writer.writeAttribute("type", "text/css", null);
+            writer.writeAttribute("rel", "stylesheet", null);
+            writer.writeURIAttribute("href", pack.getRequestPath(), null);
+            writer.endElement("link");
+        }
+    }
+
+    @Override
+    public void encodeEnd(FacesContext context, UIComponent component) throws IOException {
+        Candidates candidates = collectCandidates(context, component);
+
+        for (Type type : Type.values()) {
+            List<ResourceKey> resourceKeys = candidates.get(type);
+            Pack pack = ResourcePacker.pack(context, type, resourceKeys);
+
+            if (pack != null) {
+                encodePack(context, component, type, pack);
+
+                for (ResourceKey resourceKey : resourceKeys.subList(0, pack.getSize())) {
+                    markRendered(context, resourceKey);
+                }
+            }
+        }
+    }
+}
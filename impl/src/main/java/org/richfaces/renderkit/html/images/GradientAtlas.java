@@ -0,0 +1,151 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2010, Red Hat, Inc. and individual contributors
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.richfaces.renderkit.html.images;
+
+import java.awt.Dimension;
+import java.awt.Graphics2D;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import javax.faces.context.FacesContext;
+
+import org.richfaces.renderkit.html.BaseGradient;
+import org.richfaces.resource.AbstractJava2DUserResource;
+import org.richfaces.resource.DynamicUserResource;
+import org.richfaces.resource.PostConstructResource;
+import org.richfaces.resource.StateHolderResource;
+
+/**
+ * Sprite of skin gradient images repeated along x axis. Images are stacked vertically, one pixel wide, each one followed by
+ * transparent gap so that taller elements don't show the next image. Stylesheets compiled in sprite mode refer to this
+ * resource with background position offsets returned by {@link #getOffset(FacesContext, String)}.
+ *
+ * @since 4.3
+ */
+@DynamicUserResource
+public class GradientAtlas extends AbstractJava2DUserResource implements StateHolderResource {
+    public static final String RESOURCE_NAME = "org.richfaces.images:gradientAtlas.png";
+    /**
+     * Names of resources packed into atlas, in the order of packing
+     */
+    public static final List<String> IMAGE_NAMES = Collections.unmodifiableList(Arrays.asList(
+        "org.richfaces.images:buttonBackgroundImage.png", "org.richfaces.images:buttonDisabledBackgroundImage.png"));
+    static final int GAP = 256;
+    private BaseGradient[] images;
+
+    public GradientAtlas() {
+        super(null);
+    }
+
+    private static BaseGradient[] createImages() {
+        return new BaseGradient[] { new ButtonBackgroundImage(), new ButtonDisabledBackgroundImage() };
+    }
+
+    private static int getSlotHeight(BaseGradient image) {
+        return image.getDimension().height + GAP;
+    }
+
+    /**
+     * Returns vertical offset of image in the atlas built for the current skin
+     *
+     * @param context faces context
+     * @param imageName name of resource from {@link #IMAGE_NAMES}
+     * @return offset in pixels
+     */
+    public static int getOffset(FacesContext context, String imageName) {
+        int index = IMAGE_NAMES.indexOf(imageName);
+
+        if (index < 0) {
+            throw new IllegalArgumentException(imageName);
+        }
+
+        BaseGradient[] images = createImages();
+        int offset = 0;
+
+        for (int i = 0; i < index; i++) {
+            images[i].initialize();
+            offset += getSlotHeight(images[i]);
+        }
+
+        return offset;
+    }
+
+    @PostConstructResource
+    public final void initialize() {
+        images = createImages();
+
+        for (BaseGradient image : images) {
+            image.initialize();
+        }
+    }
+
+    @Override
+    public Dimension getDimension() {
+        int height = 0;
+
+        for (BaseGradient image : images) {
+            height += getSlotHeight(image);
+        }
+
+        return new Dimension(1, height);
+    }
+
+    public void paint(Graphics2D graphics2d) {
+        int offset = 0;
+
+        for (BaseGradient image : images) {
+            Graphics2D imageGraphics = (Graphics2D) graphics2d.create();
+
+            try {
+                imageGraphics.translate(0, offset);
+                imageGraphics.clipRect(0, 0, 1, image.getDimension().height);
+                image.paint(imageGraphics);
+            } finally {
+                imageGraphics.dispose();
+            }
+
+            offset += getSlotHeight(image);
+        }
+    }
+
+    public void writeState(FacesContext context, DataOutput dataOutput) throws IOException {
+        for (BaseGradient image : images) {
+            image.writeState(context, dataOutput);
+        }
+    }
+
+    public void readState(FacesContext context, DataInput dataInput) throws IOException {
+        images = createImages();
+
+        for (BaseGradient image : images) {
+            image.readState(context, dataInput);
+        }
+    }
+
+    public boolean isTransient() {
+        return false;
+    }
+}
@@ -20,6 +20,7 @@
  */
 package org.richfaces.renderkit.util;
 
+import static org.richfaces.application.configuration.ConfigurationServiceHelper.getBooleanConfigurationValue;
 import static org.richfaces.renderkit.AjaxConstants.ALL;
 import static org.richfaces.renderkit.AjaxConstants.FORM;
 import static org.richfaces.renderkit.AjaxConstants.NONE;
@@ -34,7 +35,9 @@ import javax.faces.component.UIComponent;
 import javax.faces.component.UIForm;
 import javax.faces.context.FacesContext;
 
+import org.richfaces.application.CoreConfiguration;
 import org.richfaces.component.MetaComponentResolver;
+import org.richfaces.context.ComponentIdIndex;
 import org.richfaces.context.ComponentIdResolver;
 import org.richfaces.context.ExtendedVisitContext;
 
@@ -120,6 +123,7 @@ public final class CoreRendererUtils {
             // do nothing, use empty set
         } else {
             ComponentIdResolver locator = new ComponentIdResolver(context);
+            boolean indexed = getBooleanConfigurationValue(context, CoreConfiguration.Items.componentIdIndexEnabled);
 
             for (String id : shortIds) {
                 String predefinedMetaComponentId = getPredefinedMetaComponentId(context, component, id);
@@ -134,6 +138,11 @@ public final class CoreRendererUtils {
                     }
                 }
 
+                if (indexed && ComponentIdIndex.isIndexable(id)) {
+                    result.addAll(ComponentIdIndex.resolve(context, component, id));
+                    continue;
+                }
+
                 locator.addId(id);
             }
 
@@ -40,6 +40,7 @@ import org.richfaces.application.ServiceTracker;
 import org.richfaces.application.Uptime;
 import org.richfaces.log.Logger;
 import org.richfaces.log.RichfacesLogger;
+import org.richfaces.util.HttpDateCodec;
 import org.richfaces.util.Util;
 
 /**
@@ -206,10 +207,10 @@ public abstract class AbstractBaseResource extends Resource {
             Date lastModified = getLastModified(facesContext);
 
             if (lastModified != null) {
-                headers.put("Last-Modified", Util.formatHttpDate(lastModified));
+                headers.put("Last-Modified", HttpDateCodec.format(lastModified.getTime()));
             }
 
-            headers.put("Date", Util.formatHttpDate(getCurrentTime()));
+            headers.put("Date", HttpDateCodec.formatCurrentTime(getCurrentTime()));
 
             addCacheControlResponseHeaders(facesContext, headers);
 
@@ -33,7 +33,7 @@ import javax.faces.context.FacesContext;
 import org.richfaces.application.CoreConfiguration;
 import org.richfaces.log.Logger;
 import org.richfaces.log.RichfacesLogger;
-import org.richfaces.util.Util;
+import org.richfaces.util.HttpDateCodec;
 
 /**
  * @author Nick Belaevski
@@ -48,10 +48,10 @@ public abstract class AbstractCacheableResource extends AbstractBaseResource imp
     }
 
     // TODO add getExpired(FacesContext) for HTTP matching headers?
-    private static boolean isUserCopyActual(Date lastModified, Date modifiedCondition) {
+    private static boolean isUserCopyActual(long lastModified, long modifiedCondition) {
 
         // 1000 ms due to round modification time to seconds.
-        return (lastModified.getTime() - modifiedCondition.getTime()) <= 1000;
+        return (lastModified - modifiedCondition) <= 1000;
     }
 
     @Deprecated
@@ -68,13 +68,32 @@ public abstract class AbstractCacheableResource extends AbstractBaseResource imp
     }
 
     protected boolean isMatchesLastModified(FacesContext context, String modifiedCondition) {
+        long lastModified = getLastModifiedTime(context);
+
+        if (lastModified == HttpDateCodec.NO_DATE) {
+            return false;
+        }
+
+        long modifiedConditionTime = HttpDateCodec.parse(modifiedCondition);
+
+        if (modifiedConditionTime == HttpDateCodec.NO_DATE) {
+            return false;
+        }
+
+        return isUserCopyActual(lastModified, modifiedConditionTime);
+    }
+
+    /**
+     * @return last modification time in milliseconds or {@link HttpDateCodec#NO_DATE} if it is not known
+     */
+    protected long getLastModifiedTime(FacesContext context) {
         Date lastModified = getLastModified(context);
 
         if (lastModified == null) {
-            return false;
+            return HttpDateCodec.NO_DATE;
         }
 
-        return isUserCopyActual(lastModified, Util.parseHttpDate(modifiedCondition));
+        return lastModified.getTime();
     }
 
     @Deprecated
@@ -178,16 +197,16 @@ public abstract class AbstractCacheableResource extends AbstractBaseResource imp
             long maxAge = getTimeToLive(facesContext);
 
             if (maxAge > 0) {
-                formattedExpireDate = Util.formatHttpDate(currentTime + secondToMillis(maxAge));
+                formattedExpireDate = HttpDateCodec.format(currentTime + secondToMillis(maxAge));
             } else {
                 Date expired = getExpires(facesContext);
 
                 if (expired != null) {
-                    formattedExpireDate = Util.formatHttpDate(expired);
+                    formattedExpireDate = HttpDateCodec.format(expired.getTime());
                     maxAge = millisToSecond(expired.getTime() - currentTime);
                 } else {
                     maxAge = getLongConfigurationValue(facesContext, CoreConfiguration.Items.resourcesTTL);
-                    formattedExpireDate = Util.formatHttpDate(currentTime + secondToMillis(maxAge));
+                    formattedExpireDate = HttpDateCodec.format(currentTime + secondToMillis(maxAge));
                 }
             }
 
@@ -26,8 +26,10 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.net.URL;
 import java.text.MessageFormat;
+import java.util.ArrayList;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Map.Entry;
@@ -35,42 +37,67 @@ import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 import javax.faces.application.Resource;
+import javax.faces.context.ExternalContext;
 import javax.faces.context.FacesContext;
 
 import org.ajax4jsf.io.ByteBuffer;
-import org.ajax4jsf.io.FastBufferInputStream;
 import org.ajax4jsf.io.FastBufferOutputStream;
+import org.ajax4jsf.io.SegmentPool;
+import org.richfaces.cache.concurrent.Weighable;
 import org.richfaces.log.Logger;
 import org.richfaces.log.RichfacesLogger;
+import org.richfaces.util.HttpDateCodec;
 import org.richfaces.util.Util;
 
 /**
  * @author Nick Belaevski
  * @since 4.0
  */
-public class CachedResourceImpl extends AbstractCacheableResource {
+public class CachedResourceImpl extends AbstractCacheableResource implements Weighable {
     // [0..1]
     private static final float CACHE_EXPIRATION_COEFFICIENT = 0.9f;
+    // rough estimate of memory occupied by headers and fields
+    private static final int INSTANCE_OVERHEAD = 512;
     private static final Logger LOGGER = RichfacesLogger.RESOURCE.getLogger();
     private static final int MAX_AGE_VALUE_GROUP = 2;
     private static final int SMAX_AGE_GROUP = 1;
     private static final Pattern MAX_AGE = Pattern.compile("^(?:(s-maxage)|max-age)=(\\d+)$", Pattern.CASE_INSENSITIVE);
-    private ByteBuffer content;
+    private static final ResourceContentStorage HEAP_CONTENT_STORAGE = new ResourceContentStorage();
+    // distinguishes entity tag of compressed content variant from the one of identity content
+    private static final String COMPRESSED_ENTITY_TAG_SUFFIX = "-gz";
+    private ResourceContent content;
+    private ResourceContent compressedContent;
     private String entityTag;
+    private String compressedEntityTag;
     /**
      * serves only to define server cache entry expiration time only browser cache expiration is controlled by stored HTTP
      * headers value
      */
-    private Date expired;
+    private long expired = HttpDateCodec.NO_DATE;
     private Map<String, String> headers;
-    private Date lastModified;
+    // headers sent with resource content, except for Content-Length that is defined by stored content
+    private String[] responseHeaderNames;
+    private String[] responseHeaderValues;
+    private int entityTagHeaderIndex;
+    private String lastModifiedHeader;
+    private String expiresHeader;
+    private String cacheControlHeader;
+    private long lastModified = HttpDateCodec.NO_DATE;
+    private int weight;
 
     private void initializeFromHeaders() {
         this.entityTag = null;
-        this.lastModified = null;
-        this.expired = null;
+        this.entityTagHeaderIndex = -1;
+        this.lastModifiedHeader = null;
+        this.expiresHeader = null;
+        this.cacheControlHeader = null;
+        this.lastModified = HttpDateCodec.NO_DATE;
+        this.expired = HttpDateCodec.NO_DATE;
 
-        Date expiredFromHeader = null;
+        List<String> headerNames = new ArrayList<String>(headers.size());
+        List<String> headerValues = new ArrayList<String>(headers.size());
+
+        long expiredFromHeader = HttpDateCodec.NO_DATE;
 
         // TODO what if maxAge = 0 in header?
         int maxAge = 0;
@@ -78,19 +105,29 @@ public class CachedResourceImpl extends AbstractCacheableResource {
         for (Entry<String, String> headerEntry : headers.entrySet()) {
             String headerKey = headerEntry.getKey().toLowerCase(Locale.US);
 
+            if (!"content-length".equals(headerKey)) {
+                headerNames.add(headerEntry.getKey());
+                headerValues.add(headerEntry.getValue());
+            }
+
             if ("etag".equals(headerKey)) {
                 this.entityTag = headerEntry.getValue();
+                this.entityTagHeaderIndex = headerNames.size() - 1;
             }
 
             if ("last-modified".equals(headerKey)) {
-                this.lastModified = Util.parseHttpDate(headerEntry.getValue());
+                this.lastModifiedHeader = headerEntry.getValue();
+                this.lastModified = HttpDateCodec.parse(lastModifiedHeader);
             }
 
             if ("expires".equals(headerKey)) {
-                expiredFromHeader = Util.parseHttpDate(headerEntry.getValue());
+                this.expiresHeader = headerEntry.getValue();
+                expiredFromHeader = HttpDateCodec.parse(expiresHeader);
             }
 
             if ("cache-control".equals(headerKey)) {
+                this.cacheControlHeader = headerEntry.getValue();
+
                 String[] values = headerEntry.getValue().split(",");
 
                 for (String value : values) {
@@ -113,17 +150,19 @@ public class CachedResourceImpl extends AbstractCacheableResource {
             }
         }
 
+        this.responseHeaderNames = headerNames.toArray(new String[headerNames.size()]);
+        this.responseHeaderValues = headerValues.toArray(new String[headerValues.size()]);
+
         long currentTime = getCurrentTime();
 
         if (maxAge > 0) {
-            this.expired = new Date((long) (currentTime + CACHE_EXPIRATION_COEFFICIENT * maxAge));
-        } else if (expiredFromHeader != null) {
+            this.expired = (long) (currentTime + CACHE_EXPIRATION_COEFFICIENT * maxAge);
+        } else if (expiredFromHeader != HttpDateCodec.NO_DATE) {
 
             // ttl = expireTime - currentTime
             // CACHE_EXPIRATION_COEFFICIENT * ttl + currentTime
-            this.expired = new Date(
-                (long) (CACHE_EXPIRATION_COEFFICIENT * expiredFromHeader.getTime() + (1 - CACHE_EXPIRATION_COEFFICIENT)
-                    * currentTime));
+            this.expired = (long) (CACHE_EXPIRATION_COEFFICIENT * expiredFromHeader + (1 - CACHE_EXPIRATION_COEFFICIENT)
+                * currentTime);
         } else {
 
             // TODO throw exception or modify headers?
@@ -139,7 +178,7 @@ public class CachedResourceImpl extends AbstractCacheableResource {
             throw new NullPointerException("Resource input stream is null");
         }
 
-        FastBufferOutputStream os = new FastBufferOutputStream();
+        FastBufferOutputStream os = new FastBufferOutputStream(SegmentPool.getInstance());
 
         try {
             Util.copyStreamContent(is, os);
@@ -161,24 +200,142 @@ public class CachedResourceImpl extends AbstractCacheableResource {
             }
         }
 
-        ByteBuffer buffer = os.getFirstBuffer();
+        return os.getFirstBuffer();
+    }
 
-        buffer.compact();
+    public void initialize(Resource resource) throws IOException {
+        initialize(resource, HEAP_CONTENT_STORAGE);
+    }
 
-        return buffer;
+    /**
+     * @param resource resource to read headers and content from
+     * @param contentStorage storage that defines how resource content is kept
+     */
+    public void initialize(Resource resource, ResourceContentStorage contentStorage) throws IOException {
+        initialize(resource, contentStorage, readContent(resource.getInputStream()));
     }
 
-    public void initialize(Resource resource) throws IOException {
+    /**
+     * @param resource resource to read headers from
+     * @param contentStorage storage that defines how resource content is kept
+     * @param contentBuffer resource content that has already been produced
+     */
+    void initialize(Resource resource, ResourceContentStorage contentStorage, ByteBuffer contentBuffer) throws IOException {
+        if (contentStorage == null) {
+            contentStorage = HEAP_CONTENT_STORAGE;
+        }
+
         setResourceName(resource.getResourceName());
         setContentType(resource.getContentType());
         this.headers = resource.getResponseHeaders();
         initializeFromHeaders();
-        this.content = readContent(resource.getInputStream());
+        this.content = contentStorage.store(contentBuffer);
+        this.compressedContent = null;
+        this.compressedEntityTag = ResourceUtils.formatVariantTag(entityTag, COMPRESSED_ENTITY_TAG_SUFFIX);
+
+        // gzip variant is skipped if no distinct entity tag can be derived for it
+        if (entityTag == null || compressedEntityTag != null) {
+            this.compressedContent = contentStorage.compress(content, getContentType());
+        }
+
+        this.weight = INSTANCE_OVERHEAD + content.getHeapSize();
+
+        if (compressedContent != null) {
+            this.weight += compressedContent.getHeapSize();
+        }
+    }
+
+    public int getWeight() {
+        return weight;
+    }
+
+    /**
+     * Sets stored response headers. Content-Length header is not set, as it depends on the content variant that is sent.
+     */
+    public void applyResponseHeaders(ExternalContext externalContext) {
+        applyResponseHeaders(externalContext, false);
+    }
+
+    /**
+     * Sets stored response headers for the given content variant. Compressed variant is sent with its own entity tag, so
+     * that caches don't mistake it for identity content.
+     *
+     * @param externalContext external context to set headers to
+     * @param compressed <code>true</code> if compressed content variant is sent
+     */
+    public void applyResponseHeaders(ExternalContext externalContext, boolean compressed) {
+        for (int i = 0; i < responseHeaderNames.length; i++) {
+            String headerValue = responseHeaderValues[i];
+
+            if (compressed && i == entityTagHeaderIndex) {
+                headerValue = compressedEntityTag;
+            }
+
+            externalContext.setResponseHeader(responseHeaderNames[i], headerValue);
+        }
+    }
+
+    /**
+     * Sets validator and cache control headers that should accompany 304 (Not Modified) response.
+     */
+    public void applyNotModifiedHeaders(ExternalContext externalContext) {
+        applyNotModifiedHeaders(externalContext, false);
+    }
+
+    /**
+     * Sets validator and cache control headers that should accompany 304 (Not Modified) response for the given content
+     * variant.
+     *
+     * @param externalContext external context to set headers to
+     * @param compressed <code>true</code> if compressed content variant would have been sent
+     */
+    public void applyNotModifiedHeaders(ExternalContext externalContext, boolean compressed) {
+        String variantEntityTag = compressed ? compressedEntityTag : entityTag;
+
+        if (variantEntityTag != null) {
+            externalContext.setResponseHeader("ETag", variantEntityTag);
+        }
+
+        if (lastModifiedHeader != null) {
+            externalContext.setResponseHeader("Last-Modified", lastModifiedHeader);
+        }
+
+        if (expiresHeader != null) {
+            externalContext.setResponseHeader("Expires", expiresHeader);
+        }
+
+        if (cacheControlHeader != null) {
+            externalContext.setResponseHeader("Cache-Control", cacheControlHeader);
+        }
+    }
+
+    public ResourceContent getContent() {
+        return content;
+    }
+
+    /**
+     * @return gzip-compressed content or <code>null</code> if compressed variant is not available
+     */
+    public ResourceContent getCompressedContent() {
+        return compressedContent;
+    }
+
+    /**
+     * Checks whether compressed content variant is available and acceptable for the user agent that issued request.
+     */
+    public boolean isCompressedContentAccepted(ExternalContext externalContext) {
+        if (compressedContent == null) {
+            return false;
+        }
+
+        String acceptEncoding = externalContext.getRequestHeaderMap().get("Accept-Encoding");
+
+        return ResourceUtils.isEncodingAccepted(ResourceHandlerImpl.GZIP_ENCODING, acceptEncoding);
     }
 
     @Override
     public InputStream getInputStream() throws IOException {
-        return new FastBufferInputStream(content);
+        return content.getInputStream();
     }
 
     @Override
@@ -206,13 +363,38 @@ public class CachedResourceImpl extends AbstractCacheableResource {
         return entityTag;
     }
 
+    @Override
+    protected boolean isMatchesEntityTag(FacesContext context, String matchHeaderValue) {
+        // entity tag of the variant that would be sent is checked
+        String variantEntityTag = isCompressedContentAccepted(context.getExternalContext()) ? compressedEntityTag : entityTag;
+
+        if (variantEntityTag == null) {
+            return false;
+        }
+
+        return ResourceUtils.matchTag(variantEntityTag, matchHeaderValue);
+    }
+
     @Override
     protected Date getLastModified(FacesContext context) {
+        if (lastModified == HttpDateCodec.NO_DATE) {
+            return null;
+        }
+
+        return new Date(lastModified);
+    }
+
+    @Override
+    protected long getLastModifiedTime(FacesContext context) {
         return lastModified;
     }
 
     public Date getExpired(FacesContext context) {
-        return expired;
+        if (expired == HttpDateCodec.NO_DATE) {
+            return null;
+        }
+
+        return new Date(expired);
     }
 
     @Override
@@ -0,0 +1,199 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2010, Red Hat, Inc. and individual contributors
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.richfaces.resource;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.Charset;
+
+import javax.faces.context.ExternalContext;
+import javax.faces.context.ExternalContextWrapper;
+import javax.faces.context.FacesContext;
+import javax.faces.context.FacesContextWrapper;
+
+import org.ajax4jsf.io.ByteBuffer;
+import org.ajax4jsf.io.FastBufferOutputStream;
+import org.ajax4jsf.io.SegmentPool;
+
+/**
+ * Faces context that captures everything written into response instead of sending it to the user agent, so that
+ * content produced by resource can be stored in cache directly. Response headers and status set while content is being
+ * produced are ignored.
+ */
+final class CapturingFacesContextWrapper extends FacesContextWrapper {
+    private final FacesContext facesContext;
+    private final CapturingExternalContextWrapper externalContext;
+
+    private CapturingFacesContextWrapper(FacesContext facesContext, CapturingExternalContextWrapper externalContext) {
+        this.facesContext = facesContext;
+        this.externalContext = externalContext;
+    }
+
+    static CapturingFacesContextWrapper wrap(FacesContext facesContext, Charset charset) {
+        CapturingExternalContextWrapper externalContextWrapper = new CapturingExternalContextWrapper(
+            facesContext.getExternalContext(), charset);
+        CapturingFacesContextWrapper facesContextWrapper = new CapturingFacesContextWrapper(facesContext,
+            externalContextWrapper);
+
+        setCurrentInstance(facesContextWrapper);
+        return facesContextWrapper;
+    }
+
+    void unwrap() {
+        setCurrentInstance(facesContext);
+    }
+
+    @Override
+    public FacesContext getWrapped() {
+        return facesContext;
+    }
+
+    @Override
+    public ExternalContext getExternalContext() {
+        return externalContext;
+    }
+
+    /**
+     * Flushes response writer, if it has been used, and returns captured content.
+     *
+     * @return captured content
+     */
+    ByteBuffer finish() throws IOException {
+        return externalContext.finish();
+    }
+
+    private static final class CapturingExternalContextWrapper extends ExternalContextWrapper {
+        private final ExternalContext externalContext;
+        private final Charset charset;
+        private CapturingOutputStream stream;
+        private Writer writer;
+
+        CapturingExternalContextWrapper(ExternalContext externalContext, Charset charset) {
+            this.externalContext = externalContext;
+            this.charset = charset;
+        }
+
+        @Override
+        public ExternalContext getWrapped() {
+            return externalContext;
+        }
+
+        @Override
+        public OutputStream getResponseOutputStream() throws IOException {
+            if (stream == null) {
+                stream = new CapturingOutputStream();
+            }
+
+            return stream;
+        }
+
+        @Override
+        public Writer getResponseOutputWriter() throws IOException {
+            if (writer == null) {
+                writer = new OutputStreamWriter(getResponseOutputStream(), charset);
+            }
+
+            return writer;
+        }
+
+        // response of the request is not affected by capturing
+
+        @Override
+        public void setResponseHeader(String name, String value) {
+        }
+
+        @Override
+        public void addResponseHeader(String name, String value) {
+        }
+
+        @Override
+        public void setResponseContentType(String contentType) {
+        }
+
+        @Override
+        public void setResponseContentLength(int length) {
+        }
+
+        @Override
+        public void setResponseCharacterEncoding(String encoding) {
+        }
+
+        @Override
+        public void setResponseStatus(int statusCode) {
+        }
+
+        @Override
+        public void setResponseBufferSize(int size) {
+        }
+
+        @Override
+        public void responseFlushBuffer() {
+        }
+
+        @Override
+        public void responseReset() {
+        }
+
+        ByteBuffer finish() throws IOException {
+            if (writer != null) {
+                writer.flush();
+            }
+
+            if (stream == null) {
+                return new ByteBuffer(0);
+            }
+
+            stream.flush();
+            return stream.getCapturedContent();
+        }
+    }
+
+    private static final class CapturingOutputStream extends OutputStream {
+        private final FastBufferOutputStream capture = new FastBufferOutputStream(SegmentPool.getInstance());
+
+        @Override
+        public void write(int b) throws IOException {
+            capture.write(b);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            capture.write(b, off, len);
+        }
+
+        @Override
+        public void flush() throws IOException {
+            // nothing is sent
+        }
+
+        @Override
+        public void close() throws IOException {
+            // captured content is read after resource has been encoded
+        }
+
+        ByteBuffer getCapturedContent() {
+            return capture.getFirstBuffer();
+        }
+    }
+}
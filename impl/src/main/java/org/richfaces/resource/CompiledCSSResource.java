@@ -21,6 +21,8 @@
  */
 package org.richfaces.resource;
 
+import static org.richfaces.application.configuration.ConfigurationServiceHelper.getBooleanConfigurationValue;
+
 import java.io.ByteArrayInputStream;
 import java.io.DataInput;
 import java.io.DataOutput;
@@ -28,14 +30,16 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.text.MessageFormat;
+import java.util.concurrent.ConcurrentMap;
 
 import javax.faces.application.ProjectStage;
 import javax.faces.application.Resource;
 import javax.faces.context.FacesContext;
 
+import org.richfaces.application.CoreConfiguration;
 import org.richfaces.log.Logger;
 import org.richfaces.log.RichfacesLogger;
-import org.richfaces.resource.css.CSSVisitorImpl;
+import org.richfaces.resource.css.CSSTemplate;
 import org.richfaces.skin.Skin;
 import org.richfaces.skin.SkinFactory;
 import org.w3c.css.sac.CSSException;
@@ -54,11 +58,21 @@ public class CompiledCSSResource extends AbstractCacheableResource implements St
     private static final String NULL_STYLESHEET = "Parsed stylesheet for ''{0}'':''{1}'' resource is null.";
     // TODO handle sourceResources headers, etc.
     private Resource sourceResource;
+    private ConcurrentMap<ResourceKey, CSSTemplate> templates;
 
     public CompiledCSSResource(Resource sourceResource) {
+        this(sourceResource, null);
+    }
+
+    /**
+     * @param sourceResource ECSS source resource
+     * @param templates cache of compiled templates shared between resource instances, can be <code>null</code>
+     */
+    public CompiledCSSResource(Resource sourceResource, ConcurrentMap<ResourceKey, CSSTemplate> templates) {
         assert sourceResource != null;
 
         this.sourceResource = sourceResource;
+        this.templates = templates;
     }
 
     @Override
@@ -88,6 +102,62 @@ public class CompiledCSSResource extends AbstractCacheableResource implements St
     @Override
     public InputStream getInputStream() throws IOException {
         FacesContext ctx = FacesContext.getCurrentInstance();
+        CSSTemplate template = getTemplate(ctx);
+
+        if (template != null) {
+            // TODO nick - handle encoding
+            String encoding = ctx.getExternalContext().getResponseCharacterEncoding();
+            if (encoding == null) {
+                encoding = "UTF-8";
+            }
+
+            String cssText = template.render(ctx, encoding);
+
+            return new ByteArrayInputStream(cssText.getBytes(template.getEncoding() != null ? template.getEncoding()
+                : encoding));
+        } else {
+            if (!ctx.isProjectStage(ProjectStage.Production)) {
+                LOGGER.info(MessageFormat.format(NULL_STYLESHEET, getLibraryName(), getResourceName()));
+            }
+            return null;
+        }
+    }
+
+    /**
+     * Returns compiled template of stylesheet. Templates are cached unless application is in development stage, so that
+     * changes of the source are picked up.
+     */
+    private CSSTemplate getTemplate(FacesContext ctx) {
+        boolean cacheable = templates != null && !ctx.isProjectStage(ProjectStage.Development);
+        ResourceKey key = null;
+
+        if (cacheable) {
+            key = new ResourceKey(getResourceName(), getLibraryName());
+            CSSTemplate template = templates.get(key);
+
+            if (template != null) {
+                return template;
+            }
+        }
+
+        CSSStyleSheet styleSheet = parseStyleSheet(ctx);
+        if (styleSheet == null) {
+            return null;
+        }
+
+        CSSTemplate template = CSSTemplate.compile(ctx, styleSheet,
+            getBooleanConfigurationValue(ctx, CoreConfiguration.Items.resourceOptimizationSpriteImages));
+        if (cacheable) {
+            CSSTemplate existingTemplate = templates.putIfAbsent(key, template);
+            if (existingTemplate != null) {
+                template = existingTemplate;
+            }
+        }
+
+        return template;
+    }
+
+    private CSSStyleSheet parseStyleSheet(FacesContext ctx) {
         InputStream stream = null;
         CSSStyleSheet styleSheet = null;
         try {
@@ -115,22 +185,7 @@ public class CompiledCSSResource extends AbstractCacheableResource implements St
             }
         }
 
-        if (styleSheet != null) {
-            // TODO nick - handle encoding
-            String encoding = ctx.getExternalContext().getResponseCharacterEncoding();
-            CSSVisitorImpl cssVisitor = new CSSVisitorImpl(ctx);
-            cssVisitor.setEncoding(encoding != null ? encoding : "UTF-8");
-            cssVisitor.visitStyleSheet(styleSheet);
-
-            String cssText = cssVisitor.getCSSText();
-
-            return new ByteArrayInputStream(cssText.getBytes(cssVisitor.getEncoding()));
-        } else {
-            if (!ctx.isProjectStage(ProjectStage.Production)) {
-                LOGGER.info(MessageFormat.format(NULL_STYLESHEET, getLibraryName(), getResourceName()));
-            }
-            return null;
-        }
+        return styleSheet;
     }
 
     @Override
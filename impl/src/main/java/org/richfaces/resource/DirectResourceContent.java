@@ -0,0 +1,115 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2010, Red Hat, Inc. and individual contributors
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.richfaces.resource;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+
+import org.ajax4jsf.io.SegmentPool;
+
+/**
+ * Resource content stored outside of Java heap in direct {@link ByteBuffer}.
+ */
+final class DirectResourceContent implements ResourceContent {
+    private final ByteBuffer content;
+
+    DirectResourceContent(ByteBuffer content) {
+        this.content = content;
+    }
+
+    public int getLength() {
+        return content.capacity();
+    }
+
+    public int getHeapSize() {
+        return 0;
+    }
+
+    public InputStream getInputStream() {
+        return new ByteBufferInputStream(content.duplicate());
+    }
+
+    public void writeTo(OutputStream os) throws IOException {
+        ByteBuffer source = content.duplicate();
+        SegmentPool pool = SegmentPool.getInstance();
+        byte[] chunk = pool.allocateBytes();
+
+        try {
+            while (source.hasRemaining()) {
+                int length = Math.min(chunk.length, source.remaining());
+
+                source.get(chunk, 0, length);
+                os.write(chunk, 0, length);
+            }
+        } finally {
+            pool.releaseBytes(chunk);
+        }
+    }
+
+    private static final class ByteBufferInputStream extends InputStream {
+        private final ByteBuffer buffer;
+
+        public ByteBufferInputStream(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        @Override
+        public int read() throws IOException {
+            if (!buffer.hasRemaining()) {
+                return -1;
+            }
+
+            return buffer.get() & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (len == 0) {
+                return 0;
+            }
+
+            if (!buffer.hasRemaining()) {
+                return -1;
+            }
+
+            int read = Math.min(len, buffer.remaining());
+            buffer.get(b, off, read);
+
+            return read;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            int skipped = (int) Math.max(0, Math.min(n, buffer.remaining()));
+            buffer.position(buffer.position() + skipped);
+
+            return skipped;
+        }
+
+        @Override
+        public int available() throws IOException {
+            return buffer.remaining();
+        }
+    }
+}
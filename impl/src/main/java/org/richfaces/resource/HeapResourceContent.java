@@ -0,0 +1,75 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2010, Red Hat, Inc. and individual contributors
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.richfaces.resource;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+import org.ajax4jsf.io.ByteBuffer;
+import org.ajax4jsf.io.FastBufferInputStream;
+
+/**
+ * Resource content stored on heap as a chain of byte arrays.
+ */
+final class HeapResourceContent implements ResourceContent {
+    private final ByteBuffer content;
+    private final int length;
+    private final int heapSize;
+
+    HeapResourceContent(ByteBuffer content) {
+        this.content = content;
+
+        int length = 0;
+        int heapSize = 0;
+
+        for (ByteBuffer link = content; link != null; link = link.getNext()) {
+            length += link.getUsedSize();
+            heapSize += link.getCacheSize();
+        }
+
+        this.length = length;
+        this.heapSize = heapSize;
+    }
+
+    public int getLength() {
+        return length;
+    }
+
+    public int getHeapSize() {
+        return heapSize;
+    }
+
+    public InputStream getInputStream() {
+        return new FastBufferInputStream(content);
+    }
+
+    public void writeTo(OutputStream os) throws IOException {
+        for (ByteBuffer link = content; link != null; link = link.getNext()) {
+            int usedSize = link.getUsedSize();
+
+            if (usedSize > 0) {
+                os.write(link.getBytes(), 0, usedSize);
+            }
+        }
+    }
+}
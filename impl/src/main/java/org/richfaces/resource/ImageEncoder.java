@@ -0,0 +1,257 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2010, Red Hat, Inc. and individual contributors
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.richfaces.resource;
+
+import java.awt.Dimension;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBuffer;
+import java.awt.image.DataBufferByte;
+import java.awt.image.DataBufferInt;
+import java.awt.image.IndexColorModel;
+import java.io.IOException;
+import java.lang.ref.SoftReference;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ArrayBlockingQueue;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageOutputStream;
+
+/**
+ * Encoder of images produced by {@link Java2DUserResource}. Keeps pool of image writers per image type and one reusable
+ * image per thread and image type, so that small images like gradients are encoded without writer lookup and image
+ * allocation; reusable images are softly referenced. PNG and GIF images with no more than 256 colors are written with
+ * exact palette.
+ *
+ * @since 4.3
+ */
+final class ImageEncoder {
+    private static final int MAX_REUSED_IMAGE_PIXELS = 4 * 1024;
+    private static final int MAX_POOLED_WRITERS = 8;
+    private static final int MAX_PALETTE_SIZE = 256;
+    private static final int HASH_SIZE = 1024;
+    private static final int MIN_PIXELS_PER_COLOR = 4;
+    private static final ImageType[] IMAGE_TYPES = ImageType.values();
+    private static final Map<ImageType, Queue<ImageWriter>> WRITERS = new EnumMap<ImageType, Queue<ImageWriter>>(
+        ImageType.class);
+    private static final ThreadLocal<SoftReference<BufferedImage[]>> IMAGES =
+        new ThreadLocal<SoftReference<BufferedImage[]>>();
+
+    static {
+        for (ImageType imageType : IMAGE_TYPES) {
+            WRITERS.put(imageType, new ArrayBlockingQueue<ImageWriter>(MAX_POOLED_WRITERS));
+        }
+    }
+
+    private ImageEncoder() {
+    }
+
+    /**
+     * Returns blank image of the given size. Image can be reused by the next call from the same thread, so it should not be
+     * referenced after it is written.
+     */
+    static BufferedImage createImage(ImageType imageType, Dimension dimension) {
+        if ((long) dimension.width * dimension.height > MAX_REUSED_IMAGE_PIXELS) {
+            return imageType.createImage(dimension);
+        }
+
+        SoftReference<BufferedImage[]> imagesReference = IMAGES.get();
+        BufferedImage[] images = imagesReference != null ? imagesReference.get() : null;
+        if (images == null) {
+            images = new BufferedImage[IMAGE_TYPES.length];
+            IMAGES.set(new SoftReference<BufferedImage[]>(images));
+        }
+
+        BufferedImage image = images[imageType.ordinal()];
+
+        if (image != null && image.getWidth() == dimension.width && image.getHeight() == dimension.height
+            && clear(image)) {
+
+            return image;
+        }
+
+        image = imageType.createImage(dimension);
+        images[imageType.ordinal()] = image;
+
+        return image;
+    }
+
+    private static boolean clear(BufferedImage image) {
+        DataBuffer dataBuffer = image.getRaster().getDataBuffer();
+
+        if (dataBuffer instanceof DataBufferInt) {
+            for (int i = 0; i < dataBuffer.getNumBanks(); i++) {
+                Arrays.fill(((DataBufferInt) dataBuffer).getData(i), 0);
+            }
+        } else if (dataBuffer instanceof DataBufferByte) {
+            for (int i = 0; i < dataBuffer.getNumBanks(); i++) {
+                Arrays.fill(((DataBufferByte) dataBuffer).getData(i), (byte) 0);
+            }
+        } else {
+            return false;
+        }
+
+        return true;
+    }
+
+    private static ImageWriter borrowWriter(ImageType imageType) {
+        ImageWriter writer = WRITERS.get(imageType).poll();
+
+        if (writer == null) {
+            Iterator<ImageWriter> writers = ImageIO.getImageWritersByFormatName(imageType.getFormatName());
+
+            if (!writers.hasNext()) {
+                throw new IllegalArgumentException("No image writer found for " + imageType.getFormatName() + " format");
+            }
+
+            writer = writers.next();
+        }
+
+        return writer;
+    }
+
+    private static void returnWriter(ImageType imageType, ImageWriter writer) {
+        writer.reset();
+
+        if (!WRITERS.get(imageType).offer(writer)) {
+            writer.dispose();
+        }
+    }
+
+    /**
+     * Writes image to the stream in the format of image type
+     */
+    static void write(BufferedImage image, ImageType imageType, ImageOutputStream outputStream) throws IOException {
+        BufferedImage encodedImage = image;
+
+        if (imageType == ImageType.PNG || imageType == ImageType.GIF) {
+            BufferedImage indexedImage = toIndexedImage(image, imageType == ImageType.GIF);
+
+            // palette doesn't pay off for PNG images having few pixels per color, e.g. narrow gradients
+            if (indexedImage != null && (imageType == ImageType.GIF || isPaletteCompact(indexedImage))) {
+                encodedImage = indexedImage;
+            }
+        }
+
+        ImageWriter writer = borrowWriter(imageType);
+        boolean written = false;
+
+        try {
+            writer.setOutput(outputStream);
+            writer.write(encodedImage);
+            written = true;
+        } finally {
+            if (written) {
+                returnWriter(imageType, writer);
+            } else {
+                writer.dispose();
+            }
+        }
+    }
+
+    private static boolean isPaletteCompact(BufferedImage indexedImage) {
+        int paletteSize = ((IndexColorModel) indexedImage.getColorModel()).getMapSize();
+
+        return (long) indexedImage.getWidth() * indexedImage.getHeight() >= (long) paletteSize * MIN_PIXELS_PER_COLOR;
+    }
+
+    /**
+     * Converts image to indexed one with exact palette. All fully transparent pixels share single palette entry.
+     *
+     * @param image source image
+     * @param bitmask whether palette can have only one transparent entry and no translucent ones
+     * @return indexed image or <code>null</code> if image has too many colors
+     */
+    static BufferedImage toIndexedImage(BufferedImage image, boolean bitmask) {
+        int width = image.getWidth();
+        int height = image.getHeight();
+        int[] pixels = image.getRGB(0, 0, width, height, null, 0, width);
+
+        // open addressing hash of colors to palette indices
+        int[] hashColors = new int[HASH_SIZE];
+        int[] hashIndices = new int[HASH_SIZE];
+        int[] palette = new int[MAX_PALETTE_SIZE];
+        int paletteSize = 0;
+        int transparentIndex = -1;
+        boolean opaque = true;
+        byte[] indices = new byte[pixels.length];
+
+        Arrays.fill(hashIndices, -1);
+
+        for (int i = 0; i < pixels.length; i++) {
+            int color = pixels[i];
+            int alpha = color >>> 24;
+
+            if (alpha == 0) {
+                color = 0;
+                opaque = false;
+            } else if (alpha != 0xFF) {
+                if (bitmask) {
+                    return null;
+                }
+
+                opaque = false;
+            }
+
+            int slot = (color ^ (color >>> 16) ^ (color >>> 8)) & (HASH_SIZE - 1);
+
+            while (hashIndices[slot] >= 0 && hashColors[slot] != color) {
+                slot = (slot + 1) & (HASH_SIZE - 1);
+            }
+
+            if (hashIndices[slot] < 0) {
+                if (paletteSize == MAX_PALETTE_SIZE) {
+                    return null;
+                }
+
+                if (color == 0) {
+                    transparentIndex = paletteSize;
+                }
+
+                hashColors[slot] = color;
+                hashIndices[slot] = paletteSize;
+                palette[paletteSize++] = color;
+            }
+
+            indices[i] = (byte) hashIndices[slot];
+        }
+
+        IndexColorModel colorModel;
+
+        if (opaque) {
+            colorModel = new IndexColorModel(8, paletteSize, palette, 0, false, -1, DataBuffer.TYPE_BYTE);
+        } else if (bitmask) {
+            colorModel = new IndexColorModel(8, paletteSize, palette, 0, false, transparentIndex, DataBuffer.TYPE_BYTE);
+        } else {
+            colorModel = new IndexColorModel(8, paletteSize, palette, 0, true, -1, DataBuffer.TYPE_BYTE);
+        }
+
+        BufferedImage result = new BufferedImage(width, height, BufferedImage.TYPE_BYTE_INDEXED, colorModel);
+        result.getRaster().setDataElements(0, 0, width, height, indices);
+
+        return result;
+    }
+}
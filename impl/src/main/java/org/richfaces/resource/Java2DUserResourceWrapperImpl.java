@@ -32,8 +32,8 @@ import java.util.Map;
 import javax.faces.context.FacesContext;
 import javax.imageio.ImageIO;
 import javax.imageio.stream.ImageOutputStream;
+import javax.imageio.stream.MemoryCacheImageOutputStream;
 
-import org.ajax4jsf.io.ByteBuffer;
 import org.ajax4jsf.io.FastBufferInputStream;
 import org.ajax4jsf.io.FastBufferOutputStream;
 import org.ajax4jsf.util.HtmlColor;
@@ -49,7 +49,8 @@ import com.google.common.io.Closeables;
  * @author Nick Belaevski
  *
  */
-public class Java2DUserResourceWrapperImpl extends BaseResourceWrapper<Java2DUserResource> {
+public class Java2DUserResourceWrapperImpl extends BaseResourceWrapper<Java2DUserResource> implements
+    ContentProducerResource {
     private static final Logger LOGGER = RichfacesLogger.RESOURCE.getLogger();
 
     public Java2DUserResourceWrapperImpl(Java2DUserResource resourceObject, boolean cacheable, boolean versioned) {
@@ -59,24 +60,32 @@ public class Java2DUserResourceWrapperImpl extends BaseResourceWrapper<Java2DUse
     public InputStream getInputStream() throws IOException {
         FastBufferOutputStream fbos = new FastBufferOutputStream();
 
-        ImageOutputStream imageOutputStream = ImageIO.createImageOutputStream(fbos);
+        // image is written to memory, so there is no need in ImageIO lookup of stream provider and disk cache
+        ImageOutputStream imageOutputStream = new MemoryCacheImageOutputStream(fbos);
         try {
             paintAndWrite(imageOutputStream);
         } finally {
-            if (imageOutputStream != null) {
-                try {
-                    imageOutputStream.close();
-                } catch (IOException e) {
-                    LOGGER.debug(e.getMessage(), e);
-                }
-
-                Closeables.closeQuietly(fbos);
+            try {
+                imageOutputStream.close();
+            } catch (IOException e) {
+                LOGGER.debug(e.getMessage(), e);
             }
+
+            Closeables.closeQuietly(fbos);
         }
-        ByteBuffer buffer = fbos.getFirstBuffer();
-        buffer.compact();
+        return new FastBufferInputStream(fbos.getFirstBuffer());
+    }
 
-        return new FastBufferInputStream(buffer);
+    public void encode(FacesContext context) throws IOException {
+        ImageOutputStream imageOutputStream = new MemoryCacheImageOutputStream(context.getExternalContext()
+            .getResponseOutputStream());
+        try {
+            paintAndWrite(imageOutputStream);
+        } finally {
+            if (imageOutputStream != null) {
+                imageOutputStream.close();
+            }
+        }
     }
 
     protected void write(BufferedImage image, String formatName, ImageOutputStream imageOutputStream) throws IOException {
@@ -151,12 +160,14 @@ public class Java2DUserResourceWrapperImpl extends BaseResourceWrapper<Java2DUse
         Java2DUserResource resource = getWrapped();
         ImageType imageType = resource.getImageType();
 
-        BufferedImage image = imageType.createImage(resource.getDimension());
+        BufferedImage image = ImageEncoder.createImage(imageType, resource.getDimension());
         Graphics2D g2d = null;
         try {
             g2d = createGraphics(image);
             resource.paint(g2d);
-            ImageIO.write(image, imageType.getFormatName(), outputStream);
+            g2d.dispose();
+            g2d = null;
+            ImageEncoder.write(image, imageType, outputStream);
         } finally {
             if (g2d != null) {
                 g2d.dispose();
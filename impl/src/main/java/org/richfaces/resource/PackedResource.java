@@ -0,0 +1,201 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2010, Red Hat, Inc. and individual contributors
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.richfaces.resource;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import javax.faces.context.FacesContext;
+
+import org.richfaces.application.ServiceTracker;
+import org.richfaces.cache.Cache;
+import org.richfaces.cache.concurrent.Weighable;
+import org.richfaces.log.Logger;
+import org.richfaces.log.RichfacesLogger;
+import org.richfaces.resource.ResourcePacker.Type;
+
+/**
+ * <p class="changed_added_4_3">
+ * Resource serving content of several scripts or stylesheets packed together by {@link ResourcePacker}. Packed content is
+ * kept in the resources {@link Cache} under its MD5 hash. Resource URL carries the hash along with the ordered keys of
+ * the packed resources and, for stylesheets, the skin name.
+ * </p>
+ * <p class="changed_added_4_3">
+ * If the content is not in the cache, e.g. it has been evicted, the application has been restarted or the page has
+ * been rendered by another node, resources are packed again from the keys. The resource responds with 404 status if
+ * they cannot be packed into the content with the same hash anymore, or if stylesheets were packed for another skin.
+ * </p>
+ */
+@DynamicResource
+public class PackedResource extends AbstractCacheableResource implements StateHolderResource, ContentProducerResource {
+    public static final String RESOURCE_NAME = PackedResource.class.getName();
+    private static final Logger LOGGER = RichfacesLogger.RESOURCE.getLogger();
+    private static final String CONTENT_KEY_PREFIX = PackedResource.class.getName() + ":";
+    private static final int MAX_PACKED_RESOURCES = 256;
+    private String hash;
+    private Type type;
+    private String skinName;
+    private List<ResourceKey> resourceKeys = Collections.emptyList();
+    private Content content;
+
+    /**
+     * Packed content stored in the resources cache
+     */
+    static final class Content implements Weighable {
+        private final String contentType;
+        private final byte[] data;
+
+        Content(String contentType, byte[] data) {
+            this.contentType = contentType;
+            this.data = data;
+        }
+
+        public int getWeight() {
+            return data.length;
+        }
+    }
+
+    public PackedResource() {
+        super();
+    }
+
+    PackedResource(String hash, Type type, String skinName, List<ResourceKey> resourceKeys) {
+        this.hash = hash;
+        this.type = type;
+        this.skinName = skinName;
+        this.resourceKeys = resourceKeys;
+        setResourceName(RESOURCE_NAME);
+    }
+
+    private static String getContentKey(String hash) {
+        return CONTENT_KEY_PREFIX + hash;
+    }
+
+    static Content getContent(FacesContext context, String hash) {
+        Cache cache = ServiceTracker.getService(context, Cache.class);
+        return (Content) cache.get(getContentKey(hash));
+    }
+
+    static void putContent(FacesContext context, String hash, Content content) {
+        Cache cache = ServiceTracker.getService(context, Cache.class);
+        cache.put(getContentKey(hash), content, null);
+    }
+
+    @Override
+    public String getContentType() {
+        return content != null ? content.contentType : null;
+    }
+
+    @Override
+    protected int getContentLength(FacesContext context) {
+        return content != null ? content.data.length : -1;
+    }
+
+    @Override
+    public InputStream getInputStream() throws IOException {
+        return content != null ? new ByteArrayInputStream(content.data) : null;
+    }
+
+    public void encode(FacesContext context) throws IOException {
+        if (content != null) {
+            context.getExternalContext().getResponseOutputStream().write(content.data);
+        } else {
+            if (LOGGER.isDebugEnabled()) {
+                LOGGER.debug("Content of packed resource " + hash + " is not available");
+            }
+
+            ResourceHandlerImpl.sendResourceNotFound(context);
+        }
+    }
+
+    @Override
+    public boolean isCacheable(FacesContext context) {
+        return content != null;
+    }
+
+    @Override
+    public String getEntityTag(FacesContext context) {
+        return content != null ? ResourceUtils.formatWeakTag(hash) : null;
+    }
+
+    public boolean isTransient() {
+        return false;
+    }
+
+    private static void writeOptionalUTF(DataOutput dataOutput, String s) throws IOException {
+        dataOutput.writeBoolean(s != null);
+        if (s != null) {
+            dataOutput.writeUTF(s);
+        }
+    }
+
+    private static String readOptionalUTF(DataInput dataInput) throws IOException {
+        return dataInput.readBoolean() ? dataInput.readUTF() : null;
+    }
+
+    public void writeState(FacesContext context, DataOutput dataOutput) throws IOException {
+        dataOutput.writeUTF(hash);
+        dataOutput.writeByte(type.ordinal());
+        writeOptionalUTF(dataOutput, skinName);
+        dataOutput.writeShort(resourceKeys.size());
+
+        for (ResourceKey resourceKey : resourceKeys) {
+            dataOutput.writeUTF(resourceKey.getResourceName());
+            writeOptionalUTF(dataOutput, resourceKey.getLibraryName());
+        }
+    }
+
+    public void readState(FacesContext context, DataInput dataInput) throws IOException {
+        hash = dataInput.readUTF();
+
+        int typeOrdinal = dataInput.readUnsignedByte();
+        if (typeOrdinal >= Type.values().length) {
+            throw new IOException("Unknown packed resources type: " + typeOrdinal);
+        }
+
+        type = Type.values()[typeOrdinal];
+        skinName = readOptionalUTF(dataInput);
+
+        int size = dataInput.readUnsignedShort();
+        if (size > MAX_PACKED_RESOURCES) {
+            throw new IOException("Too many packed resources: " + size);
+        }
+
+        resourceKeys = new ArrayList<ResourceKey>(size);
+        for (int i = 0; i < size; i++) {
+            String resourceName = dataInput.readUTF();
+            resourceKeys.add(new ResourceKey(resourceName, readOptionalUTF(dataInput)));
+        }
+
+        content = getContent(context, hash);
+
+        if (content == null) {
+            content = ResourcePacker.repack(context, hash, type, skinName, resourceKeys);
+        }
+    }
+}
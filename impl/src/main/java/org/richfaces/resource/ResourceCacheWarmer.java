@@ -0,0 +1,543 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2010, Red Hat, Inc. and individual contributors
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.richfaces.resource;
+
+import static org.richfaces.application.configuration.ConfigurationServiceHelper.getBooleanConfigurationValue;
+import static org.richfaces.application.configuration.ConfigurationServiceHelper.getIntConfigurationValue;
+import static org.richfaces.application.configuration.ConfigurationServiceHelper.getStringConfigurationValue;
+
+import java.text.MessageFormat;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.el.ELContext;
+import javax.el.ELResolver;
+import javax.el.FunctionMapper;
+import javax.el.VariableMapper;
+import javax.faces.application.Application;
+import javax.faces.application.FacesMessage;
+import javax.faces.application.FacesMessage.Severity;
+import javax.faces.application.ProjectStage;
+import javax.faces.application.Resource;
+import javax.faces.application.ResourceHandler;
+import javax.faces.application.ResourceHandlerWrapper;
+import javax.faces.context.ExternalContext;
+import javax.faces.component.UIViewRoot;
+import javax.faces.context.FacesContext;
+import javax.faces.context.ResponseStream;
+import javax.faces.context.ResponseWriter;
+import javax.faces.render.RenderKit;
+import javax.servlet.ServletContext;
+
+import org.richfaces.application.CoreConfiguration;
+import org.richfaces.application.ServiceTracker;
+import org.richfaces.cache.Cache;
+import org.richfaces.log.Logger;
+import org.richfaces.log.RichfacesLogger;
+import org.richfaces.util.RequestStateManager.BooleanRequestStateVariable;
+import org.richfaces.util.Util;
+
+import com.google.common.base.Strings;
+import com.google.common.collect.Iterators;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+/**
+ * Renders known dynamic resources on application startup and stores them in resources cache, so that first requests after
+ * deployment don't have to pay for rendering of skin images and stylesheets.
+ * <p>
+ * Warmed up are resources from dynamic resource mappings (<code>META-INF/richfaces/resource-mappings.properties</code>)
+ * and resources listed in <code>org.richfaces.resourceCacheWarmUp.resources</code> context parameter. Resources are
+ * rendered with the skin that is configured for the application, on a bounded pool of worker threads.
+ * <p>
+ * Worker threads don't use the startup faces context, as it is released as soon as application initialization completes:
+ * each resource is rendered with its own faces context, backed by the servlet context. Warm-up can run in background only
+ * if the application runs in servlet environment.
+ *
+ * @since 4.3
+ */
+public final class ResourceCacheWarmer {
+    private static final Logger LOGGER = RichfacesLogger.RESOURCE.getLogger();
+    private static final ThreadFactory WARM_UP_THREAD_FACTORY = new ThreadFactoryBuilder().setDaemon(true)
+            .setNameFormat("resource-cache-warm-up-thread-%1$s").build();
+    private final ResourceHandlerImpl resourceHandler;
+    private final Collection<ResourceKey> resourceKeys;
+    private final ExecutorService executorService;
+    private final AtomicInteger cachedCount = new AtomicInteger();
+    private final AtomicInteger skippedCount = new AtomicInteger();
+    private final AtomicInteger failedCount = new AtomicInteger();
+    private long startTime;
+
+    ResourceCacheWarmer(ResourceHandlerImpl resourceHandler, Collection<ResourceKey> resourceKeys, int threadsCount) {
+        this.resourceHandler = resourceHandler;
+        this.resourceKeys = resourceKeys;
+        this.executorService = Executors.newFixedThreadPool(Math.max(1, threadsCount), WARM_UP_THREAD_FACTORY);
+    }
+
+    /**
+     * Starts warm-up of resources cache according to the application configuration. Returns immediately if warm-up is
+     * configured to run in background, otherwise waits until all resources are rendered.
+     *
+     * @return warmer instance or <code>null</code> if there is nothing to warm up
+     */
+    public static ResourceCacheWarmer warmUp(FacesContext context) {
+        if (context.isProjectStage(ProjectStage.Development)) {
+            LOGGER.info("Resources are not cached on Development stage - resource cache warm-up skipped");
+            return null;
+        }
+
+        ResourceHandlerImpl resourceHandler = findResourceHandler(context.getApplication().getResourceHandler());
+
+        if (resourceHandler == null) {
+            LOGGER.warn("RichFaces resource handler is not installed - resource cache warm-up skipped");
+            return null;
+        }
+
+        Set<ResourceKey> resourceKeys = new LinkedHashSet<ResourceKey>(resourceHandler.getResourceFactory()
+            .getMappedDynamicResourceKeys());
+
+        String configuredResources = getStringConfigurationValue(context,
+            CoreConfiguration.Items.resourcesCacheWarmUpResources);
+
+        if (!Strings.isNullOrEmpty(configuredResources)) {
+            for (String resourceQualifier : configuredResources.split(",")) {
+                resourceQualifier = resourceQualifier.trim();
+
+                if (resourceQualifier.length() != 0) {
+                    resourceKeys.add(ResourceKey.create(resourceQualifier));
+                }
+            }
+        }
+
+        if (resourceKeys.isEmpty()) {
+            return null;
+        }
+
+        int threadsCount = getIntConfigurationValue(context, CoreConfiguration.Items.resourcesCacheWarmUpThreads);
+        boolean background = getBooleanConfigurationValue(context, CoreConfiguration.Items.resourcesCacheWarmUpInBackground);
+
+        if (background && !(context.getExternalContext().getContext() instanceof ServletContext)) {
+            LOGGER.info("Resource cache can be warmed up in background only in servlet environment - warming up on startup");
+            background = false;
+        }
+
+        ResourceCacheWarmer warmer = new ResourceCacheWarmer(resourceHandler, resourceKeys, threadsCount);
+        warmer.start(context, threadsCount);
+
+        if (!background) {
+            warmer.awaitCompletion();
+        } else {
+            WARM_UP_THREAD_FACTORY.newThread(warmer.new CompletionWaiter()).start();
+        }
+
+        return warmer;
+    }
+
+    private static ResourceHandlerImpl findResourceHandler(ResourceHandler resourceHandler) {
+        ResourceHandler handler = resourceHandler;
+
+        while (handler != null) {
+            if (handler instanceof ResourceHandlerImpl) {
+                return (ResourceHandlerImpl) handler;
+            }
+
+            if (handler instanceof ResourceHandlerWrapper) {
+                handler = ((ResourceHandlerWrapper) handler).getWrapped();
+            } else {
+                handler = null;
+            }
+        }
+
+        return null;
+    }
+
+    void start(FacesContext context, int threadsCount) {
+        if (LOGGER.isInfoEnabled()) {
+            LOGGER.info(MessageFormat.format("Warming up resource cache: {0} resources on {1} threads", resourceKeys.size(),
+                threadsCount));
+        }
+
+        startTime = System.currentTimeMillis();
+
+        Application application = context.getApplication();
+        Object servletContext = context.getExternalContext().getContext();
+        // startup external context can be used only while startup thread waits for warm-up to complete
+        ExternalContext startupExternalContext = null;
+
+        if (!(servletContext instanceof ServletContext)) {
+            servletContext = null;
+            startupExternalContext = context.getExternalContext();
+        }
+
+        for (ResourceKey resourceKey : resourceKeys) {
+            executorService.submit(new WarmUpTask(resourceKey, application, (ServletContext) servletContext,
+                startupExternalContext));
+        }
+
+        executorService.shutdown();
+    }
+
+    void awaitCompletion() {
+        try {
+            while (!executorService.awaitTermination(1, TimeUnit.SECONDS)) {
+                if (LOGGER.isDebugEnabled()) {
+                    LOGGER.debug(MessageFormat.format("Resource cache warm-up in progress: {0} of {1} resources processed",
+                        getProcessedCount(), resourceKeys.size()));
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            executorService.shutdownNow();
+        }
+
+        if (LOGGER.isInfoEnabled()) {
+            LOGGER.info(MessageFormat.format(
+                "Resource cache warm-up finished in {0} ms: {1} resources cached, {2} not cacheable, {3} failed",
+                System.currentTimeMillis() - startTime, cachedCount.get(), skippedCount.get(), failedCount.get()));
+        }
+    }
+
+    /**
+     * Stops warm-up that is still running, e.g. when application is being shut down.
+     */
+    public void cancel() {
+        executorService.shutdownNow();
+    }
+
+    int getProcessedCount() {
+        return cachedCount.get() + skippedCount.get() + failedCount.get();
+    }
+
+    int getCachedCount() {
+        return cachedCount.get();
+    }
+
+    int getSkippedCount() {
+        return skippedCount.get();
+    }
+
+    int getFailedCount() {
+        return failedCount.get();
+    }
+
+    /**
+     * Renders resource the same way it is rendered for the first request to its URL and puts the result into cache.
+     *
+     * @return <code>true</code> if resource has been stored in cache
+     */
+    boolean warmUpResource(FacesContext context, ResourceKey resourceKey) throws Exception {
+        String resourceName = resourceKey.getResourceName();
+        String libraryName = resourceKey.getLibraryName();
+        Resource resource = resourceHandler.createResource(resourceName, libraryName);
+
+        if (!(resource instanceof CacheableResource) || !((CacheableResource) resource).isCacheable(context)) {
+            return false;
+        }
+
+        Object resourceData = Util.saveResourceState(context, resource);
+        String resourceVersion = null;
+
+        if (resource instanceof VersionedResource) {
+            resourceVersion = ((VersionedResource) resource).getVersion();
+        }
+
+        ResourceCodec resourceCodec = ServiceTracker.getService(context, ResourceCodec.class);
+        String requestPath = resourceCodec.encodeResourceRequestPath(context, libraryName, resourceName, resourceData,
+            resourceVersion);
+
+        if (requestPath == null || !requestPath.startsWith(ResourceHandlerImpl.RICHFACES_RESOURCE_IDENTIFIER)) {
+            // resource is not served by RichFaces resource handler
+            return false;
+        }
+
+        String resourcePath = requestPath.substring(ResourceHandlerImpl.RICHFACES_RESOURCE_IDENTIFIER.length());
+        ResourceRequestData requestData = new WarmUpResourceRequestData(resourceName, libraryName, resourceVersion,
+            resourceData, resourcePath);
+
+        Cache cache = ServiceTracker.getService(context, Cache.class);
+
+        return resourceHandler.materializeResource(context, cache, requestData) instanceof CachedResourceImpl;
+    }
+
+    private final class CompletionWaiter implements Runnable {
+        public void run() {
+            awaitCompletion();
+        }
+    }
+
+    private final class WarmUpTask implements Runnable {
+        private final ResourceKey resourceKey;
+        private final Application application;
+        private final ServletContext servletContext;
+        private final ExternalContext startupExternalContext;
+
+        WarmUpTask(ResourceKey resourceKey, Application application, ServletContext servletContext,
+            ExternalContext startupExternalContext) {
+            this.resourceKey = resourceKey;
+            this.application = application;
+            this.servletContext = servletContext;
+            this.startupExternalContext = startupExternalContext;
+        }
+
+        public void run() {
+            long taskStartTime = System.currentTimeMillis();
+            ExternalContext externalContext = startupExternalContext;
+
+            if (servletContext != null) {
+                externalContext = new WarmUpExternalContext(servletContext);
+            }
+
+            WarmUpFacesContext context = WarmUpFacesContext.activate(application, externalContext);
+
+            try {
+                if (warmUpResource(context, resourceKey)) {
+                    cachedCount.incrementAndGet();
+                } else {
+                    skippedCount.incrementAndGet();
+                }
+
+                if (LOGGER.isDebugEnabled()) {
+                    LOGGER.debug(MessageFormat.format("Resource {0} warmed up in {1} ms", resourceKey,
+                        System.currentTimeMillis() - taskStartTime));
+                }
+            } catch (Exception e) {
+                failedCount.incrementAndGet();
+                LOGGER.warn(MessageFormat.format("Resource {0} could not be rendered during resource cache warm-up: {1}",
+                    resourceKey, e.getMessage()), e);
+            } finally {
+                context.release();
+            }
+        }
+    }
+
+    /**
+     * Request data describing resource as if it has been decoded from resource request URL.
+     */
+    private static final class WarmUpResourceRequestData implements ResourceRequestData {
+        private final String resourceName;
+        private final String libraryName;
+        private final String version;
+        private final Object data;
+        private final String resourceKey;
+
+        WarmUpResourceRequestData(String resourceName, String libraryName, String version, Object data, String resourceKey) {
+            this.resourceName = resourceName;
+            this.libraryName = libraryName;
+            this.version = version;
+            this.data = data;
+            this.resourceKey = resourceKey;
+        }
+
+        public String getResourceName() {
+            return resourceName;
+        }
+
+        public String getLibraryName() {
+            return libraryName;
+        }
+
+        public String getVersion() {
+            return version;
+        }
+
+        public Object getData() {
+            return data;
+        }
+
+        public String getResourceKey() {
+            return resourceKey;
+        }
+    }
+
+    /**
+     * Faces context for warm-up worker threads. Shares application with the rest of the application, but has its own
+     * external context, attributes and EL context, so that concurrently rendered resources don't interfere with each other.
+     */
+    private static final class WarmUpFacesContext extends FacesContext {
+        private final Application application;
+        private final ExternalContext externalContext;
+        private final ELContext elContext;
+        private final Map<Object, Object> attributes = new HashMap<Object, Object>();
+        private UIViewRoot viewRoot;
+        private ResponseStream responseStream;
+        private ResponseWriter responseWriter;
+        private boolean responseComplete;
+        private boolean renderResponse;
+
+        private WarmUpFacesContext(Application application, ExternalContext externalContext) {
+            this.application = application;
+            this.externalContext = externalContext;
+            this.elContext = new WarmUpELContext(application.getELResolver());
+            this.elContext.putContext(FacesContext.class, this);
+        }
+
+        static WarmUpFacesContext activate(Application application, ExternalContext externalContext) {
+            WarmUpFacesContext context = new WarmUpFacesContext(application, externalContext);
+            setCurrentInstance(context);
+            // resources produce response headers only when they are rendered for resource request
+            BooleanRequestStateVariable.ResourceRequest.set(context, Boolean.TRUE);
+            return context;
+        }
+
+        @Override
+        public Application getApplication() {
+            return application;
+        }
+
+        @Override
+        public ExternalContext getExternalContext() {
+            return externalContext;
+        }
+
+        @Override
+        public ELContext getELContext() {
+            return elContext;
+        }
+
+        @Override
+        public Map<Object, Object> getAttributes() {
+            return attributes;
+        }
+
+        @Override
+        public Iterator<String> getClientIdsWithMessages() {
+            return Iterators.emptyIterator();
+        }
+
+        @Override
+        public Severity getMaximumSeverity() {
+            return null;
+        }
+
+        @Override
+        public Iterator<FacesMessage> getMessages() {
+            return Iterators.emptyIterator();
+        }
+
+        @Override
+        public Iterator<FacesMessage> getMessages(String clientId) {
+            return Iterators.emptyIterator();
+        }
+
+        @Override
+        public void addMessage(String clientId, FacesMessage message) {
+            if (LOGGER.isDebugEnabled()) {
+                LOGGER.debug(MessageFormat.format("Message added during resource cache warm-up: {0}", message.getSummary()));
+            }
+        }
+
+        @Override
+        public RenderKit getRenderKit() {
+            return null;
+        }
+
+        @Override
+        public boolean getRenderResponse() {
+            return renderResponse;
+        }
+
+        @Override
+        public void renderResponse() {
+            renderResponse = true;
+        }
+
+        @Override
+        public boolean getResponseComplete() {
+            return responseComplete;
+        }
+
+        @Override
+        public void responseComplete() {
+            responseComplete = true;
+        }
+
+        @Override
+        public ResponseStream getResponseStream() {
+            return responseStream;
+        }
+
+        @Override
+        public void setResponseStream(ResponseStream responseStream) {
+            this.responseStream = responseStream;
+        }
+
+        @Override
+        public ResponseWriter getResponseWriter() {
+            return responseWriter;
+        }
+
+        @Override
+        public void setResponseWriter(ResponseWriter responseWriter) {
+            this.responseWriter = responseWriter;
+        }
+
+        @Override
+        public UIViewRoot getViewRoot() {
+            return viewRoot;
+        }
+
+        @Override
+        public void setViewRoot(UIViewRoot viewRoot) {
+            this.viewRoot = viewRoot;
+        }
+
+        @Override
+        public void release() {
+            attributes.clear();
+            setCurrentInstance(null);
+        }
+    }
+
+    /**
+     * EL context of warm-up threads; resources are not rendered from pages, so there are no functions and variables to map.
+     */
+    private static final class WarmUpELContext extends ELContext {
+        private final ELResolver resolver;
+
+        WarmUpELContext(ELResolver resolver) {
+            this.resolver = resolver;
+        }
+
+        @Override
+        public ELResolver getELResolver() {
+            return resolver;
+        }
+
+        @Override
+        public FunctionMapper getFunctionMapper() {
+            return null;
+        }
+
+        @Override
+        public VariableMapper getVariableMapper() {
+            return null;
+        }
+    }
+}
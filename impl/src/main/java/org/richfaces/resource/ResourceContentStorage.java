@@ -0,0 +1,225 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2010, Red Hat, Inc. and individual contributors
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.richfaces.resource;
+
+import static org.richfaces.application.configuration.ConfigurationServiceHelper.getBooleanConfigurationValue;
+import static org.richfaces.application.configuration.ConfigurationServiceHelper.getEnumConfigurationValue;
+import static org.richfaces.application.configuration.ConfigurationServiceHelper.getLongConfigurationValue;
+
+import java.io.IOException;
+import java.lang.ref.PhantomReference;
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.text.MessageFormat;
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPOutputStream;
+
+import javax.faces.context.FacesContext;
+
+import org.ajax4jsf.io.ByteBuffer;
+import org.ajax4jsf.io.FastBufferOutputStream;
+import org.ajax4jsf.io.SegmentPool;
+import org.richfaces.application.CoreConfiguration;
+import org.richfaces.application.Initializable;
+import org.richfaces.log.Logger;
+import org.richfaces.log.RichfacesLogger;
+
+/**
+ * Creates storage for the content of cached resources. Depending on <code>org.richfaces.resourceCacheStorage</code>
+ * parameter content is kept either on Java heap or in direct memory buffers. Amount of direct memory is limited by
+ * <code>org.richfaces.resourceCacheDirectMemoryLimit</code> parameter; content that does not fit the limit is stored on
+ * heap. Unless <code>org.richfaces.resourceCacheCompression</code> is disabled, gzip-compressed copy of textual content
+ * is stored as well.
+ */
+public class ResourceContentStorage implements Initializable {
+    public enum StorageType {
+        heap,
+        direct
+    }
+
+    private static final Logger LOGGER = RichfacesLogger.RESOURCE.getLogger();
+    // content smaller than that won't fit into less TCP packets after compression
+    private static final int MIN_COMPRESSIBLE_LENGTH = 512;
+    private static final float MAX_COMPRESSION_RATIO = 0.9f;
+    private StorageType storageType = StorageType.heap;
+    private long directMemoryLimit;
+    private boolean compressionEnabled = true;
+    private final AtomicLong directMemoryUsed = new AtomicLong();
+    private final ReferenceQueue<ResourceContent> releasedContents = new ReferenceQueue<ResourceContent>();
+    // keeps references reachable until they are enqueued
+    private final Set<DirectContentReference> directContentReferences = Collections
+        .newSetFromMap(new ConcurrentHashMap<DirectContentReference, Boolean>());
+
+    public ResourceContentStorage() {
+    }
+
+    ResourceContentStorage(StorageType storageType, long directMemoryLimit, boolean compressionEnabled) {
+        this.storageType = storageType;
+        this.directMemoryLimit = directMemoryLimit;
+        this.compressionEnabled = compressionEnabled;
+    }
+
+    public void init() {
+        FacesContext facesContext = FacesContext.getCurrentInstance();
+
+        storageType = getEnumConfigurationValue(facesContext, CoreConfiguration.Items.resourcesCacheStorage,
+            StorageType.class);
+        directMemoryLimit = getLongConfigurationValue(facesContext, CoreConfiguration.Items.resourcesCacheDirectMemoryLimit);
+        compressionEnabled = getBooleanConfigurationValue(facesContext, CoreConfiguration.Items.resourcesCacheCompression);
+
+        if (storageType == StorageType.direct) {
+            LOGGER.info(MessageFormat.format("Cached resources content will be stored in direct memory, up to {0} bytes",
+                String.valueOf(directMemoryLimit)));
+        }
+    }
+
+    public void release() {
+        directContentReferences.clear();
+        directMemoryUsed.set(0);
+    }
+
+    public StorageType getStorageType() {
+        return storageType;
+    }
+
+    public long getDirectMemoryLimit() {
+        return directMemoryLimit;
+    }
+
+    public boolean isCompressionEnabled() {
+        return compressionEnabled;
+    }
+
+    /**
+     * @return number of bytes of direct memory occupied by content that is still reachable
+     */
+    public long getDirectMemoryUsed() {
+        reclaimReleasedContents();
+        return directMemoryUsed.get();
+    }
+
+    /**
+     * Creates resource content from the data accumulated in buffer. Pooled segments of the chain are returned to their pool,
+     * so buffer should not be used after this call.
+     *
+     * @param buffer first link of bytes chain
+     */
+    public ResourceContent store(ByteBuffer buffer) {
+        if (storageType == StorageType.direct) {
+            int length = buffer.getLast().getTotalSize();
+
+            reclaimReleasedContents();
+
+            if (reserveDirectMemory(length)) {
+                java.nio.ByteBuffer directBuffer = java.nio.ByteBuffer.allocateDirect(length);
+
+                for (ByteBuffer link = buffer; link != null; link = link.getNext()) {
+                    directBuffer.put(link.getBytes(), 0, link.getUsedSize());
+                }
+
+                directBuffer.flip();
+
+                if (buffer.isPooled()) {
+                    buffer.release();
+                }
+
+                ResourceContent content = new DirectResourceContent(directBuffer);
+                directContentReferences.add(new DirectContentReference(content, length, releasedContents));
+
+                return content;
+            } else if (LOGGER.isDebugEnabled()) {
+                LOGGER.debug(MessageFormat.format("Direct memory limit reached, storing {0} bytes of content on heap",
+                    String.valueOf(length)));
+            }
+        }
+
+        buffer.compact();
+
+        return new HeapResourceContent(buffer);
+    }
+
+    /**
+     * Creates gzip-compressed copy of content.
+     *
+     * @param content content to compress
+     * @param contentType type of content
+     * @return compressed content or <code>null</code> if content is not worth compressing
+     */
+    public ResourceContent compress(ResourceContent content, String contentType) throws IOException {
+        if (!compressionEnabled || content.getLength() < MIN_COMPRESSIBLE_LENGTH
+            || !ResourceUtils.isCompressibleContentType(contentType)) {
+
+            return null;
+        }
+
+        FastBufferOutputStream os = new FastBufferOutputStream(SegmentPool.getInstance());
+        GZIPOutputStream gzipStream = new GZIPOutputStream(os);
+
+        content.writeTo(gzipStream);
+        gzipStream.close();
+
+        if (os.getLength() > MAX_COMPRESSION_RATIO * content.getLength()) {
+            os.release();
+            return null;
+        }
+
+        return store(os.getFirstBuffer());
+    }
+
+    private boolean reserveDirectMemory(int length) {
+        while (true) {
+            long used = directMemoryUsed.get();
+
+            if (used + length > directMemoryLimit) {
+                return false;
+            }
+
+            if (directMemoryUsed.compareAndSet(used, used + length)) {
+                return true;
+            }
+        }
+    }
+
+    private void reclaimReleasedContents() {
+        Reference<? extends ResourceContent> reference;
+
+        while ((reference = releasedContents.poll()) != null) {
+            DirectContentReference contentReference = (DirectContentReference) reference;
+
+            if (directContentReferences.remove(contentReference)) {
+                directMemoryUsed.addAndGet(-contentReference.length);
+            }
+        }
+    }
+
+    private static final class DirectContentReference extends PhantomReference<ResourceContent> {
+        private final int length;
+
+        public DirectContentReference(ResourceContent referent, int length, ReferenceQueue<? super ResourceContent> queue) {
+            super(referent, queue);
+            this.length = length;
+        }
+    }
+}
@@ -28,6 +28,7 @@ import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.concurrent.ConcurrentMap;
 
 import javax.faces.application.ProjectStage;
 import javax.faces.application.Resource;
@@ -38,6 +39,7 @@ import org.richfaces.application.DependencyInjector;
 import org.richfaces.application.ServiceTracker;
 import org.richfaces.log.Logger;
 import org.richfaces.log.RichfacesLogger;
+import org.richfaces.resource.css.CSSTemplate;
 import org.richfaces.util.LazyLoadingObject;
 import org.richfaces.util.PropertiesUtil;
 import org.richfaces.util.URLUtils;
@@ -45,6 +47,7 @@ import org.richfaces.util.Util;
 
 import com.google.common.base.Function;
 import com.google.common.base.Strings;
+import com.google.common.collect.MapMaker;
 import com.google.common.collect.Maps;
 
 /**
@@ -127,6 +130,7 @@ public class ResourceFactoryImpl implements ResourceFactory {
     private ResourceHandler defaultHandler;
     private Map<ResourceKey, ExternalStaticResourceFactory> externalStaticResourceFactories;
     private Map<ResourceKey, MappedResourceData> mappedResourceDataMap;
+    private ConcurrentMap<ResourceKey, CSSTemplate> cssTemplates = new MapMaker().makeMap();
 
     public ResourceFactoryImpl(ResourceHandler defaultHandler) {
         super();
@@ -182,7 +186,7 @@ public class ResourceFactoryImpl implements ResourceFactory {
         Resource sourceResource = defaultHandler.createResource(resourceKey.getResourceName(), resourceKey.getLibraryName(),
                 "text/plain");
         if (sourceResource != null) {
-            return new CompiledCSSResource(sourceResource);
+            return new CompiledCSSResource(sourceResource, cssTemplates);
         }
 
         return null;
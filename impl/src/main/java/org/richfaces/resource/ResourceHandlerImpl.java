@@ -20,15 +20,28 @@
  */
 package org.richfaces.resource;
 
+import static org.richfaces.application.configuration.ConfigurationServiceHelper.getIntConfigurationValue;
+
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InterruptedIOException;
 import java.io.OutputStream;
+import java.nio.charset.Charset;
 import java.text.MessageFormat;
+import java.util.Collections;
 import java.util.Date;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Map.Entry;
-
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.faces.FacesException;
 import javax.faces.application.ProjectStage;
 import javax.faces.application.Resource;
 import javax.faces.application.ResourceHandler;
@@ -37,14 +50,19 @@ import javax.faces.context.ExternalContext;
 import javax.faces.context.FacesContext;
 import javax.servlet.http.HttpServletResponse;
 
+import org.ajax4jsf.io.ByteBuffer;
+import org.richfaces.application.CoreConfiguration;
 import org.richfaces.application.ServiceTracker;
 import org.richfaces.cache.Cache;
 import org.richfaces.log.Logger;
 import org.richfaces.log.RichfacesLogger;
 import org.richfaces.renderkit.html.ResourceLibraryRenderer;
+import org.richfaces.util.HttpDateCodec;
 import org.richfaces.util.RequestStateManager.BooleanRequestStateVariable;
 import org.richfaces.util.Util;
 
+import com.google.common.cache.CacheBuilder;
+
 /**
  * @author Nick Belaevski
  * @since 4.0
@@ -54,13 +72,25 @@ public class ResourceHandlerImpl extends ResourceHandlerWrapper {
     public static final String RICHFACES_RESOURCE_IDENTIFIER = "/rfRes/";
     public static final String RESOURCE_CACHE_NAME = "org.richfaces.ResourcesCache";
     public static final String HANDLER_START_TIME_ATTRIBUTE = ResourceHandlerImpl.class.getName() + ":StartTime";
+    static final String GZIP_ENCODING = "gzip";
+    private static final int MAX_OVERSIZED_RESOURCE_KEYS = 1024;
     private static final Logger LOGGER = RichfacesLogger.RESOURCE.getLogger();
     private ResourceFactory resourceFactory;
     private ResourceHandler defaultHandler;
+    private final ConcurrentMap<String, FutureTask<Resource>> pendingResources = new ConcurrentHashMap<String, FutureTask<Resource>>();
+    private final AtomicLong materializedResourcesCount = new AtomicLong();
+    private final AtomicLong coalescedRequestsCount = new AtomicLong();
+    // keys of resources whose content exceeds cacheable length, least recently added keys are evicted
+    private final Set<String> oversizedResourceKeys = Collections.newSetFromMap(CacheBuilder.newBuilder()
+        .maximumSize(MAX_OVERSIZED_RESOURCE_KEYS).<String, Boolean>build().asMap());
 
     public ResourceHandlerImpl(ResourceHandler defaultHandler) {
+        this(defaultHandler, new ResourceFactoryImpl(defaultHandler));
+    }
+
+    ResourceHandlerImpl(ResourceHandler defaultHandler, ResourceFactory resourceFactory) {
         this.defaultHandler = defaultHandler;
-        this.resourceFactory = new ResourceFactoryImpl(defaultHandler);
+        this.resourceFactory = resourceFactory;
 
         if (LOGGER.isDebugEnabled()) {
             LOGGER.debug(MessageFormat.format("Instance of {0} resource handler created", getClass().getName()));
@@ -119,13 +149,152 @@ public class ResourceHandlerImpl extends ResourceHandlerWrapper {
         return resource;
     }
 
-    private static void sendNotModified(FacesContext context) {
+    /**
+     * Creates resource for the request data and stores it in cache if it is cacheable. Requests for the same resource key
+     * issued concurrently are coalesced: only the first of them renders resource, the others wait for it to complete and
+     * share its cached copy.
+     * <p>
+     * Content produced by {@link ContentProducerResource} is captured directly into the cache storage. Nothing is sent to
+     * the user agent while resource is being rendered, so waiting requests don't depend on the network transfer to the
+     * client of the rendering request, and a failure of that transfer doesn't affect them.
+     */
+    Resource materializeResource(FacesContext context, Cache cache, ResourceRequestData data) throws IOException {
+
+        String resourceKey = data.getResourceKey();
+
+        FutureTask<Resource> resourceFuture = pendingResources.get(resourceKey);
+        boolean owner = false;
+
+        if (resourceFuture == null) {
+            FutureTask<Resource> newResourceFuture = new FutureTask<Resource>(new ResourceMaterializer(context, cache, data));
+            resourceFuture = pendingResources.putIfAbsent(resourceKey, newResourceFuture);
+
+            if (resourceFuture == null) {
+                resourceFuture = newResourceFuture;
+                owner = true;
+            }
+        }
+
+        if (owner) {
+            try {
+                resourceFuture.run();
+            } finally {
+                pendingResources.remove(resourceKey, resourceFuture);
+            }
+
+            return getMaterializedResource(resourceFuture);
+        }
+
+        coalescedRequestsCount.incrementAndGet();
+
+        if (LOGGER.isDebugEnabled()) {
+            LOGGER.debug(MessageFormat.format("Waiting for concurrent request to render {0} resource", resourceKey));
+        }
+
+        Resource resource = getMaterializedResource(resourceFuture);
+
+        if (resource == null || resource instanceof CachedResourceImpl) {
+            return resource;
+        }
+
+        // resource that has not been cached cannot be shared between requests
+        return new ResourceMaterializer(context, cache, data).call();
+    }
+
+    private static Resource getMaterializedResource(FutureTask<Resource> resourceFuture) throws IOException {
+        try {
+            return resourceFuture.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException(e.getMessage());
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+
+            throw new FacesException(cause);
+        }
+    }
+
+    /**
+     * @return number of resources rendered by this handler on cache misses
+     */
+    public long getMaterializedResourcesCount() {
+        return materializedResourcesCount.get();
+    }
+
+    /**
+     * @return number of requests that have been served by resource rendered for another concurrent request
+     */
+    public long getCoalescedRequestsCount() {
+        return coalescedRequestsCount.get();
+    }
+
+    ResourceFactory getResourceFactory() {
+        return resourceFactory;
+    }
+
+    /**
+     * Selects content variant that should be sent to user agent and sets content negotiation headers.
+     *
+     * @return <code>true</code> if compressed content variant should be sent
+     */
+    private static boolean selectCompressedContent(ExternalContext externalContext, CachedResourceImpl resource) {
+        if (resource.getCompressedContent() == null) {
+            return false;
+        }
+
+        externalContext.setResponseHeader("Vary", "Accept-Encoding");
+
+        if (resource.isCompressedContentAccepted(externalContext)) {
+            externalContext.setResponseHeader("Content-Encoding", GZIP_ENCODING);
+
+            return true;
+        }
+
+        return false;
+    }
+
+    private static void sendNotModified(FacesContext context, Resource resource) {
         if (LOGGER.isDebugEnabled()) {
             LOGGER.debug("User agent has actual resource copy - sending 304 status code");
         }
 
-        // TODO send cacheable resource headers (ETag + LastModified)?
-        context.getExternalContext().setResponseStatus(HttpServletResponse.SC_NOT_MODIFIED);
+        ExternalContext externalContext = context.getExternalContext();
+
+        if (resource instanceof CachedResourceImpl) {
+            CachedResourceImpl cachedResource = (CachedResourceImpl) resource;
+            cachedResource.applyNotModifiedHeaders(externalContext, cachedResource.isCompressedContentAccepted(externalContext));
+
+            if (cachedResource.getCompressedContent() != null) {
+                externalContext.setResponseHeader("Vary", "Accept-Encoding");
+            }
+        } else if (resource instanceof AbstractCacheableResource) {
+            AbstractCacheableResource cacheableResource = (AbstractCacheableResource) resource;
+            String entityTag = cacheableResource.getEntityTag(context);
+
+            if (entityTag != null) {
+                externalContext.setResponseHeader("ETag", entityTag);
+            }
+
+            long lastModified = cacheableResource.getLastModifiedTime(context);
+
+            if (lastModified != HttpDateCodec.NO_DATE) {
+                externalContext.setResponseHeader("Last-Modified", HttpDateCodec.format(lastModified));
+            }
+        }
+
+        externalContext.setResponseStatus(HttpServletResponse.SC_NOT_MODIFIED);
     }
 
     public static void sendResourceNotFound(FacesContext context) {
@@ -148,7 +317,7 @@ public class ResourceHandlerImpl extends ResourceHandlerWrapper {
             Resource resource = lookupInCache(cache, data.getResourceKey());
 
             if (resource == null) {
-                resource = resourceFactory.createResource(context, data);
+                resource = materializeResource(context, cache, data);
             }
 
             if (resource == null) {
@@ -156,107 +325,105 @@ public class ResourceHandlerImpl extends ResourceHandlerWrapper {
                 return;
             }
 
-            if (resource instanceof CacheableResource) {
-                CacheableResource cacheableResource = (CacheableResource) resource;
+            if (resource.userAgentNeedsUpdate(context)) {
+                if (LOGGER.isDebugEnabled()) {
+                    LOGGER.debug("User agent needs resource update, encoding resource");
+                }
 
-                if (cacheableResource.isCacheable(context)) {
+                if (resource instanceof CachedResourceImpl) {
+                    encodeCachedResource(context, (CachedResourceImpl) resource);
+                } else {
+                    encodeResource(context, resource);
+                }
 
-                    // TODO - we could move this part of code to ConcurrentMap so that
-                    // only single thread does resource put
-                    CachedResourceImpl cachedResource = new CachedResourceImpl();
+                if (LOGGER.isDebugEnabled()) {
+                    LOGGER.debug("Resource succesfully encoded");
+                }
+            } else {
+                sendNotModified(context, resource);
+            }
+        } else {
+            if (LOGGER.isDebugEnabled()) {
+                LOGGER.debug("Passing request to the next resource handler in chain");
+            }
 
-                    cachedResource.initialize(resource);
+            defaultHandler.handleResourceRequest(context);
+        }
+    }
 
-                    // someone may provided this resource for us
-                    // while we were reading it, check once again
-                    resource = lookupInCache(cache, data.getResourceKey());
+    /**
+     * Sends cached resource using its pre-computed headers; stored content is written directly, without copying it through
+     * intermediate buffer.
+     */
+    private static void encodeCachedResource(FacesContext context, CachedResourceImpl resource) throws IOException {
+        ExternalContext externalContext = context.getExternalContext();
+        boolean compressed = selectCompressedContent(externalContext, resource);
+        ResourceContent content = compressed ? resource.getCompressedContent() : resource.getContent();
 
-                    if (resource == null) {
-                        // don't cache it on Development stage
-                        if (!ProjectStage.Development.equals(context.getApplication().getProjectStage())) {
-                            Date cacheExpirationDate = cachedResource.getExpired(context);
-                            if (LOGGER.isDebugEnabled()) {
-                                LOGGER.debug(new MessageFormat(
-                                        "Storing {0} resource in cache until {1,date,dd MMM yyyy HH:mm:ss zzz}", Locale.US)
-                                        .format(new Object[]{data.getResourceKey(), cacheExpirationDate}));
-                            }
-                            cache.put(data.getResourceKey(), cachedResource, cacheExpirationDate);
-                        }
-                        resource = cachedResource;
-                    }
-                }
-            }
+        resource.applyResponseHeaders(externalContext, compressed);
 
-            if (resource.userAgentNeedsUpdate(context)) {
-                if (LOGGER.isDebugEnabled()) {
-                    LOGGER.debug("User agent needs resource update, encoding resource");
-                }
+        String contentType = resource.getContentType();
 
-                ExternalContext externalContext = context.getExternalContext();
-                Map<String, String> headers = resource.getResponseHeaders();
+        if (contentType != null) {
+            externalContext.setResponseContentType(contentType);
+        }
 
-                for (Entry<String, String> headerEntry : headers.entrySet()) {
-                    String headerName = headerEntry.getKey();
-                    String headerValue = headerEntry.getValue();
+        externalContext.setResponseContentLength(content.getLength());
+        content.writeTo(externalContext.getResponseOutputStream());
+    }
 
-                    // TODO should external context handles this itself?
-                    if ("content-length".equals(headerName.toLowerCase(Locale.US))) {
-                        try {
-                            externalContext.setResponseContentLength(Integer.parseInt(headerValue));
-                        } catch (NumberFormatException e) {
+    private static void encodeResource(FacesContext context, Resource resource) throws IOException {
+        ExternalContext externalContext = context.getExternalContext();
+        Map<String, String> headers = resource.getResponseHeaders();
 
-                            // TODO: handle exception
-                        }
-                    } else {
-                        externalContext.setResponseHeader(headerName, headerValue);
-                    }
-                }
+        for (Entry<String, String> headerEntry : headers.entrySet()) {
+            String headerName = headerEntry.getKey();
+            String headerValue = headerEntry.getValue();
 
-                // TODO null content type?
-                String contentType = resource.getContentType();
+            // TODO should external context handles this itself?
+            if ("content-length".equalsIgnoreCase(headerName)) {
+                try {
+                    externalContext.setResponseContentLength(Integer.parseInt(headerValue));
+                } catch (NumberFormatException e) {
 
-                if (contentType != null) {
-                    externalContext.setResponseContentType(contentType);
+                    // TODO: handle exception
                 }
+            } else {
+                externalContext.setResponseHeader(headerName, headerValue);
+            }
+        }
 
-                if (resource instanceof ContentProducerResource) {
-                    ContentProducerResource contentProducerResource = (ContentProducerResource) resource;
-                    contentProducerResource.encode(context);
-                } else {
-                    // TODO setup output buffer size according to configuration parameter
-                    InputStream is = resource.getInputStream();
-                    OutputStream os = externalContext.getResponseOutputStream();
+        // TODO null content type?
+        String contentType = resource.getContentType();
+
+        if (contentType != null) {
+            externalContext.setResponseContentType(contentType);
+        }
 
+        if (resource instanceof ContentProducerResource) {
+            ContentProducerResource contentProducerResource = (ContentProducerResource) resource;
+            contentProducerResource.encode(context);
+        } else {
+            // TODO setup output buffer size according to configuration parameter
+            InputStream is = resource.getInputStream();
+            OutputStream os = externalContext.getResponseOutputStream();
+
+            try {
+                Util.copyStreamContent(is, os);
+            } finally {
+                if (is != null) {
                     try {
-                        Util.copyStreamContent(is, os);
-                    } finally {
-                        if (is != null) {
-                            try {
-                                is.close();
-                            } catch (IOException e) {
-                                if (LOGGER.isDebugEnabled()) {
-                                    LOGGER.debug(e.getMessage(), e);
-                                }
-                            }
+                        is.close();
+                    } catch (IOException e) {
+                        if (LOGGER.isDebugEnabled()) {
+                            LOGGER.debug(e.getMessage(), e);
                         }
-
-                        // TODO flush resource
-                        // TODO dispose resource
                     }
                 }
 
-                if (LOGGER.isDebugEnabled()) {
-                    LOGGER.debug("Resource succesfully encoded");
-                }
-            } else {
-                sendNotModified(context);
+                // TODO flush resource
+                // TODO dispose resource
             }
-        } else {
-            if (LOGGER.isDebugEnabled()) {
-                LOGGER.debug("Passing request to the next resource handler in chain");
-            }
-
-            defaultHandler.handleResourceRequest(context);
         }
     }
 
@@ -303,4 +470,102 @@ public class ResourceHandlerImpl extends ResourceHandlerWrapper {
     public ResourceHandler getWrapped() {
         return defaultHandler;
     }
+
+    /**
+     * @return produced content
+     */
+    private static ByteBuffer captureContent(FacesContext context, ContentProducerResource resource) throws IOException {
+        Charset charset = Util.getCharsetFromContentType(((Resource) resource).getContentType());
+        CapturingFacesContextWrapper capturingContext = CapturingFacesContextWrapper.wrap(context, charset);
+
+        try {
+            resource.encode(capturingContext);
+            return capturingContext.finish();
+        } finally {
+            capturingContext.unwrap();
+        }
+    }
+
+    private void markOversized(String resourceKey, int maxContentLength) {
+        if (LOGGER.isDebugEnabled()) {
+            LOGGER.debug(MessageFormat.format("Resource {0} won''t be cached: its content exceeds {1} bytes", resourceKey,
+                String.valueOf(maxContentLength)));
+        }
+
+        oversizedResourceKeys.add(resourceKey);
+    }
+
+    private final class ResourceMaterializer implements Callable<Resource> {
+        private final FacesContext context;
+        private final Cache cache;
+        private final ResourceRequestData data;
+
+        public ResourceMaterializer(FacesContext context, Cache cache, ResourceRequestData data) {
+            this.context = context;
+            this.cache = cache;
+            this.data = data;
+        }
+
+        public Resource call() throws IOException {
+            String resourceKey = data.getResourceKey();
+
+            // someone may have provided this resource for us while we were waiting
+            Resource resource = lookupInCache(cache, resourceKey);
+
+            if (resource != null) {
+                return resource;
+            }
+
+            resource = resourceFactory.createResource(context, data);
+
+            if (!(resource instanceof CacheableResource) || !((CacheableResource) resource).isCacheable(context)) {
+                return resource;
+            }
+
+            // don't cache it on Development stage
+            boolean cacheEnabled = !ProjectStage.Development.equals(context.getApplication().getProjectStage());
+            boolean contentProducer = resource instanceof ContentProducerResource;
+
+            if (contentProducer && !cacheEnabled) {
+                // content is encoded directly to user agent
+                return resource;
+            }
+
+            if (oversizedResourceKeys.contains(resourceKey)) {
+                // content will be streamed to user agent, no need to buffer it
+                return resource;
+            }
+
+            int maxContentLength = getIntConfigurationValue(context, CoreConfiguration.Items.resourcesCacheMaxContentLength);
+            ResourceContentStorage contentStorage = ServiceTracker.getService(context, ResourceContentStorage.class);
+            CachedResourceImpl cachedResource = new CachedResourceImpl();
+
+            if (contentProducer) {
+                ByteBuffer content = captureContent(context, (ContentProducerResource) resource);
+                cachedResource.initialize(resource, contentStorage, content);
+            } else {
+                cachedResource.initialize(resource, contentStorage);
+            }
+
+            if (cachedResource.getContent().getLength() > maxContentLength) {
+                // content that has been read is sent, later requests stream it without buffering
+                markOversized(resourceKey, maxContentLength);
+                return cachedResource;
+            }
+
+            materializedResourcesCount.incrementAndGet();
+
+            if (cacheEnabled) {
+                Date cacheExpirationDate = cachedResource.getExpired(context);
+                if (LOGGER.isDebugEnabled()) {
+                    LOGGER.debug(new MessageFormat(
+                            "Storing {0} resource in cache until {1,date,dd MMM yyyy HH:mm:ss zzz}", Locale.US)
+                            .format(new Object[]{resourceKey, cacheExpirationDate}));
+                }
+                cache.put(resourceKey, cachedResource, cacheExpirationDate);
+            }
+
+            return cachedResource;
+        }
+    }
 }
\ No newline at end of file
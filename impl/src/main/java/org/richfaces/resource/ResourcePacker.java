@@ -0,0 +1,424 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2010, Red Hat, Inc. and individual contributors
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.richfaces.resource;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UnsupportedEncodingException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.text.MessageFormat;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+import javax.faces.FacesException;
+import javax.faces.application.Resource;
+import javax.faces.application.ResourceHandler;
+import javax.faces.context.FacesContext;
+
+import org.richfaces.application.ServiceTracker;
+import org.richfaces.cache.Cache;
+import org.richfaces.log.Logger;
+import org.richfaces.log.RichfacesLogger;
+import org.richfaces.skin.SkinFactory;
+import org.richfaces.util.Util;
+
+/**
+ * <p class="changed_added_4_3">
+ * Concatenates scripts or stylesheets requested by a view into a single {@link PackedResource}. Resources are packed in
+ * the order they are requested; packing stops at the first resource that cannot be packed (external, missing or
+ * stylesheet with relative URLs or <code>@import</code> rules), so that the rest of resources keep their relative order
+ * when rendered separately.
+ * </p>
+ * <p class="changed_added_4_3">
+ * Results are kept in the resources {@link Cache}, keyed by the packed resource keys (and skin for stylesheets, as
+ * compiled ECSS content depends on it), so the content is read and hashed only once per resource set.
+ * </p>
+ */
+public final class ResourcePacker {
+    private static final Logger LOGGER = RichfacesLogger.RESOURCE.getLogger();
+    private static final String PACK_KEY_PREFIX = ResourcePacker.class.getName() + ":";
+    private static final String CSS_URL = "url(";
+    private static final String[] CSS_UNPACKABLE_RULES = { "@import", "@charset" };
+
+    public enum Type {
+        STYLESHEET("javax.faces.resource.Stylesheet", "text/css", "\n"),
+        SCRIPT("javax.faces.resource.Script", "text/javascript", "\n;\n");
+        private final String rendererType;
+        private final String contentType;
+        private final byte[] separator;
+
+        private Type(String rendererType, String contentType, String separator) {
+            this.rendererType = rendererType;
+            this.contentType = contentType;
+            this.separator = separator.getBytes();
+        }
+
+        public String getRendererType() {
+            return rendererType;
+        }
+
+        /**
+         * @return type of resources rendered by the given renderer, or <code>null</code> if resources of this renderer are
+         *         not packed
+         */
+        public static Type forRendererType(String rendererType) {
+            for (Type type : values()) {
+                if (type.rendererType.equals(rendererType)) {
+                    return type;
+                }
+            }
+
+            return null;
+        }
+    }
+
+    /**
+     * Packed resource for the leading part of the requested resources
+     */
+    public static final class Pack {
+        private static final Pack NOT_PACKED = new Pack(null, null, null, Collections.<ResourceKey>emptyList());
+        private final String hash;
+        private final Type type;
+        private final String skinName;
+        private final List<ResourceKey> resourceKeys;
+
+        private Pack(String hash, Type type, String skinName, List<ResourceKey> resourceKeys) {
+            this.hash = hash;
+            this.type = type;
+            this.skinName = skinName;
+            this.resourceKeys = resourceKeys;
+        }
+
+        /**
+         * @return number of leading resources included into the pack
+         */
+        public int getSize() {
+            return resourceKeys.size();
+        }
+
+        String getHash() {
+            return hash;
+        }
+
+        PackedResource createResource() {
+            return new PackedResource(hash, type, skinName, resourceKeys);
+        }
+
+        public String getRequestPath() {
+            return createResource().getRequestPath();
+        }
+    }
+
+    private ResourcePacker() {
+    }
+
+    private static String getSkinName(FacesContext context, Type type) {
+        return type == Type.STYLESHEET ? SkinFactory.getInstance(context).getSkin(context).getName() : null;
+    }
+
+    private static String getPackKey(FacesContext context, Type type, List<ResourceKey> resourceKeys) {
+        StringBuilder key = new StringBuilder(PACK_KEY_PREFIX).append(type);
+
+        if (type == Type.STYLESHEET) {
+            key.append(':').append(SkinFactory.getInstance(context).getSkin(context).hashCode(context));
+        }
+
+        for (ResourceKey resourceKey : resourceKeys) {
+            key.append(':').append(resourceKey.getLibraryName()).append('/').append(resourceKey.getResourceName());
+        }
+
+        return key.toString();
+    }
+
+    /**
+     * Packs leading resources of the given list.
+     *
+     * @param context faces context
+     * @param type type of resources
+     * @param resourceKeys resources in the order they are requested
+     * @return pack, or <code>null</code> if less than two leading resources can be packed
+     */
+    public static Pack pack(FacesContext context, Type type, List<ResourceKey> resourceKeys) {
+        if (resourceKeys.size() < 2) {
+            return null;
+        }
+
+        Cache cache = ServiceTracker.getService(context, Cache.class);
+        String packKey = getPackKey(context, type, resourceKeys);
+        Pack pack = (Pack) cache.get(packKey);
+
+        if (pack == null || (pack.hash != null && PackedResource.getContent(context, pack.hash) == null)) {
+            pack = createPack(context, type, resourceKeys);
+            cache.put(packKey, pack, null);
+        }
+
+        return pack.hash != null ? pack : null;
+    }
+
+    /**
+     * Packs resources of a {@link PackedResource} again, when its content is no longer in the cache. Resource keys come
+     * from the request, so only resources of the pack type that are not excluded by
+     * <code>javax.faces.RESOURCE_EXCLUDES</code> are read, and nothing is stored in the cache.
+     *
+     * @param context faces context
+     * @param hash hash of the packed content
+     * @param type type of resources
+     * @param skinName name of the skin stylesheets have been packed for
+     * @param resourceKeys resources included into the pack
+     * @return packed content, or <code>null</code> if the given resources cannot be packed into the content with the
+     *         same hash for the current skin
+     */
+    static PackedResource.Content repack(FacesContext context, String hash, Type type, String skinName,
+        List<ResourceKey> resourceKeys) {
+
+        if (resourceKeys.size() < 2) {
+            return null;
+        }
+
+        if (type == Type.STYLESHEET && !getSkinName(context, type).equals(skinName)) {
+            // compiled stylesheets depend on the skin of the current request
+            return null;
+        }
+
+        ResourceHandler resourceHandler = context.getApplication().getResourceHandler();
+        String[] excludedSuffixes = getExcludedSuffixes(context);
+
+        for (ResourceKey resourceKey : resourceKeys) {
+            String resourceName = resourceKey.getResourceName();
+
+            if (!type.rendererType.equals(resourceHandler.getRendererTypeForResourceName(resourceName))
+                || isExcluded(resourceName, excludedSuffixes)) {
+
+                if (LOGGER.isDebugEnabled()) {
+                    LOGGER.debug(MessageFormat.format("Resource {0} can''t be packed as {1}", resourceKey, type));
+                }
+
+                return null;
+            }
+        }
+
+        ByteArrayOutputStream packedContent = new ByteArrayOutputStream();
+
+        if (appendContent(context, type, resourceKeys, packedContent) != resourceKeys.size()) {
+            return null;
+        }
+
+        byte[] data = packedContent.toByteArray();
+
+        if (!hash.equals(hash(data))) {
+            if (LOGGER.isDebugEnabled()) {
+                LOGGER.debug(MessageFormat.format("Content of packed resource {0} has changed", hash));
+            }
+
+            return null;
+        }
+
+        return new PackedResource.Content(type.contentType, data);
+    }
+
+    private static String[] getExcludedSuffixes(FacesContext context) {
+        String excludes = context.getExternalContext().getInitParameter(ResourceHandler.RESOURCE_EXCLUDES_PARAM_NAME);
+
+        if (excludes == null) {
+            excludes = ResourceHandler.RESOURCE_EXCLUDES_DEFAULT_VALUE;
+        }
+
+        return excludes.trim().split("\\s+");
+    }
+
+    private static boolean isExcluded(String resourceName, String[] excludedSuffixes) {
+        for (String suffix : excludedSuffixes) {
+            if (suffix.length() != 0 && resourceName.endsWith(suffix)) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * Appends content of the leading packable resources to the target.
+     *
+     * @return number of appended resources
+     */
+    private static int appendContent(FacesContext context, Type type, List<ResourceKey> resourceKeys,
+        ByteArrayOutputStream target) {
+
+        int size = 0;
+
+        for (ResourceKey resourceKey : resourceKeys) {
+            byte[] content = readContent(context, type, resourceKey);
+
+            if (content == null) {
+                break;
+            }
+
+            target.write(content, 0, content.length);
+            target.write(type.separator, 0, type.separator.length);
+            size++;
+        }
+
+        return size;
+    }
+
+    private static Pack createPack(FacesContext context, Type type, List<ResourceKey> resourceKeys) {
+        ByteArrayOutputStream packedContent = new ByteArrayOutputStream();
+        int size = appendContent(context, type, resourceKeys, packedContent);
+
+        if (size < 2) {
+            return Pack.NOT_PACKED;
+        }
+
+        byte[] data = packedContent.toByteArray();
+        String hash = hash(data);
+
+        PackedResource.putContent(context, hash, new PackedResource.Content(type.contentType, data));
+
+        if (LOGGER.isDebugEnabled()) {
+            LOGGER.debug(MessageFormat.format("Packed {0} resources into {1}: {2}", size, hash,
+                resourceKeys.subList(0, size)));
+        }
+
+        List<ResourceKey> packedKeys = new ArrayList<ResourceKey>(resourceKeys.subList(0, size));
+
+        return new Pack(hash, type, getSkinName(context, type), packedKeys);
+    }
+
+    private static byte[] readContent(FacesContext context, Type type, ResourceKey resourceKey) {
+        Resource resource = context.getApplication().getResourceHandler()
+            .createResource(resourceKey.getResourceName(), resourceKey.getLibraryName());
+
+        if (resource == null || resource instanceof AbsoluteRequestPathResource) {
+            return null;
+        }
+
+        InputStream stream = null;
+        try {
+            stream = resource.getInputStream();
+            if (stream == null) {
+                return null;
+            }
+
+            ByteArrayOutputStream content = new ByteArrayOutputStream();
+            Util.copyStreamContent(stream, content);
+            byte[] data = content.toByteArray();
+
+            if (type == Type.STYLESHEET && !(resource instanceof CompiledCSSResource) && !isPackableStylesheet(data)) {
+                if (LOGGER.isDebugEnabled()) {
+                    LOGGER.debug(MessageFormat.format("Stylesheet {0} is not packed: it has relative URLs or rules "
+                        + "that must come first", resourceKey));
+                }
+
+                return null;
+            }
+
+            return data;
+        } catch (IOException e) {
+            LOGGER.warn(MessageFormat.format("Unable to read {0} resource for packing: {1}", resourceKey, e.getMessage()), e);
+            return null;
+        } finally {
+            if (stream != null) {
+                try {
+                    stream.close();
+                } catch (IOException e) {
+                    LOGGER.debug(e.getMessage(), e);
+                }
+            }
+        }
+    }
+
+    /**
+     * Stylesheets are resolved against their own URL, so only those without relative URLs can be moved into the packed
+     * resource. <code>@import</code> and <code>@charset</code> rules are only valid at the start of stylesheet.
+     */
+    static boolean isPackableStylesheet(byte[] data) {
+        String css;
+        try {
+            css = new String(data, "ISO-8859-1").toLowerCase(Locale.US);
+        } catch (UnsupportedEncodingException e) {
+            throw new FacesException(e.getMessage(), e);
+        }
+
+        for (String rule : CSS_UNPACKABLE_RULES) {
+            if (css.indexOf(rule) >= 0) {
+                return false;
+            }
+        }
+
+        int idx = css.indexOf(CSS_URL);
+        while (idx >= 0) {
+            int start = idx + CSS_URL.length();
+
+            while (start < css.length() && (Character.isWhitespace(css.charAt(start)) || css.charAt(start) == '\''
+                || css.charAt(start) == '"')) {
+                start++;
+            }
+
+            if (!isAbsoluteUrl(css, start)) {
+                return false;
+            }
+
+            idx = css.indexOf(CSS_URL, start);
+        }
+
+        return true;
+    }
+
+    private static boolean isAbsoluteUrl(String css, int start) {
+        if (css.startsWith("/", start) || css.startsWith("data:", start)) {
+            return true;
+        }
+
+        int end = start;
+        while (end < css.length() && Character.isLetter(css.charAt(end))) {
+            end++;
+        }
+
+        return end > start && css.startsWith("://", end);
+    }
+
+    private static String hash(byte[] data) {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("MD5");
+        } catch (NoSuchAlgorithmException e) {
+            throw new FacesException("Unable to locate MD5 hash algorithm", e);
+        }
+
+        byte[] hash = digest.digest(data);
+        StringBuilder hexString = new StringBuilder(hash.length * 2);
+
+        for (byte b : hash) {
+            String hex = Integer.toHexString(0xFF & b);
+            if (hex.length() == 1) {
+                hexString.append('0');
+            }
+            hexString.append(hex);
+        }
+
+        return hexString.toString();
+    }
+}
@@ -0,0 +1,90 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2010, Red Hat, Inc. and individual contributors
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.richfaces.resource;
+
+import static org.richfaces.application.configuration.ConfigurationServiceHelper.getBooleanConfigurationValue;
+
+import java.util.List;
+
+import javax.faces.application.ProjectStage;
+import javax.faces.component.UIComponent;
+import javax.faces.component.UIViewRoot;
+import javax.faces.context.FacesContext;
+import javax.faces.event.AbortProcessingException;
+import javax.faces.event.SystemEvent;
+import javax.faces.event.SystemEventListener;
+
+import org.richfaces.application.CoreConfiguration;
+import org.richfaces.component.UIPackedResources;
+
+/**
+ * <p class="changed_added_4_3">
+ * Adds {@link UIPackedResources} as the first "head" resource of the view before it is rendered, if runtime resource
+ * packing is enabled. Packing is not done on Development stage, for Ajax requests and when resources are already packed by
+ * static resource mapping.
+ * </p>
+ */
+public class ResourcePackingListener implements SystemEventListener {
+    private static final String HEAD = "head";
+
+    private static boolean isEnabled(FacesContext context) {
+        return getBooleanConfigurationValue(context, CoreConfiguration.Items.resourceOptimizationRuntimePacking)
+            && !getBooleanConfigurationValue(context, CoreConfiguration.Items.resourceOptimizationEnabled)
+            && !context.isProjectStage(ProjectStage.Development) && !context.getPartialViewContext().isAjaxRequest();
+    }
+
+    public void processEvent(SystemEvent event) throws AbortProcessingException {
+        FacesContext context = FacesContext.getCurrentInstance();
+
+        if (!isEnabled(context)) {
+            return;
+        }
+
+        UIViewRoot viewRoot = (UIViewRoot) event.getSource();
+        List<UIComponent> resources = viewRoot.getComponentResources(context, HEAD);
+
+        for (UIComponent resource : resources) {
+            if (resource instanceof UIPackedResources) {
+                return;
+            }
+        }
+
+        UIComponent packedResources = context.getApplication().createComponent(UIPackedResources.COMPONENT_TYPE);
+
+        // workaround for Mojarra: RF-8937
+        boolean initialProcessingEvents = context.isProcessingEvents();
+        context.setProcessingEvents(false);
+        try {
+            // packed resources have to be rendered first
+            resources.add(0, packedResources);
+        } catch (UnsupportedOperationException e) {
+            // renderer only packs resources that follow it
+            viewRoot.addComponentResource(context, packedResources, HEAD);
+        } finally {
+            context.setProcessingEvents(initialProcessingEvents);
+        }
+    }
+
+    public boolean isListenerForSource(Object source) {
+        return source instanceof UIViewRoot;
+    }
+}
@@ -20,6 +20,7 @@
  */
 package org.richfaces.resource;
 
+import java.util.Locale;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -31,6 +32,9 @@ public final class ResourceUtils {
     private static final long MILLISECOND_IN_SECOND = 1000L;
     private static final String QUOTED_STRING_REGEX = "(?:\\\\[\\x00-\\x7F]|[^\"\\\\])+";
     private static final Pattern ETAG_PATTERN = Pattern.compile("(?:W/)?\"(" + QUOTED_STRING_REGEX + ")\"(?:,\\s*)?");
+    private static final Pattern QUALITY_PATTERN = Pattern.compile(";\\s*q\\s*=\\s*([0-9.]+)", Pattern.CASE_INSENSITIVE);
+    private static final String[] COMPRESSIBLE_CONTENT_TYPES = { "application/javascript", "application/x-javascript",
+            "application/ecmascript", "application/json", "application/xml", "image/svg+xml" };
 
     private ResourceUtils() {
     }
@@ -57,6 +61,28 @@ public final class ResourceUtils {
         return '\"' + eTag + '\"';
     }
 
+    /**
+     * Creates entity tag of a content variant by appending suffix to the opaque part of the given tag; weak tag stays
+     * weak.
+     *
+     * @param eTag formatted entity tag, e.g. <code>W/"123-456789"</code>, can be <code>null</code>
+     * @param suffix variant suffix
+     * @return formatted variant entity tag or <code>null</code> if no entity tag was given or it isn't quoted
+     */
+    public static String formatVariantTag(String eTag, String suffix) {
+        if (eTag == null) {
+            return null;
+        }
+
+        int closingQuoteIdx = eTag.lastIndexOf('"');
+
+        if (closingQuoteIdx <= 0 || eTag.indexOf('"') == closingQuoteIdx) {
+            return null;
+        }
+
+        return eTag.substring(0, closingQuoteIdx) + suffix + eTag.substring(closingQuoteIdx);
+    }
+
     public static boolean matchTag(String eTag, String eTagHeaderValue) {
         if ((eTag == null) || (eTagHeaderValue == null)) {
             throw new IllegalArgumentException("tag and tagHeaderValue must be not null");
@@ -80,6 +106,79 @@ public final class ResourceUtils {
         return false;
     }
 
+    /**
+     * Checks whether content encoding is acceptable for user agent.
+     *
+     * @param encoding content encoding, e.g. <code>gzip</code>
+     * @param acceptEncodingHeaderValue value of <code>Accept-Encoding</code> request header, can be <code>null</code>
+     */
+    public static boolean isEncodingAccepted(String encoding, String acceptEncodingHeaderValue) {
+        if (acceptEncodingHeaderValue == null) {
+            return false;
+        }
+
+        Boolean wildcardAccepted = null;
+
+        for (String codingValue : acceptEncodingHeaderValue.split(",")) {
+            int parametersIdx = codingValue.indexOf(';');
+            String coding = ((parametersIdx < 0) ? codingValue : codingValue.substring(0, parametersIdx)).trim();
+            boolean accepted = true;
+
+            if (parametersIdx >= 0) {
+                Matcher qualityMatcher = QUALITY_PATTERN.matcher(codingValue.substring(parametersIdx));
+
+                if (qualityMatcher.find()) {
+                    try {
+                        accepted = Float.parseFloat(qualityMatcher.group(1)) > 0;
+                    } catch (NumberFormatException e) {
+                        accepted = false;
+                    }
+                }
+            }
+
+            if (encoding.equalsIgnoreCase(coding)) {
+                return accepted;
+            }
+
+            if ("*".equals(coding)) {
+                wildcardAccepted = accepted;
+            }
+        }
+
+        return Boolean.TRUE.equals(wildcardAccepted);
+    }
+
+    /**
+     * Checks whether content of the given type benefits from compression. Images other than SVG, archives and other binary
+     * types are typically compressed already.
+     */
+    public static boolean isCompressibleContentType(String contentType) {
+        if (contentType == null) {
+            return false;
+        }
+
+        String mimeType = contentType;
+        int parametersIdx = mimeType.indexOf(';');
+
+        if (parametersIdx >= 0) {
+            mimeType = mimeType.substring(0, parametersIdx);
+        }
+
+        mimeType = mimeType.trim().toLowerCase(Locale.US);
+
+        if (mimeType.startsWith("text/")) {
+            return true;
+        }
+
+        for (String compressibleContentType : COMPRESSIBLE_CONTENT_TYPES) {
+            if (compressibleContentType.equals(mimeType)) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
     public static long millisToSecond(long millisecond) {
         return millisecond / MILLISECOND_IN_SECOND;
     }
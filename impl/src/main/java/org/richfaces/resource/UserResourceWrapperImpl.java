@@ -35,7 +35,6 @@ import javax.faces.context.ExternalContextWrapper;
 import javax.faces.context.FacesContext;
 import javax.faces.context.FacesContextWrapper;
 
-import org.ajax4jsf.io.ByteBuffer;
 import org.ajax4jsf.io.FastBufferInputStream;
 import org.ajax4jsf.io.FastBufferOutputStream;
 import org.richfaces.util.Util;
@@ -130,9 +129,7 @@ public class UserResourceWrapperImpl extends BaseResourceWrapper<UserResource> i
             flushBuffers();
 
             if (stream != null) {
-                ByteBuffer firstBuffer = stream.getFirstBuffer();
-                firstBuffer.compact();
-                return new FastBufferInputStream(firstBuffer);
+                return new FastBufferInputStream(stream.getFirstBuffer());
             } else {
                 return EMPTY_STREAM;
             }
@@ -0,0 +1,331 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2010, Red Hat, Inc. and individual contributors
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.richfaces.resource;
+
+import java.io.InputStream;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.security.Principal;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+import javax.faces.context.ExternalContext;
+import javax.servlet.ServletContext;
+
+import com.google.common.collect.Iterators;
+
+/**
+ * External context that is backed by servlet context only. Used by resource cache warm-up threads that run outside of any
+ * request, after the startup faces context has been released; describes request without headers, parameters and session.
+ *
+ * @since 4.3
+ */
+final class WarmUpExternalContext extends ExternalContext {
+    private final ServletContext servletContext;
+    private final Map<String, Object> applicationMap;
+    private final Map<String, String> initParameterMap;
+    private final Map<String, Object> requestMap = new HashMap<String, Object>();
+
+    WarmUpExternalContext(ServletContext servletContext) {
+        this.servletContext = servletContext;
+        this.applicationMap = new ServletContextAttributesMap(servletContext);
+
+        Map<String, String> initParameters = new HashMap<String, String>();
+
+        for (Enumeration<String> names = servletContext.getInitParameterNames(); names.hasMoreElements();) {
+            String name = names.nextElement();
+            initParameters.put(name, servletContext.getInitParameter(name));
+        }
+
+        this.initParameterMap = Collections.unmodifiableMap(initParameters);
+    }
+
+    @Override
+    public void dispatch(String path) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public String encodeActionURL(String url) {
+        return url;
+    }
+
+    @Override
+    public String encodeNamespace(String name) {
+        return name;
+    }
+
+    @Override
+    public String encodeResourceURL(String url) {
+        return url;
+    }
+
+    @Override
+    public Map<String, Object> getApplicationMap() {
+        return applicationMap;
+    }
+
+    @Override
+    public String getAuthType() {
+        return null;
+    }
+
+    @Override
+    public Object getContext() {
+        return servletContext;
+    }
+
+    @Override
+    public String getContextName() {
+        return servletContext.getServletContextName();
+    }
+
+    @Override
+    public String getInitParameter(String name) {
+        return servletContext.getInitParameter(name);
+    }
+
+    @SuppressWarnings("rawtypes")
+    @Override
+    public Map getInitParameterMap() {
+        return initParameterMap;
+    }
+
+    @Override
+    public String getMimeType(String file) {
+        return servletContext.getMimeType(file);
+    }
+
+    @Override
+    public String getRealPath(String path) {
+        return servletContext.getRealPath(path);
+    }
+
+    @Override
+    public String getRemoteUser() {
+        return null;
+    }
+
+    @Override
+    public Object getRequest() {
+        return null;
+    }
+
+    @Override
+    public String getRequestContextPath() {
+        return servletContext.getContextPath();
+    }
+
+    @Override
+    public Map<String, Object> getRequestCookieMap() {
+        return Collections.emptyMap();
+    }
+
+    @Override
+    public Map<String, String> getRequestHeaderMap() {
+        return Collections.emptyMap();
+    }
+
+    @Override
+    public Map<String, String[]> getRequestHeaderValuesMap() {
+        return Collections.emptyMap();
+    }
+
+    @Override
+    public Locale getRequestLocale() {
+        return Locale.getDefault();
+    }
+
+    @Override
+    public Iterator<Locale> getRequestLocales() {
+        return Iterators.singletonIterator(Locale.getDefault());
+    }
+
+    @Override
+    public Map<String, Object> getRequestMap() {
+        return requestMap;
+    }
+
+    @Override
+    public Map<String, String> getRequestParameterMap() {
+        return Collections.emptyMap();
+    }
+
+    @Override
+    public Iterator<String> getRequestParameterNames() {
+        return Iterators.emptyIterator();
+    }
+
+    @Override
+    public Map<String, String[]> getRequestParameterValuesMap() {
+        return Collections.emptyMap();
+    }
+
+    @Override
+    public String getRequestPathInfo() {
+        return null;
+    }
+
+    @Override
+    public String getRequestServletPath() {
+        return null;
+    }
+
+    @Override
+    public URL getResource(String path) throws MalformedURLException {
+        return servletContext.getResource(path);
+    }
+
+    @Override
+    public InputStream getResourceAsStream(String path) {
+        return servletContext.getResourceAsStream(path);
+    }
+
+    @Override
+    public Set<String> getResourcePaths(String path) {
+        return servletContext.getResourcePaths(path);
+    }
+
+    @Override
+    public Object getResponse() {
+        return null;
+    }
+
+    @Override
+    public Object getSession(boolean create) {
+        return null;
+    }
+
+    @Override
+    public Map<String, Object> getSessionMap() {
+        return Collections.emptyMap();
+    }
+
+    @Override
+    public Principal getUserPrincipal() {
+        return null;
+    }
+
+    @Override
+    public boolean isUserInRole(String role) {
+        return false;
+    }
+
+    @Override
+    public void log(String message) {
+        servletContext.log(message);
+    }
+
+    @Override
+    public void log(String message, Throwable exception) {
+        servletContext.log(message, exception);
+    }
+
+    @Override
+    public void redirect(String url) {
+        throw new UnsupportedOperationException();
+    }
+
+    /**
+     * Live view of servlet context attributes.
+     */
+    private static final class ServletContextAttributesMap extends AbstractMap<String, Object> {
+        private final ServletContext servletContext;
+
+        ServletContextAttributesMap(ServletContext servletContext) {
+            this.servletContext = servletContext;
+        }
+
+        @Override
+        public Object get(Object key) {
+            return key != null ? servletContext.getAttribute(key.toString()) : null;
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            return get(key) != null;
+        }
+
+        @Override
+        public Object put(String key, Object value) {
+            Object previousValue = servletContext.getAttribute(key);
+            servletContext.setAttribute(key, value);
+            return previousValue;
+        }
+
+        @Override
+        public Object remove(Object key) {
+            if (key == null) {
+                return null;
+            }
+
+            Object previousValue = servletContext.getAttribute(key.toString());
+            servletContext.removeAttribute(key.toString());
+            return previousValue;
+        }
+
+        @Override
+        public Set<Entry<String, Object>> entrySet() {
+            return new AbstractSet<Entry<String, Object>>() {
+                @Override
+                public Iterator<Entry<String, Object>> iterator() {
+                    final Iterator<String> names = Collections.list(servletContext.getAttributeNames()).iterator();
+
+                    return new Iterator<Entry<String, Object>>() {
+                        private String currentName;
+
+                        public boolean hasNext() {
+                            return names.hasNext();
+                        }
+
+                        public Entry<String, Object> next() {
+                            currentName = names.next();
+                            return new SimpleImmutableEntry<String, Object>(currentName,
+                                servletContext.getAttribute(currentName));
+                        }
+
+                        public void remove() {
+                            if (currentName == null) {
+                                throw new IllegalStateException();
+                            }
+
+                            servletContext.removeAttribute(currentName);
+                            currentName = null;
+                        }
+                    };
+                }
+
+                @Override
+                public int size() {
+                    return Collections.list(servletContext.getAttributeNames()).size();
+                }
+            };
+        }
+    }
+}
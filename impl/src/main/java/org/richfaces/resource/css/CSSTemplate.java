@@ -0,0 +1,560 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2010, Red Hat, Inc. and individual contributors
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.richfaces.resource.css;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import javax.el.ELContext;
+import javax.el.ExpressionFactory;
+import javax.el.ValueExpression;
+import javax.faces.application.Resource;
+import javax.faces.context.FacesContext;
+
+import org.richfaces.el.util.ELUtils;
+import org.richfaces.log.Logger;
+import org.richfaces.log.RichfacesLogger;
+import org.richfaces.renderkit.html.images.GradientAtlas;
+import org.w3c.dom.css.CSSCharsetRule;
+import org.w3c.dom.css.CSSFontFaceRule;
+import org.w3c.dom.css.CSSImportRule;
+import org.w3c.dom.css.CSSMediaRule;
+import org.w3c.dom.css.CSSPageRule;
+import org.w3c.dom.css.CSSRule;
+import org.w3c.dom.css.CSSStyleDeclaration;
+import org.w3c.dom.css.CSSStyleRule;
+import org.w3c.dom.css.CSSStyleSheet;
+import org.w3c.dom.css.CSSUnknownRule;
+
+/**
+ * Immutable template of parsed ECSS stylesheet: literal text chunks and pre-parsed value expressions in the order they are
+ * rendered. Template doesn't depend on skin, so it is compiled once per resource and then rendered for any skin by a single
+ * pass over its fragments, producing the same text as {@link CSSVisitorImpl} does for the parsed stylesheet.
+ *
+ * @see CSSVisitorImpl
+ */
+public final class CSSTemplate {
+    private static final Logger LOGGER = RichfacesLogger.RESOURCE.getLogger();
+    private static final String RESOURCE_START_PREFIX = "resource[";
+    private static final String NEW_LINE = "\r\n";
+    private static final String BACKGROUND_IMAGE = "background-image";
+    private static final String BACKGROUND_POSITION = "background-position";
+    private static final Pattern RESOURCE_URL_PATTERN = Pattern
+        .compile("^[\"']?url\\(\\s*#\\{\\s*resource\\[\\s*['\"]([^'\"]+)['\"]\\s*\\]\\s*\\}\\s*\\)[\"']?$");
+    private static final Set<String> TOP_LEFT_POSITIONS = new HashSet<String>(Arrays.asList("top left", "left top", "0 0",
+        "0px 0px"));
+    private final Fragment[] fragments;
+    private final String encoding;
+    private volatile int lastRenderedLength = 256;
+
+    private CSSTemplate(List<Fragment> fragments, String encoding) {
+        this.fragments = fragments.toArray(new Fragment[fragments.size()]);
+        this.encoding = encoding;
+    }
+
+    /**
+     * Compiles parsed stylesheet into template
+     *
+     * @param context faces context used to parse value expressions
+     * @param styleSheet parsed stylesheet
+     * @return compiled template
+     */
+    public static CSSTemplate compile(FacesContext context, CSSStyleSheet styleSheet) {
+        return compile(context, styleSheet, false);
+    }
+
+    /**
+     * Compiles parsed stylesheet into template
+     *
+     * @param context faces context used to parse value expressions
+     * @param styleSheet parsed stylesheet
+     * @param spriteImages whether gradient images positioned at the top left corner should be taken from
+     *        {@link GradientAtlas}
+     * @return compiled template
+     */
+    public static CSSTemplate compile(FacesContext context, CSSStyleSheet styleSheet, boolean spriteImages) {
+        Compiler compiler = new Compiler(context.getApplication().getExpressionFactory(), context.getELContext(),
+            spriteImages);
+        compiler.visitStyleSheet(styleSheet);
+
+        return new CSSTemplate(compiler.fragments, compiler.encoding);
+    }
+
+    /**
+     * @return encoding declared by <code>@charset</code> rule of stylesheet or <code>null</code>
+     */
+    public String getEncoding() {
+        return encoding;
+    }
+
+    /**
+     * Renders template evaluating value expressions in the given context
+     *
+     * @param context faces context
+     * @param defaultEncoding encoding used when stylesheet doesn't declare one
+     * @return CSS text
+     */
+    public String render(FacesContext context, String defaultEncoding) {
+        RenderingContext renderingContext = new RenderingContext(context, encoding != null ? encoding : defaultEncoding,
+            lastRenderedLength);
+
+        for (Fragment fragment : fragments) {
+            fragment.render(renderingContext);
+        }
+
+        String result = renderingContext.buffer.toString();
+        lastRenderedLength = result.length();
+
+        return result;
+    }
+
+    private static String unquote(String value) {
+        String result = value;
+
+        if (result.startsWith("\"") && result.endsWith("\"")) {
+            result = result.substring(1, result.length() - 1);
+        }
+        if (result.startsWith("'") && result.endsWith("'")) {
+            result = result.substring(1, result.length() - 1);
+        }
+
+        return result;
+    }
+
+    private static boolean isEmptyValue(String value) {
+        return value.length() == 0 || value.equals("\"\"") || value.equals("''");
+    }
+
+    private static void appendDeclaration(StringBuilder buffer, String propertyName, String value, String priority) {
+        buffer.append('\t');
+        buffer.append(propertyName);
+        buffer.append(": ");
+        buffer.append(value);
+
+        if (priority != null && priority.length() != 0) {
+            buffer.append(" !");
+            buffer.append(priority);
+        }
+
+        buffer.append(";");
+        buffer.append(NEW_LINE);
+    }
+
+    private static String readResource(Resource resource, String encoding) throws IOException {
+        InputStream is = resource.getInputStream();
+
+        if (is != null) {
+            StringBuilder sb = new StringBuilder();
+            String line;
+
+            try {
+                BufferedReader reader = new BufferedReader(new InputStreamReader(is, encoding));
+                while ((line = reader.readLine()) != null) {
+                    sb.append(line).append(NEW_LINE);
+                }
+            } finally {
+                is.close();
+            }
+            return sb.toString();
+        } else {
+            return "";
+        }
+    }
+
+    private static final class RenderingContext {
+        private final FacesContext facesContext;
+        private final ELContext elContext;
+        private final String encoding;
+        private final StringBuilder buffer;
+        private final List<String> prefixes = new ArrayList<String>(2);
+
+        RenderingContext(FacesContext facesContext, String encoding, int expectedLength) {
+            this.facesContext = facesContext;
+            this.elContext = facesContext.getELContext();
+            this.encoding = encoding;
+            this.buffer = new StringBuilder(expectedLength + (expectedLength >> 3));
+        }
+
+        void flushPrefixes() {
+            if (!prefixes.isEmpty()) {
+                for (String prefix : prefixes) {
+                    buffer.append(prefix);
+                    buffer.append(" {");
+                    buffer.append(NEW_LINE);
+                }
+
+                prefixes.clear();
+            }
+        }
+
+        void flushSuffix() {
+            if (prefixes.isEmpty()) {
+                buffer.append('}');
+                buffer.append(NEW_LINE);
+            } else {
+                prefixes.remove(prefixes.size() - 1);
+            }
+        }
+    }
+
+    private interface Fragment {
+        void render(RenderingContext context);
+    }
+
+    private static final class TextFragment implements Fragment {
+        private final String text;
+
+        TextFragment(String text) {
+            this.text = text;
+        }
+
+        public void render(RenderingContext context) {
+            context.buffer.append(text);
+        }
+    }
+
+    private static final class StartBlockFragment implements Fragment {
+        private final String prefix;
+
+        StartBlockFragment(String prefix) {
+            this.prefix = prefix;
+        }
+
+        public void render(RenderingContext context) {
+            context.prefixes.add(prefix);
+        }
+    }
+
+    private static final class EndBlockFragment implements Fragment {
+        private static final Fragment INSTANCE = new EndBlockFragment();
+
+        public void render(RenderingContext context) {
+            context.flushSuffix();
+        }
+    }
+
+    /**
+     * Run of declarations with literal non-empty values
+     */
+    private static final class StaticDeclarationsFragment implements Fragment {
+        private final String text;
+
+        StaticDeclarationsFragment(String text) {
+            this.text = text;
+        }
+
+        public void render(RenderingContext context) {
+            context.flushPrefixes();
+            context.buffer.append(text);
+        }
+    }
+
+    private static final class ExpressionDeclarationFragment implements Fragment {
+        private final String propertyName;
+        private final ValueExpression expression;
+        private final String priority;
+
+        ExpressionDeclarationFragment(String propertyName, ValueExpression expression, String priority) {
+            this.propertyName = propertyName;
+            this.expression = expression;
+            this.priority = priority;
+        }
+
+        public void render(RenderingContext context) {
+            Object evaluated = expression.getValue(context.elContext);
+            String value = evaluated != null ? unquote(evaluated.toString()) : "";
+
+            if (!isEmptyValue(value)) {
+                context.flushPrefixes();
+                appendDeclaration(context.buffer, propertyName, value, priority);
+            }
+        }
+    }
+
+    /**
+     * Background image taken from gradient atlas: declares atlas image and position of the original image in it
+     */
+    private static final class SpriteImageFragment implements Fragment {
+        private final String imageName;
+        private final ValueExpression atlasExpression;
+        private final String priority;
+        private final String positionPriority;
+
+        SpriteImageFragment(String imageName, ValueExpression atlasExpression, String priority, String positionPriority) {
+            this.imageName = imageName;
+            this.atlasExpression = atlasExpression;
+            this.priority = priority;
+            this.positionPriority = positionPriority;
+        }
+
+        public void render(RenderingContext context) {
+            Object atlasUrl = atlasExpression.getValue(context.elContext);
+            int offset = GradientAtlas.getOffset(context.facesContext, imageName);
+
+            context.flushPrefixes();
+            appendDeclaration(context.buffer, BACKGROUND_IMAGE, "url(" + atlasUrl + ")", priority);
+            appendDeclaration(context.buffer, BACKGROUND_POSITION, offset != 0 ? "0 -" + offset + "px" : "0 0",
+                positionPriority);
+        }
+    }
+
+    private static final class ImportFragment implements Fragment {
+        private final String resourceName;
+        private final ValueExpression resourceNameExpression;
+        private final String cssText;
+
+        ImportFragment(String resourceName, ValueExpression resourceNameExpression, String cssText) {
+            this.resourceName = resourceName;
+            this.resourceNameExpression = resourceNameExpression;
+            this.cssText = cssText;
+        }
+
+        public void render(RenderingContext context) {
+            FacesContext facesContext = context.facesContext;
+            String name = resourceName;
+            if (resourceNameExpression != null) {
+                name = (String) resourceNameExpression.getValue(context.elContext);
+            }
+
+            Resource imported = facesContext.getApplication().getResourceHandler().createResource(name);
+            if (imported == null) {
+                LOGGER.error("Resource with name " + name + "can't be found.");
+                return;
+            }
+            String toAdd = null;
+            try {
+                toAdd = readResource(imported, context.encoding);
+            } catch (IOException e) {
+                LOGGER.error("Error while importing nested resource with name " + name);
+            }
+            if (toAdd != null && toAdd.length() > 0) {
+                context.buffer.append(toAdd);
+                context.buffer.append(NEW_LINE);
+            } else if (cssText.length() != 0) {
+                context.buffer.append(cssText);
+                context.buffer.append(NEW_LINE);
+            }
+        }
+    }
+
+    private static final class Compiler extends AbstractCSSVisitor {
+        private final ExpressionFactory expressionFactory;
+        private final ELContext elContext;
+        private final List<Fragment> fragments = new ArrayList<Fragment>();
+        private final StringBuilder staticDeclarations = new StringBuilder();
+        private final boolean spriteImages;
+        private ValueExpression atlasExpression;
+        private String encoding;
+
+        Compiler(ExpressionFactory expressionFactory, ELContext elContext, boolean spriteImages) {
+            this.expressionFactory = expressionFactory;
+            this.elContext = elContext;
+            this.spriteImages = spriteImages;
+        }
+
+        /**
+         * @return name of atlas image referenced by declaration value or <code>null</code>
+         */
+        private static String getSpriteImageName(String value) {
+            Matcher matcher = RESOURCE_URL_PATTERN.matcher(value);
+
+            if (matcher.matches() && GradientAtlas.IMAGE_NAMES.contains(matcher.group(1))) {
+                return matcher.group(1);
+            }
+
+            return null;
+        }
+
+        private ValueExpression getAtlasExpression() {
+            if (atlasExpression == null) {
+                atlasExpression = createValueExpression("#{resource['" + GradientAtlas.RESOURCE_NAME + "']}");
+            }
+
+            return atlasExpression;
+        }
+
+        private ValueExpression createValueExpression(String expression) {
+            return expressionFactory.createValueExpression(elContext, expression, String.class);
+        }
+
+        private void addFragment(Fragment fragment) {
+            flushStaticDeclarations();
+            fragments.add(fragment);
+        }
+
+        private void flushStaticDeclarations() {
+            if (staticDeclarations.length() != 0) {
+                fragments.add(new StaticDeclarationsFragment(staticDeclarations.toString()));
+                staticDeclarations.setLength(0);
+            }
+        }
+
+        private void addText(String text) {
+            flushStaticDeclarations();
+
+            Fragment last = fragments.isEmpty() ? null : fragments.get(fragments.size() - 1);
+
+            if (last instanceof TextFragment) {
+                fragments.set(fragments.size() - 1, new TextFragment(((TextFragment) last).text + text));
+            } else {
+                fragments.add(new TextFragment(text));
+            }
+        }
+
+        private void appendCSSText(CSSRule rule) {
+            String cssText = rule.getCssText().trim();
+
+            if (cssText.length() != 0) {
+                addText(cssText + NEW_LINE);
+            }
+        }
+
+        @Override
+        public void visitUnknownRule(CSSUnknownRule rule) {
+            appendCSSText(rule);
+        }
+
+        @Override
+        public void visitCharsetRule(CSSCharsetRule rule) {
+            encoding = rule.getEncoding();
+
+            appendCSSText(rule);
+        }
+
+        @Override
+        public void visitImportRule(CSSImportRule rule) {
+            String resourceName = rule.getHref();
+            ValueExpression resourceNameExpression = null;
+
+            if (ELUtils.isValueReference(resourceName)) {
+                if (resourceName.indexOf(RESOURCE_START_PREFIX) == -1) {
+                    resourceNameExpression = createValueExpression(resourceName);
+                    resourceName = null;
+                } else {
+                    int start = resourceName.indexOf(RESOURCE_START_PREFIX) + RESOURCE_START_PREFIX.length();
+                    int end = resourceName.lastIndexOf("]");
+                    resourceName = resourceName.substring(start, end);
+                    resourceName = resourceName.replaceAll("\"", "").replaceAll("'", "").trim();
+                }
+            }
+
+            addFragment(new ImportFragment(resourceName, resourceNameExpression, rule.getCssText().trim()));
+        }
+
+        @Override
+        protected void startFontRule(CSSFontFaceRule rule) {
+            addFragment(new StartBlockFragment("@font-face"));
+        }
+
+        @Override
+        protected void endFontRule(CSSFontFaceRule rule) {
+            addFragment(EndBlockFragment.INSTANCE);
+        }
+
+        @Override
+        protected void startMediaRule(CSSMediaRule rule) {
+            addFragment(new StartBlockFragment("@media " + rule.getMedia().getMediaText()));
+        }
+
+        @Override
+        protected void endMediaRule(CSSMediaRule rule) {
+            addFragment(EndBlockFragment.INSTANCE);
+        }
+
+        @Override
+        protected void startPageRule(CSSPageRule rule) {
+            addFragment(new StartBlockFragment("@page " + rule.getSelectorText()));
+        }
+
+        @Override
+        protected void endPageRule(CSSPageRule rule) {
+            addFragment(EndBlockFragment.INSTANCE);
+        }
+
+        @Override
+        protected void startStyleRule(CSSStyleRule rule) {
+            addFragment(new StartBlockFragment(rule.getSelectorText()));
+        }
+
+        @Override
+        protected void endStyleRule(CSSStyleRule rule) {
+            addFragment(EndBlockFragment.INSTANCE);
+        }
+
+        @Override
+        protected void startStyleSheet(CSSStyleSheet styleSheet) {
+        }
+
+        @Override
+        protected void endStyleSheet(CSSStyleSheet styleSheet) {
+            flushStaticDeclarations();
+        }
+
+        @Override
+        public void visitStyleDeclaration(CSSStyleDeclaration styleDeclaration) {
+            String spriteImageName = null;
+
+            if (spriteImages) {
+                // sprite offset can replace only position declared by the same rule
+                String position = unquote(styleDeclaration.getPropertyValue(BACKGROUND_POSITION).trim());
+
+                if (TOP_LEFT_POSITIONS.contains(position)) {
+                    spriteImageName = getSpriteImageName(styleDeclaration.getPropertyValue(BACKGROUND_IMAGE).trim());
+                }
+            }
+
+            for (int j = 0; j < styleDeclaration.getLength(); j++) {
+                String propertyName = styleDeclaration.item(j);
+
+                if (spriteImageName != null && BACKGROUND_POSITION.equals(propertyName)) {
+                    // position in atlas is declared along with the image
+                    continue;
+                }
+
+                String value = styleDeclaration.getPropertyValue(propertyName).trim();
+                String priority = styleDeclaration.getPropertyPriority(propertyName);
+
+                if (spriteImageName != null && BACKGROUND_IMAGE.equals(propertyName)) {
+                    addFragment(new SpriteImageFragment(spriteImageName, getAtlasExpression(), priority,
+                        styleDeclaration.getPropertyPriority(BACKGROUND_POSITION)));
+                } else if (ELUtils.isValueReference(value)) {
+                    addFragment(new ExpressionDeclarationFragment(propertyName, createValueExpression(value), priority));
+                } else {
+                    value = unquote(value);
+
+                    if (!isEmptyValue(value)) {
+                        appendDeclaration(staticDeclarations, propertyName, value, priority);
+                    }
+                }
+            }
+        }
+    }
+}
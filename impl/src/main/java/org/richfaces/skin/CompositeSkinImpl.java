@@ -22,6 +22,8 @@ package org.richfaces.skin;
 
 import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import javax.faces.context.FacesContext;
 
@@ -45,16 +47,48 @@ final class CompositeSkinImpl extends AbstractSkin {
 
         ;
     };
+    private static final Object NULL = new Object();
     private int hashCode = 0;
     private List<Skin> skinsChain;
+    /**
+     * Flat table of resolved parameters which values don't depend on EL expressions, <code>null</code> if chain contains
+     * custom skins.
+     */
+    private final ConcurrentMap<String, Object> resolvedParameters;
 
     /**
      * @param properties
      */
     CompositeSkinImpl(Skin... skinsChain) {
-        // TODO Auto-generated constructor stub
-
         this.skinsChain = Arrays.asList(skinsChain);
+        this.resolvedParameters = isResolutionTracked(skinsChain) ? new ConcurrentHashMap<String, Object>() : null;
+    }
+
+    /**
+     * @return <code>true</code> if all skins of the chain report usage of EL expressions in {@link SkinImpl.ResolutionState}
+     */
+    static boolean isResolutionTracked(Skin... skinsChain) {
+        for (Skin skin : skinsChain) {
+            if (skin != null && !(skin instanceof SkinImpl)) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    private boolean isDynamic(FacesContext context) {
+        if (resolvedParameters == null) {
+            return true;
+        }
+
+        for (Skin skin : skinsChain) {
+            if (skin != null && ((SkinImpl) skin).isDynamic(context)) {
+                return true;
+            }
+        }
+
+        return false;
     }
 
     public boolean containsProperty(String name) {
@@ -87,7 +121,10 @@ final class CompositeSkinImpl extends AbstractSkin {
                 hash = 31 * hash + skin.hashCode(context);
             }
 
-            hashCode = hash;
+            // instance is shared by requests, so hash code of EL-dependent skins is not cached
+            if (!isDynamic(context)) {
+                hashCode = hash;
+            }
         }
 
         return hash;
@@ -99,6 +136,35 @@ final class CompositeSkinImpl extends AbstractSkin {
     }
 
     public Object getParameter(FacesContext context, String name) {
+        if (resolvedParameters == null) {
+            return resolveParameter(context, name);
+        }
+
+        Object value = resolvedParameters.get(name);
+
+        if (value != null) {
+            return value == NULL ? null : value;
+        }
+
+        SkinImpl.ResolutionState state = SkinImpl.getResolutionState(context);
+        boolean dynamic = state.isDynamic();
+
+        state.setDynamic(false);
+
+        try {
+            value = resolveParameter(context, name);
+
+            if (!state.isDynamic()) {
+                resolvedParameters.put(name, value != null ? value : NULL);
+            }
+        } finally {
+            state.setDynamic(dynamic || state.isDynamic());
+        }
+
+        return value;
+    }
+
+    private Object resolveParameter(FacesContext context, String name) {
         for (Skin skin : skinsChain) {
             if (skin == null) {
                 continue;
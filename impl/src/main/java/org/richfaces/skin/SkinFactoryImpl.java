@@ -22,9 +22,13 @@ package org.richfaces.skin;
 
 import static org.richfaces.application.configuration.ConfigurationServiceHelper.getConfigurationValue;
 
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import javax.faces.context.FacesContext;
 
@@ -48,6 +52,10 @@ public class SkinFactoryImpl extends AbstractSkinFactory {
     private static final String[] THEME_PATHS = { "META-INF/themes/%s.theme.properties", "%s.theme.properties" };
     // private Properties defaultSkinProperties = null;
     private Map<String, Theme> themes = new HashMap<String, Theme>();
+    /**
+     * Composite skins built of skins created by this factory, shared by requests to keep their resolved parameters
+     */
+    private ConcurrentMap<List<Skin>, Skin> compositeSkins = new ConcurrentHashMap<List<Skin>, Skin>();
 
     public Skin getDefaultSkin(FacesContext context) {
         return getSkin(context, DEFAULT_SKIN_NAME);
@@ -60,10 +68,10 @@ public class SkinFactoryImpl extends AbstractSkinFactory {
             Skin baseSkin = getSkinOrName(context, true);
 
             if (mainSkin != null || baseSkin != null) {
-                skin = new CompositeSkinImpl(mainSkin, baseSkin);
+                skin = getCompositeSkin(mainSkin, baseSkin);
             } else {
                 // CompositeSkinImpl caches hash code
-                skin = new CompositeSkinImpl(getDefaultSkin(context));
+                skin = getCompositeSkin(getDefaultSkin(context));
             }
 
             context.getAttributes().put(SKIN_KEY, skin);
@@ -78,10 +86,10 @@ public class SkinFactoryImpl extends AbstractSkinFactory {
             Skin baseSkin = getSkinOrName(context, true);
 
             if (baseSkin != null) {
-                skin = new CompositeSkinImpl(baseSkin);
+                skin = getCompositeSkin(baseSkin);
             } else {
                 // CompositeSkinImpl caches hash code
-                skin = new CompositeSkinImpl(getDefaultSkin(context));
+                skin = getCompositeSkin(getDefaultSkin(context));
             }
 
             context.getAttributes().put(BASE_SKIN_KEY, skin);
@@ -90,6 +98,27 @@ public class SkinFactoryImpl extends AbstractSkinFactory {
         return skin;
     }
 
+    private Skin getCompositeSkin(Skin... skinsChain) {
+        if (!CompositeSkinImpl.isResolutionTracked(skinsChain)) {
+            // skins provided by EL expressions can be created per request, don't hold them
+            return new CompositeSkinImpl(skinsChain);
+        }
+
+        List<Skin> key = Arrays.asList(skinsChain);
+        Skin skin = compositeSkins.get(key);
+
+        if (skin == null) {
+            Skin newSkin = new CompositeSkinImpl(skinsChain);
+            skin = compositeSkins.putIfAbsent(key, newSkin);
+
+            if (skin == null) {
+                skin = newSkin;
+            }
+        }
+
+        return skin;
+    }
+
     static void clearSkinCaches(FacesContext context) {
         context.getAttributes().remove(BASE_SKIN_KEY);
         context.getAttributes().remove(SKIN_KEY);
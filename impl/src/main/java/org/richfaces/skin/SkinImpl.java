@@ -73,16 +73,23 @@ final class SkinImpl extends AbstractSkin {
         }
     };
     private final Map<Object, Object> skinParams;
+    private final boolean dynamic;
+    private volatile Integer fingerprint;
 
-    private static class MutableInteger {
-        private int value;
+    /**
+     * State of parameter resolution in the current request: depth of nested resolutions, used to detect cyclic references,
+     * and flag telling whether resolved value depends on EL expressions and so can't be cached.
+     */
+    static final class ResolutionState {
+        private int depth;
+        private boolean dynamic;
 
-        public int getAndIncrement() {
-            return value++;
+        boolean isDynamic() {
+            return dynamic;
         }
 
-        public int getAndDecrement() {
-            return value--;
+        void setDynamic(boolean dynamic) {
+            this.dynamic = dynamic;
         }
     }
 
@@ -96,18 +103,29 @@ final class SkinImpl extends AbstractSkin {
     SkinImpl(Map<Object, Object> properties, String name) {
         this.skinParams = properties;
         this.name = name;
+        this.dynamic = containsValueExpression(properties);
+    }
+
+    private static boolean containsValueExpression(Map<Object, Object> properties) {
+        for (Object value : properties.values()) {
+            if (value instanceof ValueExpression) {
+                return true;
+            }
+        }
+
+        return false;
     }
 
-    private MutableInteger getCounter(FacesContext context) {
+    static ResolutionState getResolutionState(FacesContext context) {
         Map<Object, Object> attr = context.getAttributes();
 
-        MutableInteger counter = (MutableInteger) attr.get(MutableInteger.class);
-        if (counter == null) {
-            counter = new MutableInteger();
-            attr.put(MutableInteger.class, counter);
+        ResolutionState state = (ResolutionState) attr.get(ResolutionState.class);
+        if (state == null) {
+            state = new ResolutionState();
+            attr.put(ResolutionState.class, state);
         }
 
-        return counter;
+        return state;
     }
 
     private abstract static class Operation {
@@ -149,6 +167,7 @@ final class SkinImpl extends AbstractSkin {
         if (property instanceof ValueExpression) {
             ValueExpression value = (ValueExpression) property;
 
+            getResolutionState(context).setDynamic(true);
             return value.getValue(context.getELContext());
         }
 
@@ -163,11 +182,35 @@ final class SkinImpl extends AbstractSkin {
         String baseSkinName = (String) getLocalParameter(context, Skin.BASE_SKIN);
         if (baseSkinName != null) {
             SkinFactory skinFactory = SkinFactory.getInstance(context);
-            return skinFactory.getSkin(context, baseSkinName);
+            Skin baseSkin = skinFactory.getSkin(context, baseSkinName);
+
+            if (!(baseSkin instanceof SkinImpl)) {
+                // nothing is known about parameters of custom skins
+                getResolutionState(context).setDynamic(true);
+            }
+
+            return baseSkin;
         }
         return null;
     }
 
+    /**
+     * @return <code>true</code> if parameters of this skin or of its base skins are defined by EL expressions
+     */
+    boolean isDynamic(FacesContext context) {
+        if (dynamic) {
+            return true;
+        }
+
+        Skin baseSkin = getBaseSkin(context);
+
+        if (baseSkin == null) {
+            return false;
+        }
+
+        return !(baseSkin instanceof SkinImpl) || ((SkinImpl) baseSkin).isDynamic(context);
+    }
+
     protected Object localResolveSkinParameter(FacesContext context, String name) {
         return getSkinParams().get(name);
     }
@@ -177,10 +220,10 @@ final class SkinImpl extends AbstractSkin {
     }
 
     protected Object executeOperation(FacesContext context, Operation operation, String name) {
-        MutableInteger counter = getCounter(context);
+        ResolutionState state = getResolutionState(context);
 
         try {
-            if (counter.getAndIncrement() > 100) {
+            if (state.depth++ > 100) {
                 throw new FacesException(Messages.getMessage(Messages.SKIN_CYCLIC_REFERENCE, name));
             }
 
@@ -194,7 +237,7 @@ final class SkinImpl extends AbstractSkin {
                 return operation.executeBase(context, baseSkin, name);
             }
         } finally {
-            counter.getAndDecrement();
+            state.depth--;
         }
 
         return null;
@@ -218,6 +261,22 @@ final class SkinImpl extends AbstractSkin {
     }
 
     public int hashCode(FacesContext context) {
+        Integer cachedFingerprint = fingerprint;
+
+        if (cachedFingerprint != null) {
+            return cachedFingerprint.intValue();
+        }
+
+        int hash = computeHashCode(context);
+
+        if (!isDynamic(context)) {
+            fingerprint = hash;
+        }
+
+        return hash;
+    }
+
+    private int computeHashCode(FacesContext context) {
         int hash = 0;
         for (Map.Entry<Object, Object> entry : skinParams.entrySet()) {
             String key = (String) entry.getKey();
@@ -0,0 +1,429 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2010, Red Hat, Inc. and individual contributors
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.richfaces.util;
+
+/**
+ * Allocation-light codec for HTTP dates. Formats dates as RFC 1123 strings (<code>Sun, 06 Nov 1994 08:49:37 GMT</code>)
+ * and parses RFC 1123, RFC 850 (<code>Sunday, 06-Nov-94 08:49:37 GMT</code>) and ANSI C asctime()
+ * (<code>Sun Nov  6 08:49:37 1994</code>) formats without creating {@link java.util.Date} or {@link java.text.Format}
+ * objects.
+ * <p>
+ * HTTP dates have precision of one second, so formatted values are cached and reused for all timestamps that fall into
+ * the same second. Current time, used for <code>Date</code> header of every response, has its own cache entry (see
+ * {@link #formatNow()}), so that formatting of other dates, like <code>Last-Modified</code> and <code>Expires</code>,
+ * doesn't evict it.
+ *
+ * @since 4.3
+ */
+public final class HttpDateCodec {
+    /**
+     * Value returned by {@link #parse(String)} for strings that are not valid HTTP dates
+     */
+    public static final long NO_DATE = -1L;
+    private static final String[] DAY_NAMES = { "Mon", "Tue", "Wed", "Thu", "Fri", "Sat", "Sun" };
+    private static final String[] MONTH_NAMES = { "Jan", "Feb", "Mar", "Apr", "May", "Jun", "Jul", "Aug", "Sep", "Oct",
+            "Nov", "Dec" };
+    private static final long MILLIS_PER_SECOND = 1000L;
+    private static final long SECONDS_PER_DAY = 86400L;
+    private static final int RFC1123_DATE_LENGTH = 29;
+    // number of cached formatted dates other than current time, power of two
+    private static final int FORMATTED_DATES_CACHE_SIZE = 16;
+    private static final FormattedDate NO_FORMATTED_DATE = new FormattedDate(Long.MIN_VALUE, null);
+    /*
+     * Direct-mapped cache indexed by second. Entries are immutable, so they are safely published through the plain array
+     * even though writes are racy; the worst outcome of a race is a cache miss.
+     */
+    private static final FormattedDate[] FORMATTED_DATES = new FormattedDate[FORMATTED_DATES_CACHE_SIZE];
+    private static volatile FormattedDate currentFormattedDate = NO_FORMATTED_DATE;
+
+    static {
+        for (int i = 0; i < FORMATTED_DATES.length; i++) {
+            FORMATTED_DATES[i] = NO_FORMATTED_DATE;
+        }
+    }
+
+    private static final class FormattedDate {
+        private final long second;
+        private final String value;
+
+        FormattedDate(long second, String value) {
+            this.second = second;
+            this.value = value;
+        }
+    }
+
+    private HttpDateCodec() {
+    }
+
+    /**
+     * Formats time as RFC 1123 date in GMT time zone.
+     *
+     * @param time milliseconds since epoch
+     * @return formatted date
+     */
+    public static String format(long time) {
+        long second = floorDiv(time, MILLIS_PER_SECOND);
+        int idx = (int) (second & (FORMATTED_DATES_CACHE_SIZE - 1));
+        FormattedDate formattedDate = FORMATTED_DATES[idx];
+
+        if (formattedDate.second != second) {
+            formattedDate = new FormattedDate(second, formatSecond(second));
+            FORMATTED_DATES[idx] = formattedDate;
+        }
+
+        return formattedDate.value;
+    }
+
+    /**
+     * Formats current time as RFC 1123 date in GMT time zone. Value is computed once per second.
+     *
+     * @return formatted date
+     */
+    public static String formatNow() {
+        return formatCurrentTime(System.currentTimeMillis());
+    }
+
+    /**
+     * Formats time as RFC 1123 date in GMT time zone, using cache entry dedicated to current time. Should be used for the
+     * current time only, e.g. when it is obtained from overridable clock; other timestamps should be formatted by
+     * {@link #format(long)}.
+     *
+     * @param currentTime current time in milliseconds since epoch
+     * @return formatted date
+     */
+    public static String formatCurrentTime(long currentTime) {
+        long second = floorDiv(currentTime, MILLIS_PER_SECOND);
+        FormattedDate formattedDate = currentFormattedDate;
+
+        if (formattedDate.second != second) {
+            formattedDate = new FormattedDate(second, formatSecond(second));
+            currentFormattedDate = formattedDate;
+        }
+
+        return formattedDate.value;
+    }
+
+    private static String formatSecond(long second) {
+        long days = floorDiv(second, SECONDS_PER_DAY);
+        int secondOfDay = (int) (second - days * SECONDS_PER_DAY);
+
+        // 01 Jan 1970 was Thursday
+        int dayOfWeek = (int) floorMod(days + 3, 7);
+
+        // civil date from days since epoch, see http://howardhinnant.github.io/date_algorithms.html
+        long z = days + 719468;
+        long era = (z >= 0 ? z : z - 146096) / 146097;
+        int dayOfEra = (int) (z - era * 146097);
+        int yearOfEra = (dayOfEra - dayOfEra / 1460 + dayOfEra / 36524 - dayOfEra / 146096) / 365;
+        int dayOfYear = dayOfEra - (365 * yearOfEra + yearOfEra / 4 - yearOfEra / 100);
+        int shiftedMonth = (5 * dayOfYear + 2) / 153;
+        int day = dayOfYear - (153 * shiftedMonth + 2) / 5 + 1;
+        int month = shiftedMonth < 10 ? shiftedMonth + 3 : shiftedMonth - 9;
+        long year = yearOfEra + era * 400 + (month <= 2 ? 1 : 0);
+
+        StringBuilder sb = new StringBuilder(RFC1123_DATE_LENGTH);
+        sb.append(DAY_NAMES[dayOfWeek]).append(", ");
+        appendTwoDigits(sb, day);
+        sb.append(' ').append(MONTH_NAMES[month - 1]).append(' ');
+
+        if (year >= 0 && year < 1000) {
+            sb.append(year < 10 ? "000" : year < 100 ? "00" : "0");
+        }
+
+        sb.append(year).append(' ');
+        appendTwoDigits(sb, secondOfDay / 3600);
+        sb.append(':');
+        appendTwoDigits(sb, secondOfDay / 60 % 60);
+        sb.append(':');
+        appendTwoDigits(sb, secondOfDay % 60);
+        sb.append(" GMT");
+
+        return sb.toString();
+    }
+
+    private static void appendTwoDigits(StringBuilder sb, int value) {
+        sb.append((char) ('0' + value / 10)).append((char) ('0' + value % 10));
+    }
+
+    /**
+     * Parses HTTP date in any of RFC 1123, RFC 850 or asctime() formats. Characters following the date (e.g.
+     * <code>; length=...</code> appended by some user agents to <code>If-Modified-Since</code> header) are ignored.
+     *
+     * @param s string to parse
+     * @return milliseconds since epoch or {@link #NO_DATE} if string is not a valid HTTP date
+     */
+    public static long parse(String s) {
+        if (s == null) {
+            return NO_DATE;
+        }
+
+        return new Parser(s).parse();
+    }
+
+    private static long floorDiv(long x, long y) {
+        long result = x / y;
+
+        if ((x % y != 0) && ((x ^ y) < 0)) {
+            result--;
+        }
+
+        return result;
+    }
+
+    private static long floorMod(long x, long y) {
+        return x - floorDiv(x, y) * y;
+    }
+
+    static long daysFromCivil(long year, int month, int day) {
+        long y = month <= 2 ? year - 1 : year;
+        long era = (y >= 0 ? y : y - 399) / 400;
+        int yearOfEra = (int) (y - era * 400);
+        int dayOfYear = (153 * (month > 2 ? month - 3 : month + 9) + 2) / 5 + day - 1;
+        int dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+
+        return era * 146097 + dayOfEra - 719468;
+    }
+
+    private static final class Parser {
+        private final String s;
+        private int position;
+
+        Parser(String s) {
+            this.s = s;
+        }
+
+        long parse() {
+            skipSpaces();
+
+            // day of week is redundant, just skip it
+            if (skipLetters() < 3) {
+                return NO_DATE;
+            }
+
+            if (accept(',')) {
+                skipSpaces();
+
+                int day = readNumber(1, 2);
+
+                if (accept(' ')) {
+                    // RFC 1123: 06 Nov 1994 08:49:37 GMT
+                    int month = readMonth();
+
+                    if (month < 0 || !accept(' ')) {
+                        return NO_DATE;
+                    }
+
+                    int yearDigitsStart = position;
+                    int year = readNumber(2, 4);
+
+                    if (position - yearDigitsStart == 2) {
+                        year = expandYear(year);
+                    }
+
+                    return readTimeAndZone(year, month, day);
+                }
+
+                if (accept('-')) {
+                    // RFC 850: 06-Nov-94 08:49:37 GMT
+                    int month = readMonth();
+
+                    if (month < 0 || !accept('-')) {
+                        return NO_DATE;
+                    }
+
+                    int yearDigitsStart = position;
+                    int year = readNumber(2, 4);
+
+                    if (position - yearDigitsStart == 2) {
+                        year = expandYear(year);
+                    }
+
+                    return readTimeAndZone(year, month, day);
+                }
+
+                return NO_DATE;
+            }
+
+            if (accept(' ')) {
+                // asctime(): Nov  6 08:49:37 1994
+                int month = readMonth();
+
+                if (month < 0 || !accept(' ')) {
+                    return NO_DATE;
+                }
+
+                skipSpaces();
+
+                int day = readNumber(1, 2);
+
+                if (!accept(' ')) {
+                    return NO_DATE;
+                }
+
+                long timeOfDay = readTime();
+
+                if (timeOfDay < 0 || !accept(' ')) {
+                    return NO_DATE;
+                }
+
+                int year = readNumber(4, 4);
+
+                return toMillis(year, month, day, timeOfDay);
+            }
+
+            return NO_DATE;
+        }
+
+        private long readTimeAndZone(int year, int month, int day) {
+            if (year < 0 || !accept(' ')) {
+                return NO_DATE;
+            }
+
+            long timeOfDay = readTime();
+
+            if (timeOfDay < 0 || !accept(' ') || !readZone()) {
+                return NO_DATE;
+            }
+
+            return toMillis(year, month, day, timeOfDay);
+        }
+
+        private long toMillis(int year, int month, int day, long timeOfDay) {
+            if (year < 0 || day < 1 || day > 31) {
+                return NO_DATE;
+            }
+
+            return (daysFromCivil(year, month, day) * SECONDS_PER_DAY + timeOfDay) * MILLIS_PER_SECOND;
+        }
+
+        private int expandYear(int twoDigitsYear) {
+            // RFC 850 dates use two-digit years
+            return twoDigitsYear < 70 ? 2000 + twoDigitsYear : 1900 + twoDigitsYear;
+        }
+
+        /**
+         * @return seconds since midnight or -1 if time is invalid
+         */
+        private long readTime() {
+            int hours = readNumber(2, 2);
+
+            if (hours < 0 || hours > 23 || !accept(':')) {
+                return -1;
+            }
+
+            int minutes = readNumber(2, 2);
+
+            if (minutes < 0 || minutes > 59 || !accept(':')) {
+                return -1;
+            }
+
+            int seconds = readNumber(2, 2);
+
+            // leap second
+            if (seconds < 0 || seconds > 60) {
+                return -1;
+            }
+
+            return hours * 3600L + minutes * 60L + seconds;
+        }
+
+        private boolean readZone() {
+            if (matchIgnoreCase("GMT") || matchIgnoreCase("UTC")) {
+                position += 3;
+                return true;
+            }
+
+            if (matchIgnoreCase("UT")) {
+                position += 2;
+                return true;
+            }
+
+            return false;
+        }
+
+        private int readMonth() {
+            if (position + 3 > s.length()) {
+                return -1;
+            }
+
+            for (int i = 0; i < MONTH_NAMES.length; i++) {
+                if (matchIgnoreCase(MONTH_NAMES[i])) {
+                    position += 3;
+                    return i + 1;
+                }
+            }
+
+            return -1;
+        }
+
+        private boolean matchIgnoreCase(String token) {
+            return s.regionMatches(true, position, token, 0, token.length());
+        }
+
+        /**
+         * @return parsed number or -1 if there were less than minDigits digits
+         */
+        private int readNumber(int minDigits, int maxDigits) {
+            int result = 0;
+            int digits = 0;
+
+            while (digits < maxDigits && position < s.length()) {
+                char c = s.charAt(position);
+
+                if (c < '0' || c > '9') {
+                    break;
+                }
+
+                result = result * 10 + (c - '0');
+                digits++;
+                position++;
+            }
+
+            return digits >= minDigits ? result : -1;
+        }
+
+        private int skipLetters() {
+            int start = position;
+
+            while (position < s.length() && Character.isLetter(s.charAt(position))) {
+                position++;
+            }
+
+            return position - start;
+        }
+
+        private void skipSpaces() {
+            while (position < s.length() && s.charAt(position) == ' ') {
+                position++;
+            }
+        }
+
+        private boolean accept(char c) {
+            if (position < s.length() && s.charAt(position) == c) {
+                position++;
+                return true;
+            }
+
+            return false;
+        }
+    }
+}
@@ -0,0 +1,214 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2010, Red Hat, Inc. and individual contributors
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.richfaces.util;
+
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.io.StreamCorruptedException;
+
+/**
+ * Compact binary format of resource state objects: <code>null</code>, strings, primitive wrappers, byte arrays and
+ * <code>Object[]</code> arrays of them, that covers state saved by {@link javax.faces.component.StateHolder} resources.
+ * Data starts with {@link #MARKER} byte that never starts Java serialization stream, so both formats can be told apart.
+ *
+ * @since 4.3
+ */
+final class ResourceStateFormat {
+    static final byte MARKER = 'R';
+    private static final int MAX_UTF_CHARS = 0xFFFF / 3;
+    private static final int MAX_ARRAY_DEPTH = 16;
+    private static final byte NULL = 0;
+    private static final byte STRING = 1;
+    private static final byte TRUE = 2;
+    private static final byte FALSE = 3;
+    private static final byte BYTE = 4;
+    private static final byte SHORT = 5;
+    private static final byte CHARACTER = 6;
+    private static final byte INTEGER = 7;
+    private static final byte LONG = 8;
+    private static final byte FLOAT = 9;
+    private static final byte DOUBLE = 10;
+    private static final byte BYTES = 11;
+    private static final byte ARRAY = 12;
+
+    private ResourceStateFormat() {
+    }
+
+    /**
+     * @return <code>true</code> if object is supported by the format
+     */
+    static boolean isSupported(Object object) {
+        return isSupported(object, 0);
+    }
+
+    private static boolean isSupported(Object object, int depth) {
+        if (object == null || object instanceof Boolean || object instanceof Byte || object instanceof Short
+            || object instanceof Character || object instanceof Integer || object instanceof Long || object instanceof Float
+            || object instanceof Double || object instanceof byte[]) {
+
+            return true;
+        }
+
+        if (object instanceof String) {
+            return ((String) object).length() <= MAX_UTF_CHARS;
+        }
+
+        if (object != null && object.getClass() == Object[].class && depth < MAX_ARRAY_DEPTH) {
+            for (Object element : (Object[]) object) {
+                if (!isSupported(element, depth + 1)) {
+                    return false;
+                }
+            }
+
+            return true;
+        }
+
+        return false;
+    }
+
+    /**
+     * Writes marker and object that should be {@link #isSupported(Object) supported}
+     */
+    static void write(DataOutput out, Object object) throws IOException {
+        out.writeByte(MARKER);
+        writeObject(out, object);
+    }
+
+    /**
+     * Reads object written by {@link #write(DataOutput, Object)} from stream over byte array, so that
+     * {@link DataInputStream#available()} is exact
+     */
+    static Object read(DataInputStream in) throws IOException {
+        if (in.readByte() != MARKER) {
+            throw new StreamCorruptedException("Resource state marker expected");
+        }
+
+        return readObject(in, 0);
+    }
+
+    private static void writeObject(DataOutput out, Object object) throws IOException {
+        if (object == null) {
+            out.writeByte(NULL);
+        } else if (object instanceof String) {
+            out.writeByte(STRING);
+            out.writeUTF((String) object);
+        } else if (object instanceof Boolean) {
+            out.writeByte(((Boolean) object).booleanValue() ? TRUE : FALSE);
+        } else if (object instanceof Byte) {
+            out.writeByte(BYTE);
+            out.writeByte(((Byte) object).byteValue());
+        } else if (object instanceof Short) {
+            out.writeByte(SHORT);
+            out.writeShort(((Short) object).shortValue());
+        } else if (object instanceof Character) {
+            out.writeByte(CHARACTER);
+            out.writeChar(((Character) object).charValue());
+        } else if (object instanceof Integer) {
+            out.writeByte(INTEGER);
+            out.writeInt(((Integer) object).intValue());
+        } else if (object instanceof Long) {
+            out.writeByte(LONG);
+            out.writeLong(((Long) object).longValue());
+        } else if (object instanceof Float) {
+            out.writeByte(FLOAT);
+            out.writeFloat(((Float) object).floatValue());
+        } else if (object instanceof Double) {
+            out.writeByte(DOUBLE);
+            out.writeDouble(((Double) object).doubleValue());
+        } else if (object instanceof byte[]) {
+            byte[] bytes = (byte[]) object;
+
+            out.writeByte(BYTES);
+            out.writeInt(bytes.length);
+            out.write(bytes);
+        } else if (object.getClass() == Object[].class) {
+            Object[] array = (Object[]) object;
+
+            out.writeByte(ARRAY);
+            out.writeInt(array.length);
+
+            for (Object element : array) {
+                writeObject(out, element);
+            }
+        } else {
+            throw new IllegalArgumentException("Unsupported resource state type: " + object.getClass().getName());
+        }
+    }
+
+    private static Object readObject(DataInputStream in, int depth) throws IOException {
+        byte tag = in.readByte();
+
+        switch (tag) {
+            case NULL:
+                return null;
+            case STRING:
+                return in.readUTF();
+            case TRUE:
+                return Boolean.TRUE;
+            case FALSE:
+                return Boolean.FALSE;
+            case BYTE:
+                return Byte.valueOf(in.readByte());
+            case SHORT:
+                return Short.valueOf(in.readShort());
+            case CHARACTER:
+                return Character.valueOf(in.readChar());
+            case INTEGER:
+                return Integer.valueOf(in.readInt());
+            case LONG:
+                return Long.valueOf(in.readLong());
+            case FLOAT:
+                return Float.valueOf(in.readFloat());
+            case DOUBLE:
+                return Double.valueOf(in.readDouble());
+            case BYTES:
+                byte[] bytes = new byte[readLength(in)];
+                in.readFully(bytes);
+                return bytes;
+            case ARRAY:
+                if (depth >= MAX_ARRAY_DEPTH) {
+                    // don't let crafted state overflow the stack
+                    throw new StreamCorruptedException("Resource state arrays are nested too deep");
+                }
+
+                Object[] array = new Object[readLength(in)];
+                for (int i = 0; i < array.length; i++) {
+                    array[i] = readObject(in, depth + 1);
+                }
+                return array;
+            default:
+                throw new StreamCorruptedException("Unknown resource state tag: " + tag);
+        }
+    }
+
+    private static int readLength(DataInputStream in) throws IOException {
+        int length = in.readInt();
+
+        // every byte or array element takes at least one byte of input
+        if (length < 0 || length > in.available()) {
+            throw new StreamCorruptedException("Invalid resource state length: " + length);
+        }
+
+        return length;
+    }
+}
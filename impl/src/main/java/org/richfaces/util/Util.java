@@ -62,13 +62,17 @@ import java.nio.charset.CharsetEncoder;
 import java.text.Format;
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
+import java.util.Arrays;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.Locale;
 import java.util.Map;
+import java.util.Queue;
 import java.util.TimeZone;
+import java.util.concurrent.ArrayBlockingQueue;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
+import java.util.zip.DataFormatException;
 import java.util.zip.Deflater;
 import java.util.zip.Inflater;
 
@@ -87,6 +91,8 @@ import org.richfaces.resource.StateHolderResource;
 
 import com.google.common.base.Splitter;
 import com.google.common.base.Strings;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 
 /**
  * @author Nick Belaevski
@@ -100,6 +106,14 @@ public final class Util {
     private static final String RFC1123_DATE_PATTERN = "EEE, dd MMM yyyy HH:mm:ss zzz";
     // TODO codec have settings
     private static final Codec CODEC = new Codec();
+    private static final int MAX_POOLED_COMPRESSORS = 8;
+    private static final Queue<Deflater> DEFLATERS = new ArrayBlockingQueue<Deflater>(MAX_POOLED_COMPRESSORS);
+    private static final Queue<Inflater> INFLATERS = new ArrayBlockingQueue<Inflater>(MAX_POOLED_COMPRESSORS);
+    private static final int DECODED_DATA_CACHE_SIZE = 256;
+    private static final int MAX_CACHED_DECODED_DATA_LENGTH = 4 * 1024;
+    private static final int MAX_DECODED_DATA_LENGTH = 64 * 1024;
+    private static final Cache<String, byte[]> DECODED_DATA_CACHE = CacheBuilder.newBuilder()
+        .maximumSize(DECODED_DATA_CACHE_SIZE).build();
     private static final SimpleDateFormat RFC1123_DATE_FORMATTER;
     private static final String QUESTION_SIGN = "?";
     private static final String EQUALS_SIGN = "=";
@@ -156,6 +170,12 @@ public final class Util {
         Date result = null;
 
         if (s != null) {
+            long time = HttpDateCodec.parse(s);
+
+            if (time != HttpDateCodec.NO_DATE) {
+                return new Date(time);
+            }
+
             try {
                 result = (Date) ((Format) RFC1123_DATE_FORMATTER.clone()).parseObject(s);
             } catch (ParseException e) {
@@ -167,63 +187,130 @@ public final class Util {
     }
 
     public static String formatHttpDate(Object object) {
-        if (object != null) {
+        if (object instanceof Date) {
+            return HttpDateCodec.format(((Date) object).getTime());
+        } else if (object instanceof Long || object instanceof Integer) {
+            return HttpDateCodec.format(((Number) object).longValue());
+        } else if (object != null) {
             return ((Format) RFC1123_DATE_FORMATTER.clone()).format(object);
         } else {
             return null;
         }
     }
 
+    private static Deflater borrowDeflater() {
+        Deflater deflater = DEFLATERS.poll();
+
+        return deflater != null ? deflater : new Deflater(Deflater.BEST_SPEED);
+    }
+
+    private static void returnDeflater(Deflater deflater) {
+        deflater.reset();
+
+        if (!DEFLATERS.offer(deflater)) {
+            deflater.end();
+        }
+    }
+
+    private static Inflater borrowInflater() {
+        Inflater inflater = INFLATERS.poll();
+
+        return inflater != null ? inflater : new Inflater();
+    }
+
+    private static void returnInflater(Inflater inflater) {
+        inflater.reset();
+
+        if (!INFLATERS.offer(inflater)) {
+            inflater.end();
+        }
+    }
+
     protected static byte[] encrypt(byte[] src) {
+        Deflater compressor = borrowDeflater();
+
         try {
-            Deflater compressor = new Deflater(Deflater.BEST_SPEED);
-            byte[] compressed = new byte[src.length + 100];
+            // zlib bound of compressed data size, output grows if it's still not enough
+            byte[] compressed = new byte[src.length + (src.length >> 12) + (src.length >> 14) + 64];
+            int totalOut = 0;
 
             compressor.setInput(src);
             compressor.finish();
 
-            int totalOut = compressor.deflate(compressed);
-            byte[] zipsrc = new byte[totalOut];
+            while (!compressor.finished()) {
+                if (totalOut == compressed.length) {
+                    compressed = Arrays.copyOf(compressed, compressed.length * 2);
+                }
 
-            System.arraycopy(compressed, 0, zipsrc, 0, totalOut);
-            compressor.end();
+                totalOut += compressor.deflate(compressed, totalOut, compressed.length - totalOut);
+            }
 
-            return CODEC.encode(zipsrc);
+            return CODEC.encode(Arrays.copyOf(compressed, totalOut));
         } catch (Exception e) {
             throw new FacesException("Error encode resource data", e);
+        } finally {
+            returnDeflater(compressor);
         }
     }
 
     protected static byte[] decrypt(byte[] src) {
+        Inflater decompressor = borrowInflater();
+
         try {
             byte[] zipsrc = CODEC.decode(src);
-            Inflater decompressor = new Inflater();
-            byte[] uncompressed = new byte[zipsrc.length * 5];
+            byte[] uncompressed = new byte[Math.min(Math.max(zipsrc.length * 4, 64), MAX_DECODED_DATA_LENGTH)];
+            int totalOut = 0;
 
             decompressor.setInput(zipsrc);
 
-            int totalOut = decompressor.inflate(uncompressed);
-            byte[] out = new byte[totalOut];
+            while (!decompressor.finished()) {
+                if (totalOut == uncompressed.length) {
+                    if (totalOut == MAX_DECODED_DATA_LENGTH) {
+                        // don't let small request inflate into huge amount of memory
+                        throw new DataFormatException("Resource data exceeds " + MAX_DECODED_DATA_LENGTH + " bytes");
+                    }
+
+                    uncompressed = Arrays.copyOf(uncompressed, Math.min(uncompressed.length * 2, MAX_DECODED_DATA_LENGTH));
+                }
+
+                int inflated = decompressor.inflate(uncompressed, totalOut, uncompressed.length - totalOut);
 
-            System.arraycopy(uncompressed, 0, out, 0, totalOut);
-            decompressor.end();
+                if (inflated == 0 && !decompressor.finished()
+                    && (decompressor.needsInput() || decompressor.needsDictionary())) {
+                    throw new DataFormatException("Truncated resource data");
+                }
+
+                totalOut += inflated;
+            }
 
-            return out;
+            return Arrays.copyOf(uncompressed, totalOut);
         } catch (Exception e) {
             throw new FacesException("Error decode resource data", e);
+        } finally {
+            returnInflater(decompressor);
         }
     }
 
+    /**
+     * Decodes data encoded by {@link #encodeBytesData(byte[])}. Recently decoded data is cached unless it's large, so
+     * returned array can be shared and should not be modified. Data that inflates to more than 64 KB is rejected.
+     */
     public static byte[] decodeBytesData(String encodedData) {
-        byte[] objectArray = null;
+        byte[] objectArray = DECODED_DATA_CACHE.getIfPresent(encodedData);
 
-        try {
-            byte[] dataArray = encodedData.getBytes("ISO-8859-1");
+        if (objectArray == null) {
+            try {
+                byte[] dataArray = encodedData.getBytes("ISO-8859-1");
 
-            objectArray = decrypt(dataArray);
-        } catch (UnsupportedEncodingException e1) {
+                objectArray = decrypt(dataArray);
 
-            // default encoding always presented.
+                if (objectArray.length <= MAX_CACHED_DECODED_DATA_LENGTH) {
+                    DECODED_DATA_CACHE.put(encodedData, objectArray);
+                }
+            } catch (UnsupportedEncodingException e1) {
+
+                // default encoding always presented.
+            }
         }
 
         return objectArray;
@@ -233,6 +320,10 @@ public final class Util {
         byte[] objectArray = decodeBytesData(encodedData);
 
         try {
+            if (objectArray.length != 0 && objectArray[0] == ResourceStateFormat.MARKER) {
+                return ResourceStateFormat.read(new DataInputStream(new ByteArrayInputStream(objectArray)));
+            }
+
             ObjectInputStream in = new ObjectInputStreamImpl(new ByteArrayInputStream(objectArray));
 
             return in.readObject();
@@ -261,15 +352,25 @@ public final class Util {
         return null;
     }
 
+    /**
+     * Encodes object data. Objects supported by compact resource state format (strings, primitive wrappers and arrays of
+     * them) are written without Java serialization.
+     */
     public static String encodeObjectData(Object data) {
         if (data != null) {
             try {
                 ByteArrayOutputStream dataStream = new ByteArrayOutputStream(1024);
-                ObjectOutputStream objStream = new ObjectOutputStream(dataStream);
 
-                objStream.writeObject(data);
-                objStream.flush();
-                objStream.close();
+                if (ResourceStateFormat.isSupported(data)) {
+                    ResourceStateFormat.write(new DataOutputStream(dataStream), data);
+                } else {
+                    ObjectOutputStream objStream = new ObjectOutputStream(dataStream);
+
+                    objStream.writeObject(data);
+                    objStream.flush();
+                    objStream.close();
+                }
+
                 dataStream.close();
 
                 return encodeBytesData(dataStream.toByteArray());
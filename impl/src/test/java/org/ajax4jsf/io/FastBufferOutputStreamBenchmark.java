@@ -0,0 +1,119 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2010, Red Hat, Inc. and individual contributors
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.ajax4jsf.io;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.WritableByteChannel;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+
+/**
+ * Throughput of buffering response content: chain of doubling arrays compared with chain of pooled segments, and copy of
+ * the chain into single array compared with gathering write to channel. Run with
+ * <code>java -cp target/test-classes:&lt;test classpath&gt; org.openjdk.jmh.Main FastBufferOutputStreamBenchmark</code>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Threads(4)
+public class FastBufferOutputStreamBenchmark {
+    @Param({ "4096", "262144" })
+    private int length;
+    private byte[] chunk = new byte[1024];
+    private final WritableByteChannel channel = new WritableByteChannel() {
+        public int write(java.nio.ByteBuffer src) {
+            int remaining = src.remaining();
+
+            src.position(src.limit());
+            return remaining;
+        }
+
+        public boolean isOpen() {
+            return true;
+        }
+
+        public void close() {
+        }
+    };
+    private final OutputStream stream = new OutputStream() {
+        @Override
+        public void write(int b) {
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+        }
+    };
+
+    @Setup
+    public void setup() {
+        for (int i = 0; i < chunk.length; i++) {
+            chunk[i] = (byte) i;
+        }
+    }
+
+    private void fill(FastBufferOutputStream os) throws IOException {
+        for (int written = 0; written < length; written += chunk.length) {
+            os.write(chunk, 0, chunk.length);
+        }
+    }
+
+    @Benchmark
+    public int growingChainToArray() throws IOException {
+        FastBufferOutputStream os = new FastBufferOutputStream();
+
+        fill(os);
+        stream.write(os.toByteArray());
+        return os.getLength();
+    }
+
+    @Benchmark
+    public int growingChainToStream() throws IOException {
+        FastBufferOutputStream os = new FastBufferOutputStream();
+
+        fill(os);
+        os.writeTo(stream);
+        return os.getLength();
+    }
+
+    @Benchmark
+    public int pooledChainToChannel() throws IOException {
+        FastBufferOutputStream os = new FastBufferOutputStream(SegmentPool.getInstance());
+
+        fill(os);
+        os.writeTo(channel);
+
+        int result = os.getLength();
+        os.release();
+        return result;
+    }
+}
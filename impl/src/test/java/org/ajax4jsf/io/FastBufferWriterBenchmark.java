@@ -0,0 +1,101 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2010, Red Hat, Inc. and individual contributors
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.ajax4jsf.io;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Throughput of encoding buffered partial response to output stream: streaming encoder of
+ * {@link FastBufferWriter#writeTo(OutputStream, String)} compared with conversion of each link to String and bytes. Run with
+ * <code>java -cp target/test-classes:&lt;test classpath&gt; org.openjdk.jmh.Main FastBufferWriterBenchmark</code>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class FastBufferWriterBenchmark {
+    private static final String MARKUP = "<update id=\"form:table\"><![CDATA[<tr class=\"rf-dt-r\"><td>Cell</td></tr>]]></update>\n";
+    private static final String CYRILLIC = "<span>\u0421\u044a\u0435\u0448\u044c \u0436\u0435 \u0435\u0449\u0451 "
+        + "\u044d\u0442\u0438\u0445 \u043c\u044f\u0433\u043a\u0438\u0445 \u0431\u0443\u043b\u043e\u043a</span>\n";
+    @Param({ "markup", "cyrillic" })
+    private String shape;
+    @Param({ "65536", "1048576" })
+    private int length;
+    private FastBufferWriter writer;
+    private final OutputStream out = new OutputStream() {
+        @Override
+        public void write(int b) {
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+        }
+    };
+
+    @Setup
+    public void setup() throws IOException {
+        String sample = "markup".equals(shape) ? MARKUP : CYRILLIC;
+
+        writer = new FastBufferWriter(SegmentPool.getInstance());
+
+        while (writer.getLength() < length) {
+            writer.write(sample);
+        }
+    }
+
+    @Benchmark
+    public int stringPerLink() throws IOException {
+        int result = 0;
+
+        for (CharBuffer b = writer.getFirstBuffer(); b != null; b = b.getNext()) {
+            byte[] bytes = new String(b.getChars(), 0, b.getUsedSize()).getBytes("UTF-8");
+
+            out.write(bytes);
+            result += bytes.length;
+        }
+
+        return result;
+    }
+
+    @Benchmark
+    public void streamingEncoder() throws IOException {
+        writer.writeTo(out, "UTF-8");
+    }
+
+    @Benchmark
+    public int convertToOutputStream() throws IOException {
+        FastBufferOutputStream stream = writer.convertToOutputStream("UTF-8");
+
+        stream.writeTo(out);
+        return stream.getLength();
+    }
+}
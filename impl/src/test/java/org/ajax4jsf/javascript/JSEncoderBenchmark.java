@@ -0,0 +1,114 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2010, Red Hat, Inc. and individual contributors
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.ajax4jsf.javascript;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.CharBuffer;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Throughput of JavaScript string encoding: bulk {@link JSEncoder#appendEncoded(Appendable, CharSequence)} compared with
+ * per-character encoding loop previously used by {@link ScriptUtils}, for plain text, HTML markup and non-latin text. Run
+ * with <code>java -cp target/test-classes:&lt;test classpath&gt; org.openjdk.jmh.Main JSEncoderBenchmark</code>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class JSEncoderBenchmark {
+    private static final String PLAIN = "The quick brown fox jumps over the lazy dog. ";
+    private static final String MARKUP = "<div class=\"rf-p\"><a href=\"/page.jsf?id=1&amp;b=2\">Link</a></div>\n";
+    private static final String CYRILLIC = "\u0421\u044a\u0435\u0448\u044c \u0436\u0435 \u0435\u0449\u0451 \u044d\u0442\u0438\u0445 "
+        + "\u043c\u044f\u0433\u043a\u0438\u0445 \u0431\u0443\u043b\u043e\u043a. ";
+    @Param({ "plain", "markup", "cyrillic" })
+    private String shape;
+    @Param({ "64", "4096" })
+    private int length;
+    private String text;
+    private StringBuilder builder = new StringBuilder();
+    private StringWriter writer = new StringWriter();
+
+    @Setup
+    public void setup() {
+        String sample = "plain".equals(shape) ? PLAIN : ("markup".equals(shape) ? MARKUP : CYRILLIC);
+        StringBuilder textBuilder = new StringBuilder(length);
+
+        while (textBuilder.length() < length) {
+            textBuilder.append(sample);
+        }
+
+        textBuilder.setLength(length);
+        text = textBuilder.toString();
+    }
+
+    private static void appendEncodedPerCharacter(Appendable appendable, Object obj) throws IOException {
+        JSEncoder encoder = new JSEncoder();
+        char[] chars = obj.toString().toCharArray();
+
+        for (int i = 0; i < chars.length; i++) {
+            char c = chars[i];
+
+            if (!encoder.compile(c)) {
+                appendable.append(CharBuffer.wrap(encoder.encode(c)));
+            } else {
+                appendable.append(c);
+            }
+        }
+    }
+
+    @Benchmark
+    public int perCharacterStringBuilder() throws IOException {
+        builder.setLength(0);
+        appendEncodedPerCharacter(builder, text);
+        return builder.length();
+    }
+
+    @Benchmark
+    public int bulkStringBuilder() throws IOException {
+        builder.setLength(0);
+        JSEncoder.appendEncoded(builder, text);
+        return builder.length();
+    }
+
+    @Benchmark
+    public int perCharacterWriter() throws IOException {
+        writer.getBuffer().setLength(0);
+        appendEncodedPerCharacter(writer, text);
+        return writer.getBuffer().length();
+    }
+
+    @Benchmark
+    public int bulkWriter() throws IOException {
+        writer.getBuffer().setLength(0);
+        JSEncoder.appendEncoded(writer, text);
+        return writer.getBuffer().length();
+    }
+}
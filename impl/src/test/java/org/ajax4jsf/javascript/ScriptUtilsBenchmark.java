@@ -0,0 +1,154 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2010, Red Hat, Inc. and individual contributors
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.ajax4jsf.javascript;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Serialization of common payload shapes with {@link ScriptUtils}: component options map, push message bean with nested
+ * beans and collections, primitive array and plain string. Run with
+ * <code>java -cp target/test-classes:&lt;test classpath&gt; org.openjdk.jmh.Main ScriptUtilsBenchmark</code>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class ScriptUtilsBenchmark {
+    private Map<String, Object> options;
+    private Quote quote;
+    private double[] series;
+    private String text;
+    private StringBuilder builder = new StringBuilder(1024);
+
+    public static class Trade {
+        private final long time;
+        private final double price;
+        private final int volume;
+
+        public Trade(long time, double price, int volume) {
+            this.time = time;
+            this.price = price;
+            this.volume = volume;
+        }
+
+        public long getTime() {
+            return time;
+        }
+
+        public double getPrice() {
+            return price;
+        }
+
+        public int getVolume() {
+            return volume;
+        }
+    }
+
+    public static class Quote {
+        private final String symbol;
+        private final double price;
+        private final boolean open;
+        private final List<Trade> trades = new ArrayList<Trade>();
+
+        public Quote(String symbol, double price, boolean open) {
+            this.symbol = symbol;
+            this.price = price;
+            this.open = open;
+        }
+
+        public String getSymbol() {
+            return symbol;
+        }
+
+        public double getPrice() {
+            return price;
+        }
+
+        public boolean isOpen() {
+            return open;
+        }
+
+        public List<Trade> getTrades() {
+            return trades;
+        }
+    }
+
+    @Setup
+    public void setup() {
+        options = new LinkedHashMap<String, Object>();
+        options.put("mode", "ajax");
+        options.put("disabled", Boolean.FALSE);
+        options.put("delay", Integer.valueOf(300));
+        options.put("onbeforeactivate", "alert('activated')");
+        options.put("styleClass", "rf-tab-hdr rf-tab-hdr-act");
+
+        quote = new Quote("RHT", 52.47, true);
+        for (int i = 0; i < 5; i++) {
+            quote.getTrades().add(new Trade(1346000000000L + i * 1000, 52.4 + i * 0.01, 100 * (i + 1)));
+        }
+
+        series = new double[32];
+        for (int i = 0; i < series.length; i++) {
+            series[i] = i * 0.5;
+        }
+
+        text = "Status: <b>\"done\"</b>\n\u041f\u0440\u0438\u0432\u0435\u0442";
+    }
+
+    private int serialize(Object object) throws IOException {
+        builder.setLength(0);
+        ScriptUtils.appendScript(builder, object);
+        return builder.length();
+    }
+
+    @Benchmark
+    public int optionsMap() throws IOException {
+        return serialize(options);
+    }
+
+    @Benchmark
+    public int nestedBean() throws IOException {
+        return serialize(quote);
+    }
+
+    @Benchmark
+    public int primitiveArray() throws IOException {
+        return serialize(series);
+    }
+
+    @Benchmark
+    public int string() throws IOException {
+        return serialize(text);
+    }
+}
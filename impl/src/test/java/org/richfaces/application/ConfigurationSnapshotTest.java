@@ -0,0 +1,139 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2010, Red Hat, Inc. and individual contributors
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.richfaces.application;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import javax.faces.context.ExternalContext;
+import javax.faces.context.FacesContext;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.richfaces.application.configuration.ConfigurationServiceImpl;
+
+public class ConfigurationSnapshotTest {
+    private FacesContext facesContext;
+    private ExternalContext externalContext;
+    private ConfigurationServiceImpl service;
+
+    @Before
+    public void setUp() throws Exception {
+        facesContext = mock(FacesContext.class);
+        externalContext = mock(ExternalContext.class);
+        when(facesContext.getExternalContext()).thenReturn(externalContext);
+
+        service = new ConfigurationServiceImpl();
+    }
+
+    @Test
+    public void testItemsReadOnce() throws Exception {
+        when(externalContext.getInitParameter("org.richfaces.IntValue")).thenReturn("32768");
+        when(externalContext.getInitParameter("org.richfaces.MultiValue2")).thenReturn("test value");
+
+        for (int i = 0; i < 3; i++) {
+            assertEquals(Integer.valueOf(32768), service.getIntValue(facesContext, Configuration.intValue));
+            assertEquals(Long.valueOf(-100L), service.getLongValue(facesContext, Configuration.longValueWithDefault));
+            assertEquals("test value", service.getStringValue(facesContext, Configuration.multiValue));
+        }
+
+        verify(externalContext, times(1)).getInitParameter("org.richfaces.IntValue");
+        verify(externalContext, times(1)).getInitParameter("org.richfaces.LongValueWithDefault");
+        verify(externalContext, times(1)).getInitParameter("org.richfaces.MultiValue2");
+    }
+
+    @Test
+    public void testValueTypes() throws Exception {
+        when(externalContext.getInitParameter("org.richfaces.IntValue")).thenReturn("32768");
+
+        assertEquals(Integer.valueOf(32768), service.getIntValue(facesContext, Configuration.intValue));
+        assertEquals(Long.valueOf(32768L), service.getLongValue(facesContext, Configuration.intValue));
+        assertEquals("32768", service.getStringValue(facesContext, Configuration.intValue));
+
+        assertSame(Enumeration.foo, service.getEnumValue(facesContext, Configuration.enumValueWithDefault, Enumeration.class));
+    }
+
+    @Test
+    public void testReload() throws Exception {
+        when(externalContext.getInitParameter("org.richfaces.BooleanValue")).thenReturn("true");
+        assertEquals(Boolean.TRUE, service.getBooleanValue(facesContext, Configuration.booleanValueWithDefault));
+
+        when(externalContext.getInitParameter("org.richfaces.BooleanValue")).thenReturn(null);
+        assertEquals(Boolean.TRUE, service.getBooleanValue(facesContext, Configuration.booleanValueWithDefault));
+
+        service.reload();
+        assertEquals(Boolean.FALSE, service.getBooleanValue(facesContext, Configuration.booleanValueWithDefault));
+    }
+
+    @Test
+    public void testReloadWhileReading() throws Exception {
+        final CountDownLatch readStarted = new CountDownLatch(1);
+        final CountDownLatch readReleased = new CountDownLatch(1);
+
+        when(externalContext.getInitParameter("org.richfaces.BooleanValue")).thenAnswer(new Answer<String>() {
+            public String answer(InvocationOnMock invocation) throws Throwable {
+                readStarted.countDown();
+                readReleased.await();
+                return "true";
+            }
+        });
+
+        Thread reader = new Thread() {
+            @Override
+            public void run() {
+                service.getBooleanValue(facesContext, Configuration.booleanValueWithDefault);
+            }
+        };
+        Thread reloader = new Thread() {
+            @Override
+            public void run() {
+                service.reload();
+            }
+        };
+
+        reader.start();
+        assertTrue(readStarted.await(10, TimeUnit.SECONDS));
+        reloader.start();
+
+        // reload has to wait for the snapshot being built
+        while (reloader.getState() != Thread.State.BLOCKED && reloader.isAlive()) {
+            Thread.sleep(1);
+        }
+
+        readReleased.countDown();
+        reader.join();
+        reloader.join();
+
+        when(externalContext.getInitParameter("org.richfaces.BooleanValue")).thenReturn(null);
+        assertEquals(Boolean.FALSE, service.getBooleanValue(facesContext, Configuration.booleanValueWithDefault));
+    }
+}
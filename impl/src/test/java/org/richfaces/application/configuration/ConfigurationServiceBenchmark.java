@@ -0,0 +1,97 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2010, Red Hat, Inc. and individual contributors
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.richfaces.application.configuration;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.concurrent.TimeUnit;
+
+import javax.el.ELContext;
+import javax.faces.context.ExternalContext;
+import javax.faces.context.FacesContext;
+import javax.faces.context.FacesContextWrapper;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.richfaces.application.CoreConfiguration;
+
+/**
+ * Throughput of {@link ConfigurationServiceImpl} lookups of literal items: context parameter, default value and
+ * properties bundle value. Run with
+ * <code>java -cp target/test-classes:&lt;test classpath&gt; org.openjdk.jmh.Main ConfigurationServiceBenchmark</code>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ConfigurationServiceBenchmark {
+    private FacesContext facesContext;
+    private ConfigurationService service;
+
+    @Setup
+    public void setup() {
+        final ExternalContext externalContext = mock(ExternalContext.class);
+        final FacesContext wrappedFacesContext = mock(FacesContext.class);
+
+        when(externalContext.getInitParameter("org.richfaces.resourceCacheMaxContentLength")).thenReturn("65536");
+
+        // lookups shouldn't pay for mock invocations
+        facesContext = new FacesContextWrapper() {
+            @Override
+            public FacesContext getWrapped() {
+                return wrappedFacesContext;
+            }
+
+            @Override
+            public ExternalContext getExternalContext() {
+                return externalContext;
+            }
+
+            @Override
+            public ELContext getELContext() {
+                return null;
+            }
+        };
+
+        service = new ConfigurationServiceImpl();
+    }
+
+    @Benchmark
+    public Integer contextParameter() {
+        return service.getIntValue(facesContext, CoreConfiguration.Items.resourcesCacheMaxContentLength);
+    }
+
+    @Benchmark
+    public Boolean defaultValue() {
+        return service.getBooleanValue(facesContext, CoreConfiguration.Items.resourceOptimizationEnabled);
+    }
+
+    @Benchmark
+    public String bundleValue() {
+        return service.getStringValue(facesContext, CoreConfiguration.PushPropertiesItems.pushPropertiesJMSConnectionFactory);
+    }
+}
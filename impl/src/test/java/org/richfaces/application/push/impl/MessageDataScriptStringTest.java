@@ -0,0 +1,76 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2010, Red Hat, Inc. and individual contributors
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.richfaces.application.push.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+
+import org.junit.Test;
+import org.richfaces.application.push.MessageData;
+import org.richfaces.application.push.TopicKey;
+
+public class MessageDataScriptStringTest {
+    private static final TopicKey TOPIC_KEY = new TopicKey("chat@room_1");
+
+    @Test
+    public void testMessageData() throws Exception {
+        MessageDataScriptString script = new MessageDataScriptString(Arrays.asList(new MessageData(TOPIC_KEY, "{a:1}", 3),
+            new MessageData(TOPIC_KEY, "'b'", 4)));
+
+        assertEquals("<\"topic\":\"chat@room_1\",\"data\":{a:1},\"number\":3>"
+            + "<\"topic\":\"chat@room_1\",\"data\":'b',\"number\":4>", script.toScript());
+        assertEquals(4, script.getLastSequenceNumber());
+    }
+
+    @Test
+    public void testFramedMessageData() throws Exception {
+        MessageFrame frame = new MessageFrame(TOPIC_KEY, "{a:1}");
+        FramedMessageData first = new FramedMessageData(frame, 10);
+        FramedMessageData second = new FramedMessageData(new MessageData(TOPIC_KEY, "{a:1}", 11), null);
+
+        MessageDataScriptString framedScript = new MessageDataScriptString(Arrays.asList(first, second));
+        MessageDataScriptString plainScript = new MessageDataScriptString(Arrays.asList(new MessageData(TOPIC_KEY, "{a:1}",
+            10), new MessageData(TOPIC_KEY, "{a:1}", 11)));
+
+        assertEquals(plainScript.toScript(), framedScript.toScript());
+        assertEquals(11, framedScript.getLastSequenceNumber());
+    }
+
+    @Test
+    public void testSessionMessages() throws Exception {
+        SessionImpl session = new SessionImpl("session", null, null);
+        session.push(TOPIC_KEY, "{a:1}");
+        session.push(new MessageFrame(TOPIC_KEY, "'b'"));
+
+        MessageDataScriptString script = new MessageDataScriptString(session.getFramedMessages());
+
+        assertEquals("<\"topic\":\"chat@room_1\",\"data\":{a:1},\"number\":0>"
+            + "<\"topic\":\"chat@room_1\",\"data\":'b',\"number\":1>", script.toScript());
+        assertEquals(script.toScript(), new MessageDataScriptString(session.getMessages()).toScript());
+
+        session.clearBroadcastedMessages(script.getLastSequenceNumber());
+
+        assertTrue(session.getMessages().isEmpty());
+    }
+}
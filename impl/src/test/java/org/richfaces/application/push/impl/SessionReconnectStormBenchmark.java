@@ -0,0 +1,103 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2010, Red Hat, Inc. and individual contributors
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.richfaces.application.push.impl;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.richfaces.application.push.impl.SessionTimingWheelTest.TestSession;
+
+/**
+ * Load test of {@link SessionTimingWheel} simulating reconnect storm: many push sessions re-connecting concurrently (each
+ * re-connect re-queues the session), while expiration shards are being processed. Run with
+ * <code>java -cp target/test-classes:&lt;test classpath&gt; org.openjdk.jmh.Main SessionReconnectStormBenchmark</code>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Threads(8)
+public class SessionReconnectStormBenchmark {
+    private static final int SESSIONS_COUNT = 50000;
+    private static final int MAX_INACTIVE_INTERVAL = (int) TimeUnit.MINUTES.toMillis(5);
+    private SessionTimingWheel wheel;
+    private TestSession[] sessions;
+
+    @Setup
+    public void setup() {
+        long currentTime = System.currentTimeMillis();
+
+        wheel = new SessionTimingWheel(16, 1000, 512, currentTime);
+        sessions = new TestSession[SESSIONS_COUNT];
+
+        for (int i = 0; i < sessions.length; i++) {
+            sessions[i] = new TestSession("session-" + i, MAX_INACTIVE_INTERVAL, currentTime);
+            wheel.requeue(sessions[i], true);
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        wheel.shutdown();
+    }
+
+    @State(Scope.Thread)
+    public static class Cursor {
+        private int position;
+
+        int next() {
+            position = (position * 1103515245 + 12345) & Integer.MAX_VALUE;
+            return position % SESSIONS_COUNT;
+        }
+    }
+
+    @Benchmark
+    public void reconnect(Cursor cursor) {
+        TestSession session = sessions[cursor.next()];
+
+        session.access(System.currentTimeMillis());
+        wheel.requeue(session, false);
+    }
+
+    @Benchmark
+    public Object reconnectWithExpiration(Cursor cursor) {
+        int idx = cursor.next();
+
+        // expiration thread runs about once per 64 re-connects
+        if ((idx & 0x3F) == 0) {
+            return wheel.expire(idx % wheel.getShardsCount(), System.currentTimeMillis());
+        }
+
+        TestSession session = sessions[idx];
+        session.access(System.currentTimeMillis());
+        wheel.requeue(session, false);
+
+        return session;
+    }
+}
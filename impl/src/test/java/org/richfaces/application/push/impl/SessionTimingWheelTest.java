@@ -0,0 +1,213 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2010, Red Hat, Inc. and individual contributors
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.richfaces.application.push.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.richfaces.application.push.MessageData;
+import org.richfaces.application.push.Request;
+import org.richfaces.application.push.Session;
+import org.richfaces.application.push.TopicKey;
+
+public class SessionTimingWheelTest {
+    private static final long TICK = 100;
+    private static final int WHEEL_SIZE = 8;
+    private static final int MAX_INACTIVE_INTERVAL = 1000;
+    private SessionTimingWheel wheel;
+
+    static class TestSession implements Session {
+        private final String id;
+        private final int maxInactiveInterval;
+        private volatile long lastAccessedTime;
+
+        TestSession(String id, int maxInactiveInterval, long lastAccessedTime) {
+            this.id = id;
+            this.maxInactiveInterval = maxInactiveInterval;
+            this.lastAccessedTime = lastAccessedTime;
+        }
+
+        void access(long time) {
+            lastAccessedTime = time;
+        }
+
+        public int getMaxInactiveInterval() {
+            return maxInactiveInterval;
+        }
+
+        public long getLastAccessedTime() {
+            return lastAccessedTime;
+        }
+
+        public String getId() {
+            return id;
+        }
+
+        public Collection<TopicKey> getSuccessfulSubscriptions() {
+            return null;
+        }
+
+        public Map<TopicKey, String> getFailedSubscriptions() {
+            return null;
+        }
+
+        public void subscribe(String[] topics) {
+        }
+
+        public void connect(Request request) throws Exception {
+        }
+
+        public void disconnect() throws Exception {
+        }
+
+        public void invalidate() {
+            lastAccessedTime = -1;
+        }
+
+        public void push(TopicKey topicKey, String serializedData) {
+        }
+
+        public Collection<MessageData> getMessages() {
+            return null;
+        }
+
+        public void clearBroadcastedMessages(long sequenceNumber) {
+        }
+    }
+
+    private List<Session> expireAll(long time) {
+        List<Session> result = new ArrayList<Session>();
+
+        for (int i = 0; i < wheel.getShardsCount(); i++) {
+            result.addAll(wheel.expire(i, time));
+        }
+
+        return result;
+    }
+
+    @Before
+    public void setUp() throws Exception {
+        wheel = new SessionTimingWheel(4, TICK, WHEEL_SIZE, 0);
+    }
+
+    @Test
+    public void testExpiration() throws Exception {
+        TestSession session = new TestSession("a", MAX_INACTIVE_INTERVAL, 0);
+        wheel.requeue(session, true);
+
+        assertEquals(1, wheel.size());
+        assertTrue(expireAll(MAX_INACTIVE_INTERVAL - 1).isEmpty());
+        assertEquals(1, wheel.size());
+
+        List<Session> expired = expireAll(MAX_INACTIVE_INTERVAL);
+        assertEquals(1, expired.size());
+        assertEquals(session, expired.get(0));
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    public void testRequeueNotExisting() throws Exception {
+        wheel.requeue(new TestSession("a", MAX_INACTIVE_INTERVAL, 0), false);
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    public void testAccessedSessionIsRescheduled() throws Exception {
+        TestSession session = new TestSession("a", MAX_INACTIVE_INTERVAL, 0);
+        wheel.requeue(session, true);
+
+        session.access(700);
+        wheel.requeue(session, false);
+
+        assertTrue(expireAll(MAX_INACTIVE_INTERVAL).isEmpty());
+        assertEquals(1, wheel.size());
+        assertTrue(expireAll(1699).isEmpty());
+        assertEquals(1, expireAll(1700).size());
+    }
+
+    @Test
+    public void testInvalidatedSessionExpiresAtNextTick() throws Exception {
+        TestSession session = new TestSession("a", MAX_INACTIVE_INTERVAL, 0);
+        wheel.requeue(session, true);
+        assertTrue(expireAll(150).isEmpty());
+
+        session.invalidate();
+        wheel.requeue(session, false);
+
+        assertEquals(1, expireAll(200).size());
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    public void testSessionsInLaterRounds() throws Exception {
+        // expiration is more than one wheel round ahead
+        TestSession session = new TestSession("a", 5000, 0);
+        wheel.requeue(session, true);
+
+        for (long time = 0; time < 5000; time += TICK) {
+            assertTrue("Expired at " + time, expireAll(time).isEmpty());
+        }
+
+        assertEquals(1, expireAll(5000).size());
+    }
+
+    @Test
+    public void testSkippedTicks() throws Exception {
+        List<TestSession> sessions = new ArrayList<TestSession>();
+        for (int i = 0; i < 100; i++) {
+            TestSession session = new TestSession("session" + i, i * 10, 0);
+            sessions.add(session);
+            wheel.requeue(session, true);
+        }
+
+        assertEquals(100, expireAll(10 * WHEEL_SIZE * TICK).size());
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    public void testRemove() throws Exception {
+        TestSession session = new TestSession("a", MAX_INACTIVE_INTERVAL, 0);
+        wheel.requeue(session, true);
+        wheel.remove(session);
+
+        assertEquals(0, wheel.size());
+        assertTrue(expireAll(MAX_INACTIVE_INTERVAL).isEmpty());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testShutdown() throws Exception {
+        wheel.requeue(new TestSession("a", MAX_INACTIVE_INTERVAL, 0), true);
+        wheel.shutdown();
+
+        assertEquals(0, wheel.size());
+        assertTrue(expireAll(MAX_INACTIVE_INTERVAL).isEmpty());
+
+        wheel.requeue(new TestSession("b", MAX_INACTIVE_INTERVAL, 0), true);
+    }
+}
@@ -0,0 +1,119 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2010, Red Hat, Inc. and individual contributors
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.richfaces.application.push.impl;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.richfaces.application.push.Session;
+import org.richfaces.application.push.SessionManager;
+import org.richfaces.application.push.TopicKey;
+
+/**
+ * Measures broadcasting of single message to topic subscribers: fan-out to session queues and rendering of every session
+ * messages, as done by {@link TopicImpl} and {@link RequestImpl}. Compares framing of message in every session with shared
+ * {@link MessageFrame}. Run with
+ * <code>java -cp target/test-classes:&lt;test classpath&gt; org.openjdk.jmh.Main TopicFanOutBenchmark</code>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class TopicFanOutBenchmark {
+    private static final SessionManager SESSION_MANAGER = new SessionManager() {
+        public void requeue(Session session) {
+        }
+
+        public void putPushSession(Session pushSession) throws IllegalStateException {
+        }
+
+        public Session getPushSession(String id) {
+            return null;
+        }
+
+        public void destroy() {
+        }
+    };
+    private static final TopicKey TOPIC_KEY = new TopicKey("stockQuotes@portfolio");
+    private static final String MESSAGE = "{\"symbol\":\"RHT\",\"price\":52.47,\"change\":-0.12,\"volume\":1833400}";
+    @Param({ "100", "1000", "10000" })
+    private int subscribers;
+    private SessionImpl[] sessions;
+    private StringBuilder output = new StringBuilder(256);
+
+    @Setup
+    public void setup() {
+        sessions = new SessionImpl[subscribers];
+
+        for (int i = 0; i < sessions.length; i++) {
+            sessions[i] = new SessionImpl("session-" + i, SESSION_MANAGER, null);
+        }
+    }
+
+    private long flush(SessionImpl session) throws IOException {
+        MessageDataScriptString script = new MessageDataScriptString(session.getFramedMessages());
+
+        output.setLength(0);
+        script.appendScript(output);
+        session.clearBroadcastedMessages(script.getLastSequenceNumber());
+
+        return output.length();
+    }
+
+    @Benchmark
+    public long perSessionFrame() throws IOException {
+        long length = 0;
+
+        for (SessionImpl session : sessions) {
+            session.push(new MessageFrame(TOPIC_KEY, MESSAGE));
+        }
+
+        for (SessionImpl session : sessions) {
+            length += flush(session);
+        }
+
+        return length;
+    }
+
+    @Benchmark
+    public long sharedFrame() throws IOException {
+        long length = 0;
+        MessageFrame frame = new MessageFrame(TOPIC_KEY, MESSAGE);
+
+        for (SessionImpl session : sessions) {
+            session.push(frame);
+        }
+
+        for (SessionImpl session : sessions) {
+            length += flush(session);
+        }
+
+        return length;
+    }
+}
@@ -0,0 +1,99 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2010, Red Hat, Inc. and individual contributors
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.richfaces.cache.concurrent;
+
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.richfaces.cache.Cache;
+import org.richfaces.cache.lru.LRUMapCache;
+
+/**
+ * Compares {@link ConcurrentLRUCache} with {@link LRUMapCache} on a read-mostly workload with expiring entries. Run with
+ * <code>java -cp target/test-classes:&lt;test classpath&gt; org.openjdk.jmh.Main ConcurrentLRUCacheBenchmark</code>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Threads(8)
+public class ConcurrentLRUCacheBenchmark {
+    private static final int KEYS_COUNT = 1024;
+    @Param({ "lru", "concurrent" })
+    private String cacheType;
+    private Cache cache;
+    private String[] keys;
+    private Date expired;
+
+    @Setup
+    public void setup() {
+        if ("lru".equals(cacheType)) {
+            cache = new LRUMapCache(KEYS_COUNT);
+        } else {
+            cache = new ConcurrentLRUCache((long) KEYS_COUNT * ConcurrentLRUCache.DEFAULT_WEIGHT, 16);
+        }
+
+        expired = new Date(System.currentTimeMillis() + TimeUnit.HOURS.toMillis(1));
+        keys = new String[KEYS_COUNT];
+
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = "resource-" + i;
+            cache.put(keys[i], keys[i], expired);
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Cursor {
+        private int position;
+
+        int next() {
+            position = (position * 1103515245 + 12345) & Integer.MAX_VALUE;
+            return position % KEYS_COUNT;
+        }
+    }
+
+    @Benchmark
+    public Object get(Cursor cursor) {
+        return cache.get(keys[cursor.next()]);
+    }
+
+    @Benchmark
+    public Object getWithPut(Cursor cursor) {
+        int idx = cursor.next();
+
+        // one write per 16 reads, close to resources cache refresh ratio under load
+        if ((idx & 0xF) == 0) {
+            cache.put(keys[idx], keys[idx], expired);
+            return null;
+        }
+
+        return cache.get(keys[idx]);
+    }
+}
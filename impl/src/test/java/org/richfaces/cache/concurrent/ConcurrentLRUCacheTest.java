@@ -0,0 +1,172 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2010, Red Hat, Inc. and individual contributors
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.richfaces.cache.concurrent;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Date;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.Test;
+
+public class ConcurrentLRUCacheTest {
+    private static final class WeighedValue implements Weighable {
+        private final int weight;
+
+        public WeighedValue(int weight) {
+            this.weight = weight;
+        }
+
+        public int getWeight() {
+            return weight;
+        }
+    }
+
+    @Test
+    public void testBasic() throws Exception {
+        ConcurrentLRUCache cache = new ConcurrentLRUCache(1024 * 1024, 4);
+
+        assertNull(cache.get("a"));
+        cache.put("a", "value-a", null);
+        assertEquals("value-a", cache.get("a"));
+        cache.put("a", "value-b", null);
+        assertEquals("value-b", cache.get("a"));
+        assertEquals(1, cache.size());
+        assertEquals(ConcurrentLRUCache.DEFAULT_WEIGHT, cache.getWeightedSize());
+
+        cache.stop();
+        assertNull(cache.get("a"));
+        assertEquals(0, cache.getWeightedSize());
+    }
+
+    @Test
+    public void testExpiration() throws Exception {
+        ConcurrentLRUCache cache = new ConcurrentLRUCache(1024 * 1024, 1);
+
+        long now = System.currentTimeMillis();
+        cache.put("expired", "value", new Date(now - 1));
+        cache.put("actual", "value", new Date(now + 3600000));
+
+        assertNull(cache.get("expired"));
+        assertEquals("value", cache.get("actual"));
+
+        // next write purges expired entries
+        cache.put("other", "value", null);
+        assertEquals(2, cache.size());
+    }
+
+    @Test
+    public void testReplacedEntryExpiration() throws Exception {
+        ConcurrentLRUCache cache = new ConcurrentLRUCache(1024 * 1024, 1);
+
+        long now = System.currentTimeMillis();
+        cache.put("a", "old", new Date(now - 1));
+        cache.put("a", "new", new Date(now + 3600000));
+        cache.put("b", "value", null);
+
+        assertEquals("new", cache.get("a"));
+    }
+
+    @Test
+    public void testWeightEviction() throws Exception {
+        ConcurrentLRUCache cache = new ConcurrentLRUCache(300, 1);
+
+        cache.put("key1", new WeighedValue(100), null);
+        cache.put("key2", new WeighedValue(100), null);
+        cache.put("key3", new WeighedValue(100), null);
+        assertEquals(300, cache.getWeightedSize());
+
+        cache.get("key1");
+        cache.put("key4", new WeighedValue(100), null);
+
+        assertTrue(cache.get("key1") != null);
+        assertNull(cache.get("key2"));
+        assertTrue(cache.get("key3") != null);
+        assertTrue(cache.get("key4") != null);
+        assertEquals(300, cache.getWeightedSize());
+
+        cache.put("key5", new WeighedValue(250), null);
+        assertTrue(cache.get("key5") != null);
+        assertTrue(cache.getWeightedSize() <= 300);
+    }
+
+    @Test
+    public void testOversizedEntryIsNotStored() throws Exception {
+        ConcurrentLRUCache cache = new ConcurrentLRUCache(100, 1);
+
+        cache.put("key", new WeighedValue(50), null);
+        cache.put("key", new WeighedValue(200), null);
+
+        assertNull(cache.get("key"));
+        assertEquals(0, cache.getWeightedSize());
+    }
+
+    @Test
+    public void testThreads() throws Exception {
+        final ConcurrentLRUCache cache = new ConcurrentLRUCache(64 * ConcurrentLRUCache.DEFAULT_WEIGHT, 4);
+        final AtomicBoolean failure = new AtomicBoolean();
+        final CountDownLatch latch = new CountDownLatch(1);
+
+        Thread[] threads = new Thread[8];
+
+        for (int i = 0; i < threads.length; i++) {
+            final int threadIdx = i;
+
+            threads[i] = new Thread() {
+                @Override
+                public void run() {
+                    try {
+                        latch.await();
+
+                        for (int j = 0; j < 10000; j++) {
+                            String key = threadIdx + ":" + (j % 100);
+                            Object value = cache.get(key);
+
+                            if (value != null && !key.equals(value)) {
+                                failure.set(true);
+                            }
+
+                            cache.put(key, key, null);
+                        }
+                    } catch (Throwable e) {
+                        failure.set(true);
+                    }
+                }
+            };
+
+            threads[i].start();
+        }
+
+        latch.countDown();
+
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertTrue(!failure.get());
+        assertTrue(cache.getWeightedSize() <= 64 * ConcurrentLRUCache.DEFAULT_WEIGHT);
+        assertEquals(cache.size() * ConcurrentLRUCache.DEFAULT_WEIGHT, cache.getWeightedSize());
+    }
+}
@@ -0,0 +1,89 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2010, Red Hat, Inc. and individual contributors
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.richfaces.context;
+
+import java.util.concurrent.TimeUnit;
+
+import javax.faces.component.UIComponent;
+import javax.faces.component.UIViewRoot;
+import javax.faces.context.FacesContext;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * Throughput of resolving render ids of a component in view of 10k components: {@link ComponentIdIndex} lookups compared
+ * with {@link ComponentIdResolver} walking the tree. Run with
+ * <code>java -cp target/test-classes:&lt;test classpath&gt; org.openjdk.jmh.Main ComponentIdIndexBenchmark</code>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class ComponentIdIndexBenchmark {
+    private static final String[] IDS = { "c42", "t0", "r0:t5:c7", ":r5:t5:c5", "missing" };
+    private FacesContext facesContext;
+    private UIComponent component;
+
+    @Setup
+    public void setup() {
+        facesContext = new ComponentIdIndexTest.StubFacesContext();
+
+        UIViewRoot viewRoot = ComponentIdIndexTest.createView(facesContext, 10, 10, 100);
+
+        component = viewRoot.findComponent("r9").findComponent("t9").findComponent("c99");
+    }
+
+    @TearDown
+    public void tearDown() {
+        facesContext.release();
+    }
+
+    @Benchmark
+    public int resolver() {
+        ComponentIdResolver resolver = new ComponentIdResolver(facesContext);
+
+        for (String id : IDS) {
+            resolver.addId(id);
+        }
+
+        resolver.resolve(component);
+
+        return resolver.getResolvedIds().size();
+    }
+
+    @Benchmark
+    public int index() {
+        int result = 0;
+
+        for (String id : IDS) {
+            result += ComponentIdIndex.resolve(facesContext, component, id).size();
+        }
+
+        return result;
+    }
+}
@@ -0,0 +1,254 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2010, Red Hat, Inc. and individual contributors
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.richfaces.context;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+
+import javax.faces.application.Application;
+import javax.faces.component.UIComponent;
+import javax.faces.component.UINamingContainer;
+import javax.faces.component.UIPanel;
+import javax.faces.component.UIViewRoot;
+import javax.faces.context.ExternalContext;
+import javax.faces.context.ExternalContextWrapper;
+import javax.faces.context.FacesContext;
+import javax.faces.context.FacesContextWrapper;
+import javax.faces.event.PhaseId;
+import javax.faces.event.PostAddToViewEvent;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class ComponentIdIndexTest {
+    private StubFacesContext facesContext;
+    private UIViewRoot viewRoot;
+
+    /**
+     * Faces context holding view root, attributes and lifecycle state, with the rest of methods delegated to mock
+     */
+    static final class StubFacesContext extends FacesContextWrapper {
+        private final FacesContext wrapped = mock(FacesContext.class);
+        private final Map<Object, Object> attributes = new HashMap<Object, Object>();
+        private final ExternalContext externalContext;
+        private UIViewRoot viewRoot;
+        private boolean postback;
+        private PhaseId currentPhaseId;
+
+        StubFacesContext() {
+            final ExternalContext wrappedExternalContext = mock(ExternalContext.class);
+            final Map<String, Object> applicationMap = new HashMap<String, Object>();
+
+            externalContext = new ExternalContextWrapper() {
+                @Override
+                public ExternalContext getWrapped() {
+                    return wrappedExternalContext;
+                }
+
+                @Override
+                public Map<String, Object> getApplicationMap() {
+                    return applicationMap;
+                }
+            };
+
+            when(wrapped.getApplication()).thenReturn(mock(Application.class));
+            setCurrentInstance(this);
+        }
+
+        @Override
+        public FacesContext getWrapped() {
+            return wrapped;
+        }
+
+        @Override
+        public ExternalContext getExternalContext() {
+            return externalContext;
+        }
+
+        @Override
+        public Map<Object, Object> getAttributes() {
+            return attributes;
+        }
+
+        @Override
+        public UIViewRoot getViewRoot() {
+            return viewRoot;
+        }
+
+        @Override
+        public void setViewRoot(UIViewRoot root) {
+            viewRoot = root;
+        }
+
+        @Override
+        public boolean isPostback() {
+            return postback;
+        }
+
+        void setPostback(boolean postback) {
+            this.postback = postback;
+        }
+
+        @Override
+        public PhaseId getCurrentPhaseId() {
+            return currentPhaseId;
+        }
+
+        @Override
+        public void setCurrentPhaseId(PhaseId currentPhaseId) {
+            this.currentPhaseId = currentPhaseId;
+        }
+
+        @Override
+        public void release() {
+            setCurrentInstance(null);
+        }
+    }
+
+    static <T extends UIComponent> T addChild(UIComponent parent, T child, String id) {
+        child.setId(id);
+        parent.getChildren().add(child);
+
+        return child;
+    }
+
+    /**
+     * Creates view of <code>regions</code> naming containers with <code>tables</code> nested naming containers having
+     * <code>cells</code> panels each.
+     */
+    static UIViewRoot createView(FacesContext facesContext, int regions, int tables, int cells) {
+        UIViewRoot viewRoot = new UIViewRoot();
+
+        viewRoot.setViewId("/test.xhtml");
+        facesContext.setViewRoot(viewRoot);
+
+        for (int r = 0; r < regions; r++) {
+            UIComponent region = addChild(viewRoot, new UINamingContainer(), "r" + r);
+
+            for (int t = 0; t < tables; t++) {
+                UIComponent table = addChild(region, new UINamingContainer(), "t" + t);
+
+                for (int c = 0; c < cells; c++) {
+                    addChild(table, new UIPanel(), "c" + c);
+                }
+            }
+        }
+
+        return viewRoot;
+    }
+
+    @Before
+    public void setUp() throws Exception {
+        facesContext = new StubFacesContext();
+        viewRoot = createView(facesContext, 2, 2, 2);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        facesContext.release();
+        facesContext = null;
+        viewRoot = null;
+    }
+
+    private UIComponent findCell(String region, String table, String cell) {
+        return viewRoot.findComponent(region).findComponent(table).findComponent(cell);
+    }
+
+    private Collection<String> resolve(UIComponent component, String id) {
+        ComponentIdResolver resolver = new ComponentIdResolver(facesContext);
+
+        resolver.addId(id);
+        resolver.resolve(component);
+
+        return resolver.getResolvedIds();
+    }
+
+    @Test
+    public void testIndexable() throws Exception {
+        assertTrue(ComponentIdIndex.isIndexable("input"));
+        assertTrue(ComponentIdIndex.isIndexable(":form:input"));
+        assertFalse(ComponentIdIndex.isIndexable("table@body"));
+        assertFalse(ComponentIdIndex.isIndexable("table:@rows(bean.rows):input"));
+        assertFalse(ComponentIdIndex.isIndexable(""));
+    }
+
+    @Test
+    public void testResolve() throws Exception {
+        UIComponent component = findCell("r1", "t1", "c1");
+
+        for (String id : Arrays.asList("c0", "t0", "r0:t1:c0", ":r0:t0:c1", "missing")) {
+            Collection<String> expected = resolve(component, id);
+
+            assertEquals(id, expected, new HashSet<String>(ComponentIdIndex.resolve(facesContext, component, id)));
+            assertEquals(id, expected, new HashSet<String>(ComponentIdIndex.resolve(facesContext, component, id)));
+        }
+
+        assertEquals(new HashSet<String>(Arrays.asList("r1:t1:c0")),
+            new HashSet<String>(ComponentIdIndex.resolve(facesContext, component, "c0")));
+    }
+
+    @Test
+    public void testFullIndexLearns() throws Exception {
+        UIComponent component = findCell("r1", "t1", "c1");
+
+        for (int i = 0; i <= ComponentIdIndex.MAX_ENTRIES; i++) {
+            ComponentIdIndex.resolve(facesContext, component, "missing" + i);
+        }
+
+        assertEquals(Arrays.asList("c5"), new ArrayList<String>(ComponentIdIndex.resolve(facesContext, component, "c5")));
+
+        // tree is changed without notification, so indexed result is returned
+        addChild(component.getParent(), new UIPanel(), "c5");
+        assertEquals(Arrays.asList("c5"), new ArrayList<String>(ComponentIdIndex.resolve(facesContext, component, "c5")));
+    }
+
+    @Test
+    public void testInvalidate() throws Exception {
+        UIComponent component = findCell("r1", "t1", "c1");
+
+        assertEquals(Arrays.asList("c5"), new ArrayList<String>(ComponentIdIndex.resolve(facesContext, component, "c5")));
+
+        UIComponent addedComponent = addChild(component.getParent(), new UIPanel(), "c5");
+
+        // tree changed while restoring view is considered to be built from the same definition
+        facesContext.setPostback(true);
+        facesContext.setCurrentPhaseId(PhaseId.RESTORE_VIEW);
+        new ComponentIdIndexTracker().processEvent(new PostAddToViewEvent(addedComponent));
+        assertEquals(Arrays.asList("c5"), new ArrayList<String>(ComponentIdIndex.resolve(facesContext, component, "c5")));
+
+        facesContext.setCurrentPhaseId(PhaseId.INVOKE_APPLICATION);
+        new ComponentIdIndexTracker().processEvent(new PostAddToViewEvent(addedComponent));
+        assertEquals(Arrays.asList("r1:t1:c5"),
+            new ArrayList<String>(ComponentIdIndex.resolve(facesContext, component, "c5")));
+    }
+}
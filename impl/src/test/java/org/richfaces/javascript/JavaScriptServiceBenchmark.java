@@ -0,0 +1,99 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2010, Red Hat, Inc. and individual contributors
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.richfaces.javascript;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.concurrent.TimeUnit;
+
+import javax.faces.context.FacesContext;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.richfaces.component.UIScripts;
+
+/**
+ * Throughput of adding scripts of a page with hundreds of client validators, every script being added twice:
+ * {@link ScriptsCollection} used by {@link UIScripts} compared with linear lookup in a list. Run with
+ * <code>java -cp target/test-classes:&lt;test classpath&gt; org.openjdk.jmh.Main JavaScriptServiceBenchmark</code>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class JavaScriptServiceBenchmark {
+    @Param({ "100", "500" })
+    private int scriptsCount;
+    private Object[] scripts;
+    private UIScripts scriptResource;
+    private JavaScriptServiceImpl service = new JavaScriptServiceImpl() {
+        @Override
+        UIScripts getOrCreateScriptResource(FacesContext facesContext) {
+            return scriptResource;
+        }
+    };
+
+    @Setup
+    public void setup() {
+        scripts = new Object[scriptsCount * 2];
+
+        for (int i = 0; i < scriptsCount; i++) {
+            String script = "RichFaces.csv.addValidator(\"form:input" + i + "\", \"required\");";
+            scripts[i] = script;
+            scripts[scriptsCount + i] = new String(script);
+        }
+    }
+
+    private int addScripts() {
+        for (Object script : scripts) {
+            service.addScript(null, script);
+        }
+
+        return scriptResource.getScripts().size();
+    }
+
+    @Benchmark
+    public int linear() {
+        scriptResource = new UIScripts() {
+            private final Collection<Object> list = new ArrayList<Object>();
+
+            @Override
+            public Collection<Object> getScripts() {
+                return list;
+            }
+        };
+
+        return addScripts();
+    }
+
+    @Benchmark
+    public int hashed() {
+        scriptResource = new UIScripts();
+
+        return addScripts();
+    }
+}
@@ -0,0 +1,87 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2010, Red Hat, Inc. and individual contributors
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.richfaces.javascript;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Iterator;
+
+import org.ajax4jsf.javascript.JSFunction;
+import org.junit.Test;
+
+import com.google.common.collect.Lists;
+
+public class ScriptsCollectionTest {
+    @Test
+    public void testAddOrFind() throws Exception {
+        ScriptsCollection scripts = new ScriptsCollection();
+
+        String script = new String("foo(bar)");
+        assertSame(script, scripts.addOrFind(script));
+        assertSame(script, scripts.addOrFind(new String("foo(bar)")));
+
+        // functions are compared by identity
+        JSFunction function = new JSFunction("foo", "bar");
+        assertSame(function, scripts.addOrFind(function));
+        assertSame(function, scripts.addOrFind(function));
+
+        JSFunction anotherFunction = new JSFunction("foo", "bar");
+        assertSame(anotherFunction, scripts.addOrFind(anotherFunction));
+
+        assertEquals(3, scripts.size());
+        assertTrue(scripts.contains("foo(bar)"));
+    }
+
+    @Test
+    public void testAdd() throws Exception {
+        ScriptsCollection scripts = new ScriptsCollection();
+
+        assertTrue(scripts.add("a"));
+        assertFalse(scripts.add("a"));
+        assertFalse(scripts.add(new String("a")));
+        assertEquals(1, scripts.size());
+    }
+
+    @Test
+    public void testOrder() throws Exception {
+        ScriptsCollection scripts = new ScriptsCollection();
+
+        scripts.addAll(Arrays.asList("c", "a", "b", "a", "c", "d"));
+        assertEquals(Arrays.asList("c", "a", "b", "d"), Lists.newArrayList(scripts));
+
+        assertTrue(scripts.remove("a"));
+        assertFalse(scripts.remove("a"));
+
+        Iterator<Object> iterator = scripts.iterator();
+        iterator.next();
+        iterator.remove();
+
+        assertEquals(Arrays.asList("b", "d"), Lists.newArrayList(scripts));
+
+        scripts.add("a");
+        assertEquals(Arrays.asList("b", "d", "a"), Lists.newArrayList(scripts));
+    }
+}
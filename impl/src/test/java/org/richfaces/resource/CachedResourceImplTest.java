@@ -36,9 +36,12 @@ import java.util.Random;
 import java.util.TimeZone;
 
 import javax.faces.application.Resource;
+import javax.faces.context.ExternalContext;
 import javax.faces.context.FacesContext;
 
+import org.easymock.classextension.EasyMock;
 import org.jboss.test.faces.AbstractFacesTest;
+import org.richfaces.resource.ResourceContentStorage.StorageType;
 
 /**
  * @author Nick Belaevski
@@ -87,6 +90,31 @@ public class CachedResourceImplTest extends AbstractFacesTest {
         return cachedResource;
     }
 
+    private CachedResourceImpl createCompressedCachedResource() throws IOException {
+        CachedResourceImpl cachedResource = createCompressibleCachedResource(createTestHeaders());
+
+        assertNotNull(cachedResource.getCompressedContent());
+
+        return cachedResource;
+    }
+
+    private CachedResourceImpl createCompressibleCachedResource(Map<String, String> headers) throws IOException {
+        StringBuilder sb = new StringBuilder();
+
+        for (int i = 0; i < 100; i++) {
+            sb.append(".rf-selector-").append(i).append(" { color: red; }\n");
+        }
+
+        MockHeadersResourceImpl mockResource = new MockHeadersResourceImpl(headers, new ByteArrayInputStream(sb.toString()
+            .getBytes("US-ASCII")));
+        mockResource.setContentType("text/css");
+
+        CachedResourceImpl cachedResource = new MockCachedResourceImpl();
+        cachedResource.initialize(mockResource, new ResourceContentStorage(StorageType.heap, 0, true));
+
+        return cachedResource;
+    }
+
     private Map<String, String> createTestHeaders() {
         Map<String, String> headers = new HashMap<String, String>();
 
@@ -243,6 +271,89 @@ public class CachedResourceImplTest extends AbstractFacesTest {
         assertFalse(cachedResource.userAgentNeedsUpdate(facesContext));
     }
 
+    public void testApplyResponseHeaders() throws Exception {
+        Map<String, String> headers = createTestHeaders();
+
+        headers.put("Content-Length", "4");
+
+        CachedResourceImpl cachedResource = createCachedResource(headers);
+        ExternalContext externalContext = EasyMock.createMock(ExternalContext.class);
+
+        externalContext.setResponseHeader("ETag", "W/\"123\"");
+        externalContext.setResponseHeader(LAST_MODIFIED, "Tue, 21 Jul 2009 12:45:09 GMT");
+        externalContext.setResponseHeader(EXPIRES, "Tue, 28 Jul 2009 12:45:09 GMT");
+        externalContext.setResponseHeader(CACHE_CONTROL, "public, max-age=86400");
+        EasyMock.replay(externalContext);
+
+        cachedResource.applyResponseHeaders(externalContext);
+        EasyMock.verify(externalContext);
+    }
+
+    public void testApplyNotModifiedHeaders() throws Exception {
+        Map<String, String> headers = createTestHeaders();
+
+        headers.put("X-Custom", "value");
+
+        CachedResourceImpl cachedResource = createCachedResource(headers);
+        ExternalContext externalContext = EasyMock.createMock(ExternalContext.class);
+
+        externalContext.setResponseHeader("ETag", "W/\"123\"");
+        externalContext.setResponseHeader(LAST_MODIFIED, "Tue, 21 Jul 2009 12:45:09 GMT");
+        externalContext.setResponseHeader(EXPIRES, "Tue, 28 Jul 2009 12:45:09 GMT");
+        externalContext.setResponseHeader(CACHE_CONTROL, "public, max-age=86400");
+        EasyMock.replay(externalContext);
+
+        cachedResource.applyNotModifiedHeaders(externalContext);
+        EasyMock.verify(externalContext);
+    }
+
+    public void testApplyCompressedResponseHeaders() throws Exception {
+        CachedResourceImpl cachedResource = createCompressedCachedResource();
+        ExternalContext externalContext = EasyMock.createMock(ExternalContext.class);
+
+        externalContext.setResponseHeader("ETag", "W/\"123-gz\"");
+        externalContext.setResponseHeader(LAST_MODIFIED, "Tue, 21 Jul 2009 12:45:09 GMT");
+        externalContext.setResponseHeader(EXPIRES, "Tue, 28 Jul 2009 12:45:09 GMT");
+        externalContext.setResponseHeader(CACHE_CONTROL, "public, max-age=86400");
+        EasyMock.replay(externalContext);
+
+        cachedResource.applyResponseHeaders(externalContext, true);
+        EasyMock.verify(externalContext);
+        assertEquals("W/\"123\"", cachedResource.getEntityTag(facesContext));
+    }
+
+    public void testUnquotedEntityTagNotCompressed() throws Exception {
+        Map<String, String> headers = createTestHeaders();
+
+        headers.put("ETag", "123");
+
+        CachedResourceImpl cachedResource = createCompressibleCachedResource(headers);
+
+        assertNull(cachedResource.getCompressedContent());
+        assertEquals("123", cachedResource.getEntityTag(facesContext));
+    }
+
+    public void testUserAgentNeedsUpdateCompressed() throws Exception {
+        CachedResourceImpl cachedResource = createCompressedCachedResource();
+        Map<String, String> requestHeaders = new HashMap<String, String>();
+
+        requestHeaders.put("Accept-Encoding", "gzip, deflate");
+        requestHeaders.put("If-None-Match", "W/\"123-gz\"");
+        this.connection.addRequestHeaders(requestHeaders);
+        assertFalse(cachedResource.userAgentNeedsUpdate(facesContext));
+    }
+
+    public void testUserAgentNeedsUpdateIdentityTag() throws Exception {
+        CachedResourceImpl cachedResource = createCompressedCachedResource();
+        Map<String, String> requestHeaders = new HashMap<String, String>();
+
+        // user agent holds identity content, but compressed content would be sent
+        requestHeaders.put("Accept-Encoding", "gzip, deflate");
+        requestHeaders.put("If-None-Match", "W/\"123\"");
+        this.connection.addRequestHeaders(requestHeaders);
+        assertTrue(cachedResource.userAgentNeedsUpdate(facesContext));
+    }
+
     public void testUserAgentNeedsUpdate2() throws Exception {
         CachedResourceImpl cachedResource = createCachedResource();
 
@@ -0,0 +1,157 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2010, Red Hat, Inc. and individual contributors
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.richfaces.resource;
+
+import static org.easymock.EasyMock.expect;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.nio.charset.Charset;
+
+import javax.faces.context.ExternalContext;
+import javax.faces.context.FacesContext;
+
+import org.ajax4jsf.io.ByteBuffer;
+import org.easymock.classextension.EasyMock;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class CapturingFacesContextWrapperTest {
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+    private FacesContext facesContext;
+    private ExternalContext externalContext;
+
+    private static byte[] toByteArray(ByteBuffer buffer) {
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+
+        for (ByteBuffer link = buffer; link != null; link = link.getNext()) {
+            baos.write(link.getBytes(), 0, link.getUsedSize());
+        }
+
+        return baos.toByteArray();
+    }
+
+    private static byte[] createData(int length) {
+        byte[] data = new byte[length];
+
+        for (int i = 0; i < data.length; i++) {
+            data[i] = (byte) (i * 31);
+        }
+
+        return data;
+    }
+
+    @Before
+    public void setUp() throws Exception {
+        // any call to the response of the request fails
+        externalContext = EasyMock.createMock(ExternalContext.class);
+
+        facesContext = EasyMock.createMock(FacesContext.class);
+        expect(facesContext.getExternalContext()).andStubReturn(externalContext);
+
+        EasyMock.replay(externalContext, facesContext);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        EasyMock.verify(externalContext);
+
+        facesContext = null;
+        externalContext = null;
+    }
+
+    @Test
+    public void testCaptureStream() throws Exception {
+        byte[] data = createData(10000);
+        CapturingFacesContextWrapper capturingContext = CapturingFacesContextWrapper.wrap(facesContext, UTF8);
+
+        try {
+            assertSame(capturingContext, FacesContext.getCurrentInstance());
+
+            OutputStream os = capturingContext.getExternalContext().getResponseOutputStream();
+            os.write(data, 0, 5000);
+            os.write(data[5000]);
+            os.write(data, 5001, data.length - 5001);
+
+            assertArrayEquals(data, toByteArray(capturingContext.finish()));
+        } finally {
+            capturingContext.unwrap();
+        }
+
+        assertSame(facesContext, FacesContext.getCurrentInstance());
+    }
+
+    @Test
+    public void testCaptureWriter() throws Exception {
+        String text = "\u041f\u0440\u0438\u0432\u0435\u0442, world";
+        CapturingFacesContextWrapper capturingContext = CapturingFacesContextWrapper.wrap(facesContext, UTF8);
+
+        try {
+            Writer writer = capturingContext.getExternalContext().getResponseOutputWriter();
+            writer.write(text);
+
+            assertEquals(text, new String(toByteArray(capturingContext.finish()), UTF8));
+        } finally {
+            capturingContext.unwrap();
+        }
+    }
+
+    @Test
+    public void testResponseNotAffected() throws Exception {
+        CapturingFacesContextWrapper capturingContext = CapturingFacesContextWrapper.wrap(facesContext, UTF8);
+
+        try {
+            ExternalContext capturingExternalContext = capturingContext.getExternalContext();
+            capturingExternalContext.setResponseStatus(404);
+            capturingExternalContext.setResponseContentType("text/css");
+            capturingExternalContext.setResponseContentLength(100);
+            capturingExternalContext.setResponseHeader("Cache-Control", "no-cache");
+            capturingExternalContext.addResponseHeader("Vary", "Accept-Encoding");
+            capturingExternalContext.getResponseOutputStream().write(createData(100));
+            capturingExternalContext.getResponseOutputStream().flush();
+            capturingExternalContext.responseFlushBuffer();
+
+            assertEquals(100, toByteArray(capturingContext.finish()).length);
+        } finally {
+            capturingContext.unwrap();
+        }
+
+        assertFalse(capturingContext == FacesContext.getCurrentInstance());
+    }
+
+    @Test
+    public void testNothingWritten() throws Exception {
+        CapturingFacesContextWrapper capturingContext = CapturingFacesContextWrapper.wrap(facesContext, UTF8);
+
+        try {
+            assertEquals(0, toByteArray(capturingContext.finish()).length);
+        } finally {
+            capturingContext.unwrap();
+        }
+    }
+}
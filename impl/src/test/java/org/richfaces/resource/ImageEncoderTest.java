@@ -0,0 +1,178 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2010, Red Hat, Inc. and individual contributors
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.richfaces.resource;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import javax.imageio.ImageIO;
+import javax.imageio.stream.MemoryCacheImageOutputStream;
+
+import org.junit.Test;
+import org.richfaces.renderkit.html.images.ButtonBackgroundImage;
+import org.richfaces.renderkit.html.images.ButtonDisabledBackgroundImage;
+import org.richfaces.renderkit.html.images.ButtonHoverBackgroundImage;
+import org.richfaces.renderkit.html.images.GradientAtlas;
+import org.richfaces.renderkit.html.images.GradientType;
+import org.richfaces.renderkit.html.images.InputBackgroundImage;
+import org.richfaces.renderkit.html.images.InputErrorIcon;
+import org.richfaces.renderkit.html.images.StandardButtonBgImage;
+import org.richfaces.renderkit.html.images.StandardButtonPressedBgImage;
+
+public class ImageEncoderTest {
+    private static void writeGradientState(DataOutputStream out, int width, int height, int baseColor, int gradientColor)
+        throws IOException {
+
+        out.writeBoolean(true);
+        out.writeShort(width);
+        out.writeBoolean(true);
+        out.writeShort(height);
+        out.writeBoolean(true);
+        out.writeShort(-1);
+        out.writeBoolean(true);
+        out.writeInt(baseColor);
+        out.writeBoolean(true);
+        out.writeInt(gradientColor);
+        out.writeBoolean(false);
+        out.writeByte(GradientType.plain.ordinal());
+    }
+
+    private static <T extends StateHolderResource> T restore(T resource, int width, int height) throws IOException {
+        ByteArrayOutputStream state = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(state);
+
+        if (resource instanceof GradientAtlas) {
+            writeGradientState(out, 1, height, 0xBED6F8, 0xD4E4FA);
+            writeGradientState(out, 1, height, 0xE0E0E0, 0xF1F1F1);
+        } else if (resource instanceof InputErrorIcon) {
+            out.writeInt(0xFFEBEB);
+        } else {
+            writeGradientState(out, width, height, 0xBED6F8, 0xD4E4FA);
+        }
+
+        resource.readState(null, new DataInputStream(new ByteArrayInputStream(state.toByteArray())));
+        return resource;
+    }
+
+    /**
+     * @return images of <code>org.richfaces.renderkit.html.images</code> package with dimensions of default skin
+     */
+    static Map<String, Java2DUserResource> createImages() throws IOException {
+        Map<String, Java2DUserResource> images = new LinkedHashMap<String, Java2DUserResource>();
+
+        images.put("ButtonBackgroundImage", restore(new ButtonBackgroundImage(), 1, 11));
+        images.put("ButtonDisabledBackgroundImage", restore(new ButtonDisabledBackgroundImage(), 1, 11));
+        images.put("ButtonHoverBackgroundImage", restore(new ButtonHoverBackgroundImage(), 1, 11));
+        images.put("InputBackgroundImage", restore(new InputBackgroundImage(), 2000, 11));
+        images.put("StandardButtonBgImage", restore(new StandardButtonBgImage(), 30, 9));
+        images.put("StandardButtonPressedBgImage", restore(new StandardButtonPressedBgImage(), 9, 18));
+        images.put("InputErrorIcon", restore(new InputErrorIcon(), 0, 0));
+        images.put("GradientAtlas", restore(new GradientAtlas(), 0, 11));
+
+        return images;
+    }
+
+    static BufferedImage paint(Java2DUserResource resource, BufferedImage image) {
+        Graphics2D g2d = image.createGraphics();
+
+        try {
+            resource.paint(g2d);
+        } finally {
+            g2d.dispose();
+        }
+
+        return image;
+    }
+
+    static byte[] encode(Java2DUserResource resource) throws IOException {
+        ImageType imageType = resource.getImageType();
+        BufferedImage image = paint(resource, ImageEncoder.createImage(imageType, resource.getDimension()));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        MemoryCacheImageOutputStream imageOutputStream = new MemoryCacheImageOutputStream(out);
+
+        ImageEncoder.write(image, imageType, imageOutputStream);
+        imageOutputStream.close();
+
+        return out.toByteArray();
+    }
+
+    @Test
+    public void testLosslessEncoding() throws Exception {
+        for (Map.Entry<String, Java2DUserResource> entry : createImages().entrySet()) {
+            Java2DUserResource resource = entry.getValue();
+            BufferedImage expected = paint(resource, resource.getImageType().createImage(resource.getDimension()));
+
+            // twice to encode reused image
+            for (int i = 0; i < 2; i++) {
+                BufferedImage actual = ImageIO.read(new ByteArrayInputStream(encode(resource)));
+
+                assertEquals(entry.getKey(), expected.getWidth(), actual.getWidth());
+                assertEquals(entry.getKey(), expected.getHeight(), actual.getHeight());
+
+                for (int y = 0; y < expected.getHeight(); y++) {
+                    for (int x = 0; x < expected.getWidth(); x++) {
+                        int expectedPixel = expected.getRGB(x, y);
+                        int actualPixel = actual.getRGB(x, y);
+
+                        if ((expectedPixel >>> 24) == 0) {
+                            assertEquals(entry.getKey(), 0, actualPixel >>> 24);
+                        } else {
+                            assertEquals(entry.getKey(), expectedPixel, actualPixel);
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testIndexedImage() throws Exception {
+        BufferedImage image = new BufferedImage(300, 1, BufferedImage.TYPE_INT_ARGB);
+
+        for (int x = 1; x < 256; x++) {
+            image.setRGB(x, 0, 0xFF000000 | x);
+        }
+
+        BufferedImage indexedImage = ImageEncoder.toIndexedImage(image, false);
+
+        assertNotNull(indexedImage);
+        assertEquals(0xFF0000FF, indexedImage.getRGB(255, 0));
+        assertEquals(0, indexedImage.getRGB(299, 0) >>> 24);
+
+        image.setRGB(299, 0, 0x80FFFFFF);
+        assertNull(ImageEncoder.toIndexedImage(image, false));
+        image.setRGB(1, 0, 0);
+        assertNotNull(ImageEncoder.toIndexedImage(image, false));
+        assertNull(ImageEncoder.toIndexedImage(image, true));
+    }
+}
@@ -0,0 +1,79 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2010, Red Hat, Inc. and individual contributors
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.richfaces.resource;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import javax.imageio.ImageIO;
+import javax.imageio.stream.ImageOutputStream;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Throughput of rendering skin images of <code>org.richfaces.renderkit.html.images</code> package: {@link ImageEncoder}
+ * compared with new image and writer lookup per request. Encoded sizes are printed on setup. Run with
+ * <code>java -Djava.awt.headless=true -cp target/test-classes:&lt;test classpath&gt; org.openjdk.jmh.Main Java2DImageEncodingBenchmark</code>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class Java2DImageEncodingBenchmark {
+    @Param({ "ButtonBackgroundImage", "ButtonDisabledBackgroundImage", "ButtonHoverBackgroundImage", "InputBackgroundImage",
+            "StandardButtonBgImage", "StandardButtonPressedBgImage", "InputErrorIcon", "GradientAtlas" })
+    private String image;
+    private Java2DUserResource resource;
+
+    @Setup
+    public void setup() throws IOException {
+        resource = ImageEncoderTest.createImages().get(image);
+        System.out.println();
+        System.out.println(image + ": " + imageIO() + " bytes with ImageIO, " + imageEncoder() + " bytes with ImageEncoder");
+    }
+
+    @Benchmark
+    public int imageIO() throws IOException {
+        ImageType imageType = resource.getImageType();
+        BufferedImage bufferedImage = ImageEncoderTest.paint(resource, imageType.createImage(resource.getDimension()));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ImageOutputStream imageOutputStream = ImageIO.createImageOutputStream(out);
+
+        ImageIO.write(bufferedImage, imageType.getFormatName(), imageOutputStream);
+        imageOutputStream.close();
+
+        return out.size();
+    }
+
+    @Benchmark
+    public int imageEncoder() throws IOException {
+        return ImageEncoderTest.encode(resource).length;
+    }
+}
@@ -0,0 +1,293 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2010, Red Hat, Inc. and individual contributors
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.richfaces.resource;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.mockito.Mockito.withSettings;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import javax.faces.application.Application;
+import javax.faces.application.ProjectStage;
+import javax.faces.application.Resource;
+import javax.faces.application.ResourceHandler;
+import javax.faces.context.ExternalContext;
+import javax.faces.context.FacesContext;
+import javax.servlet.ServletContext;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.richfaces.application.CoreConfiguration;
+import org.richfaces.application.ServiceTracker;
+import org.richfaces.application.ServicesFactory;
+import org.richfaces.application.configuration.ConfigurationService;
+import org.richfaces.cache.Cache;
+import org.richfaces.cache.concurrent.ConcurrentLRUCache;
+import org.richfaces.resource.ResourceContentStorage.StorageType;
+import org.richfaces.util.Util;
+
+public class ResourceCacheWarmerTest {
+    private static final String CONTEXT_PATH = "/app";
+    private FacesContext facesContext;
+    private ConfigurationService configurationService;
+    private Cache cache;
+    private volatile boolean startupContextReleased;
+    private CountDownLatch renderingAllowed;
+
+    /**
+     * Fails every call made after startup faces context has been released.
+     */
+    private final Answer<Object> startupContextAnswer = new Answer<Object>() {
+        public Object answer(InvocationOnMock invocation) throws Throwable {
+            if (startupContextReleased) {
+                throw new IllegalStateException("Startup context has been released");
+            }
+
+            return null;
+        }
+    };
+
+    @Before
+    public void setUp() throws Exception {
+        ServletContext servletContext = mock(ServletContext.class);
+        when(servletContext.getContextPath()).thenReturn(CONTEXT_PATH);
+        when(servletContext.getInitParameterNames()).thenReturn(Collections.enumeration(Collections.<String>emptySet()));
+
+        ResourceHandlerImpl resourceHandler = new ResourceHandlerImpl(mock(ResourceHandler.class), new TestResourceFactory());
+
+        Application application = mock(Application.class);
+        when(application.getProjectStage()).thenReturn(ProjectStage.Production);
+        when(application.getResourceHandler()).thenReturn(resourceHandler);
+
+        ExternalContext externalContext = mock(ExternalContext.class, withSettings().defaultAnswer(startupContextAnswer));
+        when(externalContext.getContext()).thenReturn(servletContext);
+
+        facesContext = mock(FacesContext.class, withSettings().defaultAnswer(startupContextAnswer));
+        when(facesContext.getApplication()).thenReturn(application);
+        when(facesContext.getExternalContext()).thenReturn(externalContext);
+        when(facesContext.isProjectStage(ProjectStage.Production)).thenReturn(true);
+        when(facesContext.isProjectStage(ProjectStage.Development)).thenReturn(false);
+
+        configurationService = mock(ConfigurationService.class);
+        when(configurationService.getIntValue(any(FacesContext.class),
+            eq(CoreConfiguration.Items.resourcesCacheMaxContentLength))).thenReturn(1024 * 1024);
+        when(configurationService.getIntValue(facesContext, CoreConfiguration.Items.resourcesCacheWarmUpThreads))
+            .thenReturn(2);
+        when(configurationService.getStringValue(facesContext, CoreConfiguration.Items.resourcesCacheWarmUpResources))
+            .thenReturn("a.js, lib:b.css, plain.js, broken.js,, missing.js");
+
+        ResourceCodec resourceCodec = mock(ResourceCodec.class);
+        when(resourceCodec.encodeResourceRequestPath(any(FacesContext.class), anyString(), anyString(), any(),
+            anyString())).thenAnswer(new Answer<String>() {
+                public String answer(InvocationOnMock invocation) throws Throwable {
+                    Object[] arguments = invocation.getArguments();
+                    return ResourceHandlerImpl.RICHFACES_RESOURCE_IDENTIFIER + arguments[1] + "/" + arguments[2];
+                }
+            });
+
+        cache = new ConcurrentLRUCache(1024 * 1024, 1);
+
+        ServicesFactory servicesFactory = mock(ServicesFactory.class);
+        when(servicesFactory.getInstance(ConfigurationService.class)).thenReturn(configurationService);
+        when(servicesFactory.getInstance(ResourceContentStorage.class)).thenReturn(
+            new ResourceContentStorage(StorageType.heap, 0, false));
+        when(servicesFactory.getInstance(Cache.class)).thenReturn(cache);
+        when(servicesFactory.getInstance(ResourceCodec.class)).thenReturn(resourceCodec);
+        ServiceTracker.setFactory(servicesFactory);
+
+        renderingAllowed = new CountDownLatch(0);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        ServiceTracker.release();
+    }
+
+    private void setBackground(boolean background) {
+        when(configurationService.getBooleanValue(facesContext, CoreConfiguration.Items.resourcesCacheWarmUpInBackground))
+            .thenReturn(background);
+    }
+
+    private String getCachedContent(String resourceKey) throws IOException {
+        Resource resource = (Resource) cache.get(resourceKey);
+
+        assertTrue(resource instanceof CachedResourceImpl);
+
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        Util.copyStreamContent(resource.getInputStream(), baos);
+
+        return baos.toString("US-ASCII");
+    }
+
+    private void assertWarmedUp(ResourceCacheWarmer warmer) throws IOException {
+        assertEquals(2, warmer.getCachedCount());
+        // plain.js is not cacheable, missing.js doesn't exist
+        assertEquals(2, warmer.getSkippedCount());
+        assertEquals(1, warmer.getFailedCount());
+        assertEquals(5, warmer.getProcessedCount());
+
+        assertEquals("url(" + CONTEXT_PATH + "/a.js.png)", getCachedContent("null/a.js"));
+        assertEquals("url(" + CONTEXT_PATH + "/b.css.png)", getCachedContent("lib/b.css"));
+        assertNull(cache.get("null/plain.js"));
+        assertNull(cache.get("null/broken.js"));
+    }
+
+    @Test
+    public void testWarmUp() throws Exception {
+        setBackground(false);
+
+        assertWarmedUp(ResourceCacheWarmer.warmUp(facesContext));
+    }
+
+    @Test
+    public void testWarmUpInBackground() throws Exception {
+        setBackground(true);
+        renderingAllowed = new CountDownLatch(1);
+
+        ResourceCacheWarmer warmer = ResourceCacheWarmer.warmUp(facesContext);
+
+        assertEquals(0, warmer.getProcessedCount());
+
+        // application initialization has completed
+        startupContextReleased = true;
+        renderingAllowed.countDown();
+
+        warmer.awaitCompletion();
+        assertWarmedUp(warmer);
+    }
+
+    @Test
+    public void testWarmUpSkippedOnDevelopmentStage() throws Exception {
+        when(facesContext.isProjectStage(ProjectStage.Development)).thenReturn(true);
+
+        assertNull(ResourceCacheWarmer.warmUp(facesContext));
+        assertNull(cache.get("null/a.js"));
+    }
+
+    private final class TestResourceFactory implements ResourceFactory {
+        public Collection<ResourceKey> getMappedDynamicResourceKeys() {
+            return Collections.emptySet();
+        }
+
+        public Resource createResource(String resourceName, String libraryName, String contentType) {
+            if ("missing.js".equals(resourceName)) {
+                return null;
+            }
+
+            return new TestResource(resourceName, !"plain.js".equals(resourceName));
+        }
+
+        public Resource createResource(FacesContext context, ResourceRequestData resourceData) {
+            return createResource(resourceData.getResourceName(), resourceData.getLibraryName(), null);
+        }
+    }
+
+    private final class TestResource extends Resource implements CacheableResource {
+        private final boolean cacheable;
+
+        TestResource(String resourceName, boolean cacheable) {
+            this.cacheable = cacheable;
+
+            setResourceName(resourceName);
+            setContentType("text/css");
+        }
+
+        @Override
+        public InputStream getInputStream() throws IOException {
+            try {
+                if (!renderingAllowed.await(10, TimeUnit.SECONDS)) {
+                    throw new IOException("Rendering has not been allowed");
+                }
+            } catch (InterruptedException e) {
+                throw new IOException(e.getMessage());
+            }
+
+            if ("broken.js".equals(getResourceName())) {
+                throw new IOException("Resource cannot be rendered");
+            }
+
+            String contextPath = FacesContext.getCurrentInstance().getExternalContext().getRequestContextPath();
+
+            return new ByteArrayInputStream(("url(" + contextPath + "/" + getResourceName() + ".png)").getBytes("US-ASCII"));
+        }
+
+        @Override
+        public Map<String, String> getResponseHeaders() {
+            Map<String, String> headers = new HashMap<String, String>();
+            headers.put("Cache-Control", "max-age=86400");
+
+            return headers;
+        }
+
+        @Override
+        public String getRequestPath() {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public URL getURL() {
+            return null;
+        }
+
+        @Override
+        public boolean userAgentNeedsUpdate(FacesContext context) {
+            return true;
+        }
+
+        public boolean isCacheable(FacesContext context) {
+            return cacheable;
+        }
+
+        public Date getExpires(FacesContext context) {
+            return null;
+        }
+
+        public int getTimeToLive(FacesContext context) {
+            return 0;
+        }
+
+        public String getEntityTag(FacesContext context) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,135 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2010, Red Hat, Inc. and individual contributors
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.richfaces.resource;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.zip.GZIPInputStream;
+
+import org.ajax4jsf.io.ByteBuffer;
+import org.junit.Test;
+import org.richfaces.resource.ResourceContentStorage.StorageType;
+
+public class ResourceContentStorageTest {
+    private static ByteBuffer createBuffer(byte[] data) {
+        ByteBuffer buffer = new ByteBuffer(16);
+        buffer.append(data, 0, data.length);
+        return buffer;
+    }
+
+    private static byte[] createData(int length) {
+        byte[] data = new byte[length];
+
+        for (int i = 0; i < data.length; i++) {
+            data[i] = (byte) (i * 31);
+        }
+
+        return data;
+    }
+
+    private static byte[] readFully(InputStream is) throws IOException {
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        byte[] chunk = new byte[7];
+        int read;
+
+        while ((read = is.read(chunk)) != -1) {
+            baos.write(chunk, 0, read);
+        }
+
+        return baos.toByteArray();
+    }
+
+    private static void assertContent(byte[] expected, ResourceContent content) throws IOException {
+        assertEquals(expected.length, content.getLength());
+
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        content.writeTo(baos);
+        assertArrayEquals(expected, baos.toByteArray());
+
+        assertArrayEquals(expected, readFully(content.getInputStream()));
+        // content can be read repeatedly
+        assertArrayEquals(expected, readFully(content.getInputStream()));
+    }
+
+    @Test
+    public void testHeapStorage() throws Exception {
+        ResourceContentStorage storage = new ResourceContentStorage(StorageType.heap, 0, false);
+        byte[] data = createData(100);
+
+        ResourceContent content = storage.store(createBuffer(data));
+
+        assertTrue(content instanceof HeapResourceContent);
+        assertTrue(content.getHeapSize() >= data.length);
+        assertContent(data, content);
+    }
+
+    @Test
+    public void testDirectStorage() throws Exception {
+        ResourceContentStorage storage = new ResourceContentStorage(StorageType.direct, 1024, false);
+        byte[] data = createData(20000);
+        byte[] smallData = createData(1000);
+
+        // doesn't fit into the limit
+        ResourceContent content = storage.store(createBuffer(data));
+        assertTrue(content instanceof HeapResourceContent);
+        assertContent(data, content);
+        assertEquals(0, storage.getDirectMemoryUsed());
+
+        ResourceContent directContent = storage.store(createBuffer(smallData));
+        assertTrue(directContent instanceof DirectResourceContent);
+        assertEquals(0, directContent.getHeapSize());
+        assertContent(smallData, directContent);
+        assertEquals(smallData.length, storage.getDirectMemoryUsed());
+
+        // limit has been exhausted
+        assertTrue(storage.store(createBuffer(smallData)) instanceof HeapResourceContent);
+    }
+
+    @Test
+    public void testCompression() throws Exception {
+        ResourceContentStorage storage = new ResourceContentStorage(StorageType.heap, 0, true);
+
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < 100; i++) {
+            sb.append(".rf-selector-").append(i).append(" { color: red; }\n");
+        }
+
+        byte[] data = sb.toString().getBytes("US-ASCII");
+        ResourceContent content = storage.store(createBuffer(data));
+
+        assertNull(storage.compress(content, "image/png"));
+        assertNull(storage.compress(storage.store(createBuffer(createData(100))), "text/css"));
+
+        ResourceContent compressedContent = storage.compress(content, "text/css");
+        assertTrue(compressedContent.getLength() < data.length);
+        assertArrayEquals(data, readFully(new GZIPInputStream(compressedContent.getInputStream())));
+
+        ResourceContentStorage disabledStorage = new ResourceContentStorage(StorageType.heap, 0, false);
+        assertNull(disabledStorage.compress(content, "text/css"));
+    }
+}
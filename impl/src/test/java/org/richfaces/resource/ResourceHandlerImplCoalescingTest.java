@@ -0,0 +1,367 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2010, Red Hat, Inc. and individual contributors
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.richfaces.resource;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.faces.application.Application;
+import javax.faces.application.ProjectStage;
+import javax.faces.application.Resource;
+import javax.faces.context.ExternalContext;
+import javax.faces.context.FacesContext;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.richfaces.application.CoreConfiguration;
+import org.richfaces.application.ServiceTracker;
+import org.richfaces.application.ServicesFactory;
+import org.richfaces.application.configuration.ConfigurationService;
+import org.richfaces.cache.Cache;
+import org.richfaces.cache.concurrent.ConcurrentLRUCache;
+import org.richfaces.resource.ResourceContentStorage.StorageType;
+import org.richfaces.util.Util;
+
+/**
+ * Checks that concurrent requests for the same resource are served by a single render.
+ */
+public class ResourceHandlerImplCoalescingTest {
+    private static final int REQUESTS_COUNT = 8;
+    private static final String RESOURCE_KEY = "test.js";
+    private static final byte[] CONTENT = "var test = 1;".getBytes();
+    private FacesContext facesContext;
+    private ResourceRequestData requestData;
+    private Cache cache;
+    private TestResourceFactory resourceFactory;
+    private ResourceHandlerImpl resourceHandler;
+    private ExecutorService executor;
+
+    @Before
+    public void setUp() throws Exception {
+        facesContext = mock(FacesContext.class);
+        Application application = mock(Application.class);
+        when(facesContext.getApplication()).thenReturn(application);
+        when(application.getProjectStage()).thenReturn(ProjectStage.Production);
+
+        // response of the request that triggers the render has been aborted by client
+        ExternalContext externalContext = mock(ExternalContext.class);
+        when(facesContext.getExternalContext()).thenReturn(externalContext);
+        when(externalContext.getResponseOutputStream()).thenThrow(new IOException("Connection reset"));
+
+        requestData = mock(ResourceRequestData.class);
+        when(requestData.getResourceKey()).thenReturn(RESOURCE_KEY);
+
+        ConfigurationService configurationService = mock(ConfigurationService.class);
+        when(configurationService.getIntValue(facesContext, CoreConfiguration.Items.resourcesCacheMaxContentLength))
+            .thenReturn(1024 * 1024);
+
+        ServicesFactory servicesFactory = mock(ServicesFactory.class);
+        when(servicesFactory.getInstance(ConfigurationService.class)).thenReturn(configurationService);
+        when(servicesFactory.getInstance(ResourceContentStorage.class)).thenReturn(
+            new ResourceContentStorage(StorageType.heap, 0, false));
+        ServiceTracker.setFactory(servicesFactory);
+
+        cache = new ConcurrentLRUCache(1024 * 1024, 1);
+        resourceFactory = new TestResourceFactory();
+        resourceHandler = new ResourceHandlerImpl(null, resourceFactory);
+        executor = Executors.newFixedThreadPool(REQUESTS_COUNT);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        executor.shutdownNow();
+        ServiceTracker.release();
+    }
+
+    private List<Future<Resource>> materializeConcurrently() throws Exception {
+        final CyclicBarrier barrier = new CyclicBarrier(REQUESTS_COUNT);
+        List<Future<Resource>> futures = new ArrayList<Future<Resource>>(REQUESTS_COUNT);
+
+        for (int i = 0; i < REQUESTS_COUNT; i++) {
+            futures.add(executor.submit(new Callable<Resource>() {
+                public Resource call() throws Exception {
+                    barrier.await();
+                    return resourceHandler.materializeResource(facesContext, cache, requestData);
+                }
+            }));
+        }
+
+        return futures;
+    }
+
+    private static Resource getResult(Future<Resource> future) throws Exception {
+        return future.get(10, TimeUnit.SECONDS);
+    }
+
+    @Test
+    public void testConcurrentRequestsCoalesced() throws Exception {
+        List<Future<Resource>> futures = materializeConcurrently();
+        Resource resource = getResult(futures.get(0));
+
+        assertTrue(resource instanceof CachedResourceImpl);
+
+        for (Future<Resource> future : futures) {
+            assertSame(resource, getResult(future));
+        }
+
+        assertSame(resource, cache.get(RESOURCE_KEY));
+        assertEquals(1, resourceFactory.createdResourcesCount.get());
+        assertEquals(1, resourceHandler.getMaterializedResourcesCount());
+        assertEquals(REQUESTS_COUNT - 1, resourceHandler.getCoalescedRequestsCount());
+    }
+
+    @Test
+    public void testErrorPropagatedToWaiters() throws Exception {
+        resourceFactory.content = null;
+
+        for (Future<Resource> future : materializeConcurrently()) {
+            try {
+                getResult(future);
+                fail();
+            } catch (ExecutionException e) {
+                assertTrue(e.getCause() instanceof IOException);
+                assertEquals(TestResource.NO_CONTENT_MESSAGE, e.getCause().getMessage());
+            }
+        }
+
+        assertEquals(1, resourceFactory.createdResourcesCount.get());
+        assertEquals(0, resourceHandler.getMaterializedResourcesCount());
+        assertEquals(REQUESTS_COUNT - 1, resourceHandler.getCoalescedRequestsCount());
+
+        // failed render should not be shared with subsequent requests
+        resourceFactory.content = CONTENT;
+        Resource resource = resourceHandler.materializeResource(facesContext, cache, requestData);
+
+        assertTrue(resource instanceof CachedResourceImpl);
+        assertEquals(2, resourceFactory.createdResourcesCount.get());
+        assertEquals(1, resourceHandler.getMaterializedResourcesCount());
+    }
+
+    @Test
+    public void testNonCacheableResourceCreatedForWaiters() throws Exception {
+        resourceFactory.cacheable = false;
+
+        List<Future<Resource>> futures = materializeConcurrently();
+        List<Resource> resources = new ArrayList<Resource>(REQUESTS_COUNT);
+
+        for (Future<Resource> future : futures) {
+            Resource resource = getResult(future);
+
+            assertTrue(resource instanceof TestResource);
+
+            for (Resource otherResource : resources) {
+                assertNotSame(otherResource, resource);
+            }
+
+            resources.add(resource);
+        }
+
+        assertEquals(null, cache.get(RESOURCE_KEY));
+        assertEquals(REQUESTS_COUNT, resourceFactory.createdResourcesCount.get());
+        assertEquals(0, resourceHandler.getMaterializedResourcesCount());
+        assertEquals(REQUESTS_COUNT - 1, resourceHandler.getCoalescedRequestsCount());
+    }
+
+    @Test
+    public void testProducedContentCapturedForWaiters() throws Exception {
+        resourceFactory.contentProducer = true;
+
+        List<Future<Resource>> futures = materializeConcurrently();
+        Resource resource = getResult(futures.get(0));
+
+        assertTrue(resource instanceof CachedResourceImpl);
+
+        for (Future<Resource> future : futures) {
+            assertSame(resource, getResult(future));
+        }
+
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        ((CachedResourceImpl) resource).getContent().writeTo(baos);
+
+        assertArrayEquals(CONTENT, baos.toByteArray());
+        assertEquals(1, resourceFactory.createdResourcesCount.get());
+        assertEquals(1, resourceHandler.getMaterializedResourcesCount());
+        assertEquals(REQUESTS_COUNT - 1, resourceHandler.getCoalescedRequestsCount());
+    }
+
+    @Test
+    public void testOversizedProducedContentNotRenderedAgain() throws Exception {
+        resourceFactory.contentProducer = true;
+        resourceFactory.content = new byte[2 * 1024 * 1024];
+
+        List<Future<Resource>> futures = materializeConcurrently();
+        Resource resource = getResult(futures.get(0));
+
+        assertTrue(resource instanceof CachedResourceImpl);
+        assertEquals(resourceFactory.content.length, ((CachedResourceImpl) resource).getContent().getLength());
+
+        for (Future<Resource> future : futures) {
+            assertSame(resource, getResult(future));
+        }
+
+        assertEquals(null, cache.get(RESOURCE_KEY));
+        assertEquals(1, resourceFactory.createdResourcesCount.get());
+        assertEquals(0, resourceHandler.getMaterializedResourcesCount());
+    }
+
+    private final class TestResourceFactory implements ResourceFactory {
+        private final AtomicInteger createdResourcesCount = new AtomicInteger();
+        private volatile boolean cacheable = true;
+        private volatile byte[] content = CONTENT;
+        private volatile boolean contentProducer = false;
+
+        public Collection<ResourceKey> getMappedDynamicResourceKeys() {
+            return Collections.emptySet();
+        }
+
+        public Resource createResource(String resourceName, String libraryName, String contentType) {
+            return null;
+        }
+
+        public Resource createResource(FacesContext context, ResourceRequestData resourceData) {
+            createdResourcesCount.incrementAndGet();
+
+            // keep the first render in progress until all concurrent requests are waiting for it
+            long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(10);
+
+            while (resourceHandler.getCoalescedRequestsCount() < REQUESTS_COUNT - 1) {
+                if (System.currentTimeMillis() > deadline) {
+                    throw new IllegalStateException("Concurrent requests have not been coalesced");
+                }
+
+                Thread.yield();
+            }
+
+            if (contentProducer) {
+                return new TestContentProducerResource(cacheable, content);
+            }
+
+            return new TestResource(cacheable, content);
+        }
+    }
+
+    static class TestContentProducerResource extends TestResource implements ContentProducerResource {
+        TestContentProducerResource(boolean cacheable, byte[] content) {
+            super(cacheable, content);
+        }
+
+        public void encode(FacesContext context) throws IOException {
+            InputStream is = getInputStream();
+
+            try {
+                Util.copyStreamContent(is, context.getExternalContext().getResponseOutputStream());
+            } finally {
+                is.close();
+            }
+        }
+    }
+
+    static class TestResource extends Resource implements CacheableResource {
+        static final String NO_CONTENT_MESSAGE = "Resource content is not available";
+        private final boolean cacheable;
+        private final byte[] content;
+
+        TestResource(boolean cacheable, byte[] content) {
+            this.cacheable = cacheable;
+            this.content = content;
+
+            setResourceName(RESOURCE_KEY);
+            setContentType("text/javascript");
+        }
+
+        @Override
+        public InputStream getInputStream() throws IOException {
+            if (content == null) {
+                throw new IOException(NO_CONTENT_MESSAGE);
+            }
+
+            return new ByteArrayInputStream(content);
+        }
+
+        @Override
+        public Map<String, String> getResponseHeaders() {
+            Map<String, String> headers = new HashMap<String, String>();
+            headers.put("Cache-Control", "max-age=86400");
+
+            return headers;
+        }
+
+        @Override
+        public String getRequestPath() {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public URL getURL() {
+            return null;
+        }
+
+        @Override
+        public boolean userAgentNeedsUpdate(FacesContext context) {
+            return true;
+        }
+
+        public boolean isCacheable(FacesContext context) {
+            return cacheable;
+        }
+
+        public Date getExpires(FacesContext context) {
+            return null;
+        }
+
+        public int getTimeToLive(FacesContext context) {
+            return 0;
+        }
+
+        public String getEntityTag(FacesContext context) {
+            return null;
+        }
+    }
+}
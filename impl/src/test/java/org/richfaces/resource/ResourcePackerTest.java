@@ -0,0 +1,270 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2010, Red Hat, Inc. and individual contributors
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.richfaces.resource;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import javax.faces.application.Application;
+import javax.faces.application.Resource;
+import javax.faces.application.ResourceHandler;
+import javax.faces.context.ExternalContext;
+import javax.faces.context.FacesContext;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.richfaces.application.ServiceTracker;
+import org.richfaces.application.ServicesFactory;
+import org.richfaces.cache.Cache;
+import org.richfaces.cache.concurrent.ConcurrentLRUCache;
+import org.richfaces.resource.ResourcePacker.Pack;
+import org.richfaces.resource.ResourcePacker.Type;
+import org.richfaces.util.Util;
+
+public class ResourcePackerTest {
+    private FacesContext facesContext;
+    private ResourceHandler resourceHandler;
+    private ServicesFactory servicesFactory;
+    private ExternalContext externalContext;
+
+    @Before
+    public void setUp() throws Exception {
+        facesContext = mock(FacesContext.class);
+        Application application = mock(Application.class);
+        resourceHandler = mock(ResourceHandler.class);
+        when(facesContext.getApplication()).thenReturn(application);
+        when(application.getResourceHandler()).thenReturn(resourceHandler);
+        when(resourceHandler.getRendererTypeForResourceName(anyString())).thenAnswer(new Answer<String>() {
+            public String answer(InvocationOnMock invocation) throws Throwable {
+                String resourceName = (String) invocation.getArguments()[0];
+                return resourceName.endsWith(".js") ? Type.SCRIPT.getRendererType() : null;
+            }
+        });
+
+        externalContext = mock(ExternalContext.class);
+        when(facesContext.getExternalContext()).thenReturn(externalContext);
+
+        servicesFactory = mock(ServicesFactory.class);
+        when(servicesFactory.getInstance(Cache.class)).thenReturn(new ConcurrentLRUCache(1024 * 1024, 1));
+        ServiceTracker.setFactory(servicesFactory);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        ServiceTracker.release();
+    }
+
+    private void addScript(String name, String library, final String content) throws Exception {
+        Resource resource = mock(Resource.class);
+        when(resource.getInputStream()).thenAnswer(new Answer<InputStream>() {
+            public InputStream answer(InvocationOnMock invocation) throws Throwable {
+                return new ByteArrayInputStream(content.getBytes("UTF-8"));
+            }
+        });
+        when(resourceHandler.createResource(name, library)).thenReturn(resource);
+    }
+
+    private PackedResource restoreResource(PackedResource packedResource) throws Exception {
+        ByteArrayOutputStream state = new ByteArrayOutputStream();
+        packedResource.writeState(facesContext, new DataOutputStream(state));
+
+        PackedResource resource = new PackedResource();
+        resource.readState(facesContext, new DataInputStream(new ByteArrayInputStream(state.toByteArray())));
+
+        return resource;
+    }
+
+    private String getPackedContent(Pack pack) throws Exception {
+        return getContent(restoreResource(pack.createResource()));
+    }
+
+    private String getContent(PackedResource resource) throws Exception {
+        ByteArrayOutputStream content = new ByteArrayOutputStream();
+
+        assertEquals("text/javascript", resource.getContentType());
+        Util.copyStreamContent(resource.getInputStream(), content);
+
+        return content.toString("UTF-8");
+    }
+
+    @Test
+    public void testPack() throws Exception {
+        addScript("a.js", null, "var a = 1");
+        addScript("b.js", "lib", "var b = 2");
+
+        Pack pack = ResourcePacker.pack(facesContext, Type.SCRIPT,
+            Arrays.asList(new ResourceKey("a.js", null), new ResourceKey("b.js", "lib")));
+
+        assertNotNull(pack);
+        assertEquals(2, pack.getSize());
+        assertEquals("var a = 1\n;\nvar b = 2\n;\n", getPackedContent(pack));
+    }
+
+    @Test
+    public void testPackLeadingResources() throws Exception {
+        addScript("a.js", null, "var a = 1");
+        addScript("b.js", null, "var b = 2");
+        addScript("d.js", null, "var d = 4");
+
+        // c.js does not exist
+        Pack pack = ResourcePacker.pack(facesContext, Type.SCRIPT, Arrays.asList(new ResourceKey("a.js", null),
+            new ResourceKey("b.js", null), new ResourceKey("c.js", null), new ResourceKey("d.js", null)));
+
+        assertNotNull(pack);
+        assertEquals(2, pack.getSize());
+        assertEquals("var a = 1\n;\nvar b = 2\n;\n", getPackedContent(pack));
+
+        assertNull(ResourcePacker.pack(facesContext, Type.SCRIPT,
+            Arrays.asList(new ResourceKey("a.js", null), new ResourceKey("c.js", null))));
+        assertNull(ResourcePacker.pack(facesContext, Type.SCRIPT, Arrays.asList(new ResourceKey("a.js", null))));
+    }
+
+    @Test
+    public void testPackCached() throws Exception {
+        addScript("a.js", null, "var a = 1");
+        addScript("b.js", null, "var b = 2");
+
+        Pack pack = ResourcePacker.pack(facesContext, Type.SCRIPT,
+            Arrays.asList(new ResourceKey("a.js", null), new ResourceKey("b.js", null)));
+        Pack cachedPack = ResourcePacker.pack(facesContext, Type.SCRIPT,
+            Arrays.asList(new ResourceKey("a.js", null), new ResourceKey("b.js", null)));
+
+        assertEquals(pack.getHash(), cachedPack.getHash());
+        verify(resourceHandler, times(1)).createResource("a.js", null);
+        verify(resourceHandler, times(1)).createResource("b.js", null);
+
+        Pack reversedPack = ResourcePacker.pack(facesContext, Type.SCRIPT,
+            Arrays.asList(new ResourceKey("b.js", null), new ResourceKey("a.js", null)));
+
+        assertFalse(pack.getHash().equals(reversedPack.getHash()));
+    }
+
+    @Test
+    public void testMissingContent() throws Exception {
+        PackedResource resource = restoreResource(new PackedResource("0123456789abcdef0123456789abcdef", Type.SCRIPT, null,
+            Arrays.asList(new ResourceKey("a.js", null), new ResourceKey("b.js", null))));
+
+        assertFalse(resource.isCacheable(facesContext));
+        assertNull(resource.getInputStream());
+    }
+
+    @Test
+    public void testRepackEvictedContent() throws Exception {
+        addScript("a.js", null, "var a = 1");
+        addScript("b.js", "lib", "var b = 2");
+
+        Pack pack = ResourcePacker.pack(facesContext, Type.SCRIPT,
+            Arrays.asList(new ResourceKey("a.js", null), new ResourceKey("b.js", "lib")));
+
+        // another node or restarted application
+        when(servicesFactory.getInstance(Cache.class)).thenReturn(new ConcurrentLRUCache(1024 * 1024, 1));
+
+        PackedResource resource = restoreResource(pack.createResource());
+
+        assertTrue(resource.isCacheable(facesContext));
+        assertEquals("var a = 1\n;\nvar b = 2\n;\n", getContent(resource));
+        assertEquals(ResourceUtils.formatWeakTag(pack.getHash()), resource.getEntityTag(facesContext));
+    }
+
+    @Test
+    public void testRepackChangedContent() throws Exception {
+        addScript("a.js", null, "var a = 1");
+        addScript("b.js", null, "var b = 2");
+
+        Pack pack = ResourcePacker.pack(facesContext, Type.SCRIPT,
+            Arrays.asList(new ResourceKey("a.js", null), new ResourceKey("b.js", null)));
+
+        when(servicesFactory.getInstance(Cache.class)).thenReturn(new ConcurrentLRUCache(1024 * 1024, 1));
+        addScript("b.js", null, "var b = 3");
+
+        PackedResource resource = restoreResource(pack.createResource());
+
+        assertFalse(resource.isCacheable(facesContext));
+        assertNull(resource.getInputStream());
+    }
+
+    @Test
+    public void testRepackExcludedResources() throws Exception {
+        addScript("a.js", null, "var a = 1");
+        addScript("page.xhtml", "cc", "<composite:interface/>");
+        addScript("excluded.js", null, "var excluded = 1");
+        when(externalContext.getInitParameter(ResourceHandler.RESOURCE_EXCLUDES_PARAM_NAME)).thenReturn(
+            ".xhtml excluded.js");
+
+        assertNull(restoreResource(new PackedResource("0123456789abcdef0123456789abcdef", Type.SCRIPT, null,
+            Arrays.asList(new ResourceKey("a.js", null), new ResourceKey("page.xhtml", "cc")))).getInputStream());
+        assertNull(restoreResource(new PackedResource("0123456789abcdef0123456789abcdef", Type.SCRIPT, null,
+            Arrays.asList(new ResourceKey("a.js", null), new ResourceKey("excluded.js", null)))).getInputStream());
+
+        verify(resourceHandler, never()).createResource("page.xhtml", "cc");
+        verify(resourceHandler, never()).createResource("excluded.js", null);
+    }
+
+    @Test(expected = IOException.class)
+    public void testTooManyResourcesInState() throws Exception {
+        List<ResourceKey> resourceKeys = new ArrayList<ResourceKey>();
+        for (int i = 0; i < 1000; i++) {
+            resourceKeys.add(new ResourceKey(i + ".js", null));
+        }
+
+        restoreResource(new PackedResource("0123456789abcdef0123456789abcdef", Type.SCRIPT, null, resourceKeys));
+    }
+
+    private static boolean isPackableStylesheet(String css) throws Exception {
+        return ResourcePacker.isPackableStylesheet(css.getBytes("UTF-8"));
+    }
+
+    @Test
+    public void testPackableStylesheet() throws Exception {
+        assertTrue(isPackableStylesheet(".a { color: red }"));
+        assertTrue(isPackableStylesheet(".a { background: url(/ctx/rfRes/img.png) }"));
+        assertTrue(isPackableStylesheet(".a { background: URL( 'http://host/img.png' ) }"));
+        assertTrue(isPackableStylesheet(".a { background: url(\"data:image/png;base64,AAAA\") }"));
+
+        assertFalse(isPackableStylesheet(".a { background: url(img.png) }"));
+        assertFalse(isPackableStylesheet(".a { background: url('../img.png') }"));
+        assertFalse(isPackableStylesheet("@import url(/ctx/other.css);"));
+        assertFalse(isPackableStylesheet("@charset \"UTF-8\"; .a { color: red }"));
+    }
+}
@@ -61,6 +61,15 @@ public class ResourceUtilsTest {
         }
     }
 
+    @Test
+    public void testFormatVariantTag() throws Exception {
+        assertNull(ResourceUtils.formatVariantTag(null, "-gz"));
+        assertEquals("\"123-456789-gz\"", ResourceUtils.formatVariantTag("\"123-456789\"", "-gz"));
+        assertEquals("W/\"123-456789-gz\"", ResourceUtils.formatVariantTag("W/\"123-456789\"", "-gz"));
+        assertFalse(ResourceUtils.matchTag(ResourceUtils.formatVariantTag("\"123\"", "-gz"), "\"123\""));
+        assertNull(ResourceUtils.formatVariantTag("123-456789", "-gz"));
+    }
+
     @Test
     public void testMatchTag() throws Exception {
         assertTrue(ResourceUtils.matchTag("\"123-4567890\"", "W/\"123-4567890\""));
@@ -94,4 +103,30 @@ public class ResourceUtilsTest {
             // ok
         }
     }
+
+    @Test
+    public void testIsEncodingAccepted() throws Exception {
+        assertFalse(ResourceUtils.isEncodingAccepted("gzip", null));
+        assertFalse(ResourceUtils.isEncodingAccepted("gzip", ""));
+        assertFalse(ResourceUtils.isEncodingAccepted("gzip", "identity"));
+        assertTrue(ResourceUtils.isEncodingAccepted("gzip", "gzip"));
+        assertTrue(ResourceUtils.isEncodingAccepted("gzip", "gzip, deflate"));
+        assertTrue(ResourceUtils.isEncodingAccepted("gzip", "deflate,GZIP;q=0.5"));
+        assertFalse(ResourceUtils.isEncodingAccepted("gzip", "deflate, gzip;q=0"));
+        assertFalse(ResourceUtils.isEncodingAccepted("gzip", "gzip;q=0.0, *"));
+        assertTrue(ResourceUtils.isEncodingAccepted("gzip", "identity, *"));
+        assertFalse(ResourceUtils.isEncodingAccepted("gzip", "identity, *;q=0"));
+    }
+
+    @Test
+    public void testIsCompressibleContentType() throws Exception {
+        assertFalse(ResourceUtils.isCompressibleContentType(null));
+        assertTrue(ResourceUtils.isCompressibleContentType("text/css"));
+        assertTrue(ResourceUtils.isCompressibleContentType("text/javascript; charset=UTF-8"));
+        assertTrue(ResourceUtils.isCompressibleContentType("application/javascript"));
+        assertTrue(ResourceUtils.isCompressibleContentType("image/svg+xml"));
+        assertFalse(ResourceUtils.isCompressibleContentType("image/png"));
+        assertFalse(ResourceUtils.isCompressibleContentType("image/gif"));
+        assertFalse(ResourceUtils.isCompressibleContentType("image/jpeg"));
+    }
 }
@@ -0,0 +1,86 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2010, Red Hat, Inc. and individual contributors
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.richfaces.resource.css;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Compares rendering of shipped ECSS stylesheets for every shipped skin by parsing and visiting source for every render (as
+ * {@link org.richfaces.resource.CompiledCSSResource} did before) with rendering of compiled {@link CSSTemplate}. Run with
+ * <code>java -cp target/test-classes:&lt;test classpath&gt; org.openjdk.jmh.Main CSSTemplateBenchmark</code>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class CSSTemplateBenchmark {
+    @Param({ "skinning.ecss", "skinning_classes.ecss" })
+    private String resourceName;
+    private SkinELFacesContext[] skinContexts;
+    private CSSTemplate template;
+
+    @Setup
+    public void setup() throws IOException {
+        skinContexts = new SkinELFacesContext[SkinELFacesContext.SKIN_NAMES.length];
+
+        for (int i = 0; i < skinContexts.length; i++) {
+            skinContexts[i] = new SkinELFacesContext();
+            skinContexts[i].setSkin(SkinELFacesContext.SKIN_NAMES[i]);
+        }
+
+        template = CSSTemplate.compile(skinContexts[0], SkinELFacesContext.parse(resourceName));
+    }
+
+    @Benchmark
+    public long parsePerRender() throws IOException {
+        long length = 0;
+
+        for (SkinELFacesContext context : skinContexts) {
+            CSSVisitorImpl visitor = new CSSVisitorImpl(context);
+            visitor.setEncoding("UTF-8");
+            visitor.visitStyleSheet(SkinELFacesContext.parse(resourceName));
+            length += visitor.getCSSText().getBytes("UTF-8").length;
+        }
+
+        return length;
+    }
+
+    @Benchmark
+    public long compiledTemplate() throws IOException {
+        long length = 0;
+
+        for (SkinELFacesContext context : skinContexts) {
+            length += template.render(context, "UTF-8").getBytes("UTF-8").length;
+        }
+
+        return length;
+    }
+}
@@ -0,0 +1,102 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2010, Red Hat, Inc. and individual contributors
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.richfaces.resource.css;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.StringReader;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.w3c.css.sac.InputSource;
+import org.w3c.dom.css.CSSStyleSheet;
+
+import com.steadystate.css.parser.CSSOMParser;
+
+public class CSSTemplateTest {
+    private SkinELFacesContext facesContext;
+
+    @Before
+    public void setUp() throws Exception {
+        facesContext = new SkinELFacesContext();
+    }
+
+    private String renderWithVisitor(CSSStyleSheet styleSheet) {
+        CSSVisitorImpl visitor = new CSSVisitorImpl(facesContext);
+        visitor.setEncoding("UTF-8");
+        visitor.visitStyleSheet(styleSheet);
+        return visitor.getCSSText();
+    }
+
+    private void assertSameOutput(CSSStyleSheet styleSheet) throws Exception {
+        CSSTemplate template = CSSTemplate.compile(facesContext, styleSheet);
+
+        for (String skinName : SkinELFacesContext.SKIN_NAMES) {
+            facesContext.setSkin(skinName);
+            assertEquals(skinName, renderWithVisitor(styleSheet), template.render(facesContext, "UTF-8"));
+        }
+    }
+
+    @Test
+    public void testShippedStyleSheets() throws Exception {
+        assertSameOutput(SkinELFacesContext.parse("skinning.ecss"));
+        assertSameOutput(SkinELFacesContext.parse("skinning_classes.ecss"));
+    }
+
+    @Test
+    public void testRules() throws Exception {
+        String css = "@charset \"ISO-8859-1\";\n"
+            + ".a { color: '#{richSkin.generalTextColor}'; border: '1px solid #{richSkin.panelBorderColor}' !important; }\n"
+            + ".b { font-size: \"\"; background-image: \"url(#{resource['org.richfaces.images:img.png']})\"; }\n"
+            + ".c { color: '#{richSkin.noSuchParameter}'; }\n"
+            + "@media print { .d { color: red; margin: 0; } .e { color: '#{richSkin.noSuchParameter}' } }\n"
+            + "@font-face { font-family: Test; src: url(test.ttf); }\n"
+            + "@page :first { margin: 1in; }\n";
+
+        CSSStyleSheet styleSheet = new CSSOMParser().parseStyleSheet(new InputSource(new StringReader(css)), null, null);
+        assertSameOutput(styleSheet);
+        assertEquals("ISO-8859-1", CSSTemplate.compile(facesContext, styleSheet).getEncoding());
+    }
+
+    @Test
+    public void testSpriteImages() throws Exception {
+        String css = ".a { background-position: top left; background-repeat: repeat-x; "
+            + "background-image: \"url(#{resource['org.richfaces.images:buttonBackgroundImage.png']})\"; color: red; }\n"
+            + ".b { background-position: bottom left; "
+            + "background-image: \"url(#{resource['org.richfaces.images:buttonBackgroundImage.png']})\"; }\n"
+            + ".c { background-image: \"url(#{resource['org.richfaces.images:buttonBackgroundImage.png']})\"; }\n";
+
+        CSSStyleSheet styleSheet = new CSSOMParser().parseStyleSheet(new InputSource(new StringReader(css)), null, null);
+        String spriteText = CSSTemplate.compile(facesContext, styleSheet, true).render(facesContext, "UTF-8");
+        String expectedRule = "*.a {\r\n\tbackground-repeat: repeat-x;\r\n"
+            + "\tbackground-image: url(/javax.faces.resource/org.richfaces.images:gradientAtlas.png);\r\n"
+            + "\tbackground-position: 0 0;\r\n\tcolor: red;\r\n}\r\n";
+
+        assertTrue(spriteText, spriteText.startsWith(expectedRule));
+
+        // rules that don't declare top left position keep separate images
+        String text = renderWithVisitor(styleSheet);
+
+        assertEquals(text.substring(text.indexOf("*.b")), spriteText.substring(spriteText.indexOf("*.b")));
+    }
+}
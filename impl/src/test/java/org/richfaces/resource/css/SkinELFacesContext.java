@@ -0,0 +1,224 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2010, Red Hat, Inc. and individual contributors
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.richfaces.resource.css;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.util.Properties;
+
+import javax.el.ELContext;
+import javax.el.ELResolver;
+import javax.el.ExpressionFactory;
+import javax.el.FunctionMapper;
+import javax.el.MethodExpression;
+import javax.el.ValueExpression;
+import javax.el.VariableMapper;
+import javax.faces.application.Application;
+import javax.faces.application.ApplicationWrapper;
+import javax.faces.context.FacesContext;
+import javax.faces.context.FacesContextWrapper;
+
+import org.w3c.css.sac.InputSource;
+import org.w3c.dom.css.CSSStyleSheet;
+
+import com.steadystate.css.parser.CSSOMParser;
+
+/**
+ * Minimal faces context evaluating <code>#{richSkin.name}</code> and <code>#{resource['name']}</code> expressions used by
+ * ECSS stylesheets, without JSF and EL implementations.
+ */
+final class SkinELFacesContext extends FacesContextWrapper {
+    static final String[] SKIN_NAMES = { "DEFAULT", "NULL", "blueSky", "classic", "deepMarine", "emeraldTown",
+            "japanCherry", "plain", "ruby", "wine" };
+    private Properties skinProperties = new Properties();
+    private final ExpressionFactory expressionFactory = new SkinExpressionFactory();
+    private final ELContext elContext = new ELContext() {
+        @Override
+        public VariableMapper getVariableMapper() {
+            return null;
+        }
+
+        @Override
+        public FunctionMapper getFunctionMapper() {
+            return null;
+        }
+
+        @Override
+        public ELResolver getELResolver() {
+            return null;
+        }
+    };
+    private final Application application = new ApplicationWrapper() {
+        @Override
+        public Application getWrapped() {
+            return null;
+        }
+
+        @Override
+        public ExpressionFactory getExpressionFactory() {
+            return expressionFactory;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public <T> T evaluateExpressionGet(FacesContext context, String expression, Class<? extends T> expectedType) {
+            return (T) expressionFactory.createValueExpression(elContext, expression, expectedType).getValue(elContext);
+        }
+    };
+
+    void setSkin(String skinName) throws IOException {
+        Properties properties = new Properties();
+        InputStream stream = getClass().getClassLoader().getResourceAsStream(
+            "META-INF/skins/" + skinName + ".skin.properties");
+        try {
+            properties.load(stream);
+        } finally {
+            stream.close();
+        }
+
+        skinProperties = properties;
+    }
+
+    static CSSStyleSheet parse(String resourceName) throws IOException {
+        InputStream stream = SkinELFacesContext.class.getClassLoader().getResourceAsStream(
+            "META-INF/resources/" + resourceName);
+        try {
+            return new CSSOMParser().parseStyleSheet(new InputSource(new InputStreamReader(stream)), null, null);
+        } finally {
+            stream.close();
+        }
+    }
+
+    @Override
+    public FacesContext getWrapped() {
+        return null;
+    }
+
+    @Override
+    public Application getApplication() {
+        return application;
+    }
+
+    @Override
+    public ELContext getELContext() {
+        return elContext;
+    }
+
+    private String evaluate(String expression) {
+        StringBuilder result = new StringBuilder();
+        int position = 0;
+
+        while (true) {
+            int start = expression.indexOf("#{", position);
+            if (start < 0) {
+                break;
+            }
+
+            int end = expression.indexOf('}', start);
+            result.append(expression, position, start);
+
+            String reference = expression.substring(start + 2, end).trim();
+            if (reference.startsWith("richSkin.")) {
+                result.append(skinProperties.getProperty(reference.substring("richSkin.".length()), ""));
+            } else if (reference.startsWith("resource[")) {
+                result.append("/javax.faces.resource/");
+                result.append(reference.substring("resource[".length() + 1, reference.length() - 2));
+            }
+
+            position = end + 1;
+        }
+
+        result.append(expression, position, expression.length());
+        return result.toString();
+    }
+
+    private final class SkinExpressionFactory extends ExpressionFactory {
+        @Override
+        public ValueExpression createValueExpression(ELContext context, final String expression, Class<?> expectedType) {
+            return new ValueExpression() {
+                private static final long serialVersionUID = 1L;
+
+                @Override
+                public Object getValue(ELContext context) {
+                    return evaluate(expression);
+                }
+
+                @Override
+                public void setValue(ELContext context, Object value) {
+                    throw new UnsupportedOperationException();
+                }
+
+                @Override
+                public boolean isReadOnly(ELContext context) {
+                    return true;
+                }
+
+                @Override
+                public Class<?> getType(ELContext context) {
+                    return String.class;
+                }
+
+                @Override
+                public Class<?> getExpectedType() {
+                    return String.class;
+                }
+
+                @Override
+                public String getExpressionString() {
+                    return expression;
+                }
+
+                @Override
+                public boolean equals(Object obj) {
+                    return this == obj;
+                }
+
+                @Override
+                public int hashCode() {
+                    return expression.hashCode();
+                }
+
+                @Override
+                public boolean isLiteralText() {
+                    return false;
+                }
+            };
+        }
+
+        @Override
+        public ValueExpression createValueExpression(Object instance, Class<?> expectedType) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public MethodExpression createMethodExpression(ELContext context, String expression, Class<?> expectedReturnType,
+            Class<?>[] expectedParamTypes) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Object coerceToType(Object obj, Class<?> targetType) {
+            throw new UnsupportedOperationException();
+        }
+    }
+}
@@ -246,6 +246,28 @@ public class SkinTestCase {
         assertFalse(hash == skin.hashCode(facesContext));
     }
 
+    @Test
+    @ContextInitParameters({ @ContextInitParameter(name = SKIN_PARAM_NAME, value = "style"),
+            @ContextInitParameter(name = BASE_SKIN_PARAM_NAME, value = "style_base") })
+    public void testResolvedParametersShared() {
+        FacesContext facesContext = FacesContext.getCurrentInstance();
+        SkinFactory factory = SkinFactory.getInstance(facesContext);
+
+        Skin skin = factory.getSkin(facesContext);
+
+        assertEquals("#F5F0E7", skin.getParameter(facesContext, "generalTextColor"));
+
+        int hash = skin.hashCode(facesContext);
+
+        SkinFactoryImpl.clearSkinCaches(facesContext);
+
+        Skin nextSkin = factory.getSkin(facesContext);
+
+        assertSame(skin, nextSkin);
+        assertEquals("#F5F0E7", nextSkin.getParameter(facesContext, "generalTextColor"));
+        assertEquals(hash, nextSkin.hashCode(facesContext));
+    }
+
     /*
      * Test method for 'org.richfaces.skin.SkinFactory.getDefaultProperties()'
      */
@@ -0,0 +1,150 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2010, Red Hat, Inc. and individual contributors
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.richfaces.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Locale;
+import java.util.Random;
+import java.util.TimeZone;
+
+import org.junit.Test;
+
+public class HttpDateCodecTest {
+    // Sun, 06 Nov 1994 08:49:37 GMT
+    private static final long REFERENCE_TIME = 784111777000L;
+
+    private static SimpleDateFormat createFormat() {
+        SimpleDateFormat format = new SimpleDateFormat("EEE, dd MMM yyyy HH:mm:ss zzz", Locale.US);
+        format.setTimeZone(TimeZone.getTimeZone("GMT"));
+        return format;
+    }
+
+    @Test
+    public void testFormat() throws Exception {
+        assertEquals("Sun, 06 Nov 1994 08:49:37 GMT", HttpDateCodec.format(REFERENCE_TIME));
+        assertEquals("Thu, 01 Jan 1970 00:00:00 GMT", HttpDateCodec.format(0));
+        assertEquals("Wed, 31 Dec 1969 23:59:59 GMT", HttpDateCodec.format(-1));
+        assertEquals("Tue, 29 Feb 2000 12:00:00 GMT", HttpDateCodec.format(951825600000L));
+    }
+
+    @Test
+    public void testFormatMatchesSimpleDateFormat() throws Exception {
+        SimpleDateFormat format = createFormat();
+        Random random = new Random(42);
+
+        for (int i = 0; i < 10000; i++) {
+            // dates between 1970 and 2100
+            long time = (long) (random.nextDouble() * 4102444800000L);
+
+            assertEquals(format.format(new Date(time)), HttpDateCodec.format(time));
+        }
+    }
+
+    @Test
+    public void testFormatReusesValueWithinSecond() throws Exception {
+        String formatted = HttpDateCodec.format(REFERENCE_TIME);
+
+        assertSame(formatted, HttpDateCodec.format(REFERENCE_TIME + 999));
+        assertEquals("Sun, 06 Nov 1994 08:49:38 GMT", HttpDateCodec.format(REFERENCE_TIME + 1000));
+    }
+
+    @Test
+    public void testFormatCurrentTime() throws Exception {
+        String formatted = HttpDateCodec.formatCurrentTime(REFERENCE_TIME);
+
+        assertEquals("Sun, 06 Nov 1994 08:49:37 GMT", formatted);
+
+        // Last-Modified and Expires headers are formatted between Date headers of the subsequent responses
+        HttpDateCodec.format(REFERENCE_TIME - 86400000L);
+        HttpDateCodec.format(REFERENCE_TIME + 86400000L);
+        HttpDateCodec.format(REFERENCE_TIME);
+
+        assertSame(formatted, HttpDateCodec.formatCurrentTime(REFERENCE_TIME + 500));
+        assertEquals("Sun, 06 Nov 1994 08:49:38 GMT", HttpDateCodec.formatCurrentTime(REFERENCE_TIME + 1000));
+
+        assertEquals(HttpDateCodec.format(System.currentTimeMillis()).length(), HttpDateCodec.formatNow().length());
+    }
+
+    @Test
+    public void testFormatCachesSeveralDates() throws Exception {
+        String lastModified = HttpDateCodec.format(REFERENCE_TIME - 86400001L);
+        String expires = HttpDateCodec.format(REFERENCE_TIME + 86400000L);
+
+        for (int i = 0; i < 3; i++) {
+            assertSame(lastModified, HttpDateCodec.format(REFERENCE_TIME - 86400001L));
+            assertSame(expires, HttpDateCodec.format(REFERENCE_TIME + 86400000L));
+        }
+    }
+
+    @Test
+    public void testParseRFC1123() throws Exception {
+        assertEquals(REFERENCE_TIME, HttpDateCodec.parse("Sun, 06 Nov 1994 08:49:37 GMT"));
+        assertEquals(REFERENCE_TIME, HttpDateCodec.parse("sun, 06 nov 1994 08:49:37 gmt"));
+        assertEquals(REFERENCE_TIME, HttpDateCodec.parse("Sun, 6 Nov 1994 08:49:37 UTC"));
+    }
+
+    @Test
+    public void testParseRFC850() throws Exception {
+        assertEquals(REFERENCE_TIME, HttpDateCodec.parse("Sunday, 06-Nov-94 08:49:37 GMT"));
+        assertEquals(1230768000000L, HttpDateCodec.parse("Thursday, 01-Jan-09 00:00:00 GMT"));
+    }
+
+    @Test
+    public void testParseAsctime() throws Exception {
+        assertEquals(REFERENCE_TIME, HttpDateCodec.parse("Sun Nov  6 08:49:37 1994"));
+        assertEquals(REFERENCE_TIME, HttpDateCodec.parse("Sun Nov 06 08:49:37 1994"));
+    }
+
+    @Test
+    public void testParseIgnoresTrailingParameters() throws Exception {
+        assertEquals(REFERENCE_TIME, HttpDateCodec.parse("Sun, 06 Nov 1994 08:49:37 GMT; length=1234"));
+    }
+
+    @Test
+    public void testParseInvalid() throws Exception {
+        assertEquals(HttpDateCodec.NO_DATE, HttpDateCodec.parse(null));
+        assertEquals(HttpDateCodec.NO_DATE, HttpDateCodec.parse(""));
+        assertEquals(HttpDateCodec.NO_DATE, HttpDateCodec.parse("yesterday"));
+        assertEquals(HttpDateCodec.NO_DATE, HttpDateCodec.parse("Sun, 06 Foo 1994 08:49:37 GMT"));
+        assertEquals(HttpDateCodec.NO_DATE, HttpDateCodec.parse("Sun, 06 Nov 1994 25:49:37 GMT"));
+        assertEquals(HttpDateCodec.NO_DATE, HttpDateCodec.parse("Sun, 06 Nov 1994 08:49:37 EST"));
+        assertEquals(HttpDateCodec.NO_DATE, HttpDateCodec.parse("Sun, 06 Nov 1994 08:49"));
+    }
+
+    @Test
+    public void testRoundTrip() throws Exception {
+        SimpleDateFormat format = createFormat();
+        Random random = new Random(7);
+
+        for (int i = 0; i < 10000; i++) {
+            long time = (long) (random.nextDouble() * 4102444800000L) / 1000 * 1000;
+            String formatted = HttpDateCodec.format(time);
+
+            assertEquals(time, HttpDateCodec.parse(formatted));
+            assertEquals(format.parse(formatted).getTime(), HttpDateCodec.parse(formatted));
+        }
+    }
+}
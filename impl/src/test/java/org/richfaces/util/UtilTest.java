@@ -0,0 +1,149 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2010, Red Hat, Inc. and individual contributors
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.richfaces.util;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectOutputStream;
+import java.util.Arrays;
+import java.util.Date;
+
+import javax.faces.FacesException;
+
+import org.junit.Test;
+
+public class UtilTest {
+    @Test
+    public void testEncodeCompactObjectData() throws Exception {
+        Object[] state = new Object[] { "state", null, Boolean.TRUE, Byte.valueOf((byte) -1), Short.valueOf((short) 300),
+                Character.valueOf('\u0436'), Integer.valueOf(0xBED6F8), Long.valueOf(Long.MIN_VALUE), Float.valueOf(0.5f),
+                Double.valueOf(Math.PI), new byte[] { 1, 2, 3 }, new Object[] { "nested", Boolean.FALSE } };
+
+        String encoded = Util.encodeObjectData(state);
+        byte[] data = Util.decodeBytesData(encoded);
+
+        assertEquals(ResourceStateFormat.MARKER, data[0]);
+
+        Object[] decoded = (Object[]) Util.decodeObjectData(encoded);
+
+        assertEquals(state.length, decoded.length);
+        assertEquals(Arrays.asList(state).subList(0, 10), Arrays.asList(decoded).subList(0, 10));
+        assertArrayEquals((byte[]) state[10], (byte[]) decoded[10]);
+        assertArrayEquals((Object[]) state[11], (Object[]) decoded[11]);
+    }
+
+    @Test
+    public void testEncodeSerializableObjectData() throws Exception {
+        Date date = new Date(784111777000L);
+        String encoded = Util.encodeObjectData(new Object[] { "date", date });
+
+        assertEquals((byte) 0xAC, Util.decodeBytesData(encoded)[0]);
+        assertArrayEquals(new Object[] { "date", date }, (Object[]) Util.decodeObjectData(encoded));
+    }
+
+    @Test
+    public void testDecodeSerializedObjectData() throws Exception {
+        ByteArrayOutputStream dataStream = new ByteArrayOutputStream();
+        ObjectOutputStream objStream = new ObjectOutputStream(dataStream);
+
+        objStream.writeObject("legacy");
+        objStream.close();
+
+        assertEquals("legacy", Util.decodeObjectData(Util.encodeBytesData(dataStream.toByteArray())));
+    }
+
+    @Test
+    public void testEncodeLargeBytesData() throws Exception {
+        byte[] data = new byte[60000];
+
+        // highly compressible data is inflated far beyond five times of compressed size
+        Arrays.fill(data, 0, 30000, (byte) 'a');
+        for (int i = 30000; i < data.length; i++) {
+            data[i] = (byte) (i * 31 ^ i >> 7);
+        }
+
+        String encoded = Util.encodeBytesData(data);
+
+        assertArrayEquals(data, Util.decodeBytesData(encoded));
+        assertArrayEquals(new byte[0], Util.decodeBytesData(Util.encodeBytesData(new byte[0])));
+    }
+
+    @Test
+    public void testDecodeBytesDataCached() throws Exception {
+        String encoded = Util.encodeBytesData(new byte[] { 1, 2, 3 });
+
+        assertTrue(Util.decodeBytesData(encoded) == Util.decodeBytesData(new String(encoded)));
+    }
+
+    @Test
+    public void testLargeDecodedDataNotCached() throws Exception {
+        String encoded = Util.encodeBytesData(new byte[10000]);
+
+        assertFalse(Util.decodeBytesData(encoded) == Util.decodeBytesData(new String(encoded)));
+    }
+
+    @Test(expected = FacesException.class)
+    public void testDecodeOversizedBytesData() throws Exception {
+        // compresses to about 100 bytes
+        Util.decodeBytesData(Util.encodeBytesData(new byte[100000]));
+    }
+
+    @Test
+    public void testDecodeCorruptedCompactObjectData() throws Exception {
+        // array of Integer.MAX_VALUE elements
+        byte[] data = new byte[] { ResourceStateFormat.MARKER, 12, 0x7F, -1, -1, -1 };
+
+        assertNull(Util.decodeObjectData(Util.encodeBytesData(data)));
+    }
+
+    @Test
+    public void testDecodeDeeplyNestedCompactObjectData() throws Exception {
+        ByteArrayOutputStream dataStream = new ByteArrayOutputStream();
+        dataStream.write(ResourceStateFormat.MARKER);
+
+        // single-element arrays nested far beyond the stack depth
+        for (int i = 0; i < 12000; i++) {
+            dataStream.write(new byte[] { 12, 0, 0, 0, 1 });
+        }
+        dataStream.write(0);
+
+        assertNull(Util.decodeObjectData(Util.encodeBytesData(dataStream.toByteArray())));
+    }
+
+    @Test
+    public void testEncodeDeeplyNestedObjectData() throws Exception {
+        Object[] state = new Object[] { "leaf" };
+        for (int i = 0; i < 20; i++) {
+            state = new Object[] { state };
+        }
+
+        String encoded = Util.encodeObjectData(state);
+
+        assertEquals((byte) 0xAC, Util.decodeBytesData(encoded)[0]);
+        assertTrue(Arrays.deepEquals(state, (Object[]) Util.decodeObjectData(encoded)));
+    }
+}